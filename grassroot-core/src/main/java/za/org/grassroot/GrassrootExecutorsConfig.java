@@ -0,0 +1,80 @@
+package za.org.grassroot;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.AsyncConfigurer;
+import za.org.grassroot.core.util.MonitoredTaskExecutor;
+import za.org.grassroot.core.util.MonitoredTaskExecutor.RejectionPolicy;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Separate pools for async work, so that a long bulk job or a slow external service cannot starve the async
+ * work triggered by users (USSD logging, bundle storage, etc). Methods annotated with a plain @Async go to the
+ * user-facing pool; bulk and outbound work must name its pool, e.g., @Async(GrassrootExecutorsConfig.BULK_EXECUTOR).
+ * Member imports get a small pool of their own, as a user is waiting on the upload, so it should not queue behind bulk
+ * jobs, nor take over the user-facing pool.
+ * Scheduled jobs run on their own scheduler (see GrassrootServicesConfig).
+ */
+@Configuration @Slf4j
+public class GrassrootExecutorsConfig implements AsyncConfigurer {
+
+    public static final String USER_FACING_EXECUTOR = "userFacingExecutor";
+    public static final String BULK_EXECUTOR = "bulkExecutor";
+    public static final String OUTBOUND_EXECUTOR = "outboundExecutor";
+    public static final String IMPORT_EXECUTOR = "importExecutor";
+
+    private final Environment environment;
+
+    // read from the environment rather than through @Value, as being the async configurer this is created before
+    // placeholders can be resolved in some contexts (e.g., the JPA test slices)
+    public GrassrootExecutorsConfig(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Primary
+    @Bean(name = USER_FACING_EXECUTOR)
+    public MonitoredTaskExecutor userFacingExecutor() {
+        return executor("user", "async-user", 8, 16, 1000);
+    }
+
+    @Bean(name = BULK_EXECUTOR)
+    public MonitoredTaskExecutor bulkExecutor() {
+        return executor("bulk", "async-bulk", 2, 4, 200);
+    }
+
+    @Bean(name = OUTBOUND_EXECUTOR)
+    public MonitoredTaskExecutor outboundExecutor() {
+        return executor("outbound", "async-outbound", 4, 8, 2000);
+    }
+
+    // a short queue, so that when uploads pile up the request threads normalise their own rows rather than wait
+    @Bean(name = IMPORT_EXECUTOR)
+    public MonitoredTaskExecutor importExecutor() {
+        return executor("import", "async-import", 2, 4, 16);
+    }
+
+    private MonitoredTaskExecutor executor(String pool, String threadPrefix, int coreSize, int maxSize, int queueCapacity) {
+        final String prefix = "grassroot.executors." + pool + ".";
+        return new MonitoredTaskExecutor(threadPrefix,
+                environment.getProperty(prefix + "core-size", Integer.class, coreSize),
+                environment.getProperty(prefix + "max-size", Integer.class, maxSize),
+                environment.getProperty(prefix + "queue-capacity", Integer.class, queueCapacity),
+                environment.getProperty(prefix + "rejection", RejectionPolicy.class, RejectionPolicy.CALLER_RUNS));
+    }
+
+    @Override
+    public Executor getAsyncExecutor() {
+        return userFacingExecutor();
+    }
+
+    @Override
+    public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
+        return (ex, method, params) -> log.error("Uncaught exception in async method {}: {}", method.getName(), ex.getMessage(), ex);
+    }
+
+}
@@ -1,11 +1,19 @@
 package za.org.grassroot.core;
 
 import org.hibernate.dialect.HSQLDialect;
+import org.hibernate.dialect.function.StandardSQLFunction;
+import org.hibernate.type.StandardBasicTypes;
 
 import java.sql.Types;
 
+import static za.org.grassroot.core.PostgreSQLDialectArray.ARRAY_CONTAINS_ALL;
+import static za.org.grassroot.core.PostgreSQLDialectArray.ARRAY_OVERLAPS;
+
 /**
  * Created by luke on 2017/05/05.
+ *
+ * The array functions are plain calls here, to the aliases the test schema.sql declares on the embedded database,
+ * for the Java versions in the core test sources (EmbeddedArrayFunctions).
  */
 public class HSQLDialectArray extends HSQLDialect {
 
@@ -14,6 +22,9 @@ public class HSQLDialectArray extends HSQLDialect {
 
         registerHibernateType(Types.ARRAY, "array");
         registerColumnType(Types.ARRAY, "ARRAY");
+
+        registerFunction(ARRAY_CONTAINS_ALL, new StandardSQLFunction(ARRAY_CONTAINS_ALL, StandardBasicTypes.BOOLEAN));
+        registerFunction(ARRAY_OVERLAPS, new StandardSQLFunction(ARRAY_OVERLAPS, StandardBasicTypes.BOOLEAN));
     }
 
 }
@@ -0,0 +1,26 @@
+package za.org.grassroot.core;
+
+import org.hibernate.dialect.PostgreSQL95Dialect;
+import org.hibernate.dialect.function.SQLFunctionTemplate;
+import org.hibernate.type.StandardBasicTypes;
+
+/**
+ * Registers the array operators used by the membership filters, so that criteria queries can use them (and hence
+ * the GIN index on tags). The second argument is a single string of values joined by the third, as that binds as a
+ * plain parameter, where a Java array would need its own type.
+ */
+public class PostgreSQLDialectArray extends PostgreSQL95Dialect {
+
+    public static final String ARRAY_CONTAINS_ALL = "array_contains_all";
+    public static final String ARRAY_OVERLAPS = "array_overlaps";
+
+    public PostgreSQLDialectArray() {
+        super();
+
+        registerFunction(ARRAY_CONTAINS_ALL, new SQLFunctionTemplate(StandardBasicTypes.BOOLEAN,
+                "(?1 @> string_to_array(?2, ?3))"));
+        registerFunction(ARRAY_OVERLAPS, new SQLFunctionTemplate(StandardBasicTypes.BOOLEAN,
+                "(?1 && string_to_array(?2, ?3))"));
+    }
+
+}
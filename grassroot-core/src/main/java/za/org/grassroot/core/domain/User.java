@@ -296,6 +296,7 @@ public class User implements GrassrootEntity, UserDetails, Comparable<User> {
         } else {
             Membership membership = new Membership(group, this, role, Instant.now(), joinMethod, joinMethodDescriptor);
             this.memberships.add(membership);
+            group.incrementMemberCount();
             return membership;
         }
     }
@@ -0,0 +1,58 @@
+package za.org.grassroot.core.domain.account;
+
+import lombok.Getter;
+
+import javax.persistence.*;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * An account's charged usage over one UTC day, rolled up once the day is over, so that spend over a month (or any run
+ * of whole days) is a sum of a few rows rather than a count over the logs and notifications
+ */
+@Entity @Getter
+@Table(name = "account_usage_day",
+        uniqueConstraints = @UniqueConstraint(name = "uk_account_usage_day_account_date", columnNames = {"account_id", "usage_date"}))
+public class AccountUsageDay {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id", nullable = false)
+    private Long id;
+
+    @ManyToOne
+    @JoinColumn(name = "account_id", nullable = false, updatable = false, foreignKey = @ForeignKey(name = "fk_account_usage_day_account"))
+    private Account account;
+
+    @Column(name = "usage_date", nullable = false, updatable = false)
+    private LocalDate usageDate;
+
+    @Column(name = "ussd_sessions", nullable = false)
+    private long ussdSessions;
+
+    @Column(name = "charged_notifications", nullable = false)
+    private long chargedNotifications;
+
+    @Column(name = "calculated_time", nullable = false)
+    private Instant calculatedTime;
+
+    private AccountUsageDay() {
+        // for JPA
+    }
+
+    public AccountUsageDay(Account account, LocalDate usageDate, long ussdSessions, long chargedNotifications) {
+        this.account = Objects.requireNonNull(account);
+        this.usageDate = Objects.requireNonNull(usageDate);
+        this.ussdSessions = ussdSessions;
+        this.chargedNotifications = chargedNotifications;
+        this.calculatedTime = Instant.now();
+    }
+
+    public void updateUsage(long ussdSessions, long chargedNotifications) {
+        this.ussdSessions = ussdSessions;
+        this.chargedNotifications = chargedNotifications;
+        this.calculatedTime = Instant.now();
+    }
+
+}
@@ -15,6 +15,7 @@ import za.org.grassroot.core.domain.campaign.Campaign;
 import za.org.grassroot.core.domain.group.Group;
 import za.org.grassroot.core.domain.group.GroupJoinMethod;
 import za.org.grassroot.core.domain.group.JoinDateCondition;
+import za.org.grassroot.core.dto.UserBroadcastProjection;
 import za.org.grassroot.core.enums.DeliveryRoute;
 import za.org.grassroot.core.enums.Province;
 import za.org.grassroot.core.enums.TaskType;
@@ -185,6 +186,25 @@ public class Broadcast implements GrassrootEntity, TagHolder, GrassrootTemplate
     @Column(name = "cascade")
     @Setter @Builder.Default private boolean cascade = false;
 
+    // short message notifications are generated in chunks after the broadcast is stored, in user id order, recording
+    // the last user done so that an interrupted generation can carry on from there without duplicates
+    @Basic
+    @Column(name = "sms_generation_complete")
+    @Setter @Builder.Default private boolean smsGenerationComplete = true;
+
+    @Basic
+    @Column(name = "sms_progress_user_id")
+    private Long smsProgressUserId;
+
+    @Basic
+    @Column(name = "sms_generated_count")
+    @Builder.Default private long smsGeneratedCount = 0;
+
+    // when generation last started or wrote a chunk, so a stalled generation can be told from a running one
+    @Basic
+    @Column(name = "sms_progress_time")
+    @Setter private Instant smsProgressTime;
+
     // note: we use this for storing both provinces _and_ topics (using PROVINCE: and TOPICS:)
     @Column(name = "tags")
     @Type(type = "za.org.grassroot.core.util.StringArrayUserType")
@@ -204,6 +224,10 @@ public class Broadcast implements GrassrootEntity, TagHolder, GrassrootTemplate
         return StringUtils.isEmpty(smsTemplate1) ? "" : mergeTemplate(dest, smsTemplate1);
     }
 
+    public String getShortMsgIncludingMerge(UserBroadcastProjection dest) {
+        return StringUtils.isEmpty(smsTemplate1) ? "" : mergeTemplate(dest, smsTemplate1);
+    }
+
     // using this to preserve builder pattern (note: deviates from prior style of setting these in constructor,
     @PrePersist
     private void setDefaults() {
@@ -1,6 +1,8 @@
 package za.org.grassroot.core.domain.group;
 
+import org.hibernate.Hibernate;
 import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.OptimisticLock;
 import org.hibernate.annotations.Type;
 import za.org.grassroot.core.domain.*;
 import za.org.grassroot.core.domain.account.Account;
@@ -68,6 +70,16 @@ public class Group implements TodoContainer, VoteContainer, MeetingContainer, Se
     @OneToMany(cascade = CascadeType.ALL, mappedBy = "group", orphanRemoval = true)
     private Set<Membership> memberships = new HashSet<>();
 
+    // also denormalizing, so group lists do not count memberships per group; written with the group when it is first
+    // saved, and after that only changed by increments in the database (see takeMemberCountChange), so concurrent joins
+    // each count, and corrected by a periodic reconciliation for any drift
+    @OptimisticLock(excluded = true)
+    @Column(name = "member_count", nullable = false, updatable = false)
+    private int memberCount;
+
+    @Transient
+    private int memberCountChange;
+
     @ManyToOne
     @JoinColumn(name = "parent")
     private Group parent;
@@ -315,12 +327,31 @@ public class Group implements TodoContainer, VoteContainer, MeetingContainer, Se
         final Membership membership = new Membership(this, newMember, role, Instant.now(), joinMethod, joinMethodDescriptor);
         boolean added = this.memberships.add(membership);
         if (added) {
+            changeMemberCount(1);
             newMember.addMappedByMembership(membership);
             return membership;
         }
         return null;
     }
 
+    /**
+     * For adding a member to a group that is already saved, without loading its membership collection: the caller must
+     * have checked the user is not already a member, then saves the membership through the repository and stores the
+     * change to the count. If the collection happens to be loaded already, the membership is added to it too.
+     */
+    public Membership createMembership(User newMember, GroupRole role, GroupJoinMethod joinMethod, String joinMethodDescriptor) {
+        Objects.requireNonNull(newMember);
+        Objects.requireNonNull(role);
+
+        final Membership membership = new Membership(this, newMember, role, Instant.now(), joinMethod, joinMethodDescriptor);
+        if (this.memberships != null && Hibernate.isInitialized(this.memberships)) {
+            this.memberships.add(membership);
+        }
+        newMember.addMappedByMembership(membership);
+        changeMemberCount(1);
+        return membership;
+    }
+
     public Membership removeMember(User member) {
 		Optional<Membership> membership = this.memberships.stream()
 				.filter(mship -> mship.getUser().equals(member))
@@ -337,11 +368,48 @@ public class Group implements TodoContainer, VoteContainer, MeetingContainer, Se
         Objects.requireNonNull(membership);
         boolean removed = this.memberships.remove(membership);
         if (removed) {
+            changeMemberCount(-1);
             membership.getUser().removeMappedByMembership(membership);
         }
         return removed;
     }
 
+    public int getMemberCount() {
+        return memberCount;
+    }
+
+    /**
+     * For memberships created from the user's side (which does not touch this group's membership collection), so the
+     * count stays in step with them.
+     */
+    public void incrementMemberCount() {
+        changeMemberCount(1);
+    }
+
+    private void changeMemberCount(int change) {
+        this.memberCount = Math.max(0, this.memberCount + change);
+        // before the group is first saved, the count is written with it
+        if (this.id != null)
+            this.memberCountChange += change;
+    }
+
+    /**
+     * Returns the change to the member count since the group was loaded or this was last called, and resets it, for the
+     * caller to apply in the database as an increment.
+     */
+    public int takeMemberCountChange() {
+        final int change = this.memberCountChange;
+        this.memberCountChange = 0;
+        return change;
+    }
+
+    /**
+     * Takes the count as stored once changes are applied, which includes those made concurrently.
+     */
+    public void refreshMemberCount(int storedCount) {
+        this.memberCount = storedCount;
+    }
+
     public List<String> getJoinTopics() {
         return this.getTagList().stream().filter(s -> s.startsWith(JOIN_TOPIC_PREFIX))
                 .map(s -> s.substring(JOIN_TOPIC_PREFIX.length())).collect(Collectors.toList());
@@ -23,7 +23,7 @@ import java.util.stream.Stream;
 public class Membership implements Serializable, TagHolder {
 
     private static final String JOIN_METHOD_DESCRIPTOR_TAG = "JOINDESC:";
-    private static final String AFFILITATION_TAG ="AFFILIATION:";
+    public static final String AFFILITATION_TAG ="AFFILIATION:";
 
     @Setter(AccessLevel.PRIVATE)
     @Id
@@ -0,0 +1,31 @@
+package za.org.grassroot.core.dto;
+
+import lombok.Value;
+import org.springframework.util.StringUtils;
+import za.org.grassroot.core.domain.User;
+import za.org.grassroot.core.enums.DeliveryRoute;
+import za.org.grassroot.core.enums.Province;
+
+// just what is needed to address and merge a broadcast, so large recipient lists can be fetched without loading users
+@Value
+public class UserBroadcastProjection {
+
+    Long id;
+    String uid, displayName, phoneNumber, emailAddress, username;
+    Province province;
+    DeliveryRoute messagingPreference;
+
+    public boolean hasPhoneNumber() {
+        return !StringUtils.isEmpty(phoneNumber);
+    }
+
+    public boolean hasEmailAddress() {
+        return !StringUtils.isEmpty(emailAddress);
+    }
+
+    public static UserBroadcastProjection extractFromUser(User user) {
+        return new UserBroadcastProjection(user.getId(), user.getUid(), user.getDisplayName(), user.getPhoneNumber(),
+                user.getEmailAddress(), user.getUsername(), user.getProvince(), user.getMessagingPreference());
+    }
+
+}
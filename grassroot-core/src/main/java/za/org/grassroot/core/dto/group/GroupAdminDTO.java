@@ -3,7 +3,6 @@ package za.org.grassroot.core.dto.group;
 import io.swagger.annotations.ApiModel;
 import lombok.Getter;
 import za.org.grassroot.core.domain.group.Group;
-import za.org.grassroot.core.repository.MembershipRepository;
 
 @ApiModel
 @Getter
@@ -11,8 +10,8 @@ public class GroupAdminDTO extends GroupRefDTO {
     protected String creatingUserName;
     protected boolean active;
 
-    public GroupAdminDTO(Group group, MembershipRepository membershipRepository){
-        super(group, membershipRepository);
+    public GroupAdminDTO(Group group){
+        super(group);
         this.creatingUserName = group.getCreatedByUser().getDisplayName();
         this.active = group.isActive();
     }
@@ -40,7 +40,7 @@ public class GroupFullDTO extends GroupMinimalDTO {
     @Setter private String joinMessage;
 
     public GroupFullDTO(Group group, Membership membership, MembershipRepository membershipRepository) {
-        super(group, membership, membershipRepository);
+        super(group, membership);
         this.groupCreatorUid = group.getCreatedByUser().getUid();
         this.groupCreatorName = group.getCreatedByUser().getName();
         this.groupCreationTimeMillis = group.getCreatedDateTime().toEpochMilli();
@@ -11,17 +11,14 @@ import za.org.grassroot.core.domain.group.Membership;
 import za.org.grassroot.core.domain.task.Event;
 import za.org.grassroot.core.enums.GroupViewPriority;
 import za.org.grassroot.core.enums.TaskType;
-import za.org.grassroot.core.repository.MembershipRepository;
 import za.org.grassroot.core.util.DateTimeUtil;
 import za.org.grassroot.core.util.InstantToMilliSerializer;
 
 import java.time.Instant;
 import java.time.ZonedDateTime;
-import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
-import java.util.List;
 import java.util.Set;
-import java.util.function.Function;
 
 @Getter @Setter
 public class GroupMinimalDTO extends GroupTimeChangedDTO {
@@ -40,8 +37,13 @@ public class GroupMinimalDTO extends GroupTimeChangedDTO {
     @JsonSerialize(using = InstantToMilliSerializer.class)
     private Instant lastTaskOrChangeTime;
 
-    public GroupMinimalDTO(Group group, Membership membership, MembershipRepository membershipRepository) {
-        super(group, membershipRepository);
+    public GroupMinimalDTO(Group group, Membership membership) {
+        this(group, membership, group.getDescendantEvents());
+    }
+
+    // for assembling many at once, with the group's descendant events already fetched (those already past can be left out)
+    public GroupMinimalDTO(Group group, Membership membership, Collection<Event> descendantEvents) {
+        super(group);
         this.description = group.getDescription();
         this.userRole = membership.getRole();
         this.lastTaskOrChangeTime = group.getLatestChangeOrTaskTime();
@@ -51,14 +53,14 @@ public class GroupMinimalDTO extends GroupTimeChangedDTO {
         this.hidden = GroupViewPriority.HIDDEN.equals(membership.getViewPriority());
         this.profileImageUrl = group.getImageUrl();
 
-        List<Event> events = new ArrayList<>(group.getDescendantEvents());
-        events.sort(Comparator.comparing(Event::getDeadlineTime, Comparator.reverseOrder()));
-        for (Event event : events) {
-            if (event.getDeadlineTime().isAfter(Instant.now())) {
-                this.nextEventTime = event.getDeadlineTime();
-                this.nextEventType = event.getTaskType();
-            }
-        }
+        final Instant now = Instant.now();
+        descendantEvents.stream()
+                .filter(event -> event.getDeadlineTime().isAfter(now))
+                .min(Comparator.comparing(Event::getDeadlineTime))
+                .ifPresent(event -> {
+                    this.nextEventTime = event.getDeadlineTime();
+                    this.nextEventType = event.getTaskType();
+                });
     }
 
     @JsonIgnore
@@ -2,7 +2,6 @@ package za.org.grassroot.core.dto.group;
 
 import lombok.Getter;
 import za.org.grassroot.core.domain.group.Group;
-import za.org.grassroot.core.repository.MembershipRepository;
 
 @Getter
 public class GroupRefDTO {
@@ -11,9 +10,9 @@ public class GroupRefDTO {
     protected String name;
     protected int memberCount;
 
-    public GroupRefDTO(Group group, MembershipRepository membershipRepository) {
+    public GroupRefDTO(Group group) {
         this.groupUid = group.getUid();
         this.name = group.getName();
-        this.memberCount = membershipRepository.countByGroup(group);
+        this.memberCount = group.getMemberCount();
     }
 }
@@ -2,7 +2,6 @@ package za.org.grassroot.core.dto.group;
 
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 import za.org.grassroot.core.domain.group.Group;
-import za.org.grassroot.core.repository.MembershipRepository;
 import za.org.grassroot.core.util.InstantToMilliSerializer;
 
 import java.time.Instant;
@@ -17,8 +16,8 @@ public class GroupTimeChangedDTO extends GroupRefDTO {
     @JsonSerialize(using = InstantToMilliSerializer.class)
     private Instant lastGroupChange;
 
-    public GroupTimeChangedDTO(Group group, MembershipRepository membershipRepository) {
-        super(group, membershipRepository);
+    public GroupTimeChangedDTO(Group group) {
+        super(group);
         this.lastGroupChange = group.getLastGroupChangeTime();
     }
 
@@ -3,14 +3,15 @@ package za.org.grassroot.core.dto.group;
 import lombok.Getter;
 import za.org.grassroot.core.domain.group.Group;
 import za.org.grassroot.core.domain.group.Membership;
+import za.org.grassroot.core.domain.task.Event;
+import za.org.grassroot.core.domain.task.Todo;
 import za.org.grassroot.core.dto.task.TaskRefDTO;
 import za.org.grassroot.core.enums.TaskType;
-import za.org.grassroot.core.repository.MembershipRepository;
 
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Getter
@@ -20,21 +21,28 @@ public class GroupWebDTO extends GroupMinimalDTO {
     private List<TaskRefDTO> comingUpEvents = new ArrayList<>();
     private List<String> topics = new ArrayList<>();
 
-    public GroupWebDTO(Group group, Membership membership, List<GroupRefDTO> subGroups, MembershipRepository membershipRepository) {
-        super(group, membership, membershipRepository);
+    public GroupWebDTO(Group group, Membership membership, List<GroupRefDTO> subGroups) {
+        this(group, membership, subGroups, group.getDescendantEvents(), group.getTodos());
+    }
+
+    // for assembling many at once, with the group's descendant events and its own todos already fetched
+    public GroupWebDTO(Group group, Membership membership, List<GroupRefDTO> subGroups,
+                       Collection<Event> descendantEvents, Collection<Todo> todos) {
+        super(group, membership, descendantEvents);
         this.subGroups = subGroups;
+        final Instant now = Instant.now();
         this.comingUpEvents.addAll(
-                group.getEvents()
+                descendantEvents
                         .stream()
-                        .filter(e -> e.getDeadlineTime().isAfter(Instant.now()))
+                        .filter(e -> group.equals(e.getParent()) && e.getDeadlineTime().isAfter(now))
                         .map(e -> new TaskRefDTO(e.getUid(), TaskType.ofClass(e.getClass()), e.getName(), e.getDeadlineTime()))
                         .collect(Collectors.toList())
         );
 
         this.comingUpEvents.addAll(
-                group.getTodos()
+                todos
                         .stream()
-                        .filter(td -> td.getDeadlineTime().isAfter(Instant.now()))
+                        .filter(td -> td.getDeadlineTime().isAfter(now))
                         .map(td -> new TaskRefDTO(td.getUid(), TaskType.ofClass(td.getClass()), td.getName(), td.getDeadlineTime()))
                         .collect(Collectors.toList())
         );
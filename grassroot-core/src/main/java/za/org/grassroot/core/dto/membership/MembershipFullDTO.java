@@ -7,7 +7,6 @@ import za.org.grassroot.core.domain.group.GroupJoinMethod;
 import za.org.grassroot.core.domain.group.Membership;
 import za.org.grassroot.core.dto.UserFullDTO;
 import za.org.grassroot.core.dto.group.GroupMinimalDTO;
-import za.org.grassroot.core.repository.MembershipRepository;
 
 import java.util.List;
 import java.util.function.Function;
@@ -25,10 +24,10 @@ public class MembershipFullDTO {
     private final List<String> affiliations;
     private final boolean canEditDetails;
 
-    public MembershipFullDTO(Membership membership, MembershipRepository membershipRepository) {
+    public MembershipFullDTO(Membership membership) {
         this.displayName = membership.getDisplayName();
         this.user = new UserFullDTO(membership.getUser());
-        this.group = new GroupMinimalDTO(membership.getGroup(), membership, membershipRepository);
+        this.group = new GroupMinimalDTO(membership.getGroup(), membership);
         this.roleName = membership.getRole();
         this.topics = membership.getTopics();
         this.joinMethod = membership.getJoinMethod();
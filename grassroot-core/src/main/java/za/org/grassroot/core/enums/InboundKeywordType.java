@@ -0,0 +1,15 @@
+package za.org.grassroot.core.enums;
+
+/**
+ * The kinds of word or code that an inbound SMS, WhatsApp message or USSD string can use to reach something. Where
+ * the same text is used by more than one, they are matched in this order.
+ */
+public enum InboundKeywordType {
+
+    GEO_API_SUFFIX, // trailing USSD digits that open a geo API menu
+    GROUP_JOIN_TOKEN, // the numeric join code of a group, dialled on USSD
+    CAMPAIGN_CODE, // the numeric code of a campaign, dialled on USSD or sent as a word
+    CAMPAIGN_JOIN_WORD, // the public join word of a campaign, sent on SMS or WhatsApp
+    GROUP_JOIN_WORD // a join word added to a group, sent on SMS
+
+}
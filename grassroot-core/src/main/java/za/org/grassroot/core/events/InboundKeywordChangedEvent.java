@@ -0,0 +1,35 @@
+package za.org.grassroot.core.events;
+
+import lombok.Getter;
+import lombok.ToString;
+import org.springframework.context.ApplicationEvent;
+import za.org.grassroot.core.enums.InboundKeywordType;
+
+import java.time.Instant;
+
+/**
+ * Published when a campaign code or join word, or a group join token or join word, is opened, changed or closed, so
+ * that in-memory keyword routing can be brought up to date once the change commits. A keyword that is closed is
+ * published with an expiry of now (or earlier); a null expiry means it stays open until closed.
+ */
+@Getter @ToString(exclude = "source")
+public class InboundKeywordChangedEvent extends ApplicationEvent {
+
+    private final InboundKeywordType type;
+    private final String keyword;
+    private final String targetUid;
+    private final Instant expiresAt;
+
+    public InboundKeywordChangedEvent(Object source, InboundKeywordType type, String keyword, String targetUid, Instant expiresAt) {
+        super(source);
+        this.type = type;
+        this.keyword = keyword;
+        this.targetUid = targetUid;
+        this.expiresAt = expiresAt;
+    }
+
+    public boolean isClosed() {
+        return expiresAt != null && !expiresAt.isAfter(Instant.now());
+    }
+
+}
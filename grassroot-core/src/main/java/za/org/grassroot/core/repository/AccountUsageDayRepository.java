@@ -0,0 +1,30 @@
+package za.org.grassroot.core.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import za.org.grassroot.core.domain.account.AccountUsageDay;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface AccountUsageDayRepository extends JpaRepository<AccountUsageDay, Long> {
+
+    List<AccountUsageDay> findByUsageDate(LocalDate usageDate);
+
+    // the days in the range that have been rolled up (a rolled up day has a row for each enabled account at the time)
+    @Query("select distinct u.usageDate from AccountUsageDay u where u.usageDate between :first and :last order by u.usageDate")
+    List<LocalDate> findRolledUpDaysBetween(@Param("first") LocalDate first, @Param("last") LocalDate last);
+
+    // account uid, USSD sessions and charged notifications, summed over the days in the range (both inclusive)
+    @Query("select u.account.uid, sum(u.ussdSessions), sum(u.chargedNotifications) from AccountUsageDay u " +
+            "where u.usageDate between :first and :last group by u.account.uid")
+    List<Object[]> sumUsageByAccountBetween(@Param("first") LocalDate first, @Param("last") LocalDate last);
+
+    // as above, for one account only
+    @Query("select u.account.uid, sum(u.ussdSessions), sum(u.chargedNotifications) from AccountUsageDay u " +
+            "where u.account.uid = :accountUid and u.usageDate between :first and :last group by u.account.uid")
+    List<Object[]> sumUsageForAccountBetween(@Param("accountUid") String accountUid, @Param("first") LocalDate first,
+                                             @Param("last") LocalDate last);
+
+}
@@ -4,11 +4,14 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import za.org.grassroot.core.domain.broadcast.Broadcast;
 import za.org.grassroot.core.domain.broadcast.BroadcastSchedule;
 import za.org.grassroot.core.domain.campaign.Campaign;
 import za.org.grassroot.core.domain.group.Group;
 
+import java.time.Instant;
 import java.util.List;
 
 public interface BroadcastRepository extends JpaRepository<Broadcast, Integer>, JpaSpecificationExecutor<Broadcast> {
@@ -25,4 +28,7 @@ public interface BroadcastRepository extends JpaRepository<Broadcast, Integer>,
 
     List<Broadcast> findByCampaign(Campaign campaign);
 
+    @Query("select b.uid from Broadcast b where b.smsGenerationComplete = false and b.smsProgressTime < :progressBefore")
+    List<String> findUidsWithIncompleteSmsGeneration(@Param("progressBefore") Instant progressBefore);
+
 }
@@ -5,15 +5,23 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import za.org.grassroot.core.domain.User;
+import za.org.grassroot.core.domain.broadcast.Broadcast;
 import za.org.grassroot.core.domain.campaign.Campaign;
 import za.org.grassroot.core.domain.campaign.CampaignLog;
 import za.org.grassroot.core.domain.campaign.CampaignLogProjection;
 import za.org.grassroot.core.enums.CampaignLogType;
 
+import javax.persistence.QueryHint;
 import java.math.BigInteger;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 public interface CampaignLogRepository extends JpaRepository<CampaignLog, Long>, JpaSpecificationExecutor<CampaignLog> {
 
@@ -32,4 +40,11 @@ public interface CampaignLogRepository extends JpaRepository<CampaignLog, Long>,
 
     CampaignLogProjection findFirstByCampaignOrderByCreationTimeDesc(Campaign campaign);
 
+    CampaignLog findFirstByBroadcastAndCampaignLogTypeOrderByIdDesc(Broadcast broadcast, CampaignLogType campaignLogType);
+
+    // streams the campaign's logs of the given types, with their users, each user's together (consume within a transaction)
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select cl from CampaignLog cl inner join fetch cl.user u where cl.campaign = :campaign and cl.campaignLogType in :types order by u.id")
+    Stream<CampaignLog> streamByCampaignAndTypesOrderByUser(@Param("campaign") Campaign campaign, @Param("types") Collection<CampaignLogType> types);
+
 }
@@ -31,8 +31,13 @@ public interface CampaignRepository extends JpaRepository<Campaign, Long>, JpaSp
     @Query(value = "select c.campaignCode from Campaign c where c.endDateTime > current_timestamp")
     Set<String> fetchAllActiveCampaignCodes();
 
+    // returns code, uid, end time and tags of each campaign still running, for routing inbound codes and join words
+    @Query(value = "select c.campaignCode, c.uid, c.endDateTime, c.tags from Campaign c where c.endDateTime > ?1")
+    List<Object[]> fetchActiveCampaignCodesAndTags(Instant now);
+
     @Query(value = "select c.* from campaign c where " +
-            "(to_tsvector('english', c.name) @@ to_tsquery('english', ?1))", nativeQuery = true)
+            "c.search_vector @@ to_tsquery('english', ?1) " +
+            "order by ts_rank(c.search_vector, to_tsquery('english', ?1)) desc", nativeQuery = true)
     List<Campaign> findCampaignsWithNamesIncluding(String tsQuery);
 
 }
@@ -3,12 +3,15 @@ package za.org.grassroot.core.repository;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import za.org.grassroot.core.domain.User;
 import za.org.grassroot.core.domain.task.Event;
 import za.org.grassroot.core.domain.task.EventLog;
 import za.org.grassroot.core.enums.EventLogType;
 import za.org.grassroot.core.enums.EventType;
 
+import java.time.Instant;
 import java.util.List;
 
 public interface EventLogRepository extends JpaRepository<EventLog, Long>, JpaSpecificationExecutor<EventLog> {
@@ -22,4 +25,15 @@ public interface EventLogRepository extends JpaRepository<EventLog, Long>, JpaSp
     List<EventLog> findByEventAndEventLogType(Event event, EventLogType type);
 
     List<EventLog> findByEventLogTypeAndEventType(EventLogType logType, EventType eventType, Pageable pageable);
+
+    // rows of upper-cased option and count
+    @Query("select upper(el.tag), count(el) from EventLog el where el.event = :vote and el.eventLogType = 'VOTE_OPTION_RESPONSE' " +
+            "group by upper(el.tag)")
+    List<Object[]> countVoteOptionResponses(@Param("vote") Event vote);
+
+    // rows of vote id, upper-cased option and count, for votes not yet closed
+    @Query("select e.id, upper(el.tag), count(el) from EventLog el inner join el.event e " +
+            "where el.eventLogType = 'VOTE_OPTION_RESPONSE' and e.canceled = false and e.eventStartDateTime > :now " +
+            "group by e.id, upper(el.tag)")
+    List<Object[]> countVoteOptionResponsesForOpenVotes(@Param("now") Instant now);
 }
@@ -2,7 +2,26 @@ package za.org.grassroot.core.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import za.org.grassroot.core.domain.notification.EventNotification;
+import za.org.grassroot.core.domain.notification.NotificationStatus;
+
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 public interface EventNotificationRepository extends JpaRepository<EventNotification, Long>, JpaSpecificationExecutor<EventNotification> {
+
+    // returns id, time sent, phone number, email, and the time and message of each error (one row per error, or a row
+    // of nulls if it has none), for notifications in the given statuses, in the order sent
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select n.id, n.createdDateTime, t.phoneNumber, t.emailAddress, e.errorTime, e.errorMessage " +
+            "from EventNotification n inner join n.target t left join n.sendingErrors e " +
+            "where n.event.uid = :eventUid and n.status in :statuses order by n.createdDateTime, n.id, e.errorTime")
+    Stream<Object[]> streamErrorReportRows(@Param("eventUid") String eventUid, @Param("statuses") Collection<NotificationStatus> statuses);
+
 }
@@ -21,8 +21,22 @@ public interface EventRepository extends JpaRepository<Event, Long>, JpaSpecific
 
 	Set<Event> findByUidIn(Collection<String> uids);
 
+	// upcoming events in the user's groups that want a response and that the user has not yet responded to (excluding
+	// meetings the user called, as those get an automatic yes, and events assigned only to other members), as one query
+	// rather than a response check per event
+	@Query("select e from Event e inner join e.parentGroup g inner join g.memberships m " +
+			"where m.user = ?1 and e.canceled = false and e.rsvpRequired = true and e.eventStartDateTime > ?2 " +
+			"and (e.type <> 'MEETING' or e.createdByUser <> ?1) " +
+			"and (e.assignedMembers is empty or ?1 member of e.assignedMembers) " +
+			"and not exists (select el from EventLog el where el.event = e and el.user = ?1 " +
+			"and el.eventLogType in ('RSVP', 'VOTE_OPTION_RESPONSE')) " +
+			"order by e.createdDateTime asc")
+	List<Event> findUpcomingEventsAwaitingResponse(User user, Instant now);
+
 	Event findTopByParentGroupAndEventStartDateTimeNotNullOrderByEventStartDateTimeDesc(Group group);
 
+	List<Event> findByAncestorGroupInAndEventStartDateTimeAfter(Collection<Group> groups, Instant time);
+
 	List<Event> findByParentGroupAndEventStartDateTimeBetweenAndCanceledFalse(Group group, Instant start, Instant end, Sort sort);
 
 	List<Event> findByParentGroupAndCanceledFalse(Group group);
@@ -34,7 +48,8 @@ public interface EventRepository extends JpaRepository<Event, Long>, JpaSpecific
 	@Query(value = "select e.* from event e " +
 			"inner join group_profile g on e.parent_group_id = g.id " +
 			"inner join group_user_membership m on g.id = m.group_id " +
-			"where m.user_id = ?1 and to_tsvector('english', e.name) @@ to_tsquery('english', ?2)", nativeQuery = true)
+			"where m.user_id = ?1 and e.search_vector @@ to_tsquery('english', ?2) " +
+			"order by ts_rank(e.search_vector, to_tsquery('english', ?2)) desc", nativeQuery = true)
 	List<Event> findByParentGroupMembershipsUserAndNameSearchTerm(Long userId, String tsQueryText);
 
 	/*
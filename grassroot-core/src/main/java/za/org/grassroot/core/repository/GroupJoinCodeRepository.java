@@ -19,4 +19,7 @@ public interface GroupJoinCodeRepository extends JpaRepository<GroupJoinCode, UU
     Optional<Group> selectGroupWithActiveCode(String code);
 
     List<GroupJoinCode> findByActiveTrue();
+
+    @Query("select gjc.code, gjc.group.uid from GroupJoinCode gjc where gjc.active = true")
+    List<Object[]> fetchActiveCodesWithGroupUids();
 }
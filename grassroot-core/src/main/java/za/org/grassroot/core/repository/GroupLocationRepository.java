@@ -2,12 +2,17 @@ package za.org.grassroot.core.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import za.org.grassroot.core.domain.geo.GroupLocation;
 import za.org.grassroot.core.domain.group.Group;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 public interface GroupLocationRepository extends JpaRepository<GroupLocation, Long> {
 	void deleteByGroupAndLocalDate(Group group, LocalDate localDate);
@@ -23,4 +28,10 @@ public interface GroupLocationRepository extends JpaRepository<GroupLocation, Lo
 
 	@Query("select distinct g from GroupLocation gl inner join gl.group g where g IN ?1")
 	List<Group> findAllGroupsWithLocationDataInReferenceSet(Set<Group> groups);
+
+	// returns (group id, latitude, longitude) of each group's most recent location, for the nearby search index
+	@QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "5000"))
+	@Query("select l.group.id, l.location.latitude, l.location.longitude from GroupLocation l " +
+			"where l.localDate = (select max(ll.localDate) from GroupLocation ll where ll.group = l.group)")
+	Stream<Object[]> streamLatestGroupLocations();
 }
@@ -4,6 +4,7 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import za.org.grassroot.core.domain.broadcast.Broadcast;
 import za.org.grassroot.core.domain.group.Group;
 import za.org.grassroot.core.domain.group.GroupLog;
 import za.org.grassroot.core.enums.GroupLogType;
@@ -19,4 +20,6 @@ public interface GroupLogRepository extends JpaRepository<GroupLog, Long>, JpaSp
 	GroupLog findFirstByGroupOrderByCreatedDateTimeDesc(Group group);
 
     List<GroupLog> findByGroupLogTypeIn(Collection<GroupLogType> types, Pageable pageable);
+
+    GroupLog findFirstByBroadcastAndGroupLogTypeOrderByIdDesc(Broadcast broadcast, GroupLogType groupLogType);
 }
@@ -8,6 +8,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import za.org.grassroot.core.domain.Permission;
@@ -15,6 +16,7 @@ import za.org.grassroot.core.domain.User;
 import za.org.grassroot.core.domain.group.Group;
 
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -37,36 +39,64 @@ public interface GroupRepository extends JpaRepository<Group, Long>, JpaSpecific
 
     int countByMembershipsUserAndActiveTrue(User user);
 
+    // returns id and uid, in id order, for paging through all groups in batch jobs
+    @Query("select g.id, g.uid from Group g where g.id > :afterId order by g.id")
+    List<Object[]> fetchIdsAndUidsAfter(@Param("afterId") long afterId, Pageable pageable);
+
+    // returns id and stored member count, in id order, for reconciling the count a page at a time
+    @Query("select g.id, g.memberCount from Group g where g.id > :afterId order by g.id")
+    List<Object[]> fetchIdsAndMemberCountsAfter(@Param("afterId") long afterId, Pageable pageable);
+
+    // applies a change to the stored count in the database, so concurrent adds and removals each count
+    @Modifying
+    @Query("update Group g set g.memberCount = g.memberCount + :change where g.id = :groupId")
+    int adjustMemberCount(@Param("groupId") Long groupId, @Param("change") int change);
+
+    @Query("select g.memberCount from Group g where g.id = :groupId")
+    int fetchMemberCount(@Param("groupId") Long groupId);
+
+    // returns join token, uid and token expiry of each group whose token is still open
+    @Query("select g.groupTokenCode, g.uid, g.tokenExpiryDateTime from Group g " +
+            "where g.groupTokenCode is not null and g.tokenExpiryDateTime > :now")
+    List<Object[]> fetchOpenJoinTokens(@Param("now") Instant now);
+
+    List<Group> findByParentInAndActiveTrue(Collection<Group> parents);
+
     /*
     Find all groups, with pagination--for system admin
      */
     Page<Group> findAll(Pageable pageable);
 
     /*
-    Couple of methods to be able to discover groups, public if user not a member, and their own groups
+    Couple of methods to be able to discover groups, public if user not a member, and their own groups. The search
+    vectors are stored columns, maintained by triggers (see change_183), so these use their gin indexes; matches are
+    returned best ranked first (so name matches ahead of those only through a task)
      */
     @Query(value =
             "select g.* from group_profile g where " +
             "g.discoverable = true and " +
             "g.id not in (select m.group_id from group_user_membership m where m.user_id = ?1) and " +
             "(" +
-            "to_tsvector('english', g.name) @@ to_tsquery('english', ?2) or " +
-            "g.id in (select e.ancestor_group_id from event e where to_tsvector('english', e.name) @@ to_tsquery('english', ?2)) or " +
-            "g.id in (select l.ancestor_group_id from action_todo l where to_tsvector('english', l.message) @@ to_tsquery('english', ?2))" +
-            ")", nativeQuery = true)
+            "g.search_vector @@ to_tsquery('english', ?2) or " +
+            "g.id in (select e.ancestor_group_id from event e where e.search_vector @@ to_tsquery('english', ?2)) or " +
+            "g.id in (select l.ancestor_group_id from action_todo l where l.search_vector @@ to_tsquery('english', ?2))" +
+            ") " +
+            "order by ts_rank(g.search_vector, to_tsquery('english', ?2)) desc", nativeQuery = true)
     List<Group> findDiscoverableGroupsWithNameOrTaskTextWithoutMember(Long userId, String tsQuery);
 
     @Query(value = "select g.* from group_profile g where " +
             "g.discoverable = true and " +
             "g.id not in (select m.group_id from group_user_membership m where m.user_id = ?1) and " +
-            "(to_tsvector('english', g.name) @@ to_tsquery('english', ?2))", nativeQuery = true)
+            "g.search_vector @@ to_tsquery('english', ?2) " +
+            "order by ts_rank(g.search_vector, to_tsquery('english', ?2)) desc", nativeQuery = true)
     List<Group> findDiscoverableGroupsWithNameWithoutMember(Long userId, String tsQuery);
 
     List<Group> findByGroupNameContainingIgnoreCase(String nameQuery);
 
     @Query(value = "select g.* from group_profile g " +
             "inner join group_user_membership m on g.id = m.group_id " +
-            "where g.active = true and m.user_id = ?1 and to_tsvector('english', g.name) @@ to_tsquery('english', ?2)",
+            "where g.active = true and m.user_id = ?1 and g.search_vector @@ to_tsquery('english', ?2) " +
+            "order by ts_rank(g.search_vector, to_tsquery('english', ?2)) desc",
             nativeQuery = true)
     List<Group> findByActiveAndMembershipsUserWithNameContainsText(Long userId, String nameTsQuery);
 
@@ -74,7 +104,7 @@ public interface GroupRepository extends JpaRepository<Group, Long>, JpaSpecific
             "inner join group_user_membership m on g.id = m.group_id " +
             "inner join group_role_permission rp on m.role = rp.role and g.id = rp.group_id " +
             "where g.active = true and g.parent is null and m.user_id = ?1 and rp.permission = ?2 " +
-            "and to_tsvector('english', g.name) @@ to_tsquery('english', ?3) " +
+            "and g.search_vector @@ to_tsquery('english', ?3) " +
             "order by greatest(g.last_task_creation_time, g.last_log_creation_time) desc", nativeQuery = true)
     Page<Group> findUsersGroupsWithSearchTermOrderedByActivity(Long userId, String permission, String nameTsQuery, Pageable pageable);
 
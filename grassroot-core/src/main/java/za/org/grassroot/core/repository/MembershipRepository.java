@@ -5,13 +5,21 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import za.org.grassroot.core.domain.User;
 import za.org.grassroot.core.domain.group.Group;
 import za.org.grassroot.core.domain.group.Membership;
+import za.org.grassroot.core.dto.UserBroadcastProjection;
 
+import javax.persistence.QueryHint;
+import java.time.LocalDate;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 public interface MembershipRepository extends JpaRepository<Membership, Long>, JpaSpecificationExecutor<Membership> {
 
@@ -27,8 +35,46 @@ public interface MembershipRepository extends JpaRepository<Membership, Long>, J
 
     List<Membership> findByGroupUid(String groupUid);
 
+    // what a broadcast needs of each member, without loading the users
+    @Query("select new za.org.grassroot.core.dto.UserBroadcastProjection(u.id, u.uid, u.displayName, u.phoneNumber, " +
+            "u.emailAddress, u.username, u.province, u.messagingPreference) " +
+            "from Membership m inner join m.user u where m.group.uid = :groupUid")
+    List<UserBroadcastProjection> findBroadcastRecipientsByGroupUid(@Param("groupUid") String groupUid);
+
+    @Query("select m.user.uid, m.tags from Membership m where m.group.uid = :groupUid and m.user.uid in :userUids")
+    List<Object[]> fetchUserUidsAndTags(@Param("groupUid") String groupUid, @Param("userUids") Collection<String> userUids);
+
     int countByGroup(Group group);
 
+    // which of the users are already members, on the group and user unique index, without loading the group's memberships
+    @Query("select m.user.id from Membership m where m.group = :group and m.user.id in :userIds")
+    Set<Long> findMemberUserIds(@Param("group") Group group, @Param("userIds") Collection<Long> userIds);
+
+    // streams the group's members, with their users, in order of display name (alias if set, else user's name, else
+    // their number), through a forward-only cursor (consume within a transaction, clearing the context as it goes)
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select m from Membership m inner join fetch m.user u where m.group = :group and (:contactErrorOnly = false or u.contactError = true) " +
+            "order by coalesce(nullif(trim(m.alias), ''), nullif(trim(u.displayName), ''), u.phoneNumber, u.emailAddress)")
+    Stream<Membership> streamByGroupOrderByDisplayName(@Param("group") Group group, @Param("contactErrorOnly") boolean contactErrorOnly);
+
+    // the user's memberships of active top level groups, with each group and its role permissions, in one query
+    @Query("select distinct m from Membership m inner join fetch m.group g left join fetch g.rolePermissions " +
+            "where m.user = :user and g.active = true and g.parent is null")
+    List<Membership> findTopLevelWithGroupsFetched(@Param("user") User user);
+
+    @Query("select distinct m from Membership m inner join fetch m.group g left join fetch g.rolePermissions " +
+            "where m.user = :user and g.uid in :groupUids")
+    List<Membership> findByGroupUidsWithGroupsFetched(@Param("user") User user, @Param("groupUids") Collection<String> groupUids);
+
+    // returns group id, latitude and longitude for each member with a calculated location on the date
+    @Query("select m.group.id, p.location.latitude, p.location.longitude from Membership m, PreviousPeriodUserLocation p " +
+            "where p.key.userUid = m.user.uid and p.key.localDate = :localDate and m.group.id in :groupIds")
+    List<Object[]> fetchMemberLocationsForGroups(@Param("groupIds") Collection<Long> groupIds, @Param("localDate") LocalDate localDate);
+
+    // returns group id and member count
+    @Query("select m.group.id, count(m) from Membership m where m.group.id in :groupIds group by m.group.id")
+    List<Object[]> countMembersForGroups(@Param("groupIds") Collection<Long> groupIds);
+
     @Query("select distinct tags from za.org.grassroot.core.domain.group.Membership where tags is not null and group = ?1")
     Set<String[]> findDistinctMembershipTagsByGroup(Group group);
 }
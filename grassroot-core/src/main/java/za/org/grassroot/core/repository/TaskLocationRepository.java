@@ -1,7 +1,22 @@
 package za.org.grassroot.core.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import za.org.grassroot.core.domain.geo.TaskLocation;
 
+import javax.persistence.QueryHint;
+import java.time.Instant;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
 public interface TaskLocationRepository extends JpaRepository<TaskLocation, Long> {
+
+    // returns (location id, latitude, longitude, meeting start) for meetings yet to start, for the nearby search index
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "5000"))
+    @Query("select l.id, l.location.latitude, l.location.longitude, m.eventStartDateTime from TaskLocation l " +
+            "inner join l.meeting m where m.eventStartDateTime >= ?1")
+    Stream<Object[]> streamUpcomingMeetingLocations(Instant present);
+
 }
@@ -2,12 +2,27 @@ package za.org.grassroot.core.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import za.org.grassroot.core.domain.User;
 import za.org.grassroot.core.domain.task.Todo;
 import za.org.grassroot.core.domain.task.TodoAssignment;
 
+import javax.persistence.QueryHint;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
 public interface TodoAssignmentRepository extends JpaRepository<TodoAssignment, Long>,
         JpaSpecificationExecutor<TodoAssignment> {
 
     TodoAssignment findByTodoAndUser(Todo todo, User user);
+
+    // the assigned members with their users, those who have responded first, then by response, empty responses last
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select a from TodoAssignment a inner join fetch a.user u where a.todo = :todo and a.assignedAction = true " +
+            "order by a.hasResponded desc, case when a.responseText is null or a.responseText = '' then 1 else 0 end, " +
+            "a.responseText, a.id")
+    Stream<TodoAssignment> streamAssignedOrderByResponse(@Param("todo") Todo todo);
 }
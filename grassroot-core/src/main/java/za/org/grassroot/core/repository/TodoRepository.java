@@ -22,13 +22,16 @@ public interface TodoRepository extends JpaRepository<Todo, Long>, JpaSpecificat
     Todo findOneByUid(String uid);
     Set<Todo> findByUidIn(Collection<String> uids);
 
+    List<Todo> findByParentGroupInAndActionByDateAfter(Collection<Group> groups, Instant time);
+
     // methods for analyzing action/to-do (for admin)
     Long countByCreatedDateTimeBetween(Instant start, Instant end);
 
     @Query(value = "select l.* from action_todo l " +
         "inner join group_profile g on l.parent_group_id = g.id " +
         "inner join group_user_membership m on g.id = m.group_id " +
-        "where m.user_id = ?1 and to_tsvector('english', l.message) @@ to_tsquery('english', ?2)", nativeQuery = true)
+        "where m.user_id = ?1 and l.search_vector @@ to_tsquery('english', ?2) " +
+        "order by ts_rank(l.search_vector, to_tsquery('english', ?2)) desc", nativeQuery = true)
     List<Todo> findByParentGroupMembershipsUserAndMessageSearchTerm(Long userId, String tsQueryText);
 
     @Query("select new za.org.grassroot.core.dto.task.TaskTimeChangedDTO(" +
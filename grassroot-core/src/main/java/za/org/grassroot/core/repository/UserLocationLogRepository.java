@@ -4,16 +4,32 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import za.org.grassroot.core.domain.geo.UserLocationLog;
+import za.org.grassroot.core.enums.Province;
 
+import javax.persistence.QueryHint;
 import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 public interface UserLocationLogRepository extends JpaRepository<UserLocationLog, String>, JpaSpecificationExecutor<UserLocationLog> {
 
 	// both boudnaries are inclusive when using 'between'
 	List<UserLocationLog> findByTimestampBetween(Instant start, Instant end);
 
+	// streams user uid, latitude and longitude, grouped by user, through a forward-only cursor (consume within a transaction)
+	@QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "5000"))
+	@Query("select l.userUid, l.location.latitude, l.location.longitude from UserLocationLog l " +
+			"where l.timestamp between :start and :end order by l.userUid")
+	Stream<Object[]> streamLocationsByUserBetween(@Param("start") Instant start, @Param("end") Instant end);
+
 	// note: just modify this to match above when modify start/end inclusion
 	List<UserLocationLog> findByUserUidAndTimestampBetweenAndTimestampNot(String userUid, Instant start, Instant end, Instant endAgain);
 
@@ -24,4 +40,25 @@ public interface UserLocationLogRepository extends JpaRepository<UserLocationLog
 	Page<UserLocationLog> findByMunicipalityIdIsNullAndTimestampAfter(Instant cutoffTime, Pageable pageRequest);
 
 	UserLocationLog findFirstByUserUidAndMunicipalityIdIsNotNullOrderByTimestampDesc(String userUid);
+
+	// user uid, municipality id and name of the latest placed log of each of the users
+	@Query("select l.userUid, l.municipalityId, l.municipalityName from UserLocationLog l " +
+			"where l.userUid in :userUids and l.municipalityId is not null and l.timestamp = " +
+			"(select max(p.timestamp) from UserLocationLog p where p.userUid = l.userUid and p.municipalityId is not null)")
+	List<Object[]> findMunicipalitiesForUsers(@Param("userUids") Collection<String> userUids);
+
+	// streams uid, user uid, latitude and longitude of logs not yet placed in a municipality, oldest first (consume within a transaction)
+	@QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "5000"))
+	@Query("select l.uid, l.userUid, l.location.latitude, l.location.longitude from UserLocationLog l " +
+			"where l.municipalityId is null and l.timestamp > :cutoff order by l.timestamp")
+	Stream<Object[]> streamUnplacedLocationsAfter(@Param("cutoff") Instant cutoff);
+
+	@Modifying
+	@Query("update UserLocationLog l set l.municipalityId = :municipalityId, l.municipalityName = :municipalityName where l.uid in :uids")
+	int setMunicipalityForLogs(@Param("uids") Collection<String> uids, @Param("municipalityId") String municipalityId,
+							   @Param("municipalityName") String municipalityName);
+
+	@Modifying
+	@Query("update UserLocationLog l set l.province = :province where l.uid in :uids")
+	int setProvinceForLogs(@Param("uids") Collection<String> uids, @Param("province") Province province);
 }
\ No newline at end of file
@@ -10,6 +10,7 @@ import za.org.grassroot.core.domain.notification.EventNotification;
 import za.org.grassroot.core.domain.task.Event;
 import za.org.grassroot.core.dto.UserMinimalProjection;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
@@ -77,9 +78,8 @@ public interface UserRepository extends JpaRepository<User, Long>, JpaSpecificat
             "where e = ?1 and type(n) = ?2")
     List<User> findNotificationTargetsForEvent(Event event, Class<? extends EventNotification> notificationClass);
 
-    @Query("select lower(u.emailAddress) from User u where u.enabled = true")
-    Set<String> fetchUsedEmailAddresses();
+    List<User> findByPhoneNumberIn(Collection<String> phoneNumbers);
 
-    @Query("select u.phoneNumber from User u where u.enabled = true")
-    Set<String> fetchUserPhoneNumbers();
+    @Query("select u from User u where lower(u.emailAddress) in :emailAddresses")
+    List<User> findByEmailAddressLowerCaseIn(@Param("emailAddresses") Collection<String> emailAddresses);
 }
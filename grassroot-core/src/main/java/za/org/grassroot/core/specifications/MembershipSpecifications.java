@@ -4,9 +4,14 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.util.StringUtils;
 import za.org.grassroot.core.domain.GroupRole;
+import za.org.grassroot.core.domain.TagHolder;
 import za.org.grassroot.core.domain.User;
 import za.org.grassroot.core.domain.User_;
+import za.org.grassroot.core.domain.campaign.CampaignLog;
+import za.org.grassroot.core.domain.campaign.CampaignLog_;
+import za.org.grassroot.core.domain.campaign.Campaign_;
 import za.org.grassroot.core.domain.group.*;
+import za.org.grassroot.core.enums.CampaignLogType;
 import za.org.grassroot.core.enums.Province;
 
 import javax.persistence.criteria.*;
@@ -20,9 +25,14 @@ import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import static za.org.grassroot.core.PostgreSQLDialectArray.ARRAY_CONTAINS_ALL;
+import static za.org.grassroot.core.PostgreSQLDialectArray.ARRAY_OVERLAPS;
+
 @Slf4j
 public class MembershipSpecifications {
 
+    // passed with the values for the array functions, so must not occur in any tag
+    private static final String ARRAY_VALUE_SEPARATOR = "\u001f";
 
     private static Specification<Membership> membershipsCreatedAfter(Instant joinAfter) {
         return (root, query, cb) -> cb.greaterThan(root.get(Membership_.joinTime), joinAfter);
@@ -42,7 +52,10 @@ public class MembershipSpecifications {
                                                                   Collection<Province> provinces,
                                                                   Boolean unknownProvince,
                                                                   Collection<String> taskTeamsUids,
+                                                                  Collection<String> topics,
+                                                                  Collection<String> affiliations,
                                                                   Collection<GroupJoinMethod> joinMethods,
+                                                                  Collection<String> joinedCampaignsUids,
                                                                   Integer joinDaysAgo,
                                                                   LocalDate joinDate,
                                                                   JoinDateCondition joinDaysAgoCondition,
@@ -76,6 +89,29 @@ public class MembershipSpecifications {
                 restrictions.add(cb.equal(root.get(Membership_.role), groupRole));
             }
 
+            if (topics != null && !topics.isEmpty()) {
+                // this is an "and" filter, at present
+                restrictions.add(tagsMatch(cb, root, ARRAY_CONTAINS_ALL, topics.stream()
+                        .map(topic -> TagHolder.TOPIC_PREFIX + topic).collect(Collectors.toList())));
+            }
+
+            if (affiliations != null && !affiliations.isEmpty()) {
+                // i.e., this is an "or" filter
+                restrictions.add(tagsMatch(cb, root, ARRAY_OVERLAPS, affiliations.stream()
+                        .map(affiliation -> Membership.AFFILITATION_TAG + affiliation).collect(Collectors.toList())));
+            }
+
+            if (joinedCampaignsUids != null && !joinedCampaignsUids.isEmpty()) {
+                Subquery<Long> campaignLogs = query.subquery(Long.class);
+                Root<CampaignLog> campaignLog = campaignLogs.from(CampaignLog.class);
+                campaignLogs.select(campaignLog.get(CampaignLog_.id)).where(
+                        cb.equal(campaignLog.get(CampaignLog_.user), root.get(Membership_.user)),
+                        cb.equal(campaignLog.get(CampaignLog_.campaignLogType), CampaignLogType.CAMPAIGN_USER_ADDED_TO_MASTER_GROUP),
+                        cb.equal(campaignLog.get(CampaignLog_.campaign).get(Campaign_.masterGroup), group),
+                        campaignLog.get(CampaignLog_.campaign).get(Campaign_.uid).in(joinedCampaignsUids));
+                restrictions.add(cb.exists(campaignLogs));
+            }
+
             LocalDate queriedJoinDate = joinDate;
             if(joinDate == null && joinDaysAgo != null){
                 queriedJoinDate = LocalDate.now().minusDays(joinDaysAgo);
@@ -126,6 +162,11 @@ public class MembershipSpecifications {
 
     }
 
+    private static Predicate tagsMatch(CriteriaBuilder cb, Root<Membership> root, String function, Collection<String> values) {
+        return cb.isTrue(cb.function(function, Boolean.class, root.get(Membership_.tags),
+                cb.literal(String.join(ARRAY_VALUE_SEPARATOR, values)), cb.literal(ARRAY_VALUE_SEPARATOR)));
+    }
+
     private static Specification<Membership> hasRole(GroupRole roleName) {
         return (root, query, cb) -> cb.equal(root.get(Membership_.role), roleName);
     }
@@ -0,0 +1,47 @@
+package za.org.grassroot.core.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+@Component @Slf4j
+public class ExecutorMonitor {
+
+    private final List<MonitoredTaskExecutor> executors;
+    private List<ThreadPoolTaskScheduler> schedulers = Collections.emptyList();
+
+    @Autowired
+    public ExecutorMonitor(List<MonitoredTaskExecutor> executors) {
+        this.executors = executors;
+    }
+
+    @Autowired(required = false)
+    public void setSchedulers(List<ThreadPoolTaskScheduler> schedulers) {
+        this.schedulers = schedulers;
+    }
+
+    public List<String> describeAll() {
+        List<String> descriptions = new ArrayList<>();
+        executors.forEach(executor -> descriptions.add(executor.describeStats()));
+        schedulers.forEach(scheduler -> {
+            ScheduledThreadPoolExecutor executor = scheduler.getScheduledThreadPoolExecutor();
+            descriptions.add(String.format("scheduler: %s, active: %d, pool size: %d, queued jobs: %d, completed: %d",
+                    scheduler.getThreadNamePrefix(), executor.getActiveCount(), executor.getPoolSize(),
+                    executor.getQueue().size(), executor.getCompletedTaskCount()));
+        });
+        return descriptions;
+    }
+
+    @Scheduled(fixedRate = 600000) // every ten minutes
+    public void printExecutorStats() {
+        describeAll().forEach(description -> log.info("Executor stats, {}", description));
+    }
+
+}
@@ -2,6 +2,7 @@ package za.org.grassroot.core.util;
 
 import org.springframework.util.StringUtils;
 import za.org.grassroot.core.domain.User;
+import za.org.grassroot.core.dto.UserBroadcastProjection;
 import za.org.grassroot.core.enums.Province;
 
 import java.time.LocalDateTime;
@@ -21,7 +22,15 @@ public interface GrassrootTemplate {
     String NO_PROVINCE = "your province";
 
     default String mergeTemplate(User destination, String template) {
+        final String name = StringUtils.isEmpty(destination.getDisplayName()) ? null : destination.getName();
+        return mergeFields(template, name, destination.getUsername(), destination.getProvince());
+    }
+
+    default String mergeTemplate(UserBroadcastProjection destination, String template) {
+        return mergeFields(template, destination.getDisplayName(), destination.getUsername(), destination.getProvince());
+    }
 
+    static String mergeFields(String template, String name, String contact, Province province) {
         final String escapedTemplate = template.replaceAll("%", "%%");
         final String formatString = escapedTemplate
                 .replace(NAME_FIELD_TEMPLATE, "%1$s")
@@ -29,14 +38,14 @@ public interface GrassrootTemplate {
                 .replace(DATE_FIELD_TEMPLATE, "%3$s")
                 .replace(PROVINCE_FIELD_TEMPLATE, "%4$s");
 
-        final String nameToUse = StringUtils.isEmpty(destination.getDisplayName()) ? "friend" : destination.getName();
+        final String nameToUse = StringUtils.isEmpty(name) ? "friend" : name;
         return String.format(formatString,
                 nameToUse,
-                destination.getUsername(),
+                contact,
                 SDF.format(LocalDateTime.now()),
-                destination.getProvince() == null ?
+                province == null ?
                         NO_PROVINCE :
-                        Province.CANONICAL_NAMES_ZA.getOrDefault(destination.getProvince(), NO_PROVINCE))
+                        Province.CANONICAL_NAMES_ZA.getOrDefault(province, NO_PROVINCE))
                 .trim().replaceAll(" +", " ");
     }
 
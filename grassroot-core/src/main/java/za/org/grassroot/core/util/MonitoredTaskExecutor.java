@@ -0,0 +1,113 @@
+package za.org.grassroot.core.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded thread pool that records how long tasks wait in its queue and how long they run, along with how many it
+ * has had to reject, so that one pool starving another shows up in the logs (see ExecutorMonitor)
+ */
+@Slf4j
+public class MonitoredTaskExecutor extends ThreadPoolTaskExecutor {
+
+    public enum RejectionPolicy {
+        CALLER_RUNS,
+        ABORT,
+        DISCARD,
+        DISCARD_OLDEST
+    }
+
+    private final String poolName;
+
+    private final LongAdder completedTasks = new LongAdder();
+    private final LongAdder rejectedTasks = new LongAdder();
+    private final LongAdder totalQueueMillis = new LongAdder();
+    private final LongAdder totalRunMillis = new LongAdder();
+    private final LongAccumulator maxQueueMillis = new LongAccumulator(Long::max, 0);
+
+    public MonitoredTaskExecutor(String poolName, int coreSize, int maxSize, int queueCapacity, RejectionPolicy rejectionPolicy) {
+        this.poolName = poolName;
+        setThreadNamePrefix(poolName + "-");
+        setCorePoolSize(coreSize);
+        setMaxPoolSize(Math.max(coreSize, maxSize));
+        setQueueCapacity(queueCapacity);
+        setRejectedExecutionHandler(countingHandler(rejectionPolicy));
+        setTaskDecorator(this::timed);
+        setWaitForTasksToCompleteOnShutdown(true);
+        setAwaitTerminationSeconds(30);
+    }
+
+    private Runnable timed(Runnable task) {
+        final long queuedAt = System.currentTimeMillis();
+        return () -> {
+            final long startedAt = System.currentTimeMillis();
+            final long queueMillis = startedAt - queuedAt;
+            totalQueueMillis.add(queueMillis);
+            maxQueueMillis.accumulate(queueMillis);
+            try {
+                task.run();
+            } finally {
+                totalRunMillis.add(System.currentTimeMillis() - startedAt);
+                completedTasks.increment();
+            }
+        };
+    }
+
+    private RejectedExecutionHandler countingHandler(RejectionPolicy rejectionPolicy) {
+        final RejectedExecutionHandler delegate;
+        switch (rejectionPolicy) {
+            case ABORT: delegate = new ThreadPoolExecutor.AbortPolicy(); break;
+            case DISCARD: delegate = new ThreadPoolExecutor.DiscardPolicy(); break;
+            case DISCARD_OLDEST: delegate = new ThreadPoolExecutor.DiscardOldestPolicy(); break;
+            default: delegate = new ThreadPoolExecutor.CallerRunsPolicy();
+        }
+        return (task, executor) -> {
+            rejectedTasks.increment();
+            log.warn("Executor {} saturated (queue: {}), applying policy {} to task", poolName, executor.getQueue().size(), rejectionPolicy);
+            delegate.rejectedExecution(task, executor);
+        };
+    }
+
+    public String getPoolName() {
+        return poolName;
+    }
+
+    public int getQueueDepth() {
+        return getThreadPoolExecutor().getQueue().size();
+    }
+
+    public long getCompletedTaskCount() {
+        return completedTasks.sum();
+    }
+
+    public long getRejectedTaskCount() {
+        return rejectedTasks.sum();
+    }
+
+    public long getMaxQueueMillis() {
+        return maxQueueMillis.get();
+    }
+
+    public double getAverageQueueMillis() {
+        final long completed = completedTasks.sum();
+        return completed == 0 ? 0 : (double) totalQueueMillis.sum() / completed;
+    }
+
+    public double getAverageRunMillis() {
+        final long completed = completedTasks.sum();
+        return completed == 0 ? 0 : (double) totalRunMillis.sum() / completed;
+    }
+
+    public String describeStats() {
+        return String.format("pool: %s, active: %d, pool size: %d, queue depth: %d, completed: %d, rejected: %d, " +
+                        "avg queue ms: %.1f, max queue ms: %d, avg run ms: %.1f", poolName, getActiveCount(), getPoolSize(),
+                getQueueDepth(), getCompletedTaskCount(), getRejectedTaskCount(), getAverageQueueMillis(),
+                getMaxQueueMillis(), getAverageRunMillis());
+    }
+
+}
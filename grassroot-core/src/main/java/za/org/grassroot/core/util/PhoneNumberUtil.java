@@ -15,7 +15,77 @@ import java.util.regex.Pattern;
 @Slf4j
 public class PhoneNumberUtil {
 
+    private static final int ZA_COUNTRY_CODE = 27;
+    private static final long ZA_MSISDN_BASE = 27_000_000_000L; // country code followed by the nine digit national number
+
+    // a direct-mapped memo of recent conversions; entries are immutable, so racing writers at worst evict each other
+    private static final int RECENT_CONVERSION_SLOTS = 4096; // must be a power of two
+    private static final ConvertedNumber[] recentConversions = new ConvertedNumber[RECENT_CONVERSION_SLOTS];
+
+    /*
+    Handles the shapes our gateways and imports almost always send (0821234567, 27821234567, +27821234567) by reading
+    the digits straight into a long and only checking validity against the library's metadata; anything else goes
+    through the library's full parse
+     */
     public static String convertPhoneNumber(String inputString) throws InvalidPhoneNumberException {
+        if (inputString == null)
+            return convertWithLibrary(null);
+
+        final int slot = inputString.hashCode() & (RECENT_CONVERSION_SLOTS - 1);
+        final ConvertedNumber recent = recentConversions[slot];
+        if (recent != null && recent.input.equals(inputString))
+            return recent.msisdn;
+
+        final long nationalNumber = parseCommonNationalNumber(inputString);
+        final String msisdn = nationalNumber < 0 ? convertWithLibrary(inputString) : convertNationalNumber(inputString, nationalNumber);
+        recentConversions[slot] = new ConvertedNumber(inputString, msisdn);
+        return msisdn;
+    }
+
+    // returns the nine digit national number, or -1 if the input is not in one of the common shapes
+    private static long parseCommonNationalNumber(String input) {
+        int start = 0;
+        int end = input.length();
+        while (start < end && input.charAt(start) == ' ')
+            start++;
+        while (end > start && input.charAt(end - 1) == ' ')
+            end--;
+
+        final int length = end - start;
+        final int digitsStart;
+        if (length == 10 && input.charAt(start) == '0') {
+            digitsStart = start + 1;
+        } else if (length == 11 && input.charAt(start) == '2' && input.charAt(start + 1) == '7') {
+            digitsStart = start + 2;
+        } else if (length == 12 && input.charAt(start) == '+' && input.charAt(start + 1) == '2' && input.charAt(start + 2) == '7') {
+            digitsStart = start + 3;
+        } else {
+            return -1;
+        }
+
+        // a zero here would be a national prefix after the country code, which the library strips, so leave it to that
+        if (input.charAt(digitsStart) == '0')
+            return -1;
+
+        long nationalNumber = 0;
+        for (int i = digitsStart; i < end; i++) {
+            final char c = input.charAt(i);
+            if (c < '0' || c > '9')
+                return -1;
+            nationalNumber = nationalNumber * 10 + (c - '0');
+        }
+        return nationalNumber;
+    }
+
+    private static String convertNationalNumber(String inputString, long nationalNumber) throws InvalidPhoneNumberException {
+        Phonenumber.PhoneNumber phoneNumber = new Phonenumber.PhoneNumber()
+                .setCountryCode(ZA_COUNTRY_CODE).setNationalNumber(nationalNumber);
+        if (!com.google.i18n.phonenumbers.PhoneNumberUtil.getInstance().isValidNumber(phoneNumber))
+            throw new InvalidPhoneNumberException(inputString);
+        return Long.toString(ZA_MSISDN_BASE + nationalNumber);
+    }
+
+    static String convertWithLibrary(String inputString) throws InvalidPhoneNumberException {
         try {
             com.google.i18n.phonenumbers.PhoneNumberUtil phoneNumberUtil = com.google.i18n.phonenumbers.PhoneNumberUtil.getInstance();
             Phonenumber.PhoneNumber phoneNumber = phoneNumberUtil.parse(inputString, "ZA");
@@ -141,5 +211,14 @@ public class PhoneNumberUtil {
         }
     }
 
+    private static final class ConvertedNumber {
+        private final String input;
+        private final String msisdn;
+
+        private ConvertedNumber(String input, String msisdn) {
+            this.input = input;
+            this.msisdn = msisdn;
+        }
+    }
 
 }
@@ -0,0 +1,37 @@
+package za.org.grassroot.core;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * Java versions of the array functions in {@link PostgreSQLDialectArray}, for the embedded (H2) database used in
+ * tests, where they are declared with CREATE ALIAS, e.g., in schema.sql. Arguments are as for the Postgres ones: the
+ * array, then the values joined into one string, then the string that joins them.
+ */
+public final class EmbeddedArrayFunctions {
+
+    private EmbeddedArrayFunctions() {
+        // static only
+    }
+
+    public static Boolean containsAll(Object[] array, String values, String separator) {
+        if (array == null || values == null)
+            return false;
+        final List<Object> elements = Arrays.asList(array);
+        return Arrays.stream(split(values, separator)).allMatch(elements::contains);
+    }
+
+    public static Boolean overlaps(Object[] array, String values, String separator) {
+        if (array == null || values == null)
+            return false;
+        final List<String> wanted = Arrays.asList(split(values, separator));
+        return Arrays.stream(array).filter(Objects::nonNull).map(Object::toString).anyMatch(wanted::contains);
+    }
+
+    private static String[] split(String values, String separator) {
+        return values.split(Pattern.quote(separator), -1);
+    }
+
+}
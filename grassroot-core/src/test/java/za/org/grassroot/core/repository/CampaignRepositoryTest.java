@@ -15,14 +15,18 @@ import za.org.grassroot.core.domain.User;
 import za.org.grassroot.core.domain.account.Account;
 import za.org.grassroot.core.domain.campaign.Campaign;
 import za.org.grassroot.core.domain.campaign.CampaignActionType;
+import za.org.grassroot.core.domain.campaign.CampaignLog;
 import za.org.grassroot.core.domain.campaign.CampaignMessage;
 import za.org.grassroot.core.domain.campaign.CampaignType;
 import za.org.grassroot.core.enums.AccountType;
+import za.org.grassroot.core.enums.CampaignLogType;
 import za.org.grassroot.core.enums.MessageVariationAssignment;
 import za.org.grassroot.core.enums.UserInterfaceType;
 
 import java.time.Instant;
 import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j @RunWith(SpringRunner.class) @DataJpaTest
 @ContextConfiguration(classes = TestContextConfiguration.class)
@@ -37,6 +41,9 @@ public class CampaignRepositoryTest {
     @Autowired
     private CampaignRepository campaignRepository;
 
+    @Autowired
+    private CampaignLogRepository campaignLogRepository;
+
     @Test
     public void testCreateCampaign(){
         User user = userRepository.save(new User("3456", null, null));
@@ -88,4 +95,32 @@ public class CampaignRepositoryTest {
         Assert.assertNotNull(camp);
     }
 
+    @Test
+    public void shouldStreamLogsOfTypesGroupedByUser() {
+        User user = userRepository.save(new User("3456", null, null));
+        Account account = accountRepository.save(new Account(user, "test", AccountType.ENTERPRISE, user));
+        Campaign campaign = campaignRepository.save(new Campaign("Test", "234", "Durban campaign", user, Instant.now(), Instant.now(), CampaignType.ACQUISITION, null, account));
+        Campaign otherCampaign = campaignRepository.save(new Campaign("Other", "235", "Other campaign", user, Instant.now(), Instant.now(), CampaignType.ACQUISITION, null, account));
+        User first = userRepository.save(new User("27610000051", null, null));
+        User second = userRepository.save(new User("27610000052", null, null));
+
+        // saved out of user order, with logs of another type and another campaign mixed in
+        campaignLogRepository.save(new CampaignLog(second, CampaignLogType.CAMPAIGN_PETITION_SIGNED, campaign, UserInterfaceType.USSD, null));
+        campaignLogRepository.save(new CampaignLog(first, CampaignLogType.CAMPAIGN_FOUND, campaign, UserInterfaceType.USSD, null));
+        campaignLogRepository.save(new CampaignLog(first, CampaignLogType.CAMPAIGN_PETITION_SIGNED, campaign, UserInterfaceType.USSD, null));
+        campaignLogRepository.save(new CampaignLog(first, CampaignLogType.CAMPAIGN_PETITION_SIGNED, otherCampaign, UserInterfaceType.USSD, null));
+        campaignLogRepository.saveAndFlush(new CampaignLog(second, CampaignLogType.CAMPAIGN_USER_ADDED_TO_MASTER_GROUP, campaign, UserInterfaceType.USSD, null));
+
+        List<CampaignLog> logs;
+        try (Stream<CampaignLog> stream = campaignLogRepository.streamByCampaignAndTypesOrderByUser(campaign,
+                Arrays.asList(CampaignLogType.CAMPAIGN_PETITION_SIGNED, CampaignLogType.CAMPAIGN_USER_ADDED_TO_MASTER_GROUP))) {
+            logs = stream.collect(Collectors.toList());
+        }
+
+        Assert.assertEquals(Arrays.asList("27610000051", "27610000052", "27610000052"),
+                logs.stream().map(campaignLog -> campaignLog.getUser().getPhoneNumber()).collect(Collectors.toList()));
+        Assert.assertEquals(EnumSet.of(CampaignLogType.CAMPAIGN_PETITION_SIGNED, CampaignLogType.CAMPAIGN_USER_ADDED_TO_MASTER_GROUP),
+                logs.subList(1, 3).stream().map(CampaignLog::getCampaignLogType).collect(Collectors.toCollection(() -> EnumSet.noneOf(CampaignLogType.class))));
+    }
+
 }
@@ -645,4 +645,37 @@ public class EventRepositoryTest {
 
     }
 
+    @Test
+    public void shouldOnlyFindEventsAwaitingResponseFromAssignedMembers() {
+        User organizer = userRepository.save(new User("0710002222", null, null));
+        User member = userRepository.save(new User("0710003333", null, null));
+        User otherMember = userRepository.save(new User("0710004444", null, null));
+
+        Group group = groupRepository.save(new Group("assigned", GroupPermissionTemplate.DEFAULT_GROUP, organizer));
+        group.addMember(organizer, GroupRole.ROLE_GROUP_ORGANIZER, GroupJoinMethod.ADDED_BY_OTHER_MEMBER, null);
+        group.addMember(member, GroupRole.ROLE_ORDINARY_MEMBER, GroupJoinMethod.ADDED_BY_OTHER_MEMBER, null);
+        group.addMember(otherMember, GroupRole.ROLE_ORDINARY_MEMBER, GroupJoinMethod.ADDED_BY_OTHER_MEMBER, null);
+        group = groupRepository.save(group);
+
+        Event forAll = eventRepository.save(new MeetingBuilder().setName("everyone").setStartDateTime(Instant.now().plus(2, DAYS))
+                .setUser(organizer).setParent(group).setEventLocation("someLoc").createMeeting());
+        Event forMember = eventRepository.save(new MeetingBuilder().setName("just member").setStartDateTime(Instant.now().plus(2, DAYS))
+                .setUser(organizer).setParent(group).setEventLocation("someLoc")
+                .setAssignedMemberUids(new HashSet<>(Collections.singleton(member.getUid()))).createMeeting());
+        Event forOther = eventRepository.save(new MeetingBuilder().setName("just other").setStartDateTime(Instant.now().plus(2, DAYS))
+                .setUser(organizer).setParent(group).setEventLocation("someLoc")
+                .setAssignedMemberUids(new HashSet<>(Collections.singleton(otherMember.getUid()))).createMeeting());
+
+        List<Event> awaitingMember = eventRepository.findUpcomingEventsAwaitingResponse(member, Instant.now());
+        assertThat(awaitingMember.size(), is(2));
+        assertTrue(awaitingMember.contains(forAll));
+        assertTrue(awaitingMember.contains(forMember));
+        assertFalse(awaitingMember.contains(forOther));
+
+        List<Event> awaitingOther = eventRepository.findUpcomingEventsAwaitingResponse(otherMember, Instant.now());
+        assertThat(awaitingOther.size(), is(2));
+        assertTrue(awaitingOther.contains(forAll));
+        assertTrue(awaitingOther.contains(forOther));
+    }
+
 }
@@ -802,6 +802,26 @@ public class GroupRepositoryTest {
         assertTrue(groups3.isEmpty());
     }
 
+    @Test
+    public void shouldKeepMemberCountInStep() {
+        User user1 = userRepository.save(new User("56789", null, null));
+        User user2 = userRepository.save(new User("12345", null, null));
+
+        Group group = new Group("test", GroupPermissionTemplate.DEFAULT_GROUP, user1);
+        group.addMember(user1, GroupRole.ROLE_GROUP_ORGANIZER, GroupJoinMethod.ADDED_BY_OTHER_MEMBER, null);
+        group.addMember(user2, GroupRole.ROLE_ORDINARY_MEMBER, GroupJoinMethod.ADDED_BY_OTHER_MEMBER, null);
+        group.addMember(user2, GroupRole.ROLE_ORDINARY_MEMBER, GroupJoinMethod.ADDED_BY_OTHER_MEMBER, null);
+        groupRepository.save(group);
+        assertThat(group.getMemberCount(), is(2));
+
+        group.removeMember(user2);
+        groupRepository.save(group);
+
+        Group groupFromDb = groupRepository.findOneByUid(group.getUid());
+        assertThat(groupFromDb.getMemberCount(), is(1));
+        assertThat(groupFromDb.getMemberCount(), is(groupFromDb.getMemberships().size()));
+    }
+
 }
 
 
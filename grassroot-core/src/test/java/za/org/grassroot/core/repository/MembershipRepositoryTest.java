@@ -0,0 +1,143 @@
+package za.org.grassroot.core.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+import za.org.grassroot.TestContextConfiguration;
+import za.org.grassroot.core.domain.GroupRole;
+import za.org.grassroot.core.domain.User;
+import za.org.grassroot.core.domain.group.Group;
+import za.org.grassroot.core.domain.group.GroupJoinMethod;
+import za.org.grassroot.core.domain.group.GroupPermissionTemplate;
+import za.org.grassroot.core.domain.group.Membership;
+import za.org.grassroot.core.dto.UserBroadcastProjection;
+import za.org.grassroot.core.enums.DeliveryRoute;
+import za.org.grassroot.core.specifications.MembershipSpecifications;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+
+@Slf4j @RunWith(SpringRunner.class) @DataJpaTest
+@ContextConfiguration(classes = TestContextConfiguration.class)
+public class MembershipRepositoryTest {
+
+    @Autowired
+    private MembershipRepository membershipRepository;
+
+    @Autowired
+    private GroupRepository groupRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private Group group;
+
+    @Before
+    public void setUp() {
+        User organizer = userRepository.save(new User("27610000001", "Organizer", null));
+        group = groupRepository.save(new Group("Filtered group", GroupPermissionTemplate.DEFAULT_GROUP, organizer));
+    }
+
+    @Test
+    public void shouldFilterMembersOnAllTopics() {
+        addMember("27610000011", Arrays.asList("housing", "water"), Collections.emptyList());
+        addMember("27610000012", Collections.singletonList("housing"), Collections.emptyList());
+        addMember("27610000013", Collections.singletonList("water"), Collections.emptyList());
+
+        assertThat(filterOnTopics(Collections.singletonList("housing")), containsInAnyOrder("27610000011", "27610000012"));
+        assertThat(filterOnTopics(Arrays.asList("housing", "water")), containsInAnyOrder("27610000011"));
+    }
+
+    @Test
+    public void shouldNotMatchTopicAgainstOtherTags() {
+        // an affiliation with the same name as the topic must not count as the topic
+        addMember("27610000021", Collections.emptyList(), Collections.singletonList("housing"));
+        addMember("27610000022", Collections.singletonList("housing"), Collections.emptyList());
+
+        assertThat(filterOnTopics(Collections.singletonList("housing")), containsInAnyOrder("27610000022"));
+    }
+
+    @Test
+    public void shouldFilterMembersOnAnyAffiliation() {
+        addMember("27610000031", Collections.emptyList(), Collections.singletonList("union"));
+        addMember("27610000032", Collections.emptyList(), Collections.singletonList("church"));
+        addMember("27610000033", Collections.singletonList("union"), Collections.emptyList());
+
+        List<String> members = membershipRepository.findAll(MembershipSpecifications.filterGroupMembership(group,
+                null, null, null, null, Arrays.asList("union", "church"), null, null,
+                null, null, null, null, null, null))
+                .stream().map(m -> m.getUser().getPhoneNumber()).collect(Collectors.toList());
+        assertThat(members, containsInAnyOrder("27610000031", "27610000032"));
+    }
+
+    @Test
+    public void shouldStreamMembersInDisplayNameOrder() {
+        addNamedMember("27610000041", "Aaron", "Zed", false);
+        addNamedMember("27610000042", "Bongani", null, true);
+        addNamedMember("27610000043", null, null, false); // no name, so ordered by number
+        addNamedMember("27610000044", "Carol", "  ", true); // blank alias, so ordered by name
+
+        assertEquals(Arrays.asList("27610000043", "27610000042", "27610000044", "27610000041"), streamPhoneNumbers(false));
+        assertEquals(Arrays.asList("27610000042", "27610000044"), streamPhoneNumbers(true));
+    }
+
+    @Test
+    public void shouldProjectBroadcastRecipientsWithoutLoadingUsers() {
+        User thandi = userRepository.save(new User("27610000051", "Thandi", null));
+        User sipho = userRepository.save(new User("27610000052", "Sipho", null));
+        group.addMember(thandi, GroupRole.ROLE_ORDINARY_MEMBER, GroupJoinMethod.ADDED_BY_OTHER_MEMBER, null);
+        group.addMember(sipho, GroupRole.ROLE_ORDINARY_MEMBER, GroupJoinMethod.ADDED_BY_OTHER_MEMBER, null);
+        groupRepository.saveAndFlush(group);
+
+        List<UserBroadcastProjection> recipients = membershipRepository.findBroadcastRecipientsByGroupUid(group.getUid());
+        assertThat(recipients.stream().map(UserBroadcastProjection::getPhoneNumber).collect(Collectors.toList()),
+                containsInAnyOrder("27610000051", "27610000052"));
+        UserBroadcastProjection thandiRecipient = recipients.stream().filter(r -> "Thandi".equals(r.getDisplayName())).findFirst().get();
+        assertEquals(thandi.getUid(), thandiRecipient.getUid());
+        assertEquals(DeliveryRoute.SMS, thandiRecipient.getMessagingPreference());
+    }
+
+    private void addNamedMember(String phoneNumber, String name, String alias, boolean contactError) {
+        User user = new User(phoneNumber, name, null);
+        user.setContactError(contactError);
+        userRepository.save(user);
+        group.addMember(user, GroupRole.ROLE_ORDINARY_MEMBER, GroupJoinMethod.ADDED_BY_OTHER_MEMBER, null).setAlias(alias);
+        groupRepository.saveAndFlush(group);
+    }
+
+    private List<String> streamPhoneNumbers(boolean contactErrorOnly) {
+        try (Stream<Membership> members = membershipRepository.streamByGroupOrderByDisplayName(group, contactErrorOnly)) {
+            return members.map(m -> m.getUser().getPhoneNumber()).collect(Collectors.toList());
+        }
+    }
+
+    private void addMember(String phoneNumber, Collection<String> topics, Collection<String> affiliations) {
+        User user = userRepository.save(new User(phoneNumber, null, null));
+        Membership membership = group.addMember(user, GroupRole.ROLE_ORDINARY_MEMBER, GroupJoinMethod.ADDED_BY_OTHER_MEMBER, null);
+        membership.setTopics(new HashSet<>(topics));
+        membership.addAffiliations(new HashSet<>(affiliations));
+        groupRepository.saveAndFlush(group);
+    }
+
+    private List<String> filterOnTopics(Collection<String> topics) {
+        return membershipRepository.findAll(MembershipSpecifications.filterGroupMembership(group,
+                null, null, null, topics, null, null, null,
+                null, null, null, null, null, null))
+                .stream().map(m -> m.getUser().getPhoneNumber()).collect(Collectors.toList());
+    }
+
+}
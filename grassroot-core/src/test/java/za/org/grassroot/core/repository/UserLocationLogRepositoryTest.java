@@ -0,0 +1,54 @@
+package za.org.grassroot.core.repository;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+import za.org.grassroot.TestContextConfiguration;
+import za.org.grassroot.core.domain.geo.GeoLocation;
+import za.org.grassroot.core.domain.geo.UserLocationLog;
+import za.org.grassroot.core.enums.LocationSource;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(SpringRunner.class) @DataJpaTest
+@ContextConfiguration(classes = TestContextConfiguration.class)
+public class UserLocationLogRepositoryTest {
+
+    @Autowired
+    private UserLocationLogRepository userLocationLogRepository;
+
+    @Test
+    public void shouldFindOnlyLatestPlacedMunicipalityOfEachUser() {
+        final Instant now = Instant.now();
+        saveLog("user-1", now.minus(3, ChronoUnit.DAYS), "1", "City of Johannesburg");
+        saveLog("user-1", now.minus(2, ChronoUnit.DAYS), "2", "City of Cape Town");
+        saveLog("user-1", now.minus(1, ChronoUnit.DAYS), null, null); // not placed, so does not count as latest
+        saveLog("user-2", now.minus(1, ChronoUnit.DAYS), "1", "City of Johannesburg");
+        saveLog("user-3", now, "3", "eThekwini");
+
+        final List<Object[]> rows = userLocationLogRepository.findMunicipalitiesForUsers(Arrays.asList("user-1", "user-2"));
+
+        assertEquals(2, rows.size());
+        final Map<String, String> municipalityIds = rows.stream().collect(Collectors.toMap(row -> (String) row[0], row -> (String) row[1]));
+        assertEquals("2", municipalityIds.get("user-1"));
+        assertEquals("1", municipalityIds.get("user-2"));
+    }
+
+    private void saveLog(String userUid, Instant timestamp, String municipalityId, String municipalityName) {
+        UserLocationLog log = new UserLocationLog(timestamp, userUid, new GeoLocation(-26.2, 28.0), LocationSource.LOGGED_APPROX);
+        if (municipalityId != null)
+            log.setLocationData(null, municipalityId, municipalityName);
+        userLocationLogRepository.save(log);
+    }
+
+}
@@ -0,0 +1,66 @@
+package za.org.grassroot.core.util;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class PhoneNumberUtilTest {
+
+    private static final String[] PREFIXES = { "0", "27", "+27", "", "00", "027", "270", "+270", "0027", " 0", "+", "28" };
+    private static final String[] SUFFIXES = { "", " ", "  ", "1", "12", "x" };
+
+    @Test
+    public void convertsCommonShapes() {
+        assertEquals("27815550000", PhoneNumberUtil.convertPhoneNumber("0815550000"));
+        assertEquals("27815550000", PhoneNumberUtil.convertPhoneNumber("27815550000"));
+        assertEquals("27815550000", PhoneNumberUtil.convertPhoneNumber("+27815550000"));
+        assertEquals("27815550000", PhoneNumberUtil.convertPhoneNumber(" 0815550000 "));
+        assertEquals("27729166903", PhoneNumberUtil.convertPhoneNumber("072 916 6903"));
+    }
+
+    @Test(expected = InvalidPhoneNumberException.class)
+    public void rejectsNull() {
+        PhoneNumberUtil.convertPhoneNumber(null);
+    }
+
+    @Test
+    public void agreesWithLibraryOnRandomInput() {
+        final Random random = new Random(20181018L);
+        for (int i = 0; i < 50000; i++) {
+            final String input = PREFIXES[random.nextInt(PREFIXES.length)] + randomDigits(random, 7 + random.nextInt(4))
+                    + SUFFIXES[random.nextInt(SUFFIXES.length)];
+            assertAgreement(input);
+            assertAgreement(input); // second time through, from the memo if it converted
+        }
+    }
+
+    private static void assertAgreement(String input) {
+        String expected;
+        try {
+            expected = PhoneNumberUtil.convertWithLibrary(input);
+        } catch (InvalidPhoneNumberException e) {
+            expected = null;
+        }
+
+        try {
+            final String converted = PhoneNumberUtil.convertPhoneNumber(input);
+            if (expected == null)
+                fail("Converted " + input + " to " + converted + ", but library rejects it");
+            assertEquals("Conversion of " + input, expected, converted);
+        } catch (InvalidPhoneNumberException e) {
+            if (expected != null)
+                fail("Rejected " + input + ", but library converts it to " + expected);
+        }
+    }
+
+    private static String randomDigits(Random random, int length) {
+        final StringBuilder digits = new StringBuilder(length);
+        for (int i = 0; i < length; i++)
+            digits.append((char) ('0' + random.nextInt(10)));
+        return digits.toString();
+    }
+
+}
@@ -19,6 +19,12 @@ public interface JwtService {
 
     String createJwt(CreateJwtTokenRequest request);
 
+    /**
+     * For server to server calls only: returns a token signed earlier for the same type and claims if it still has
+     * a reasonable part of its lifetime left, else signs a new one. Never use for tokens handed to users.
+     */
+    String getCachedJwt(CreateJwtTokenRequest request);
+
     HttpHeaders createHeadersForLambdaCall();
 
     /**
@@ -30,6 +36,12 @@ public interface JwtService {
 
     boolean isJwtTokenValid(String token);
 
+    /**
+     * Verifies the token's signature and expiry once and returns its claims.
+     * @return the verified claims, or null if the token is invalid or has expired
+     */
+    VerifiedJwt parseVerifiedToken(String token);
+
     boolean isJwtTokenExpired(String token);
 
     String getUserIdFromJwtToken(String token);
@@ -8,6 +8,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.env.Environment;
 import org.springframework.http.HttpHeaders;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 import za.org.grassroot.integration.PublicCredentials;
@@ -35,13 +36,19 @@ public class JwtServiceImpl implements JwtService {
     @Value("${grassroot.jwt.api-key-expiry.inDays:180}")
     private Long jwtApiKeyExpiryDays;
 
+    // long enough for system tokens to be reused across calls, see the signed token cache
+    @Value("${grassroot.jwt.microservice-expiry.inMilliseconds:60000}")
+    private Long microserviceTokenExpiryMillis;
+
     private final Environment environment;
     private final KeyPairProvider keyPairProvider;
+    private final SignedTokenCache systemTokenCache;
 
     @Autowired
     public JwtServiceImpl(Environment environment, KeyPairProvider keyPairProvider) {
         this.environment = environment;
         this.keyPairProvider = keyPairProvider;
+        this.systemTokenCache = new SignedTokenCache(this::createJwt, this::expiryMillis);
     }
 
     @PostConstruct
@@ -59,11 +66,7 @@ public class JwtServiceImpl implements JwtService {
     public String createJwt(CreateJwtTokenRequest request) {
         Instant now = Instant.now();
 
-        long typeExpiryMillis = convertTypeToExpiryMillis(request.getJwtType());
-        long passedExpiryMillis = request.getShortExpiryMillis() == null ? typeExpiryMillis :
-                Math.min(typeExpiryMillis, request.getShortExpiryMillis());
-
-        Instant exp = now.plus(passedExpiryMillis, ChronoUnit.MILLIS);
+        Instant exp = now.plus(expiryMillis(request), ChronoUnit.MILLIS);
         request.getHeaderParameters().put("kid", keyIdentifier);
 
         return Jwts.builder()
@@ -78,19 +81,35 @@ public class JwtServiceImpl implements JwtService {
                 .compact();
     }
 
+    @Override
+    public String getCachedJwt(CreateJwtTokenRequest request) {
+        return systemTokenCache.getToken(request);
+    }
+
     @Override
     public HttpHeaders createHeadersForLambdaCall() {
         HttpHeaders headers = new HttpHeaders();
-        headers.add("Authorization", "Bearer " + createJwt(CreateJwtTokenRequest.makeSystemToken()));
+        headers.add("Authorization", "Bearer " + getCachedJwt(CreateJwtTokenRequest.makeSystemToken()));
         return headers;
     }
 
+    @Scheduled(fixedDelayString = "${grassroot.jwt.cache.refresh-interval.inMilliseconds:5000}")
+    public void refreshCachedTokens() {
+        systemTokenCache.refreshAgeing();
+    }
+
+    private long expiryMillis(CreateJwtTokenRequest request) {
+        long typeExpiryMillis = convertTypeToExpiryMillis(request.getJwtType());
+        return request.getShortExpiryMillis() == null ? typeExpiryMillis :
+                Math.min(typeExpiryMillis, request.getShortExpiryMillis());
+    }
+
     private long convertTypeToExpiryMillis(JwtType jwtType) {
         switch (jwtType) {
             case WEB_ANDROID_CLIENT:
                 return Duration.ofDays(7L).toMillis();
             case GRASSROOT_MICROSERVICE:
-                return Duration.ofSeconds(3).toMillis(); // occasional glitches mean 3 secs is a better trade off here at present
+                return microserviceTokenExpiryMillis;
             case MSGING_CLIENT:
                 return Duration.ofMinutes(1).toMillis();
             case API_CLIENT:
@@ -120,6 +139,33 @@ public class JwtServiceImpl implements JwtService {
         }
     }
 
+    @Override
+    public VerifiedJwt parseVerifiedToken(String token) {
+        try {
+            Claims claims = extractClaims(token);
+            return new VerifiedJwt(claims.get(USER_UID_KEY, String.class),
+                    splitList(claims.get(SYSTEM_ROLE_KEY, String.class)),
+                    splitList(claims.get(PERMISSIONS_KEY, String.class)),
+                    claims.getExpiration() == null ? null : claims.getExpiration().toInstant());
+        }
+        catch (ExpiredJwtException e) {
+            logger.error("Token validation failed. The token is expired. Exception: {}", e.getMessage());
+            return null;
+        }
+        catch (SignatureException e) {
+            logger.error("Token validation failed, wrong signature. Exception: {}", e.getMessage());
+            return null;
+        }
+        catch (Exception e) {
+            logger.error("Unexpected token validation error.", e);
+            return null;
+        }
+    }
+
+    private List<String> splitList(String joined) {
+        return StringUtils.isEmpty(joined) ? new ArrayList<>() : Arrays.asList(joined.split(","));
+    }
+
     @Override
     public boolean isJwtTokenExpired(String token) {
         try {
@@ -0,0 +1,102 @@
+package za.org.grassroot.integration.authentication;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Holds signed tokens for server to server calls, keyed by type, expiry and claims, so that a burst of calls to the
+ * same service shares one signature instead of doing an RSA sign each. A token is handed out until a quarter of its
+ * lifetime remains, and {@link #refreshAgeing()} re-signs tokens past half their lifetime, so callers in steady use
+ * should rarely sign inline. Entries not used for a full lifetime are dropped rather than refreshed.
+ */
+@Slf4j
+class SignedTokenCache {
+
+    private static final int MAX_ENTRIES = 256; // only system tokens come through here, so should never get near this
+
+    private final Function<CreateJwtTokenRequest, String> signer;
+    private final ToLongFunction<CreateJwtTokenRequest> lifetimeMillis;
+    private final LongSupplier clock;
+
+    private final Map<List<Object>, Entry> entries = new ConcurrentHashMap<>();
+
+    SignedTokenCache(Function<CreateJwtTokenRequest, String> signer, ToLongFunction<CreateJwtTokenRequest> lifetimeMillis) {
+        this(signer, lifetimeMillis, System::currentTimeMillis);
+    }
+
+    SignedTokenCache(Function<CreateJwtTokenRequest, String> signer, ToLongFunction<CreateJwtTokenRequest> lifetimeMillis,
+                     LongSupplier clock) {
+        this.signer = signer;
+        this.lifetimeMillis = lifetimeMillis;
+        this.clock = clock;
+    }
+
+    String getToken(CreateJwtTokenRequest request) {
+        final List<Object> key = keyOf(request);
+        final long now = clock.getAsLong();
+        Entry entry = entries.get(key);
+        if (entry != null && now < entry.serveUntil) {
+            entry.lastUsed = now;
+            return entry.token;
+        }
+
+        if (entries.size() >= MAX_ENTRIES) {
+            log.warn("Signed token cache full, clearing, check nothing is passing per-user claims through it");
+            entries.clear();
+        }
+        entry = sign(request, now);
+        entries.put(key, entry);
+        return entry.token;
+    }
+
+    void refreshAgeing() {
+        final long now = clock.getAsLong();
+        entries.forEach((key, entry) -> {
+            if (now - entry.lastUsed > entry.lifetime) {
+                entries.remove(key, entry);
+            } else if (now > entry.refreshAfter) {
+                Entry refreshed = sign(entry.request, now);
+                refreshed.lastUsed = entry.lastUsed;
+                entries.replace(key, entry, refreshed);
+            }
+        });
+    }
+
+    private Entry sign(CreateJwtTokenRequest request, long now) {
+        final long lifetime = lifetimeMillis.applyAsLong(request);
+        return new Entry(request, signer.apply(request), lifetime, now);
+    }
+
+    // taken before signing, as signing adds the key id to the header parameters
+    private static List<Object> keyOf(CreateJwtTokenRequest request) {
+        return Arrays.asList(request.getJwtType(), request.getShortExpiryMillis(),
+                new HashMap<>(request.getClaims()), new HashMap<>(request.getHeaderParameters()));
+    }
+
+    private static final class Entry {
+        private final CreateJwtTokenRequest request;
+        private final String token;
+        private final long lifetime;
+        private final long refreshAfter;
+        private final long serveUntil;
+        private volatile long lastUsed;
+
+        private Entry(CreateJwtTokenRequest request, String token, long lifetime, long signedAt) {
+            this.request = request;
+            this.token = token;
+            this.lifetime = lifetime;
+            this.refreshAfter = signedAt + lifetime / 2;
+            this.serveUntil = signedAt + lifetime * 3 / 4;
+            this.lastUsed = signedAt;
+        }
+    }
+
+}
@@ -0,0 +1,32 @@
+package za.org.grassroot.integration.authentication;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * The claims the platform reads from a token whose signature and expiry have been checked, so that callers needing
+ * several of them do not each re-parse and re-verify the token.
+ */
+@Getter @ToString
+public class VerifiedJwt {
+
+    private final String userUid;
+    private final List<String> standardRoles;
+    private final List<String> permissions;
+    private final Instant expiresAt;
+
+    public VerifiedJwt(String userUid, List<String> standardRoles, List<String> permissions, Instant expiresAt) {
+        this.userUid = userUid;
+        this.standardRoles = standardRoles;
+        this.permissions = permissions;
+        this.expiresAt = expiresAt;
+    }
+
+    public boolean isExpiredAt(Instant instant) {
+        return expiresAt != null && !instant.isBefore(expiresAt);
+    }
+
+}
@@ -10,6 +10,11 @@ public interface DataImportBroker {
 
     List<String> extractFirstRowOfCells(File file);
 
+    /**
+     * Reads members from an Excel (.xlsx or .xls) or CSV file, normalising phone numbers and emails, and dropping rows
+     * that repeat an earlier row's phone or email. Rows that fail, or are duplicates, come back in the error rows with
+     * the reason appended as a last column (and in the error file, at the error file path).
+     */
     MemberImportResult processMembers(File file, boolean headerRow, Integer phoneColumn, Integer nameColumn,
                                         Integer roleColumn, Integer emailCol, Integer provinceCol,
                                         Integer firstNameCol, Integer surnameCol, Integer afiilCol);
@@ -1,16 +1,18 @@
 package za.org.grassroot.integration.data;
 
 import org.apache.commons.validator.routines.EmailValidator;
-import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
-import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFCellStyle;
-import org.apache.poi.xssf.usermodel.XSSFFont;
-import org.apache.poi.xssf.usermodel.XSSFSheet;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
+import za.org.grassroot.GrassrootExecutorsConfig;
 import za.org.grassroot.core.domain.GroupRole;
 import za.org.grassroot.core.dto.membership.MembershipInfo;
 import za.org.grassroot.core.enums.Province;
@@ -21,12 +23,15 @@ import javax.annotation.PostConstruct;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * Created by luke on 2016/10/19.
+ * Rows are streamed off the file (see SpreadsheetRowReader) in batches, which are checked and normalised on the bulk
+ * executor while the next are read, with a cap on the batches in flight so a large upload reads at the pace it can be
+ * checked. Completed batches are taken back in file order, so the first of any duplicate rows is the one kept.
  */
 @Service
 public class DataImportBrokerImpl implements DataImportBroker {
@@ -34,9 +39,21 @@ public class DataImportBrokerImpl implements DataImportBroker {
     private static final Logger logger = LoggerFactory.getLogger(DataImportBrokerImpl.class);
 
     private static final String EMPTY_PLACEHOLDER = "[blank]";
+    private static final String ERROR_HEADER = "Import error";
+
+    @Value("${grassroot.import.batch-size:250}")
+    private int batchSize = 250;
+
+    @Value("${grassroot.import.batches-in-flight:4}")
+    private int maxBatchesInFlight = 4;
 
     private DataFormatter dataFormatter;
-    private FormulaEvaluator formulaEvaluator;
+    private Executor importExecutor = Runnable::run;
+
+    @Autowired(required = false)
+    public void setImportExecutor(@Qualifier(GrassrootExecutorsConfig.IMPORT_EXECUTOR) Executor importExecutor) {
+        this.importExecutor = importExecutor;
+    }
 
     @PostConstruct
     private void init() {
@@ -47,240 +64,264 @@ public class DataImportBrokerImpl implements DataImportBroker {
     public List<String> extractFirstRowOfCells(File file) {
         List<String> firstRow = new ArrayList<>();
         try {
-            Workbook wb = WorkbookFactory.create(file);
-            formulaEvaluator = wb.getCreationHelper().createFormulaEvaluator();
-            Row row = wb.getSheetAt(0).getRow(0);
-            int lastColumn = row.getLastCellNum();
-            for (int cn = 0; cn < lastColumn; cn++) {
-                Cell cell = row.getCell(cn, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
-                firstRow.add(extractHeader(cell));
-            }
+            SpreadsheetRowReader.read(file, dataFormatter, (rowNumber, cells) -> {
+                cells.forEach(cell -> firstRow.add(StringUtils.isEmpty(cell) ? EMPTY_PLACEHOLDER : cell));
+                return false;
+            });
         } catch (IOException e) {
-            logger.info("Error, file input stream corrupted");
-        } catch (InvalidFormatException e) {
-            logger.info("Error, invalid file format");
+            logger.info("Error reading first row of file: {}", e.getMessage());
         }
         logger.info("extracted first row of cells, look like: {}", firstRow);
         return firstRow;
     }
 
-    private String extractHeader(Cell cell) {
-        final String header = dataFormatter.formatCellValue(cell, formulaEvaluator);
-        return StringUtils.isEmpty(header) ? EMPTY_PLACEHOLDER : header;
-    }
-
     @Override
     public MemberImportResult processMembers(File file, boolean headerRow, Integer phoneColumn, Integer nameColumn, Integer roleColumn, Integer emailCol, Integer provinceCol, Integer firstNameCol, Integer surnameCol, Integer afiilCol) {
         logger.info("file path name : {}, path: {}, abs path: {}", file.getName(), file.getPath(), file.getAbsolutePath());
+        final long startTime = System.currentTimeMillis();
 
-        MemberImportResult result = new MemberImportResult();
-        List<MembershipInfo> importedMembers = new ArrayList<>();
-        List<Row> failedRows = new ArrayList<>();
+        final MemberColumns columns = new MemberColumns(nameColumn, phoneColumn, emailCol, provinceCol, roleColumn,
+                firstNameCol, surnameCol, afiilCol);
+        final ImportPipeline pipeline = new ImportPipeline(columns);
+        final List<List<String>> header = new ArrayList<>(1);
         try {
-            Workbook wb = WorkbookFactory.create(file);
-            formulaEvaluator = wb.getCreationHelper().createFormulaEvaluator();
-            Sheet sheet = wb.getSheetAt(0);
-
-            for (int i = headerRow ? 1 : 0; i <  sheet.getPhysicalNumberOfRows(); i++) {
-                Row row = sheet.getRow(i);
-                if (!checkRowEmpty(row)) {
-                    try {
-                        MembershipInfo member = memberFromRow(row, nameColumn, phoneColumn, emailCol, provinceCol, roleColumn,
-                                firstNameCol, surnameCol, afiilCol);
-                        importedMembers.add(member);
-                        logger.debug("Read in member: {}", member);
-                    } catch (Exception e) {
-                        logger.info("failed to parse row, adding to error sheet, error headline: {}", e.getMessage());
-                        failedRows.add(row);
-                    }
-                }
-            }
-
-            if (!failedRows.isEmpty()) {
-                try {
-                    List<String[]> failedRowValues = new ArrayList<>();
-                    File errorFile = createErrorFile(headerRow ? sheet.getRow(0) : null,
-                            failedRows, failedRowValues, file.getName());
-                    result.setErrorFilePath(errorFile.getPath());
-                    result.setErrorRows(failedRowValues);
-                } catch(Exception e) {
-                    logger.error("something went wrong creating error file", e);
-                }
-            }
-
+            SpreadsheetRowReader.read(file, dataFormatter, (rowNumber, cells) -> {
+                if (headerRow && header.isEmpty())
+                    header.add(cells);
+                else
+                    pipeline.add(rowNumber, cells);
+                return true;
+            });
         } catch (IOException e) {
-            logger.info("Error! File not found: " + e.toString());
-        } catch (InvalidFormatException e) {
             logger.info("Error! Could not read file: " + e.toString());
         }
+        pipeline.finish();
 
-        result.setProcessedMembers(importedMembers);
-        return result;
-    }
-
-    private File createErrorFile(Row headerRow, List<Row> errorRows, List<String[]> valueStore, String fileName)
-            throws IOException {
-        XSSFWorkbook workbook = new XSSFWorkbook();
-        XSSFSheet sheet = workbook.createSheet("ErrorRows");
-        XSSFCellStyle contentStyle = workbook.createCellStyle();
-        XSSFFont contentFont = workbook.createFont();
-        contentStyle.setFont(contentFont);
-
-        int headerOffset = headerRow != null ? 1 : 0;
-        if (headerRow != null) {
-            Row newHeaderRow = sheet.createRow(0);
-            valueStore.add(copyRow(workbook, headerRow, newHeaderRow));
+        MemberImportResult result = new MemberImportResult();
+        if (!pipeline.failedRows.isEmpty()) {
+            try {
+                List<String[]> failedRowValues = errorReport(header.isEmpty() ? null : header.get(0), pipeline.failedRows);
+                File errorFile = createErrorFile(failedRowValues, file.getName());
+                result.setErrorFilePath(errorFile.getPath());
+                result.setErrorRows(failedRowValues);
+            } catch(Exception e) {
+                logger.error("something went wrong creating error file", e);
+            }
         }
 
-        for (int rowIndex  = 0; rowIndex < errorRows.size(); rowIndex++) {
-            Row errorRow = errorRows.get(rowIndex);
-            Row newRow = sheet.createRow(rowIndex + headerOffset);
-            valueStore.add(copyRow(workbook, errorRow, newRow));
-        }
+        logger.info("Imported {} members from {}, with {} rows failed or duplicated, took {} msecs", pipeline.importedMembers.size(),
+                file.getName(), pipeline.failedRows.size(), System.currentTimeMillis() - startTime);
+        result.setProcessedMembers(pipeline.importedMembers);
+        return result;
+    }
 
-        File outputFile = File.createTempFile(fileName + "-errors", ".xls");
-        FileOutputStream fos = new FileOutputStream(outputFile);
-        workbook.write(fos);
-        fos.flush();
-        fos.close();
-        return outputFile;
+    // the rows as read, padded to the same width, with the reason each failed on the end
+    private static List<String[]> errorReport(List<String> header, List<RowOutcome> failedRows) {
+        int width = header == null ? 0 : header.size();
+        for (RowOutcome row : failedRows)
+            width = Math.max(width, row.cells.size());
+
+        List<String[]> values = new ArrayList<>(failedRows.size() + 1);
+        if (header != null)
+            values.add(reportRow(header, width, ERROR_HEADER));
+        for (RowOutcome row : failedRows)
+            values.add(reportRow(row.cells, width, "Row " + (row.rowNumber + 1) + ": " + row.error));
+        return values;
+    }
 
+    private static String[] reportRow(List<String> cells, int width, String error) {
+        String[] values = new String[width + 1];
+        for (int i = 0; i < width; i++)
+            values[i] = i < cells.size() ? cells.get(i) : "";
+        values[width] = error;
+        return values;
     }
 
-    private String[] copyRow(XSSFWorkbook workbook, Row errorRow, Row newRow) {
-        String[] values = new String[errorRow.getLastCellNum()];
-        for (int colIndex = 0; colIndex < errorRow.getLastCellNum(); colIndex++) {
-            Cell sourceCell = errorRow.getCell(colIndex);
-            Cell newCell = newRow.createCell(colIndex);
-            if (sourceCell == null) {
-                newCell = null;
-                continue;
+    private File createErrorFile(List<String[]> rows, String fileName) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(100);
+        try {
+            Sheet sheet = workbook.createSheet("ErrorRows");
+            for (int rowIndex = 0; rowIndex < rows.size(); rowIndex++) {
+                Row row = sheet.createRow(rowIndex);
+                String[] values = rows.get(rowIndex);
+                for (int colIndex = 0; colIndex < values.length; colIndex++)
+                    row.createCell(colIndex).setCellValue(values[colIndex]);
             }
 
-            XSSFCellStyle newCellStyle = workbook.createCellStyle();
-            newCellStyle.cloneStyleFrom(sourceCell.getCellStyle());
-            newCell.setCellStyle(newCellStyle);
-            newCell.setCellType(sourceCell.getCellTypeEnum());
-
-            // Set the cell data value
-            switch (sourceCell.getCellTypeEnum()) {
-                case BLANK:
-                    newCell.setCellValue(sourceCell.getStringCellValue());
-                    values[colIndex] = sourceCell.getStringCellValue();
-                    break;
-                case BOOLEAN:
-                    newCell.setCellValue(sourceCell.getBooleanCellValue());
-                    values[colIndex] = String.valueOf(sourceCell.getBooleanCellValue());
-                    break;
-                case ERROR:
-                    newCell.setCellErrorValue(sourceCell.getErrorCellValue());
-                    values[colIndex] = String.valueOf(sourceCell.getErrorCellValue());
-                    break;
-                case FORMULA:
-                    newCell.setCellFormula(sourceCell.getCellFormula());
-                    values[colIndex] = getValue(errorRow, colIndex);
-                    break;
-                case NUMERIC:
-                    newCell.setCellValue(sourceCell.getNumericCellValue());
-                    values[colIndex] = String.valueOf(sourceCell.getNumericCellValue());
-                    break;
-                case STRING:
-                    newCell.setCellValue(sourceCell.getRichStringCellValue());
-                    values[colIndex] = sourceCell.getRichStringCellValue().getString();
-                    break;
+            File outputFile = File.createTempFile(fileName + "-errors", ".xls");
+            try (FileOutputStream fos = new FileOutputStream(outputFile)) {
+                workbook.write(fos);
             }
+            return outputFile;
+        } finally {
+            workbook.dispose();
         }
-        return values;
     }
 
     @Override
     public List<String> extractFirstColumnOfSheet(File file) {
         List<String> firstColumn = new ArrayList<>();
         try {
-            Workbook wb = WorkbookFactory.create(file);
-            formulaEvaluator = wb.getCreationHelper().createFormulaEvaluator();
-            Sheet sheet = wb.getSheetAt(0);
-            for (int i = 0; i < sheet.getPhysicalNumberOfRows(); i++) {
-                Row row = sheet.getRow(i);
-                firstColumn.add(dataFormatter.formatCellValue(row.getCell(0), formulaEvaluator));
-            }
+            SpreadsheetRowReader.read(file, dataFormatter, (rowNumber, cells) -> firstColumn.add(cells.get(0)));
         } catch (IOException e) {
-            logger.info("Error, file input stream corrupted");
-        } catch (InvalidFormatException e) {
-            logger.info("Error, invalid file format");
+            logger.info("Error reading first column of file: {}", e.getMessage());
         }
         return firstColumn;
     }
 
-    private MembershipInfo memberFromRow(Row row, Integer nameCol, Integer phoneCol, Integer emailCol, Integer provinceCol,
-                                         Integer roleCol, Integer firstNameCol, Integer surNameCol, Integer affilCol) {
-        if (phoneCol == null && emailCol == null) {
-            logger.info("no phone or email col, exiting with error");
+    private final class ImportPipeline {
+        private final MemberColumns columns;
+        private final Deque<CompletableFuture<List<RowOutcome>>> inFlight = new ArrayDeque<>();
+        private List<RowOutcome> batch;
+
+        private final List<MembershipInfo> importedMembers = new ArrayList<>();
+        private final List<RowOutcome> failedRows = new ArrayList<>();
+        private final Map<String, Integer> seenContacts = new HashMap<>(); // phone or email -> row first seen in
+
+        private ImportPipeline(MemberColumns columns) {
+            this.columns = columns;
+            this.batch = new ArrayList<>(batchSize);
+        }
+
+        private void add(int rowNumber, List<String> cells) {
+            batch.add(new RowOutcome(rowNumber, cells));
+            if (batch.size() >= batchSize)
+                submitBatch();
+        }
+
+        private void finish() {
+            if (!batch.isEmpty())
+                submitBatch();
+            while (!inFlight.isEmpty())
+                merge(inFlight.poll().join());
+        }
+
+        private void submitBatch() {
+            final List<RowOutcome> rows = batch;
+            batch = new ArrayList<>(batchSize);
+            inFlight.add(CompletableFuture.supplyAsync(() -> {
+                rows.forEach(row -> normalise(row, columns));
+                return rows;
+            }, importExecutor));
+            while (inFlight.size() > maxBatchesInFlight)
+                merge(inFlight.poll().join());
+        }
+
+        private void merge(List<RowOutcome> rows) {
+            for (RowOutcome row : rows) {
+                if (row.member == null) {
+                    failedRows.add(row);
+                    continue;
+                }
+
+                final String phone = row.member.getPhoneNumber();
+                final String email = row.member.getFormattedEmail().orElse(null);
+                final Integer firstRow = phone != null && seenContacts.containsKey(phone) ? seenContacts.get(phone) :
+                        email != null ? seenContacts.get(email) : null;
+                if (firstRow != null) {
+                    row.error = "Duplicate of row " + (firstRow + 1);
+                    failedRows.add(row);
+                    continue;
+                }
+
+                if (phone != null)
+                    seenContacts.put(phone, row.rowNumber);
+                if (email != null)
+                    seenContacts.put(email, row.rowNumber);
+                importedMembers.add(row.member);
+            }
+        }
+    }
+
+    private static final class RowOutcome {
+        private final int rowNumber;
+        private final List<String> cells;
+        private MembershipInfo member; // null if it failed, in which case the error says why
+        private String error;
+
+        private RowOutcome(int rowNumber, List<String> cells) {
+            this.rowNumber = rowNumber;
+            this.cells = cells;
+        }
+    }
+
+    private static final class MemberColumns {
+        private final Integer nameCol, phoneCol, emailCol, provinceCol, roleCol, firstNameCol, surNameCol, affilCol;
+
+        private MemberColumns(Integer nameCol, Integer phoneCol, Integer emailCol, Integer provinceCol, Integer roleCol,
+                              Integer firstNameCol, Integer surNameCol, Integer affilCol) {
+            this.nameCol = nameCol;
+            this.phoneCol = phoneCol;
+            this.emailCol = emailCol;
+            this.provinceCol = provinceCol;
+            this.roleCol = roleCol;
+            this.firstNameCol = firstNameCol;
+            this.surNameCol = surNameCol;
+            this.affilCol = affilCol;
+        }
+    }
+
+    private static void normalise(RowOutcome row, MemberColumns columns) {
+        try {
+            row.member = memberFromRow(row.cells, columns);
+        } catch (Exception e) {
+            logger.debug("failed to parse row {}, adding to error sheet, error headline: {}", row.rowNumber, e.getMessage());
+            row.error = e.getMessage();
+        }
+    }
+
+    private static MembershipInfo memberFromRow(List<String> row, MemberColumns columns) {
+        if (columns.phoneCol == null && columns.emailCol == null) {
             throw new IllegalArgumentException("Error! One of email or phone number columns must be present");
         }
-        if (nameCol == null && firstNameCol == null && surNameCol == null) {
-            logger.info("no name columns, exiting with error");
+        if (columns.nameCol == null && columns.firstNameCol == null && columns.surNameCol == null) {
             throw new IllegalArgumentException("Error! At least one of the name values must be set");
         }
 
-        logger.debug("emailCol : {}, provinceCol: {}", emailCol, provinceCol);
-
         MembershipInfo info = new MembershipInfo();
 
-        final String fullName = nameCol != null ? getValue(row, nameCol) : getValue(row, firstNameCol) + " " + getValue(row, surNameCol);
+        final String fullName = columns.nameCol != null ? getValue(row, columns.nameCol) :
+                (getValue(row, columns.firstNameCol) + " " + getValue(row, columns.surNameCol)).trim();
         info.setDisplayName(fullName);
-        info.setFirstName(firstNameCol != null ? getValue(row, firstNameCol) : null);
-        info.setSurname(surNameCol != null ? getValue(row, surNameCol) : null);
+        info.setFirstName(columns.firstNameCol != null ? getValue(row, columns.firstNameCol) : null);
+        info.setSurname(columns.surNameCol != null ? getValue(row, columns.surNameCol) : null);
 
-        final String phone = phoneCol != null ? getValue(row, phoneCol) : null;
-        if (!StringUtils.isEmpty(phone) && !PhoneNumberUtil.testInputNumber(phone)) {
-            logger.info("failed phone parsing, exiting, now");
-            throw new InvalidPhoneNumberException("Bad phone number passed for phone");
+        final String phone = columns.phoneCol != null ? getValue(row, columns.phoneCol) : null;
+        if (!StringUtils.isEmpty(phone)) {
+            try {
+                info.setPhoneNumber(PhoneNumberUtil.convertPhoneNumber(phone));
+            } catch (InvalidPhoneNumberException e) {
+                throw new InvalidPhoneNumberException("Bad phone number: " + phone);
+            }
         }
-        info.setPhoneNumber(phoneCol != null ? phone : null);
 
-        final String email = emailCol != null ? getValue(row, emailCol) : null;
-        if (!StringUtils.isEmpty(email) && !EmailValidator.getInstance().isValid(email)) {
-            throw new IllegalArgumentException("Bad email passed");
+        final String email = columns.emailCol != null ? getValue(row, columns.emailCol) : null;
+        if (!StringUtils.isEmpty(email)) {
+            if (!EmailValidator.getInstance().isValid(email)) {
+                throw new IllegalArgumentException("Bad email: " + email);
+            }
+            info.setMemberEmail(email.toLowerCase());
         }
-        info.setMemberEmail(emailCol != null ? email : null);
-
-        info.setRoleName(roleCol != null ? convertRoleName(getValue(row, roleCol)) : GroupRole.ROLE_ORDINARY_MEMBER);
 
         if (!info.hasValidPhoneOrEmail()) {
-            logger.info("don't have a valid phone or email, exiting");
             throw new IllegalArgumentException("Must have at least one of phone or email");
         }
 
-        info.setProvince(provinceCol != null  ? convertProvince(getValue(row, provinceCol)) : null);
-        info.setAffiliations(affilCol != null ? Arrays.asList(getValue(row, affilCol).split(",")) : null);
-
-        logger.info("returning member info: {}", info);
+        info.setRoleName(columns.roleCol != null ? convertRoleName(getValue(row, columns.roleCol)) : GroupRole.ROLE_ORDINARY_MEMBER);
+        info.setProvince(columns.provinceCol != null  ? convertProvince(getValue(row, columns.provinceCol)) : null);
+        info.setAffiliations(columns.affilCol != null ? Arrays.asList(getValue(row, columns.affilCol).split(",")) : null);
 
         return info;
     }
 
-    private boolean checkRowEmpty(Row row) {
-        if (row == null)
-            return true;
-
-        for (int c = row.getFirstCellNum(); c < row.getLastCellNum(); c++) {
-            Cell cell = row.getCell(c);
-            if (cell != null && !CellType.BLANK.equals(cell.getCellTypeEnum()))
-                return false;
-        }
-        return true;
-    }
-
-    private String getValue(Row row, Integer column) {
-        return dataFormatter.formatCellValue(row.getCell(column), formulaEvaluator).trim();
+    private static String getValue(List<String> row, Integer column) {
+        return column != null && column >= 0 && column < row.size() ? row.get(column).trim() : "";
     }
 
-    private Province convertProvince(final String cellValue) {
-        logger.debug("here's the province: {}", cellValue);
-        if (Province.EN_PROVINCE_NAMES.containsKey(cellValue.toLowerCase().trim())) {
-            logger.debug("okay, province: {}", cellValue);
-            return Province.EN_PROVINCE_NAMES.get(cellValue.toLowerCase().trim());
+    private static Province convertProvince(final String cellValue) {
+        final String province = cellValue.toLowerCase().trim();
+        if (Province.EN_PROVINCE_NAMES.containsKey(province)) {
+            return Province.EN_PROVINCE_NAMES.get(province);
         } else {
             try {
                 return Province.valueOf("ZA_" + cellValue.toUpperCase().trim());
@@ -290,7 +331,7 @@ public class DataImportBrokerImpl implements DataImportBroker {
         }
     }
 
-    private GroupRole convertRoleName(final String cellValue) {
+    private static GroupRole convertRoleName(final String cellValue) {
         if (cellValue.toLowerCase().contains("organizer")) {
             return GroupRole.ROLE_GROUP_ORGANIZER;
         }
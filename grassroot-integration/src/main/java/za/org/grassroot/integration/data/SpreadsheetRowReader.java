@@ -0,0 +1,244 @@
+package za.org.grassroot.integration.data;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.poifs.filesystem.FileMagic;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.SAXHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Reads the rows of the first sheet of an uploaded file one at a time, as formatted strings, without holding the
+ * sheet in memory. Excel 2007+ files are read through the XSSF event model, and anything that is not an Excel file
+ * is read as CSV (comma or semicolon separated). Old (.xls) files still go through the usermodel, but they are
+ * capped at 65k rows. Rows with nothing in them are skipped, and the handler can stop the read by returning false.
+ */
+@Slf4j
+final class SpreadsheetRowReader {
+
+    interface RowHandler {
+        // row number is zero based, as in the sheet; cells missing in the sheet come through as empty strings
+        boolean row(int rowNumber, List<String> cells);
+    }
+
+    private SpreadsheetRowReader() {
+        // static only
+    }
+
+    static void read(File file, DataFormatter dataFormatter, RowHandler handler) throws IOException {
+        final FileMagic fileMagic;
+        try (InputStream input = FileMagic.prepareToCheckMagic(new FileInputStream(file))) {
+            fileMagic = FileMagic.valueOf(input);
+        }
+        log.debug("Reading rows from {}, detected as {}", file.getName(), fileMagic);
+
+        if (FileMagic.OOXML.equals(fileMagic))
+            readXlsx(file, dataFormatter, handler);
+        else if (FileMagic.OLE2.equals(fileMagic))
+            readXls(file, dataFormatter, handler);
+        else
+            readCsv(file, handler);
+    }
+
+    private static void readXlsx(File file, DataFormatter dataFormatter, RowHandler handler) throws IOException {
+        OPCPackage pkg = null;
+        try {
+            pkg = OPCPackage.open(file, PackageAccess.READ);
+            final XSSFReader reader = new XSSFReader(pkg);
+            final ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            final StylesTable styles = reader.getStylesTable();
+            final Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext())
+                return;
+
+            try (InputStream sheet = sheets.next()) {
+                final XMLReader parser = SAXHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(styles, null, strings, new SheetRowCollector(handler),
+                        dataFormatter, false));
+                parser.parse(new InputSource(sheet));
+            } catch (StopReading e) {
+                log.debug("Handler stopped reading {} early", file.getName());
+            }
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("Could not read spreadsheet: " + e.getMessage(), e);
+        } finally {
+            if (pkg != null)
+                pkg.revert(); // close() is for saving, and warns on a package opened read only
+        }
+    }
+
+    private static void readXls(File file, DataFormatter dataFormatter, RowHandler handler) throws IOException {
+        try (Workbook wb = WorkbookFactory.create(file, null, true)) {
+            final FormulaEvaluator formulaEvaluator = wb.getCreationHelper().createFormulaEvaluator();
+            for (Row row : wb.getSheetAt(0)) {
+                final List<String> cells = new ArrayList<>(Math.max(row.getLastCellNum(), 0));
+                for (int cn = 0; cn < row.getLastCellNum(); cn++) {
+                    final Cell cell = row.getCell(cn, Row.MissingCellPolicy.RETURN_BLANK_AS_NULL);
+                    cells.add(cell == null ? "" : dataFormatter.formatCellValue(cell, formulaEvaluator));
+                }
+                if (!isEmpty(cells) && !handler.row(row.getRowNum(), cells))
+                    return;
+            }
+        } catch (InvalidFormatException e) {
+            throw new IOException("Could not read spreadsheet: " + e.getMessage(), e);
+        }
+    }
+
+    private static void readCsv(File file, RowHandler handler) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            reader.mark(1);
+            if (reader.read() != '\uFEFF') // byte order mark, as Excel puts at the start of a UTF-8 CSV
+                reader.reset();
+
+            final CsvParser parser = new CsvParser(reader);
+            int rowNumber = 0;
+            for (List<String> cells = parser.next(); cells != null; cells = parser.next(), rowNumber++) {
+                if (!isEmpty(cells) && !handler.row(rowNumber, cells))
+                    return;
+            }
+        }
+    }
+
+    static boolean isEmpty(List<String> cells) {
+        for (String cell : cells)
+            if (cell != null && !cell.trim().isEmpty())
+                return false;
+        return true;
+    }
+
+    private static final class StopReading extends RuntimeException {
+        private StopReading() {
+            super(null, null, false, false);
+        }
+    }
+
+    private static final class SheetRowCollector implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final RowHandler handler;
+        private final List<String> cells = new ArrayList<>();
+
+        private SheetRowCollector(RowHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            cells.clear();
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            if (!isEmpty(cells) && !handler.row(rowNum, new ArrayList<>(cells)))
+                throw new StopReading();
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            // blank cells are not reported, so fill up to this one; the reference is optional, in which case it's the next
+            final int column = cellReference == null ? cells.size() : new CellReference(cellReference).getCol();
+            while (cells.size() < column)
+                cells.add("");
+            cells.add(formattedValue == null ? "" : formattedValue);
+        }
+
+        @Override
+        public void headerFooter(String text, boolean isHeader, String tagName) {
+            // not needed
+        }
+    }
+
+    // RFC 4180, with quoted fields (which may hold separators, doubled quotes and line breaks); the separator is whichever of
+    // comma or semicolon comes first outside quotes, as Excel writes semicolons where the comma is the decimal mark
+    static final class CsvParser {
+        private final Reader reader;
+        private int separator = -1;
+        private int pending = -2; // a character read ahead, -2 for none
+
+        CsvParser(Reader reader) {
+            this.reader = reader;
+        }
+
+        // null at the end of the input
+        List<String> next() throws IOException {
+            int c = read();
+            if (c == -1)
+                return null;
+
+            final List<String> fields = new ArrayList<>();
+            final StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            boolean fieldStart = true;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        break; // unterminated quote, take what there is
+                    } else if (c == '"') {
+                        final int following = read();
+                        if (following == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            c = following;
+                            continue;
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == -1 || c == '\n' || c == '\r') {
+                    if (c == '\r') {
+                        final int following = read();
+                        if (following != '\n')
+                            pending = following;
+                    }
+                    break;
+                } else if (c == '"' && fieldStart) {
+                    quoted = true;
+                    fieldStart = false;
+                } else if (isSeparator(c)) {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                    fieldStart = true;
+                } else {
+                    field.append((char) c);
+                    fieldStart = false;
+                }
+                c = read();
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+
+        private boolean isSeparator(int c) {
+            if (separator == -1 && (c == ',' || c == ';'))
+                separator = c;
+            return c == separator;
+        }
+
+        private int read() throws IOException {
+            if (pending != -2) {
+                final int c = pending;
+                pending = -2;
+                return c;
+            }
+            return reader.read();
+        }
+    }
+
+}
@@ -13,6 +13,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
+import za.org.grassroot.GrassrootExecutorsConfig;
 
 import java.util.Collections;
 import java.util.Map;
@@ -68,7 +69,7 @@ public class ExperimentBrokerImpl implements ExperimentBroker, CommandLineRunner
         }
     }
 
-    @Async
+    @Async(GrassrootExecutorsConfig.OUTBOUND_EXECUTOR)
     @Override
     public void recordEvent(String eventKey, String userUid, Map<String, String> attributes, Map<String, Object> tags) {
         if (optimizely != null) {
@@ -0,0 +1,221 @@
+package za.org.grassroot.integration.graph;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import za.org.grassroot.graph.dto.IncomingGraphAction;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+/**
+ * Queues graph actions in memory and sends them on a scheduler thread, in batches of up to ten per call, so callers
+ * (and the outbound pool) never wait on the queue service. The queue is bounded: once full, callers wait up to a
+ * timeout for space and the action is dropped (and counted) if none frees up. Annotations of the same entity or
+ * relationship that are still waiting are merged into one, later properties overwriting earlier ones and tags adding
+ * up, as applying them in turn would; any other action closes the waiting annotations to further merging, so that
+ * nothing is reordered around it.
+ */
+@Component @Slf4j
+@ConditionalOnProperty("grassroot.graph.enabled")
+public class GraphActionDispatcher {
+
+    @Value("${grassroot.graph.sqs.queue:grassroot-graph-test}")
+    private String grassrootQueue;
+
+    @Value("${grassroot.graph.transport:sqs}")
+    private String transportType;
+
+    @Value("${grassroot.graph.transport.file:graph-actions.jsonl}")
+    private String transportFile;
+
+    @Value("${grassroot.graph.dispatch.queue-capacity:20000}")
+    private int queueCapacity = 20000;
+
+    @Value("${grassroot.graph.dispatch.offer-timeout-ms:2000}")
+    private long offerTimeoutMillis = 2000;
+
+    private final ObjectMapper objectMapper;
+
+    private GraphActionTransport transport;
+    private BlockingQueue<PendingAction> queue;
+    private final Map<String, PendingAction> openAnnotations = new HashMap<>(); // guarded by this
+
+    private final AtomicLong dispatched = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong totalLagMillis = new AtomicLong();
+    private volatile long lastFlushMaxLagMillis;
+
+    public GraphActionDispatcher() {
+        this.objectMapper = new ObjectMapper().findAndRegisterModules()
+                .configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, true);
+    }
+
+    @Autowired(required = false)
+    public void setTransport(GraphActionTransport transport) {
+        this.transport = transport;
+    }
+
+    @PostConstruct
+    public void init() {
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        if (transport == null) {
+            transport = "file".equals(transportType) ? new LocalFileGraphActionTransport(Paths.get(transportFile)) :
+                    new SqsGraphActionTransport(grassrootQueue);
+        }
+        log.info("Graph action dispatcher using {}, queue capacity {}", transport.getClass().getSimpleName(), queueCapacity);
+    }
+
+    public void dispatch(IncomingGraphAction action, String actionDescription) {
+        synchronized (this) {
+            openAnnotations.clear();
+        }
+        enqueue(new PendingAction(null, null, null, (properties, tags) -> action), actionDescription);
+    }
+
+    /**
+     * Queues an annotation, merging it into one still waiting for the same key if there is one. The builder is called
+     * with the merged properties and tags when the annotation is sent.
+     */
+    public void dispatchAnnotation(String key, Map<String, String> properties, Set<String> tags,
+                                   BiFunction<Map<String, String>, Set<String>, IncomingGraphAction> builder) {
+        final PendingAction pending;
+        synchronized (this) {
+            final PendingAction open = openAnnotations.get(key);
+            if (open != null) {
+                open.merge(properties, tags);
+                coalesced.incrementAndGet();
+                return;
+            }
+            pending = new PendingAction(key, properties, tags, builder);
+            openAnnotations.put(key, pending);
+        }
+        if (!enqueue(pending, "annotation of " + key)) {
+            synchronized (this) {
+                openAnnotations.remove(key, pending);
+            }
+        }
+    }
+
+    private boolean enqueue(PendingAction pending, String actionDescription) {
+        try {
+            if (queue.offer(pending, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                dispatched.incrementAndGet();
+                return true;
+            }
+            log.error("Graph action queue full, dropping {}", actionDescription);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("Interrupted waiting for space on graph action queue, dropping {}", actionDescription);
+        }
+        dropped.incrementAndGet();
+        return false;
+    }
+
+    @Scheduled(fixedDelayString = "${grassroot.graph.dispatch.flush-interval:1000}")
+    public void flush() {
+        long maxLag = 0;
+        final List<PendingAction> batch = new ArrayList<>(GraphActionTransport.MAX_BATCH_SIZE);
+        while (queue.drainTo(batch, GraphActionTransport.MAX_BATCH_SIZE) > 0) {
+            final long now = System.currentTimeMillis();
+            final List<String> messages = new ArrayList<>(batch.size());
+            for (PendingAction pending : batch) {
+                closeAnnotation(pending);
+                try {
+                    messages.add(objectMapper.writeValueAsString(pending.build()));
+                } catch (JsonProcessingException e) {
+                    log.error("error serializing graph action, skipping it ... ", e);
+                    failed.incrementAndGet();
+                }
+                totalLagMillis.addAndGet(now - pending.queuedAt);
+                maxLag = Math.max(maxLag, now - pending.queuedAt);
+            }
+            batch.clear();
+            if (!messages.isEmpty())
+                sendBatch(messages);
+        }
+        lastFlushMaxLagMillis = maxLag;
+    }
+
+    private void sendBatch(List<String> messages) {
+        int failures;
+        try {
+            failures = transport.send(messages);
+        } catch (RuntimeException e) {
+            log.error("Error sending batch of {} graph actions: {}", messages.size(), e.getMessage());
+            failures = messages.size();
+        }
+        batches.incrementAndGet();
+        sent.addAndGet(messages.size() - failures);
+        failed.addAndGet(failures);
+    }
+
+    // once taken off the queue, an annotation is about to be built, so must not take any more merges
+    private synchronized void closeAnnotation(PendingAction pending) {
+        if (pending.key != null)
+            openAnnotations.remove(pending.key, pending);
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        log.info("Flushing {} queued graph actions before shutdown", queue.size());
+        flush();
+    }
+
+    public String describeStats() {
+        final long batchCount = batches.get();
+        final long sentCount = sent.get();
+        final long handledCount = sentCount + failed.get();
+        return String.format("queued: %d, dispatched: %d, coalesced: %d, dropped: %d, sent: %d, failed: %d, batches: %d, " +
+                        "mean batch size: %.1f, mean lag: %d msecs, max lag in last flush: %d msecs",
+                queue.size(), dispatched.get(), coalesced.get(), dropped.get(), sentCount, failed.get(), batchCount,
+                batchCount == 0 ? 0.0 : (double) handledCount / batchCount,
+                handledCount == 0 ? 0 : totalLagMillis.get() / handledCount, lastFlushMaxLagMillis);
+    }
+
+    private static final class PendingAction {
+        private final String key; // null if not an annotation that can be merged
+        private final Map<String, String> properties;
+        private final Set<String> tags;
+        private final BiFunction<Map<String, String>, Set<String>, IncomingGraphAction> builder;
+        private final long queuedAt = System.currentTimeMillis();
+
+        private PendingAction(String key, Map<String, String> properties, Set<String> tags,
+                              BiFunction<Map<String, String>, Set<String>, IncomingGraphAction> builder) {
+            this.key = key;
+            this.properties = properties == null ? new HashMap<>() : new HashMap<>(properties);
+            this.tags = tags == null ? new HashSet<>() : new HashSet<>(tags);
+            this.builder = builder;
+        }
+
+        // merged only while open, under the dispatcher's lock, and built only once closed under it, so never both at once
+        private void merge(Map<String, String> moreProperties, Set<String> moreTags) {
+            if (moreProperties != null)
+                properties.putAll(moreProperties);
+            if (moreTags != null)
+                tags.addAll(moreTags);
+        }
+
+        private IncomingGraphAction build() {
+            return builder.apply(properties, tags);
+        }
+    }
+
+}
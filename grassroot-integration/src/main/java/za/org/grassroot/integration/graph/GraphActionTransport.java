@@ -0,0 +1,18 @@
+package za.org.grassroot.integration.graph;
+
+import java.util.List;
+
+/**
+ * Carries serialized graph actions to the graph. The dispatcher uses SQS unless told otherwise (or unless another
+ * transport is registered as a bean), but a local file transport can be used where there is no AWS.
+ */
+public interface GraphActionTransport {
+
+    int MAX_BATCH_SIZE = 10; // as allowed by an SQS batch
+
+    /**
+     * Sends up to MAX_BATCH_SIZE messages, in order, returning how many of them could not be sent
+     */
+    int send(List<String> messages);
+
+}
@@ -1,13 +1,14 @@
 package za.org.grassroot.integration.graph;
 
 import org.springframework.scheduling.annotation.Async;
+import za.org.grassroot.GrassrootExecutorsConfig;
 import za.org.grassroot.core.enums.TaskType;
 
 import java.util.List;
 import java.util.Set;
 import java.util.Map;
 
-@Async
+@Async(GrassrootExecutorsConfig.OUTBOUND_EXECUTOR)
 public interface GraphBroker {
 
     void addUserToGraph(String userUid);
@@ -28,6 +29,9 @@ public interface GraphBroker {
 
     void annotateMembership(String userUid, String groupUid, Set<String> tags, boolean setAllAnnotations);
 
+    // as annotating each membership with all its annotations, but loading them together
+    void annotateMemberships(String groupUid, Set<String> userUids);
+
     void annotateTask(String taskUid, TaskType taskType, Map<String, String> properties, Set<String> tags, boolean setAllAnnotations);
 
     void removeUserFromGraph(String userUid);
@@ -1,14 +1,8 @@
 package za.org.grassroot.integration.graph;
 
-import com.amazonaws.services.sqs.AmazonSQS;
-import com.amazonaws.services.sqs.AmazonSQSClientBuilder;
-import com.amazonaws.services.sqs.model.SendMessageRequest;
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.collect.Lists;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -30,7 +24,6 @@ import za.org.grassroot.graph.domain.enums.GraphEntityType;
 import za.org.grassroot.graph.domain.enums.GrassrootRelationship;
 import za.org.grassroot.graph.dto.*;
 
-import javax.annotation.PostConstruct;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -38,13 +31,9 @@ import java.util.stream.Collectors;
 @ConditionalOnProperty("grassroot.graph.enabled")
 public class GraphBrokerImpl implements GraphBroker {
 
-    private AmazonSQS sqs;
-    private ObjectMapper objectMapper;
+    private static final int MEMBERSHIPS_PER_QUERY = 1000;
 
-    @Value("${grassroot.graph.sqs.queue:grassroot-graph-test}")
-    private String grassrootQueue;
-    private String sqsQueueUrl;
-    private boolean isQueueFifo;
+    private final GraphActionDispatcher dispatcher;
 
     private final UserRepository userRepository;
     private final GroupRepository groupRepository;
@@ -53,12 +42,10 @@ public class GraphBrokerImpl implements GraphBroker {
     private final TodoRepository todoRepository;
 
     @Autowired
-    public GraphBrokerImpl(UserRepository userRepository, GroupRepository groupRepository, MembershipRepository membershipRepository,
-                           EventRepository eventRepository, TodoRepository todoRepository) {
-        log.info("Graph broker enabled, constructing object mapper ...");
-        this.objectMapper = new ObjectMapper().findAndRegisterModules()
-                .configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, true);
-
+    public GraphBrokerImpl(GraphActionDispatcher dispatcher, UserRepository userRepository, GroupRepository groupRepository,
+                           MembershipRepository membershipRepository, EventRepository eventRepository, TodoRepository todoRepository) {
+        log.info("Graph broker enabled");
+        this.dispatcher = dispatcher;
         this.userRepository = userRepository;
         this.groupRepository = groupRepository;
         this.membershipRepository = membershipRepository;
@@ -66,13 +53,6 @@ public class GraphBrokerImpl implements GraphBroker {
         this.todoRepository = todoRepository;
     }
 
-    @PostConstruct
-    public void init() {
-        this.sqs = AmazonSQSClientBuilder.defaultClient();
-        this.sqsQueueUrl = sqs.getQueueUrl(grassrootQueue).getQueueUrl();
-        this.isQueueFifo = grassrootQueue.endsWith(".fifo");
-    }
-
     @Override
     public void addUserToGraph(String userUid) {
         log.info("adding user to Grassroot graph ... {}", userUid);
@@ -208,8 +188,17 @@ public class GraphBrokerImpl implements GraphBroker {
             tags = new HashSet<>(membership.getTagList());
         }
 
-        annotateRelationship(participatingRelationship(userUid, GraphEntityType.ACTOR, ActorType.INDIVIDUAL.name(),
-                groupUid, GraphEntityType.ACTOR, ActorType.GROUP.name()), tags);
+        annotateMembershipRelationship(userUid, groupUid, tags);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void annotateMemberships(String groupUid, Set<String> userUids) {
+        log.info("annotating Grassroot graph memberships of {} users in group {} ...", userUids.size(), groupUid);
+        for (List<String> chunk : Lists.partition(new ArrayList<>(userUids), MEMBERSHIPS_PER_QUERY)) {
+            membershipRepository.fetchUserUidsAndTags(groupUid, chunk).forEach(row -> annotateMembershipRelationship(
+                    (String) row[0], groupUid, row[1] == null ? null : new HashSet<>(Arrays.asList((String[]) row[1]))));
+        }
     }
 
     @Override
@@ -308,11 +297,13 @@ public class GraphBrokerImpl implements GraphBroker {
     }
 
     private void annotateEntity(GrassrootGraphEntity entity, Map<String, String> properties, Set<String> tags) {
-        IncomingDataObject dataObject = new IncomingDataObject(entity.getEntityType(), entity);
-        IncomingAnnotation annotation = new IncomingAnnotation(dataObject, null, normalize(properties), normalize(tags), null);
-        IncomingGraphAction action = new IncomingGraphAction(dataObject.getGraphEntity().getPlatformUid(),
-                ActionType.ANNOTATE_ENTITY, null, null, Collections.singletonList(annotation));
-        dispatchAction(action, "annotate entity");
+        final String key = "entity:" + entity.getEntityType() + ":" + entity.getPlatformUid();
+        dispatcher.dispatchAnnotation(key, normalize(properties), normalize(tags), (mergedProperties, mergedTags) -> {
+            IncomingDataObject dataObject = new IncomingDataObject(entity.getEntityType(), entity);
+            IncomingAnnotation annotation = new IncomingAnnotation(dataObject, null, mergedProperties, mergedTags, null);
+            return new IncomingGraphAction(dataObject.getGraphEntity().getPlatformUid(),
+                    ActionType.ANNOTATE_ENTITY, null, null, Collections.singletonList(annotation));
+        });
     }
 
     private void removeAnnotationsFromEntity(GrassrootGraphEntity entity, Set<String> keysToRemove, Set<String> tagsToRemove) {
@@ -323,11 +314,15 @@ public class GraphBrokerImpl implements GraphBroker {
         dispatchAction(action, "remove annotations from entity");
     }
 
-    private void annotateRelationship(IncomingRelationship relationship, Set<String> tags) {
-        IncomingAnnotation annotation = new IncomingAnnotation(null, relationship, null, normalize(tags), null);
-        IncomingGraphAction action = new IncomingGraphAction(relationship.getTailEntityPlatformId(),
-                ActionType.ANNOTATE_RELATIONSHIP, null, null, Collections.singletonList(annotation));
-        dispatchAction(action, "annotate relationship");
+    private void annotateMembershipRelationship(String userUid, String groupUid, Set<String> tags) {
+        final String key = "membership:" + userUid + ":" + groupUid;
+        dispatcher.dispatchAnnotation(key, null, normalize(tags), (mergedProperties, mergedTags) -> {
+            IncomingRelationship relationship = participatingRelationship(userUid, GraphEntityType.ACTOR,
+                    ActorType.INDIVIDUAL.name(), groupUid, GraphEntityType.ACTOR, ActorType.GROUP.name());
+            IncomingAnnotation annotation = new IncomingAnnotation(null, relationship, null, mergedTags, null);
+            return new IncomingGraphAction(relationship.getTailEntityPlatformId(),
+                    ActionType.ANNOTATE_RELATIONSHIP, null, null, Collections.singletonList(annotation));
+        });
     }
 
     private void removeAnnotationsFromRelationship(IncomingRelationship relationship, Set<String> tagsToRemove) {
@@ -338,17 +333,8 @@ public class GraphBrokerImpl implements GraphBroker {
     }
 
     private void dispatchAction(IncomingGraphAction action, String actionDescription) {
-        try {
-            log.debug("dispatching message to URL: {}", sqsQueueUrl);
-            SendMessageRequest request = new SendMessageRequest(sqsQueueUrl, objectMapper.writeValueAsString(action));
-            if (isQueueFifo) {
-                request.setMessageGroupId("graphCrudActions");
-            }
-            sqs.sendMessage(request);
-            log.debug("successfully dispatched {} to graph entity queue ...", actionDescription);
-        } catch (JsonProcessingException e) {
-            log.error("error adding graph action to queue ... ", e);
-        }
+        dispatcher.dispatch(action, actionDescription);
+        log.debug("queued {} for graph entity queue ...", actionDescription);
     }
 
     private IncomingGraphAction wrapEntityCreation(GrassrootGraphEntity entity) {
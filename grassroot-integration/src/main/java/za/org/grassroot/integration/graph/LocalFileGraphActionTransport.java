@@ -0,0 +1,41 @@
+package za.org.grassroot.integration.graph;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends each graph action as a line of JSON to a local file, for running and testing without AWS
+ */
+@Slf4j
+public class LocalFileGraphActionTransport implements GraphActionTransport {
+
+    private final Path file;
+
+    public LocalFileGraphActionTransport(Path file) {
+        this.file = file;
+        log.info("Graph actions will be written to local file: {}", file.toAbsolutePath());
+    }
+
+    @Override
+    public synchronized int send(List<String> messages) {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (String message : messages) {
+                writer.write(message);
+                writer.newLine();
+            }
+            return 0;
+        } catch (IOException e) {
+            log.error("Could not write graph actions to {}: {}", file, e.getMessage());
+            return messages.size();
+        }
+    }
+
+}
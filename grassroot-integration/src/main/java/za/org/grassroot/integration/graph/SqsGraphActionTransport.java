@@ -0,0 +1,44 @@
+package za.org.grassroot.integration.graph;
+
+import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.AmazonSQSClientBuilder;
+import com.amazonaws.services.sqs.model.SendMessageBatchRequestEntry;
+import com.amazonaws.services.sqs.model.SendMessageBatchResult;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Slf4j
+public class SqsGraphActionTransport implements GraphActionTransport {
+
+    private static final String FIFO_MESSAGE_GROUP = "graphCrudActions";
+
+    private final AmazonSQS sqs;
+    private final String sqsQueueUrl;
+    private final boolean isQueueFifo;
+
+    public SqsGraphActionTransport(String queueName) {
+        this.sqs = AmazonSQSClientBuilder.defaultClient();
+        this.sqsQueueUrl = sqs.getQueueUrl(queueName).getQueueUrl();
+        this.isQueueFifo = queueName.endsWith(".fifo");
+    }
+
+    @Override
+    public int send(List<String> messages) {
+        final List<SendMessageBatchRequestEntry> entries = new ArrayList<>(messages.size());
+        for (int i = 0; i < messages.size(); i++) {
+            SendMessageBatchRequestEntry entry = new SendMessageBatchRequestEntry(String.valueOf(i), messages.get(i));
+            if (isQueueFifo) {
+                entry.setMessageGroupId(FIFO_MESSAGE_GROUP);
+            }
+            entries.add(entry);
+        }
+
+        SendMessageBatchResult result = sqs.sendMessageBatch(sqsQueueUrl, entries);
+        result.getFailed().forEach(failure -> log.error("Graph action not accepted by queue, code {}: {}",
+                failure.getCode(), failure.getMessage()));
+        return result.getFailed().size();
+    }
+
+}
@@ -11,6 +11,7 @@ import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
+import za.org.grassroot.GrassrootExecutorsConfig;
 import za.org.grassroot.core.domain.User;
 import za.org.grassroot.core.domain.UserLog;
 import za.org.grassroot.core.domain.geo.GeoLocation;
@@ -140,7 +141,7 @@ public class AatSoapLocationBrokerImpl implements UssdLocationServicesBroker {
         return location;
     }
 
-    @Async
+    @Async(GrassrootExecutorsConfig.OUTBOUND_EXECUTOR)
     @Override
     public CompletableFuture<GeoLocation> getUssdLocation(String userUid) {
         User user = userRepository.findOneByUid(userUid);
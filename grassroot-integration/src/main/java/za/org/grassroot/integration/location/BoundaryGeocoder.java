@@ -0,0 +1,284 @@
+package za.org.grassroot.integration.location;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Enums;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+import za.org.grassroot.core.domain.geo.GeoLocation;
+import za.org.grassroot.core.enums.Province;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Answers which province and municipality a point falls in without a network call, from simplified boundary polygons
+ * loaded at startup. The boundaries are a GeoJSON feature collection of Polygon and MultiPolygon features (longitude,
+ * latitude), each with properties "level" (province or municipality), and then "code" for a province (GP, KZN, etc)
+ * or "id", "name" and "type_name" for a municipality, with the ids as MapIt uses, so they match those already stored.
+ * Each level is indexed in a grid of cells, each listing the polygons whose bounding box overlaps it, so a lookup
+ * tests only those few, by ray casting.
+ *
+ * The boundaries file is written from MapIt by the generateBoundaries task of this module, into the default classpath
+ * location (or grassroot.geo.boundaries.resource can point at another copy). Without it the geocoder stays empty, logs
+ * an error at startup, and callers go to the remote services as before; set grassroot.geo.boundaries.required to
+ * refuse to start instead.
+ */
+@Component @Slf4j
+public class BoundaryGeocoder {
+
+    private static final String PROVINCE_LEVEL = "province";
+    private static final String MUNICIPALITY_LEVEL = "municipality";
+
+    @Value("${grassroot.geo.boundaries.resource:classpath:geo/za-boundaries.geojson}")
+    private String boundariesResource;
+
+    @Value("${grassroot.geo.boundaries.required:false}")
+    private boolean boundariesRequired;
+
+    @Value("${grassroot.geo.boundaries.cell-degrees:0.25}")
+    private double cellDegrees = 0.25;
+
+    private final ResourceLoader resourceLoader;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private volatile BoundaryLayer<Province> provinces = BoundaryLayer.empty();
+    private volatile BoundaryLayer<Municipality> municipalities = BoundaryLayer.empty();
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong unmatched = new AtomicLong();
+
+    @Autowired
+    public BoundaryGeocoder(ResourceLoader resourceLoader) {
+        this.resourceLoader = resourceLoader;
+    }
+
+    @PostConstruct
+    public void load() {
+        final long startTime = System.currentTimeMillis();
+        final Resource resource = resourceLoader.getResource(boundariesResource);
+        if (!resource.exists()) {
+            if (boundariesRequired)
+                throw new IllegalStateException("No boundaries found at " + boundariesResource + ", and they are required");
+            log.error("No boundaries found at {} (see the generateBoundaries task), province and municipality " +
+                    "lookups will use remote services", boundariesResource);
+            return;
+        }
+
+        final List<Region<Province>> provinceRegions = new ArrayList<>();
+        final List<Region<Municipality>> municipalityRegions = new ArrayList<>();
+        try (InputStream input = resource.getInputStream()) {
+            for (JsonNode feature : objectMapper.readTree(input).path("features")) {
+                final JsonNode properties = feature.path("properties");
+                final String level = properties.path("level").asText();
+                if (PROVINCE_LEVEL.equals(level)) {
+                    final String code = properties.path("code").asText();
+                    final Province province = Enums.getIfPresent(Province.class, code.startsWith("ZA_") ? code : "ZA_" + code).orNull();
+                    if (province == null)
+                        log.warn("Skipping province boundary with unknown code: {}", code);
+                    else
+                        provinceRegions.add(Region.of(province, feature.path("geometry")));
+                } else if (MUNICIPALITY_LEVEL.equals(level)) {
+                    final Municipality municipality = new Municipality(properties.path("name").asText(),
+                            properties.path("id").asInt(), properties.path("type_name").asText(null));
+                    municipalityRegions.add(Region.of(municipality, feature.path("geometry")));
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            if (boundariesRequired)
+                throw new IllegalStateException("Could not load boundaries from " + boundariesResource, e);
+            log.error("Could not load boundaries from {}, lookups will use remote services: {}", boundariesResource, e.getMessage());
+            return;
+        }
+
+        provinces = BoundaryLayer.index(provinceRegions, cellDegrees);
+        municipalities = BoundaryLayer.index(municipalityRegions, cellDegrees);
+        log.info("Loaded {} province and {} municipality boundaries from {}, took {} msecs", provinceRegions.size(),
+                municipalityRegions.size(), boundariesResource, System.currentTimeMillis() - startTime);
+    }
+
+    public boolean hasProvinces() {
+        return !provinces.isEmpty();
+    }
+
+    public boolean hasMunicipalities() {
+        return !municipalities.isEmpty();
+    }
+
+    // null if the point is outside all of them (or none are loaded)
+    public Province findProvince(GeoLocation location) {
+        return count(provinces.find(location.getLongitude(), location.getLatitude()));
+    }
+
+    public Municipality findMunicipality(GeoLocation location) {
+        final Municipality found = count(municipalities.find(location.getLongitude(), location.getLatitude()));
+        // a copy, as municipalities are mutable and get handed on and cached
+        return found == null ? null : new Municipality(found.getName(), found.getId(), found.getType_name());
+    }
+
+    public String describeStats() {
+        return String.format("Boundaries: %d provinces, %d municipalities (grid %s); lookups %d, outside all %d",
+                provinces.size(), municipalities.size(), municipalities.describeGrid(), lookups.get(), unmatched.get());
+    }
+
+    private <T> T count(T found) {
+        lookups.incrementAndGet();
+        if (found == null)
+            unmatched.incrementAndGet();
+        return found;
+    }
+
+    private static final class Region<T> {
+        private final T value;
+        private final double[][] rings; // each ring as x0, y0, x1, y1 ...
+        private final double minX, minY, maxX, maxY;
+
+        private Region(T value, List<double[]> rings) {
+            if (rings.isEmpty())
+                throw new IllegalArgumentException("Boundary without coordinates: " + value);
+            this.value = value;
+            this.rings = rings.toArray(new double[rings.size()][]);
+            double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+            for (double[] ring : this.rings) {
+                for (int i = 0; i < ring.length; i += 2) {
+                    minX = Math.min(minX, ring[i]);
+                    maxX = Math.max(maxX, ring[i]);
+                    minY = Math.min(minY, ring[i + 1]);
+                    maxY = Math.max(maxY, ring[i + 1]);
+                }
+            }
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+        }
+
+        private static <T> Region<T> of(T value, JsonNode geometry) {
+            final List<double[]> rings = new ArrayList<>();
+            final String type = geometry.path("type").asText();
+            if ("Polygon".equals(type)) {
+                geometry.path("coordinates").forEach(ring -> rings.add(readRing(ring)));
+            } else if ("MultiPolygon".equals(type)) {
+                geometry.path("coordinates").forEach(polygon -> polygon.forEach(ring -> rings.add(readRing(ring))));
+            } else {
+                throw new IllegalArgumentException("Unsupported boundary geometry: " + type);
+            }
+            return new Region<>(value, rings);
+        }
+
+        private static double[] readRing(JsonNode ring) {
+            final double[] coordinates = new double[ring.size() * 2];
+            for (int i = 0; i < ring.size(); i++) {
+                coordinates[2 * i] = ring.get(i).get(0).asDouble();
+                coordinates[2 * i + 1] = ring.get(i).get(1).asDouble();
+            }
+            return coordinates;
+        }
+
+        // even-odd ray casting over all rings, so holes (and the parts of a multipolygon) come out right
+        private boolean contains(double x, double y) {
+            if (x < minX || x > maxX || y < minY || y > maxY)
+                return false;
+            boolean inside = false;
+            for (double[] ring : rings) {
+                final int points = ring.length / 2;
+                for (int i = 0, j = points - 1; i < points; j = i++) {
+                    final double xi = ring[2 * i], yi = ring[2 * i + 1];
+                    final double xj = ring[2 * j], yj = ring[2 * j + 1];
+                    if ((yi > y) != (yj > y) && x < (xj - xi) * (y - yi) / (yj - yi) + xi)
+                        inside = !inside;
+                }
+            }
+            return inside;
+        }
+    }
+
+    private static final class BoundaryLayer<T> {
+        private final List<Region<T>> regions;
+        private final double originX, originY, cellDegrees;
+        private final int columns, rows;
+        private final int[][] cells; // row-major, each the indices of the regions whose bounding box overlaps the cell
+
+        private BoundaryLayer(List<Region<T>> regions, double originX, double originY, double cellDegrees,
+                              int columns, int rows, int[][] cells) {
+            this.regions = regions;
+            this.originX = originX;
+            this.originY = originY;
+            this.cellDegrees = cellDegrees;
+            this.columns = columns;
+            this.rows = rows;
+            this.cells = cells;
+        }
+
+        private static <T> BoundaryLayer<T> empty() {
+            return new BoundaryLayer<>(Collections.emptyList(), 0, 0, 1, 0, 0, new int[0][]);
+        }
+
+        private static <T> BoundaryLayer<T> index(List<Region<T>> regions, double cellDegrees) {
+            if (regions.isEmpty())
+                return empty();
+
+            final double originX = regions.stream().mapToDouble(region -> region.minX).min().getAsDouble();
+            final double originY = regions.stream().mapToDouble(region -> region.minY).min().getAsDouble();
+            final double extentX = regions.stream().mapToDouble(region -> region.maxX).max().getAsDouble() - originX;
+            final double extentY = regions.stream().mapToDouble(region -> region.maxY).max().getAsDouble() - originY;
+            final int columns = (int) (extentX / cellDegrees) + 1;
+            final int rows = (int) (extentY / cellDegrees) + 1;
+
+            final List<List<Integer>> candidates = new ArrayList<>(columns * rows);
+            for (int i = 0; i < columns * rows; i++)
+                candidates.add(new ArrayList<>(2));
+            for (int index = 0; index < regions.size(); index++) {
+                final Region<T> region = regions.get(index);
+                for (int r = cellOf(region.minY, originY, cellDegrees); r <= cellOf(region.maxY, originY, cellDegrees); r++)
+                    for (int c = cellOf(region.minX, originX, cellDegrees); c <= cellOf(region.maxX, originX, cellDegrees); c++)
+                        candidates.get(r * columns + c).add(index);
+            }
+
+            final int[][] cells = new int[columns * rows][];
+            for (int i = 0; i < cells.length; i++)
+                cells[i] = candidates.get(i).stream().mapToInt(Integer::intValue).toArray();
+            return new BoundaryLayer<>(Collections.unmodifiableList(new ArrayList<>(regions)), originX, originY,
+                    cellDegrees, columns, rows, cells);
+        }
+
+        private static int cellOf(double value, double origin, double cellDegrees) {
+            return (int) Math.floor((value - origin) / cellDegrees);
+        }
+
+        private T find(double x, double y) {
+            final int column = cellOf(x, originX, cellDegrees);
+            final int row = cellOf(y, originY, cellDegrees);
+            if (column < 0 || column >= columns || row < 0 || row >= rows)
+                return null;
+            for (int index : cells[row * columns + column]) {
+                final Region<T> region = regions.get(index);
+                if (region.contains(x, y))
+                    return region.value;
+            }
+            return null;
+        }
+
+        private boolean isEmpty() {
+            return regions.isEmpty();
+        }
+
+        private int size() {
+            return regions.size();
+        }
+
+        private String describeGrid() {
+            return columns + "x" + rows + " cells of " + cellDegrees + " degrees";
+        }
+    }
+
+}
@@ -35,6 +35,7 @@ import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponents;
 import org.springframework.web.util.UriComponentsBuilder;
+import za.org.grassroot.GrassrootExecutorsConfig;
 import za.org.grassroot.core.domain.Notification;
 import za.org.grassroot.core.domain.User;
 import za.org.grassroot.core.domain.account.Account;
@@ -81,6 +82,7 @@ public class LocationInfoBrokerImpl implements LocationInfoBroker {
     private final NotificationRepository notificationRepository;
 
     private JwtService jwtService;
+    private BoundaryGeocoder boundaryGeocoder;
 
     private boolean useDynamoDirect;
     private AmazonDynamoDB dynamoDBClient;
@@ -108,6 +110,11 @@ public class LocationInfoBrokerImpl implements LocationInfoBroker {
         this.jwtService = jwtService;
     }
 
+    @Autowired
+    public void setBoundaryGeocoder(BoundaryGeocoder boundaryGeocoder) {
+        this.boundaryGeocoder = boundaryGeocoder;
+    }
+
     @PostConstruct
     public void init() {
         placeLookupLambda = environment.getProperty("grassroot.places.lambda.url", "http://localhost:3000");
@@ -286,7 +293,7 @@ public class LocationInfoBrokerImpl implements LocationInfoBroker {
         }
     }
 
-    @Async
+    @Async(GrassrootExecutorsConfig.OUTBOUND_EXECUTOR)
     @Override
     @Transactional
     public void assembleAndSendRecordMessage(String dataSetLabel, String infoSetTag, Province province,
@@ -303,7 +310,7 @@ public class LocationInfoBrokerImpl implements LocationInfoBroker {
         }
     }
 
-    @Async
+    @Async(GrassrootExecutorsConfig.OUTBOUND_EXECUTOR)
     @Override
     public void assembleAndSendForPlace(String dataSetLabel, String infoSetTag, String placeId, String targetUserUid) {
         TownLookupResult place = lookupPlaceDetails(placeId);
@@ -371,6 +378,12 @@ public class LocationInfoBrokerImpl implements LocationInfoBroker {
 
     @Override
     public Province getProvinceFromGeoLocation(GeoLocation location) {
+        if (boundaryGeocoder.hasProvinces()) {
+            Province province = boundaryGeocoder.findProvince(location);
+            log.debug("Found province for location {} from boundaries: {}", location, province);
+            return province;
+        }
+
         log.info("Looking up province for location: {}", location);
         UriComponentsBuilder componentsBuilder = UriComponentsBuilder.fromHttpUrl(izweLamiLambda)
                 .path("/longlat-to-province")
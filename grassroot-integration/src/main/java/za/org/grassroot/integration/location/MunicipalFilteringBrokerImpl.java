@@ -1,5 +1,6 @@
 package za.org.grassroot.integration.location;
 
+import com.google.common.collect.Lists;
 import lombok.extern.slf4j.Slf4j;
 import net.sf.ehcache.Cache;
 import net.sf.ehcache.CacheManager;
@@ -15,8 +16,11 @@ import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
+import za.org.grassroot.GrassrootExecutorsConfig;
 import za.org.grassroot.core.domain.ConfigVariable;
 import za.org.grassroot.core.domain.User;
 import za.org.grassroot.core.domain.geo.Address;
@@ -35,12 +39,14 @@ import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Component @Slf4j
 @ConditionalOnProperty("grassroot.municipal.filtering.enabled")
@@ -49,6 +55,7 @@ public class MunicipalFilteringBrokerImpl implements MunicipalFilteringBroker {
     private RestTemplate restTemplate;
 
     private static final int NUMBER_DAYS_CUT_OFF = 7;
+    private static final int UPDATE_CHUNK_SIZE = 1000;
     private static final ParameterizedTypeReference<Map<String,Municipality>> MUNICIPALITY_RESPONSE_TYPE =
             new ParameterizedTypeReference<Map<String, Municipality>>() {};
 
@@ -57,14 +64,19 @@ public class MunicipalFilteringBrokerImpl implements MunicipalFilteringBroker {
     private final GroupRepository groupRepository;
     private final ConfigRepository configRepository;
     private final AddressRepository addressRepository;
+    private final BoundaryGeocoder boundaryGeocoder;
+    private final TransactionTemplate transactionTemplate;
 
     @Autowired
-    public MunicipalFilteringBrokerImpl(UserLocationLogRepository userLocationLogRepository, CacheManager cacheManager, GroupRepository groupRepository, ConfigRepository configRepository, AddressRepository addressRepository) {
+    public MunicipalFilteringBrokerImpl(UserLocationLogRepository userLocationLogRepository, CacheManager cacheManager, GroupRepository groupRepository, ConfigRepository configRepository, AddressRepository addressRepository,
+                                        BoundaryGeocoder boundaryGeocoder, PlatformTransactionManager transactionManager) {
         this.userLocationLogRepository = userLocationLogRepository;
         this.cacheManager = cacheManager;
         this.groupRepository = groupRepository;
         this.configRepository = configRepository;
         this.addressRepository = addressRepository;
+        this.boundaryGeocoder = boundaryGeocoder;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     @Autowired
@@ -111,6 +123,11 @@ public class MunicipalFilteringBrokerImpl implements MunicipalFilteringBroker {
     @Override
     public  void fetchMunicipalitiesForUsersWithLocations(Integer batchSize) {
         Instant dayDataCutOff = Instant.now().minus(NUMBER_DAYS_CUT_OFF, ChronoUnit.DAYS);
+        if (boundaryGeocoder.hasMunicipalities()) {
+            placeLocationLogsFromBoundaries(dayDataCutOff);
+            return;
+        }
+
         PageRequest pageable = PageRequest.of(0, 100, Sort.Direction.ASC, "timestamp");
         Page<UserLocationLog> userLocationLogs = userLocationLogRepository.findByMunicipalityIdIsNullAndTimestampAfter(dayDataCutOff, pageable);
         log.info("About to retrieve municipalities for {} logs, out of {} possible total", userLocationLogs.getNumberOfElements(), userLocationLogs.getTotalElements());
@@ -125,6 +142,47 @@ public class MunicipalFilteringBrokerImpl implements MunicipalFilteringBroker {
         userLocationLogRepository.saveAll(userLocationLogs);
     }
 
+    // one pass over all the unplaced logs, placing them from the local boundaries, then one update per municipality
+    private void placeLocationLogsFromBoundaries(Instant cutoff) {
+        final long startTime = System.currentTimeMillis();
+        final Map<Integer, Municipality> municipalities = new HashMap<>();
+        final Map<Integer, List<String>> logUidsByMunicipality = new HashMap<>();
+        final Map<Province, List<String>> logUidsByProvince = new HashMap<>();
+        final Map<String, Municipality> latestForUser = new LinkedHashMap<>();
+
+        final int[] counts = new int[2]; // logs read, logs placed
+        transactionTemplate.execute(status -> {
+            try (Stream<Object[]> locations = userLocationLogRepository.streamUnplacedLocationsAfter(cutoff)) {
+                locations.forEach(row -> {
+                    counts[0]++;
+                    final String logUid = (String) row[0];
+                    final GeoLocation location = new GeoLocation((Double) row[2], (Double) row[3]);
+                    final Municipality municipality = boundaryGeocoder.findMunicipality(location);
+                    if (municipality != null) {
+                        counts[1]++;
+                        municipalities.putIfAbsent(municipality.getId(), municipality);
+                        logUidsByMunicipality.computeIfAbsent(municipality.getId(), id -> new ArrayList<>()).add(logUid);
+                        latestForUser.put((String) row[1], municipality);
+                    }
+                    final Province province = boundaryGeocoder.hasProvinces() ? boundaryGeocoder.findProvince(location) : null;
+                    if (province != null) {
+                        logUidsByProvince.computeIfAbsent(province, p -> new ArrayList<>()).add(logUid);
+                    }
+                });
+            }
+
+            logUidsByMunicipality.forEach((id, logUids) -> Lists.partition(logUids, UPDATE_CHUNK_SIZE).forEach(chunk ->
+                    userLocationLogRepository.setMunicipalityForLogs(chunk, String.valueOf(id), municipalities.get(id).getName())));
+            logUidsByProvince.forEach((province, logUids) -> Lists.partition(logUids, UPDATE_CHUNK_SIZE).forEach(chunk ->
+                    userLocationLogRepository.setProvinceForLogs(chunk, province)));
+            return null;
+        });
+
+        latestForUser.forEach(this::cacheMunicipality);
+        log.info("Placed {} of {} location logs in municipalities from boundaries, for {} users, took {} msecs",
+                counts[1], counts[0], latestForUser.size(), System.currentTimeMillis() - startTime);
+    }
+
     private Municipality fetchMunicipalityByCoordinates(String userUid, GeoLocation location) {
         UriComponentsBuilder componentsBuilder = UriComponentsBuilder.fromHttpUrl("http://mapit.code4sa.org/point/4326/");
         String latLong = location.getLongitude() + "," + location.getLatitude();
@@ -168,14 +226,14 @@ public class MunicipalFilteringBrokerImpl implements MunicipalFilteringBroker {
 
         List<String> notYetCachedUids = new ArrayList<>(userUids);
         notYetCachedUids.removeAll(municipalityMap.keySet());
-        // for these, we go to the DB
-        notYetCachedUids.forEach(uid -> {
-            UserLocationLog log = userLocationLogRepository.findFirstByUserUidAndMunicipalityIdIsNotNullOrderByTimestampDesc(uid);
-            if (log != null) {
-                Municipality municipality = new Municipality(log.getMunicipalityName(), Integer.parseInt(log.getMunicipalityId()), null);
-                municipalityMap.put(uid, municipality);
-                cacheMunicipality(uid, municipality);
-            }
+        // for these, we go to the DB for the latest placed log of each, in chunks rather than a query per user
+        Map<String, Municipality> fromLogs = new HashMap<>();
+        Lists.partition(notYetCachedUids, UPDATE_CHUNK_SIZE).forEach(chunk ->
+                userLocationLogRepository.findMunicipalitiesForUsers(chunk).forEach(row ->
+                        fromLogs.put((String) row[0], new Municipality((String) row[2], Integer.parseInt((String) row[1]), null))));
+        fromLogs.forEach((uid, municipality) -> {
+            municipalityMap.put(uid, municipality);
+            cacheMunicipality(uid, municipality);
         });
 
         List<String> noMunicipalityUids = new ArrayList<>(notYetCachedUids);
@@ -199,7 +257,7 @@ public class MunicipalFilteringBrokerImpl implements MunicipalFilteringBroker {
         return userLocationLogRepository.count(spec);
     }
 
-    @Async
+    @Async(GrassrootExecutorsConfig.BULK_EXECUTOR)
     @Override
     public void saveLocationLogsFromAddress(int pageSize) {
         List<Address> addresses = addressRepository.loadAddressesWithLocation();
@@ -139,12 +139,12 @@ public class MessagingServiceBrokerImpl implements MessagingServiceBroker {
     // this means duplication but getting extreme weirdness on doing generic but
     private HttpHeaders jwtHeaders() {
         HttpHeaders headers = new HttpHeaders();
-        headers.add("Authorization", "Bearer " + jwtService.createJwt(new CreateJwtTokenRequest(JwtType.GRASSROOT_MICROSERVICE)));
+        headers.add("Authorization", "Bearer " + jwtService.getCachedJwt(new CreateJwtTokenRequest(JwtType.GRASSROOT_MICROSERVICE)));
         return headers;
     }
 
     private String jwtHeader() {
-        return "Bearer " + jwtService.createJwt(new CreateJwtTokenRequest(JwtType.GRASSROOT_MICROSERVICE));
+        return "Bearer " + jwtService.getCachedJwt(new CreateJwtTokenRequest(JwtType.GRASSROOT_MICROSERVICE));
     }
 
 }
@@ -0,0 +1,69 @@
+package za.org.grassroot.integration.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import za.org.grassroot.integration.exception.StoredMediaRetrievalFailure;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+
+/**
+ * Keeps media under a local folder, one sub-folder per bucket, for running and testing without AWS
+ */
+@Slf4j
+public class LocalFileMediaStorageBackend implements MediaStorageBackend {
+
+    private final Path root;
+
+    public LocalFileMediaStorageBackend(Path root) {
+        this.root = root.toAbsolutePath().normalize();
+        log.info("Media will be stored in local folder: {}", this.root);
+    }
+
+    @Override
+    public InputStream fetch(String bucket, String key) {
+        try {
+            return Files.newInputStream(resolve(bucket, key));
+        } catch (IOException e) {
+            log.error("Error reading stored media, bucket {}, key {}: {}", bucket, key, e.getMessage());
+            throw new StoredMediaRetrievalFailure();
+        }
+    }
+
+    @Override
+    public boolean exists(String bucket, String key) {
+        return Files.isRegularFile(resolve(bucket, key));
+    }
+
+    @Override
+    public void store(String bucket, String key, InputStream content, long contentLength, String contentType, String md5) throws IOException {
+        final Path target = resolve(bucket, key);
+        Files.createDirectories(target.getParent());
+        Files.copy(content, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    @Override
+    public void delete(String bucket, String key) {
+        try {
+            Files.deleteIfExists(resolve(bucket, key));
+        } catch (IOException e) {
+            log.error("Error deleting stored media, bucket {}, key {}: {}", bucket, key, e.getMessage());
+        }
+    }
+
+    @Override
+    public String presignedUrl(String bucket, String key, Instant expiry) {
+        return resolve(bucket, key).toUri().toString();
+    }
+
+    private Path resolve(String bucket, String key) {
+        final Path path = root.resolve(bucket).resolve(key).normalize();
+        if (!path.startsWith(root.resolve(bucket)))
+            throw new IllegalArgumentException("Media key outside of its bucket: " + key);
+        return path;
+    }
+
+}
@@ -0,0 +1,273 @@
+package za.org.grassroot.integration.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import za.org.grassroot.integration.exception.StoredMediaRetrievalFailure;
+
+import javax.annotation.PostConstruct;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps local copies of stored media in a folder, up to a total size, evicting the least recently used when it is
+ * over, so that popular images are read from disk instead of being downloaded again on every request. Concurrent
+ * misses for the same object wait on the one download. Files are written under a temporary name and moved into
+ * place, so a cached file is always complete, and are kept across restarts. Callers get the file itself, which is
+ * usually streamed out after they return, so a file that was handed out recently is not deleted straight away when it
+ * is evicted or invalidated: it drops out of the cache at once, but stays on disk for a grace period, long enough for
+ * the response it was handed to to finish. Callers must not move or delete the files they are given.
+ */
+@Component @Slf4j
+public class MediaFileCache {
+
+    private static final String PARTIAL_SUFFIX = ".part";
+
+    @Value("${grassroot.media.cache.folder:${java.io.tmpdir}/grassroot-media-cache}")
+    private String cacheFolder;
+
+    @Value("${grassroot.media.cache.max-bytes:536870912}")
+    private long maxBytes = 512L * 1024 * 1024;
+
+    @Value("${grassroot.media.cache.delete-grace-ms:300000}")
+    private long deleteGraceMillis = 5 * 60 * 1000;
+
+    private Path directory;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true); // by file name, guarded by this
+    private long totalBytes; // guarded by this
+    private final Map<String, Long> deferredDeletes = new HashMap<>(); // file name -> when it may go, guarded by this
+
+    private final ConcurrentMap<String, CompletableFuture<Path>> loading = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong sharedMisses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    @PostConstruct
+    public void init() throws IOException {
+        directory = Paths.get(cacheFolder).toAbsolutePath();
+        Files.createDirectories(directory);
+
+        final List<Path> existing;
+        try (Stream<Path> files = Files.list(directory)) {
+            existing = files.filter(Files::isRegularFile).collect(Collectors.toList());
+        }
+
+        final List<Path> retained = new ArrayList<>();
+        for (Path file : existing) {
+            if (file.getFileName().toString().endsWith(PARTIAL_SUFFIX))
+                Files.deleteIfExists(file); // left over from a download cut short by a shutdown
+            else
+                retained.add(file);
+        }
+        retained.sort(Comparator.comparingLong(file -> file.toFile().lastModified()));
+        retained.forEach(file -> admit(file.getFileName().toString(), file.toFile().length(), 0));
+
+        log.info("Media file cache in {}, holding {} files, {} of {} bytes", directory, entries.size(), totalBytes, maxBytes);
+    }
+
+    /**
+     * Returns the cached copy of the object, calling the fetcher (with bucket and key) for it if there is none
+     */
+    public File fetch(String bucket, String key, BiFunction<String, String, InputStream> fetcher) {
+        final String name = fileName(bucket, key);
+        Path cached = lookup(name);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached.toFile();
+        }
+
+        final CompletableFuture<Path> download = new CompletableFuture<>();
+        final CompletableFuture<Path> inProgress = loading.putIfAbsent(name, download);
+        if (inProgress != null) {
+            sharedMisses.incrementAndGet();
+            return awaitDownload(inProgress).toFile();
+        }
+
+        try {
+            cached = lookup(name); // another download may have finished between the first look and taking the slot
+            if (cached == null) {
+                misses.incrementAndGet();
+                cached = download(name, bucket, key, fetcher);
+            } else {
+                hits.incrementAndGet();
+            }
+            download.complete(cached);
+            return cached.toFile();
+        } catch (RuntimeException e) {
+            failures.incrementAndGet();
+            download.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(name, download);
+        }
+    }
+
+    public boolean contains(String bucket, String key) {
+        return lookup(fileName(bucket, key)) != null;
+    }
+
+    /**
+     * Drops the cached copy of the object, if there is one, for when it is stored again or deleted
+     */
+    public void invalidate(String bucket, String key) {
+        final String name = fileName(bucket, key);
+        final boolean deleteNow;
+        synchronized (this) {
+            final Entry entry = entries.remove(name);
+            if (entry == null)
+                return;
+            totalBytes -= entry.size;
+            deleteNow = !deferIfServing(name, entry, System.currentTimeMillis());
+        }
+        if (deleteNow)
+            deleteQuietly(directory.resolve(name));
+    }
+
+    /**
+     * Deletes the files dropped from the cache whose grace period has passed, unless they have since been cached again
+     */
+    @Scheduled(fixedDelayString = "${grassroot.media.cache.purge-interval:60000}")
+    public void purgeDeferredDeletes() {
+        final long now = System.currentTimeMillis();
+        synchronized (this) {
+            // deleted under the lock, so a file cannot be cached again between the check and the delete
+            final Iterator<Map.Entry<String, Long>> deferred = deferredDeletes.entrySet().iterator();
+            while (deferred.hasNext()) {
+                final Map.Entry<String, Long> entry = deferred.next();
+                if (entry.getValue() > now)
+                    continue;
+                if (!entries.containsKey(entry.getKey()))
+                    deleteQuietly(directory.resolve(entry.getKey()));
+                deferred.remove();
+            }
+        }
+    }
+
+    public String describeStats() {
+        synchronized (this) {
+            return String.format("Media file cache: %d files, %d of %d bytes, %d awaiting delete; hits %d, misses %d, " +
+                            "waited on another download %d, evicted %d, failed %d", entries.size(), totalBytes, maxBytes,
+                    deferredDeletes.size(), hits.get(), misses.get(), sharedMisses.get(), evictions.get(), failures.get());
+        }
+    }
+
+    // marks the entry as served, as the file is about to be handed out
+    private Path lookup(String name) {
+        synchronized (this) {
+            final Entry entry = entries.get(name);
+            if (entry == null)
+                return null;
+            entry.servedMillis = System.currentTimeMillis();
+        }
+        final Path path = directory.resolve(name);
+        if (Files.isRegularFile(path))
+            return path;
+
+        // removed from under us (e.g., by a tmp cleaner), so forget it and fetch again
+        synchronized (this) {
+            final Entry entry = entries.remove(name);
+            if (entry != null)
+                totalBytes -= entry.size;
+        }
+        return null;
+    }
+
+    private static Path awaitDownload(CompletableFuture<Path> download) {
+        try {
+            return download.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new StoredMediaRetrievalFailure();
+        }
+    }
+
+    private Path download(String name, String bucket, String key, BiFunction<String, String, InputStream> fetcher) {
+        final long startTime = System.currentTimeMillis();
+        Path partial = null;
+        try (InputStream content = fetcher.apply(bucket, key)) {
+            partial = Files.createTempFile(directory, name, PARTIAL_SUFFIX);
+            final long size = Files.copy(content, partial, StandardCopyOption.REPLACE_EXISTING);
+            final Path target = directory.resolve(name);
+            Files.move(partial, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            admit(name, size, System.currentTimeMillis());
+            log.debug("Cached media from bucket {}, key {}, {} bytes, took {} msecs", bucket, key, size,
+                    System.currentTimeMillis() - startTime);
+            return target;
+        } catch (IOException e) {
+            log.error("Error caching media from bucket {}, key {}: {}", bucket, key, e.getMessage());
+            if (partial != null)
+                deleteQuietly(partial);
+            throw new StoredMediaRetrievalFailure();
+        }
+    }
+
+    private void admit(String name, long size, long servedMillis) {
+        final List<String> evicted = new ArrayList<>();
+        final long now = System.currentTimeMillis();
+        synchronized (this) {
+            final Entry replaced = entries.put(name, new Entry(size, servedMillis));
+            totalBytes += size - (replaced == null ? 0 : replaced.size);
+            deferredDeletes.remove(name);
+            // the newest entry always stays, even if it is larger than the cache, as it is about to be served
+            final Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            while (totalBytes > maxBytes && eldest.hasNext()) {
+                final Map.Entry<String, Entry> entry = eldest.next();
+                if (entry.getKey().equals(name))
+                    continue;
+                totalBytes -= entry.getValue().size;
+                if (!deferIfServing(entry.getKey(), entry.getValue(), now))
+                    evicted.add(entry.getKey());
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+        evicted.forEach(evictedName -> deleteQuietly(directory.resolve(evictedName)));
+    }
+
+    // a file handed out within the grace period may still be streaming (or not yet opened), so its delete waits
+    private boolean deferIfServing(String name, Entry entry, long now) {
+        if (now - entry.servedMillis >= deleteGraceMillis)
+            return false;
+        deferredDeletes.put(name, entry.servedMillis + deleteGraceMillis);
+        return true;
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete cached media file {}: {}", path, e.getMessage());
+        }
+    }
+
+    private static String fileName(String bucket, String key) {
+        return DigestUtils.sha256Hex(bucket + "/" + key);
+    }
+
+    private static final class Entry {
+        private final long size;
+        private long servedMillis; // when the file was last handed out, guarded by the cache
+
+        private Entry(long size, long servedMillis) {
+            this.size = size;
+            this.servedMillis = servedMillis;
+        }
+    }
+
+}
@@ -0,0 +1,30 @@
+package za.org.grassroot.integration.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+
+/**
+ * Where stored media actually lives. The storage broker uses S3 unless told otherwise (or unless another backend is
+ * registered as a bean), but a local file system backend can be used for tests and development, where there is no AWS.
+ */
+public interface MediaStorageBackend {
+
+    /**
+     * Opens the stored object for reading; the caller closes the stream. Throws StoredMediaRetrievalFailure if the
+     * object cannot be found or read.
+     */
+    InputStream fetch(String bucket, String key);
+
+    boolean exists(String bucket, String key);
+
+    void store(String bucket, String key, InputStream content, long contentLength, String contentType, String md5) throws IOException;
+
+    void delete(String bucket, String key);
+
+    /**
+     * Returns a URL through which the object can be fetched directly until the expiry time, or null if one cannot be made
+     */
+    String presignedUrl(String bucket, String key, Instant expiry);
+
+}
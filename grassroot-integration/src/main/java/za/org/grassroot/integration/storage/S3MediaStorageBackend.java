@@ -0,0 +1,83 @@
+package za.org.grassroot.integration.storage;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.HttpMethod;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GeneratePresignedUrlRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.transfer.TransferManager;
+import com.amazonaws.services.s3.transfer.TransferManagerBuilder;
+import lombok.extern.slf4j.Slf4j;
+import za.org.grassroot.integration.exception.StoredMediaRetrievalFailure;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.Date;
+
+/**
+ * Keeps media in S3, through one client for the life of the backend (building a client per call is expensive)
+ */
+@Slf4j
+public class S3MediaStorageBackend implements MediaStorageBackend {
+
+    private final AmazonS3 s3Client;
+
+    public S3MediaStorageBackend(S3ClientFactory s3ClientFactory) {
+        this.s3Client = s3ClientFactory.createClient();
+    }
+
+    @Override
+    public InputStream fetch(String bucket, String key) {
+        try {
+            return s3Client.getObject(bucket, key).getObjectContent();
+        } catch (SdkClientException e) {
+            log.error("Error fetching from S3, bucket {}, key {}: {}", bucket, key, e.getMessage());
+            throw new StoredMediaRetrievalFailure();
+        }
+    }
+
+    @Override
+    public boolean exists(String bucket, String key) {
+        return s3Client.doesObjectExist(bucket, key);
+    }
+
+    @Override
+    public void store(String bucket, String key, InputStream content, long contentLength, String contentType, String md5) throws IOException {
+        final TransferManager transferManager = TransferManagerBuilder.standard().withS3Client(s3Client).build();
+        try {
+            ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setContentLength(contentLength);
+            metadata.setContentType(contentType);
+            metadata.setContentMD5(md5);
+            transferManager.upload(bucket, key, content, metadata).waitForCompletion();
+        } catch (AmazonClientException e) {
+            throw new IOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted uploading to S3", e);
+        } finally {
+            transferManager.shutdownNow(false); // leave the shared client open
+        }
+    }
+
+    @Override
+    public void delete(String bucket, String key) {
+        s3Client.deleteObject(bucket, key);
+    }
+
+    @Override
+    public String presignedUrl(String bucket, String key, Instant expiry) {
+        try {
+            GeneratePresignedUrlRequest request = new GeneratePresignedUrlRequest(bucket, key)
+                    .withMethod(HttpMethod.GET)
+                    .withExpiration(Date.from(expiry));
+            return s3Client.generatePresignedUrl(request).toString();
+        } catch (SdkClientException e) {
+            log.error("Error! Exception generating presigned URL: {}", e.getMessage());
+            return null;
+        }
+    }
+
+}
@@ -19,9 +19,10 @@ public interface StorageBroker {
 
     void recordImageAffiliation(ActionLogType actionLogType, String imageKey);
 
-    byte[] fetchTaskImage(String uid, ImageType imageType);
+    // the returned files belong to the media cache, so should be read straight away, and not moved or deleted
+    File fetchTaskImage(String uid, ImageType imageType);
 
-    byte[] fetchThumbnail(String uid, ImageType imageType);
+    File fetchThumbnail(String uid, ImageType imageType);
 
     boolean doesImageExist(String uid, ImageType imageType);
 
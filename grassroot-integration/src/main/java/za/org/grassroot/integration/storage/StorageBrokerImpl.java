@@ -1,16 +1,8 @@
 package za.org.grassroot.integration.storage;
 
-import com.amazonaws.AmazonServiceException;
-import com.amazonaws.HttpMethod;
-import com.amazonaws.SdkClientException;
-import com.amazonaws.services.s3.AmazonS3;
-import com.amazonaws.services.s3.model.*;
-import com.amazonaws.services.s3.transfer.TransferManager;
-import com.amazonaws.services.s3.transfer.TransferManagerBuilder;
-import com.amazonaws.services.s3.transfer.Upload;
+import com.amazonaws.services.s3.model.AmazonS3Exception;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.codec.digest.DigestUtils;
-import org.apache.poi.util.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,6 +12,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
+import za.org.grassroot.GrassrootExecutorsConfig;
 import za.org.grassroot.core.domain.media.ImageRecord;
 import za.org.grassroot.core.domain.media.MediaFileRecord;
 import za.org.grassroot.core.domain.media.MediaFunction;
@@ -29,15 +22,13 @@ import za.org.grassroot.core.repository.MediaFileRecordRepository;
 import za.org.grassroot.integration.exception.NoMicroVersionException;
 import za.org.grassroot.integration.exception.StoredMediaRetrievalFailure;
 
+import javax.annotation.PostConstruct;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.URL;
-import java.sql.Date;
+import java.nio.file.Paths;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
-import java.time.temporal.TemporalUnit;
 import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Stream;
@@ -65,15 +56,39 @@ public class StorageBrokerImpl implements StorageBroker {
     @Value("${grassroot.media.general.bucket:null}")
     private String generalMediaStorageBucket;
 
-    private final S3ClientFactory s3ClientFactory;
+    @Value("${grassroot.media.storage.backend:s3}")
+    private String storageBackendType;
+
+    @Value("${grassroot.media.storage.local.folder:media-storage}")
+    private String localStorageFolder;
+
     private final ImageRecordRepository imageRecordRepository; // for task images, which get analyzed etc
     private final MediaFileRecordRepository mediaFileRepository; // for other media, which just get stored and retrieved
+    private final MediaFileCache mediaFileCache;
+
+    private MediaStorageBackend storageBackend;
 
     @Autowired
-    public StorageBrokerImpl(ImageRecordRepository imageRecordRepository, MediaFileRecordRepository mediaFileRepository) {
+    public StorageBrokerImpl(ImageRecordRepository imageRecordRepository, MediaFileRecordRepository mediaFileRepository,
+                             MediaFileCache mediaFileCache) {
         this.imageRecordRepository = imageRecordRepository;
         this.mediaFileRepository = mediaFileRepository;
-        this.s3ClientFactory = new S3ClientFactory();
+        this.mediaFileCache = mediaFileCache;
+    }
+
+    @Autowired(required = false)
+    public void setStorageBackend(MediaStorageBackend storageBackend) {
+        this.storageBackend = storageBackend;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (storageBackend == null) {
+            storageBackend = "local".equals(storageBackendType) ?
+                    new LocalFileMediaStorageBackend(Paths.get(localStorageFolder)) :
+                    new S3MediaStorageBackend(new S3ClientFactory());
+        }
+        logger.info("Storage broker using {}", storageBackend.getClass().getSimpleName());
     }
 
     @Override
@@ -85,7 +100,7 @@ public class StorageBrokerImpl implements StorageBroker {
 
         logger.debug("storing image in bucket: {}", taskImagesBucket);
 
-        String md5result = uploadToS3(taskImagesBucket, imageKey, image);
+        String md5result = upload(taskImagesBucket, imageKey, image);
 
         if (md5result != null) {
             ImageRecord imageRecord = storeImageRecord(actionLogType, imageKey, md5result);
@@ -102,7 +117,7 @@ public class StorageBrokerImpl implements StorageBroker {
         Objects.requireNonNull(file);
 
         logger.info("storing a media file in bucket {}, with key {}", record.getBucket(), record.getKey());
-        String md5hash = uploadToS3(record.getBucket(), record.getKey(), file);
+        String md5hash = upload(record.getBucket(), record.getKey(), file);
 
         if (md5hash != null) {
             record.setMd5(md5hash);
@@ -112,26 +127,19 @@ public class StorageBrokerImpl implements StorageBroker {
         return md5hash != null;
     }
 
-    private String uploadToS3(String bucket, String key, MultipartFile file) {
-        final AmazonS3 s3 = s3ClientFactory.createClient();
-        final TransferManager transferManager = TransferManagerBuilder.standard().withS3Client(s3).build();
+    private String upload(String bucket, String key, MultipartFile file) {
         try {
-            ObjectMetadata metadata = new ObjectMetadata();
-            metadata.setContentLength(file.getSize());
-            metadata.setContentType(file.getContentType());
-
             byte[] resultByte = DigestUtils.md5(file.getBytes());
             String streamMD5 = new String(Base64.encodeBase64(resultByte));
-            metadata.setContentMD5(streamMD5);
 
-            Upload upload = transferManager.upload(bucket, key, file.getInputStream(), metadata);
-            upload.waitForCompletion();
+            try (InputStream content = file.getInputStream()) {
+                storageBackend.store(bucket, key, content, file.getSize(), file.getContentType(), streamMD5);
+            }
+            mediaFileCache.invalidate(bucket, key);
             return streamMD5;
-        } catch (AmazonServiceException | InterruptedException | IOException e) {
+        } catch (IOException e) {
             logger.error("Error uploading file: {}", e.toString());
             return null;
-        } finally {
-            transferManager.shutdownNow();
         }
     }
 
@@ -154,7 +162,7 @@ public class StorageBrokerImpl implements StorageBroker {
     }
 
     @Override
-    public byte[] fetchTaskImage(String uid, ImageType imageType) {
+    public File fetchTaskImage(String uid, ImageType imageType) {
         Objects.requireNonNull(uid);
         Objects.requireNonNull(imageType);
 
@@ -162,21 +170,16 @@ public class StorageBrokerImpl implements StorageBroker {
         logger.debug("for imageType {}, selected bucket {}", imageType, bucket);
 
         try {
-            InputStream imageData = getObject(bucket, composeKey(uid, imageType)).getObjectContent();
-            byte[] image = IOUtils.toByteArray(imageData);
-            imageData.close();
-            return image;
+            return mediaFileCache.fetch(bucket, composeKey(uid, imageType), storageBackend::fetch);
         } catch (StoredMediaRetrievalFailure e) {
             // todo: try add a check if it's something other than file not found on the bucket, and use that to discriminate error type
             logger.info("error in retrieving file: {}", e.getMessage());
             throw ImageType.MICRO.equals(imageType) ? new NoMicroVersionException() : new StoredMediaRetrievalFailure();
-        } catch (IOException e) {
-            throw new StoredMediaRetrievalFailure();
         }
     }
 
     @Override
-    public byte[] fetchThumbnail(String uid, ImageType imageType) {
+    public File fetchThumbnail(String uid, ImageType imageType) {
         try {
             return fetchTaskImage(uid, imageType);
         } catch (NoMicroVersionException|StoredMediaRetrievalFailure e) {
@@ -186,27 +189,31 @@ public class StorageBrokerImpl implements StorageBroker {
 
     @Override
     public boolean doesImageExist(String uid, ImageType imageType) {
-        AmazonS3 s3client = s3ClientFactory.createClient();
-        logger.info("trying to find key in bucket: {}", selectTaskBucketBySize(imageType));
+        final String bucket = selectTaskBucketBySize(imageType);
+        final String key = composeKey(uid, imageType);
+        if (mediaFileCache.contains(bucket, key)) {
+            return true;
+        }
+
+        logger.info("trying to find key in bucket: {}", bucket);
         try {
-            return s3client.doesObjectExist(selectTaskBucketBySize(imageType), composeKey(uid, imageType));
+            return storageBackend.exists(bucket, key);
         } catch (AmazonS3Exception e) {
-            logger.error("S3 exception, of code: {}, for bucket: {}, with key: {}", e.getErrorCode(),
-                    selectTaskBucketBySize(imageType), composeKey(uid, imageType));
+            logger.error("S3 exception, of code: {}, for bucket: {}, with key: {}", e.getErrorCode(), bucket, key);
             return false;
         }
     }
 
-    @Async
+    @Async(GrassrootExecutorsConfig.OUTBOUND_EXECUTOR)
     @Override
     public void deleteImage(String uid) {
-        AmazonS3 s3client = s3ClientFactory.createClient();
+        Stream.of(ImageType.values()).forEach(t -> mediaFileCache.invalidate(selectTaskBucketBySize(t), composeKey(uid, t)));
         Stream.of(ImageType.values())
-                .filter(t -> s3client.doesObjectExist(selectTaskBucketBySize(t), composeKey(uid, t)))
+                .filter(t -> storageBackend.exists(selectTaskBucketBySize(t), composeKey(uid, t)))
                 .forEach(t -> {
                     try {
-                        s3client.deleteObject(selectTaskBucketBySize(t), composeKey(uid, t));
-                        logger.info("Deleted S3 object, with key: {}", composeKey(uid, t));
+                        storageBackend.delete(selectTaskBucketBySize(t), composeKey(uid, t));
+                        logger.info("Deleted stored image, with key: {}", composeKey(uid, t));
                     } catch (AmazonS3Exception e) {
                         logger.error("Error deleting objects! Error: {}", e.getErrorCode());
                     }
@@ -227,55 +234,20 @@ public class StorageBrokerImpl implements StorageBroker {
     @Override
     public File fetchFileFromRecord(MediaFileRecord record) {
         try {
-            S3Object s3Object = getObject(record.getBucket(), record.getKey());
-            S3ObjectInputStream s3is = s3Object.getObjectContent();
-            File outputFile = File.createTempFile(record.getKey(), "jpg"); // todo: extend to MIME types
-            FileOutputStream fos = new FileOutputStream(outputFile);
-            byte[] read_buf = new byte[1024];
-            int read_len = 0;
-            while ((read_len = s3is.read(read_buf)) > 0) {
-                fos.write(read_buf, 0, read_len);
-            }
-            s3is.close();
-            fos.close();
-            return outputFile;
+            return mediaFileCache.fetch(record.getBucket(), record.getKey(), storageBackend::fetch);
         } catch (StoredMediaRetrievalFailure e) {
-            logger.error("Error fetching from S3", e);
-            return null;
-        } catch (IOException e) {
-            logger.error("Error handling file", e);
+            logger.error("Error fetching media file, bucket {}, key {}", record.getBucket(), record.getKey());
             return null;
         }
-
     }
 
     @Override
     public String getPresignedUrl(String bucket, String key) {
-        try {
-            AmazonS3 s3client = s3ClientFactory.createClient();
-            Instant expiration = Instant.now().plus(3L, ChronoUnit.HOURS);
-            logger.info("Generating presigned URL for bucket {} and key {}");
-            GeneratePresignedUrlRequest request = new GeneratePresignedUrlRequest(bucket, key)
-                    .withMethod(HttpMethod.GET)
-                    .withExpiration(Date.from(expiration));
-            URL url = s3client.generatePresignedUrl(request);
-            logger.info("Generated URL: {}", url);
-            return url.toString();
-        } catch (SdkClientException e) {
-            logger.error("Error! Exception generating presigned URL: {}", e);
-            return null;
-        }
-    }
-
-    // todo : optimize this (see SDK JavaDocs on possible performance issues)
-    private S3Object getObject(String bucket, String key) {
-        try {
-            AmazonS3 s3Client = s3ClientFactory.createClient();
-            return s3Client.getObject(new GetObjectRequest(bucket, key));
-        } catch (SdkClientException e) {
-            logger.error("Error fetching from S3", e);
-            throw new StoredMediaRetrievalFailure();
-        }
+        Instant expiration = Instant.now().plus(3L, ChronoUnit.HOURS);
+        logger.info("Generating presigned URL for bucket {} and key {}", bucket, key);
+        String url = storageBackend.presignedUrl(bucket, key, expiration);
+        logger.info("Generated URL: {}", url);
+        return url;
     }
 
     private String selectBucketByFunction(MediaFunction function) {
@@ -0,0 +1,68 @@
+package za.org.grassroot.integration.authentication;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.env.Environment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class JwtServiceImplTest {
+
+    private KeyPair keyPair;
+    private JwtServiceImpl jwtService;
+
+    @Before
+    public void setUp() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        keyPair = generator.generateKeyPair();
+        KeyPairProvider keyPairProvider = mock(KeyPairProvider.class);
+        when(keyPairProvider.getJWTKey()).thenReturn(keyPair);
+
+        jwtService = new JwtServiceImpl(mock(Environment.class), keyPairProvider);
+        ReflectionTestUtils.setField(jwtService, "keyIdentifier", "test-key");
+        ReflectionTestUtils.setField(jwtService, "microserviceTokenExpiryMillis", 60000L);
+    }
+
+    @Test
+    public void shouldCacheSystemTokensPerClaims() {
+        String messaging = jwtService.getCachedJwt(systemToken("messaging"));
+        String lambda = jwtService.getCachedJwt(systemToken("lambda"));
+
+        assertEquals(messaging, jwtService.getCachedJwt(systemToken("messaging")));
+        assertNotEquals(messaging, lambda);
+        assertEquals("messaging", parse(messaging).get("service"));
+        assertEquals("lambda", parse(lambda).get("service"));
+    }
+
+    @Test
+    public void shouldHandOutCachedTokenWithMostOfItsLifetimeLeft() {
+        final long before = System.currentTimeMillis();
+        String token = jwtService.getCachedJwt(systemToken("messaging"));
+        assertEquals(token, jwtService.getCachedJwt(systemToken("messaging")));
+
+        // the cache stops serving it at three quarters of its lifetime, so callers always get at least fifteen seconds
+        final long expiry = parse(token).getExpiration().getTime();
+        assertTrue(expiry >= before + 59000);
+        assertTrue(expiry <= System.currentTimeMillis() + 60000);
+    }
+
+    private Claims parse(String token) {
+        return Jwts.parser().setSigningKey(keyPair.getPublic()).parseClaimsJws(token).getBody();
+    }
+
+    private static CreateJwtTokenRequest systemToken(String service) {
+        CreateJwtTokenRequest request = CreateJwtTokenRequest.makeSystemToken();
+        request.addClaim("service", service);
+        return request;
+    }
+
+}
@@ -0,0 +1,127 @@
+package za.org.grassroot.integration.authentication;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class SignedTokenCacheTest {
+
+    private static final long LIFETIME = 60000;
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private final List<CreateJwtTokenRequest> signed = new ArrayList<>();
+    private SignedTokenCache cache;
+
+    @Before
+    public void setUp() {
+        // each token names its signature number and claims, so a wrong hand out shows in the assertion
+        cache = new SignedTokenCache(request -> {
+            signed.add(request);
+            return "token-" + signed.size() + "-" + request.getClaims().get("service");
+        }, request -> LIFETIME, now::get);
+    }
+
+    @Test
+    public void shouldReuseTokenForEqualRequests() {
+        String first = cache.getToken(request("messaging"));
+        now.addAndGet(1000);
+        assertEquals(first, cache.getToken(request("messaging")));
+        assertEquals(1, signed.size());
+    }
+
+    @Test
+    public void shouldNeverServeTokenForDifferentClaims() {
+        String messaging = cache.getToken(request("messaging"));
+        String lambda = cache.getToken(request("lambda"));
+        assertEquals("token-1-messaging", messaging);
+        assertEquals("token-2-lambda", lambda);
+
+        // nor for the same claims under another type or expiry
+        CreateJwtTokenRequest otherType = new CreateJwtTokenRequest(JwtType.MSGING_CLIENT);
+        otherType.addClaim("service", "messaging");
+        assertEquals("token-3-messaging", cache.getToken(otherType));
+        CreateJwtTokenRequest shortExpiry = request("messaging");
+        shortExpiry.setShortExpiryMillis(5000L);
+        assertEquals("token-4-messaging", cache.getToken(shortExpiry));
+
+        assertEquals(messaging, cache.getToken(request("messaging")));
+        assertEquals(lambda, cache.getToken(request("lambda")));
+    }
+
+    @Test
+    public void shouldKeyOnClaimsAsTheyWereWhenCached() {
+        CreateJwtTokenRequest request = request("messaging");
+        String messaging = cache.getToken(request);
+        request.addClaim("service", "lambda"); // changing the request afterwards does not change what it was cached under
+
+        assertEquals("token-2-lambda", cache.getToken(request("lambda")));
+        assertEquals(messaging, cache.getToken(request("messaging")));
+    }
+
+    @Test
+    public void shouldStopServingTokenWellBeforeItExpires() {
+        String first = cache.getToken(request("messaging"));
+        now.addAndGet(LIFETIME * 3 / 4 - 1);
+        assertEquals(first, cache.getToken(request("messaging")));
+
+        // a quarter of its lifetime left, so it is signed again instead of handed out
+        now.addAndGet(1);
+        String second = cache.getToken(request("messaging"));
+        assertNotEquals(first, second);
+        assertEquals(2, signed.size());
+    }
+
+    @Test
+    public void shouldRefreshTokensPastHalfTheirLifetime() {
+        String first = cache.getToken(request("messaging"));
+        now.addAndGet(LIFETIME / 2);
+        cache.refreshAgeing();
+        assertEquals(1, signed.size());
+
+        now.addAndGet(1);
+        cache.refreshAgeing();
+        assertEquals(2, signed.size());
+        String refreshed = cache.getToken(request("messaging"));
+        assertNotEquals(first, refreshed);
+
+        // served from the refreshed entry until a quarter of its own lifetime remains
+        now.addAndGet(LIFETIME * 3 / 4 - 1);
+        assertEquals(refreshed, cache.getToken(request("messaging")));
+        assertEquals(2, signed.size());
+    }
+
+    @Test
+    public void shouldEvictIdleTokensInsteadOfRefreshing() {
+        cache.getToken(request("messaging"));
+        now.addAndGet(LIFETIME / 2 + 1);
+        cache.refreshAgeing(); // refreshed, but not used since it was first signed
+        now.addAndGet(LIFETIME / 2);
+        cache.refreshAgeing();
+        assertEquals(2, signed.size());
+
+        cache.getToken(request("messaging"));
+        assertEquals(3, signed.size());
+    }
+
+    @Test
+    public void shouldClearWhenFull() {
+        for (int i = 0; i < 256; i++)
+            cache.getToken(request("service-" + i));
+        assertEquals("token-1-service-0", cache.getToken(request("service-0")));
+
+        cache.getToken(request("one-too-many"));
+        assertEquals("token-258-service-0", cache.getToken(request("service-0")));
+    }
+
+    private static CreateJwtTokenRequest request(String service) {
+        CreateJwtTokenRequest request = CreateJwtTokenRequest.makeSystemToken();
+        request.addClaim("service", service);
+        return request;
+    }
+
+}
@@ -0,0 +1,125 @@
+package za.org.grassroot.integration.data;
+
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.usermodel.WorkbookFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import za.org.grassroot.core.dto.membership.MembershipInfo;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class DataImportBrokerTest {
+
+    // name, phone, email; the first batch (of two rows) is held back, so later batches finish before it
+    private static final String MEMBERS_CSV = "name,phone,email\n" +
+            "Alice,0821234567,alice@example.com\n" +
+            "Bob,0821234568,\n" +
+            "Carol,not a phone,\n" +
+            "Dave,,DAVE@example.com\n" +
+            "Eve,082 123 4567,\n" +
+            "Frank,,dave@example.com\n";
+
+    private final List<File> files = new ArrayList<>();
+    private DataImportBrokerImpl dataImportBroker;
+
+    @Before
+    public void setUp() {
+        dataImportBroker = new DataImportBrokerImpl();
+        ReflectionTestUtils.invokeMethod(dataImportBroker, "init");
+        ReflectionTestUtils.setField(dataImportBroker, "batchSize", 2);
+        ReflectionTestUtils.setField(dataImportBroker, "maxBatchesInFlight", 3);
+
+        final AtomicBoolean first = new AtomicBoolean(true);
+        dataImportBroker.setImportExecutor(task -> {
+            final boolean holdBack = first.getAndSet(false);
+            new Thread(() -> {
+                if (holdBack)
+                    sleep(300);
+                task.run();
+            }).start();
+        });
+    }
+
+    @After
+    public void tearDown() {
+        files.forEach(File::delete);
+    }
+
+    @Test
+    public void shouldImportInFileOrderAcrossBatches() throws Exception {
+        MemberImportResult result = dataImportBroker.processMembers(csvFile(MEMBERS_CSV, ".csv"), true, 1, 0,
+                null, 2, null, null, null, null);
+
+        List<MembershipInfo> members = result.getProcessedMembers();
+        assertEquals(Arrays.asList("Alice", "Bob", "Dave"),
+                members.stream().map(MembershipInfo::getDisplayName).collect(Collectors.toList()));
+        assertEquals("27821234567", members.get(0).getPhoneNumber());
+        assertEquals("alice@example.com", members.get(0).getMemberEmail());
+        assertEquals("dave@example.com", members.get(2).getMemberEmail());
+    }
+
+    @Test
+    public void shouldReportFailedAndDuplicateRows() throws Exception {
+        MemberImportResult result = dataImportBroker.processMembers(csvFile(MEMBERS_CSV, ".csv"), true, 1, 0,
+                null, 2, null, null, null, null);
+
+        // the first occurrence is kept, after normalising the phone number and lower casing the email
+        List<String[]> errorRows = result.getErrorRows();
+        assertEquals(4, errorRows.size());
+        assertArrayEquals(new String[] { "name", "phone", "email", "Import error" }, errorRows.get(0));
+        assertArrayEquals(new String[] { "Carol", "not a phone", "", "Row 4: Bad phone number: not a phone" }, errorRows.get(1));
+        assertArrayEquals(new String[] { "Eve", "082 123 4567", "", "Row 6: Duplicate of row 2" }, errorRows.get(2));
+        assertArrayEquals(new String[] { "Frank", "", "dave@example.com", "Row 7: Duplicate of row 5" }, errorRows.get(3));
+
+        File errorFile = new File(result.getErrorFilePath());
+        files.add(errorFile);
+        try (Workbook workbook = WorkbookFactory.create(errorFile, null, true)) {
+            Sheet sheet = workbook.getSheetAt(0);
+            assertEquals(3, sheet.getLastRowNum());
+            DataFormatter formatter = new DataFormatter();
+            Row duplicate = sheet.getRow(2);
+            assertEquals("Eve", formatter.formatCellValue(duplicate.getCell(0)));
+            assertEquals("Row 6: Duplicate of row 2", formatter.formatCellValue(duplicate.getCell(3)));
+        }
+    }
+
+    @Test
+    public void shouldHaveNoErrorFileWhenAllRowsImport() throws Exception {
+        MemberImportResult result = dataImportBroker.processMembers(csvFile("Alice;0821234567\nBob;0821234568\n", ".xlsx"),
+                false, 1, 0, null, null, null, null, null, null);
+
+        assertEquals(2, result.getProcessedMembers().size());
+        assertNull(result.getErrorRows());
+        assertNull(result.getErrorFilePath());
+    }
+
+    private File csvFile(String content, String suffix) throws Exception {
+        File file = File.createTempFile("members", suffix);
+        files.add(file);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
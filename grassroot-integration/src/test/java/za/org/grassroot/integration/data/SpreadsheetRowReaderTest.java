@@ -0,0 +1,164 @@
+package za.org.grassroot.integration.data;
+
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SpreadsheetRowReaderTest {
+
+    private final List<File> files = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        files.forEach(File::delete);
+    }
+
+    @Test
+    public void shouldParseQuotedFields() throws IOException {
+        List<List<String>> rows = parseCsv("a,\"b,c\",d\n\"say \"\"hi\"\"\",x\n");
+        assertEquals(Arrays.asList("a", "b,c", "d"), rows.get(0));
+        assertEquals(Arrays.asList("say \"hi\"", "x"), rows.get(1));
+        assertEquals(2, rows.size());
+    }
+
+    @Test
+    public void shouldKeepLineBreaksInQuotedFields() throws IOException {
+        List<List<String>> rows = parseCsv("\"first line\nsecond line\",z\r\nnext,row");
+        assertEquals(Arrays.asList("first line\nsecond line", "z"), rows.get(0));
+        assertEquals(Arrays.asList("next", "row"), rows.get(1));
+    }
+
+    @Test
+    public void shouldSplitRowsOnAnyLineEnding() throws IOException {
+        assertEquals(Arrays.asList(Arrays.asList("a", "b"), Arrays.asList("c", "d"), Arrays.asList("e", "f")),
+                parseCsv("a,b\rc,d\r\ne,f\n"));
+        assertEquals(Arrays.asList(Arrays.asList("a", ""), Collections.singletonList("")), parseCsv("a,\n\n"));
+    }
+
+    @Test
+    public void shouldUseFirstSeparatorFound() throws IOException {
+        // a semicolon file, as Excel writes where the comma is the decimal mark
+        assertEquals(Arrays.asList(Arrays.asList("name", "amount"), Arrays.asList("Thandi", "1,5")),
+                parseCsv("name;amount\nThandi;1,5\n"));
+        // a quoted semicolon does not decide it
+        assertEquals(Arrays.asList(Arrays.asList("a;b", "c;d")), parseCsv("\"a;b\",c;d\n"));
+    }
+
+    @Test
+    public void shouldSkipByteOrderMarkAndEmptyRows() throws IOException {
+        File file = csvFile("\uFEFFname,phone\n,\n\nThandi,0821234567\n", ".csv");
+        List<Integer> rowNumbers = new ArrayList<>();
+        List<List<String>> rows = new ArrayList<>();
+        SpreadsheetRowReader.read(file, new DataFormatter(), (rowNumber, cells) -> {
+            rowNumbers.add(rowNumber);
+            rows.add(cells);
+            return true;
+        });
+        assertEquals(Arrays.asList(Arrays.asList("name", "phone"), Arrays.asList("Thandi", "0821234567")), rows);
+        assertEquals(Arrays.asList(0, 3), rowNumbers);
+    }
+
+    @Test
+    public void shouldFillGapsInSparseXlsxRows() throws IOException {
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        Sheet sheet = workbook.createSheet();
+        Row first = sheet.createRow(0);
+        first.createCell(0).setCellValue("a");
+        first.createCell(2).setCellValue("c");
+        sheet.createRow(3).createCell(1).setCellValue("b");
+        Row numbers = sheet.createRow(4);
+        numbers.createCell(0).setCellValue(821234567);
+        File file = workbookFile(workbook, ".xlsx");
+
+        List<Integer> rowNumbers = new ArrayList<>();
+        List<List<String>> rows = new ArrayList<>();
+        SpreadsheetRowReader.read(file, new DataFormatter(), (rowNumber, cells) -> {
+            rowNumbers.add(rowNumber);
+            rows.add(cells);
+            return true;
+        });
+        assertEquals(Arrays.asList(Arrays.asList("a", "", "c"), Arrays.asList("", "b"), Collections.singletonList("821234567")), rows);
+        assertEquals(Arrays.asList(0, 3, 4), rowNumbers);
+    }
+
+    @Test
+    public void shouldStopWhenHandlerSaysSo() throws IOException {
+        XSSFWorkbook workbook = new XSSFWorkbook();
+        Sheet sheet = workbook.createSheet();
+        for (int i = 0; i < 5; i++)
+            sheet.createRow(i).createCell(0).setCellValue("row " + i);
+        File file = workbookFile(workbook, ".xlsx");
+
+        List<String> read = new ArrayList<>();
+        SpreadsheetRowReader.read(file, new DataFormatter(), (rowNumber, cells) -> {
+            read.add(cells.get(0));
+            return read.size() < 2;
+        });
+        assertEquals(Arrays.asList("row 0", "row 1"), read);
+    }
+
+    @Test
+    public void shouldDetectFormatFromContentsNotName() throws IOException {
+        HSSFWorkbook workbook = new HSSFWorkbook();
+        Row row = workbook.createSheet().createRow(0);
+        row.createCell(0).setCellValue("from");
+        row.createCell(1).setCellValue("xls");
+        File xlsNamedCsv = workbookFile(workbook, ".csv");
+        assertEquals(Collections.singletonList(Arrays.asList("from", "xls")), readAll(xlsNamedCsv));
+
+        File csvNamedXls = csvFile("from,csv\n", ".xls");
+        assertEquals(Collections.singletonList(Arrays.asList("from", "csv")), readAll(csvNamedXls));
+    }
+
+    private static List<List<String>> parseCsv(String content) throws IOException {
+        SpreadsheetRowReader.CsvParser parser = new SpreadsheetRowReader.CsvParser(new StringReader(content));
+        List<List<String>> rows = new ArrayList<>();
+        for (List<String> cells = parser.next(); cells != null; cells = parser.next())
+            rows.add(cells);
+        assertNull(parser.next());
+        return rows;
+    }
+
+    private static List<List<String>> readAll(File file) throws IOException {
+        List<List<String>> rows = new ArrayList<>();
+        SpreadsheetRowReader.read(file, new DataFormatter(), (rowNumber, cells) -> rows.add(cells));
+        return rows;
+    }
+
+    private File csvFile(String content, String suffix) throws IOException {
+        File file = File.createTempFile("rows", suffix);
+        files.add(file);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private File workbookFile(Workbook workbook, String suffix) throws IOException {
+        File file = File.createTempFile("rows", suffix);
+        files.add(file);
+        try (FileOutputStream output = new FileOutputStream(file)) {
+            workbook.write(output);
+        }
+        workbook.close();
+        return file;
+    }
+
+}
@@ -0,0 +1,134 @@
+package za.org.grassroot.integration.graph;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Sets;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import za.org.grassroot.graph.dto.ActionType;
+import za.org.grassroot.graph.dto.IncomingGraphAction;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GraphActionDispatcherTest {
+
+    private InMemoryGraphActionTransport transport;
+    private GraphActionDispatcher dispatcher;
+
+    // the properties and tags each annotation is built with, in the order they are built
+    private final List<Map<String, String>> builtProperties = new ArrayList<>();
+    private final List<Set<String>> builtTags = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        transport = new InMemoryGraphActionTransport();
+        dispatcher = newDispatcher(20000);
+    }
+
+    @Test
+    public void shouldMergeWaitingAnnotationsOfSameEntity() {
+        dispatcher.dispatchAnnotation("entity:ACTOR:user-1", ImmutableMap.of("language", "en", "province", "GP"),
+                Sets.newHashSet("housing"), annotation("user-1"));
+        dispatcher.dispatchAnnotation("entity:ACTOR:user-2", ImmutableMap.of("language", "zu"), null, annotation("user-2"));
+        dispatcher.dispatchAnnotation("entity:ACTOR:user-1", ImmutableMap.of("province", "WC"),
+                Sets.newHashSet("water"), annotation("user-1"));
+
+        dispatcher.flush();
+
+        // later properties overwrite earlier ones and tags add up, as applying both in turn would
+        assertEquals(2, transport.getMessages().size());
+        assertEquals(ImmutableMap.of("language", "en", "province", "WC"), builtProperties.get(0));
+        assertEquals(Sets.newHashSet("housing", "water"), builtTags.get(0));
+        assertEquals(ImmutableMap.of("language", "zu"), builtProperties.get(1));
+        assertTrue(dispatcher.describeStats().contains("coalesced: 1"));
+
+        // once sent, an annotation of the same entity starts afresh
+        dispatcher.dispatchAnnotation("entity:ACTOR:user-1", ImmutableMap.of("language", "xh"), null, annotation("user-1"));
+        dispatcher.flush();
+        assertEquals(3, transport.getMessages().size());
+        assertEquals(ImmutableMap.of("language", "xh"), builtProperties.get(2));
+    }
+
+    @Test
+    public void shouldNotMergeAnnotationsAcrossOtherActions() {
+        dispatcher.dispatchAnnotation("entity:ACTOR:group-1", ImmutableMap.of("name", "before"), null, annotation("group-1"));
+        dispatcher.dispatch(action("group-1", ActionType.REMOVE_ENTITY), "remove entity");
+        dispatcher.dispatchAnnotation("entity:ACTOR:group-1", ImmutableMap.of("name", "after"), null, annotation("group-1"));
+
+        dispatcher.flush();
+
+        // the removal sits between the two annotations, so merging the second into the first would reorder them
+        final List<String> messages = transport.getMessages();
+        assertEquals(3, messages.size());
+        assertTrue(messages.get(0).contains(ActionType.ANNOTATE_ENTITY.name()));
+        assertTrue(messages.get(1).contains(ActionType.REMOVE_ENTITY.name()));
+        assertTrue(messages.get(2).contains(ActionType.ANNOTATE_ENTITY.name()));
+        assertEquals(Arrays.asList(ImmutableMap.of("name", "before"), ImmutableMap.of("name", "after")), builtProperties);
+        assertTrue(dispatcher.describeStats().contains("coalesced: 0"));
+    }
+
+    @Test
+    public void shouldSendInBatchesOfAtMostTen() {
+        for (int i = 0; i < 25; i++)
+            dispatcher.dispatch(action("user-" + i, ActionType.CREATE_ENTITY), "create entity");
+
+        dispatcher.flush();
+
+        final List<Integer> batchSizes = transport.getBatches().stream().map(List::size).collect(Collectors.toList());
+        assertEquals(Arrays.asList(10, 10, 5), batchSizes);
+        // and in the order dispatched
+        final List<String> messages = transport.getMessages();
+        for (int i = 0; i < 25; i++)
+            assertTrue(messages.get(i).contains("\"user-" + i + "\""));
+        assertTrue(dispatcher.describeStats().contains("sent: 25, failed: 0, batches: 3"));
+    }
+
+    @Test
+    public void shouldDropActionsWhenQueueIsFull() {
+        dispatcher = newDispatcher(3);
+        for (int i = 0; i < 5; i++)
+            dispatcher.dispatch(action("user-" + i, ActionType.CREATE_ENTITY), "create entity");
+        // a dropped annotation is not left open for later ones to merge into
+        dispatcher.dispatchAnnotation("entity:ACTOR:user-9", ImmutableMap.of("language", "en"), null, annotation("user-9"));
+        dispatcher.flush();
+        assertTrue(dispatcher.describeStats().contains("dropped: 3"));
+        assertEquals(3, transport.getMessages().size());
+
+        dispatcher.dispatchAnnotation("entity:ACTOR:user-9", ImmutableMap.of("language", "zu"), null, annotation("user-9"));
+        dispatcher.flush();
+        assertEquals(4, transport.getMessages().size());
+        assertEquals(ImmutableMap.of("language", "zu"), builtProperties.get(0));
+    }
+
+    private GraphActionDispatcher newDispatcher(int queueCapacity) {
+        GraphActionDispatcher graphActionDispatcher = new GraphActionDispatcher();
+        ReflectionTestUtils.setField(graphActionDispatcher, "queueCapacity", queueCapacity);
+        ReflectionTestUtils.setField(graphActionDispatcher, "offerTimeoutMillis", 10L);
+        graphActionDispatcher.setTransport(transport);
+        graphActionDispatcher.init();
+        return graphActionDispatcher;
+    }
+
+    private BiFunction<Map<String, String>, Set<String>, IncomingGraphAction> annotation(String uid) {
+        return (properties, tags) -> {
+            builtProperties.add(new HashMap<>(properties));
+            builtTags.add(tags);
+            return action(uid, ActionType.ANNOTATE_ENTITY);
+        };
+    }
+
+    private static IncomingGraphAction action(String uid, ActionType actionType) {
+        return new IncomingGraphAction(uid, actionType, null, null, null);
+    }
+
+}
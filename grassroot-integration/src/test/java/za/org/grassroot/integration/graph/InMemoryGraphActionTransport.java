@@ -0,0 +1,28 @@
+package za.org.grassroot.integration.graph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps each batch of graph actions it is sent, in order, so tests can see what the dispatcher sent and how
+ */
+public class InMemoryGraphActionTransport implements GraphActionTransport {
+
+    private final List<List<String>> batches = new ArrayList<>();
+
+    @Override
+    public synchronized int send(List<String> messages) {
+        batches.add(new ArrayList<>(messages));
+        return 0;
+    }
+
+    public synchronized List<List<String>> getBatches() {
+        return new ArrayList<>(batches);
+    }
+
+    public synchronized List<String> getMessages() {
+        return batches.stream().flatMap(List::stream).collect(Collectors.toList());
+    }
+
+}
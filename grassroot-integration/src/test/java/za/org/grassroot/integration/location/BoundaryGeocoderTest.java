@@ -0,0 +1,98 @@
+package za.org.grassroot.integration.location;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+import za.org.grassroot.core.domain.geo.GeoLocation;
+import za.org.grassroot.core.enums.Province;
+
+import static org.junit.Assert.*;
+
+public class BoundaryGeocoderTest {
+
+    private BoundaryGeocoder geocoder;
+
+    @Before
+    public void setUp() {
+        geocoder = newGeocoder("classpath:geo/test-boundaries.geojson", false);
+        geocoder.load();
+    }
+
+    @Test
+    public void shouldLoadKnownBoundariesOnly() {
+        assertTrue(geocoder.hasProvinces());
+        assertTrue(geocoder.hasMunicipalities());
+        // the province with an unknown code is skipped
+        assertTrue(geocoder.describeStats().startsWith("Boundaries: 2 provinces, 2 municipalities"));
+    }
+
+    @Test
+    public void shouldFindProvinceContainingPoint() {
+        assertEquals(Province.ZA_GP, geocoder.findProvince(new GeoLocation(-26.6, 27.3)));
+        assertEquals(Province.ZA_GP, geocoder.findProvince(new GeoLocation(-25.01, 28.5))); // just inside the top edge
+        assertNull(geocoder.findProvince(new GeoLocation(-29.5, 22.5))); // the unknown province
+        assertNull(geocoder.findProvince(new GeoLocation(-30.0, 24.0))); // within the grid, outside all
+        assertNull(geocoder.findProvince(new GeoLocation(0, 0))); // outside the grid
+    }
+
+    @Test
+    public void shouldExcludePointsInHoles() {
+        assertNull(geocoder.findProvince(new GeoLocation(-26.0, 28.0)));
+        assertEquals(Province.ZA_GP, geocoder.findProvince(new GeoLocation(-26.0, 28.3)));
+    }
+
+    @Test
+    public void shouldFindPointsInEachPartOfMultiPolygon() {
+        assertEquals(Province.ZA_WC, geocoder.findProvince(new GeoLocation(-33.5, 18.5)));
+        assertEquals(Province.ZA_WC, geocoder.findProvince(new GeoLocation(-33.5, 20.5)));
+        assertNull(geocoder.findProvince(new GeoLocation(-33.5, 19.5))); // between the parts
+
+        assertEquals(2, geocoder.findMunicipality(new GeoLocation(-33.8, 18.5)).getId());
+        assertEquals(2, geocoder.findMunicipality(new GeoLocation(-33.2, 18.5)).getId());
+        assertNull(geocoder.findMunicipality(new GeoLocation(-33.45, 18.5))); // between the parts
+    }
+
+    @Test
+    public void shouldFindPointsOnGridCellBoundaries() {
+        // provinces have their grid from 18, -34 and municipalities from 18.2, -34, in cells of 0.25 degrees
+        assertEquals(Province.ZA_GP, geocoder.findProvince(new GeoLocation(-26.5, 28.0)));
+        assertEquals(Province.ZA_GP, geocoder.findProvince(new GeoLocation(-26.0, 29.0 - 0.25 * 3)));
+
+        Municipality municipality = geocoder.findMunicipality(new GeoLocation(-26.5, 28.2));
+        assertNotNull(municipality);
+        assertEquals(1, municipality.getId());
+        assertEquals("City of Johannesburg", municipality.getName());
+        assertEquals("Metropolitan Municipality", municipality.getType_name());
+        assertEquals(1, geocoder.findMunicipality(new GeoLocation(-26.75, 27.7)).getId());
+    }
+
+    @Test
+    public void shouldReturnCopyOfMunicipality() {
+        Municipality first = geocoder.findMunicipality(new GeoLocation(-26.5, 28.0));
+        first.setName("changed");
+        assertEquals("City of Johannesburg", geocoder.findMunicipality(new GeoLocation(-26.5, 28.0)).getName());
+    }
+
+    @Test
+    public void shouldStayEmptyWhenBoundariesMissing() {
+        BoundaryGeocoder missing = newGeocoder("classpath:geo/no-such-file.geojson", false);
+        missing.load();
+        assertFalse(missing.hasProvinces());
+        assertFalse(missing.hasMunicipalities());
+        assertNull(missing.findProvince(new GeoLocation(-26.5, 28.0)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldFailWhenRequiredBoundariesMissing() {
+        newGeocoder("classpath:geo/no-such-file.geojson", true).load();
+    }
+
+    private static BoundaryGeocoder newGeocoder(String resource, boolean required) {
+        BoundaryGeocoder geocoder = new BoundaryGeocoder(new DefaultResourceLoader());
+        ReflectionTestUtils.setField(geocoder, "boundariesResource", resource);
+        ReflectionTestUtils.setField(geocoder, "boundariesRequired", required);
+        return geocoder;
+    }
+
+}
@@ -0,0 +1,83 @@
+package za.org.grassroot.integration.location;
+
+import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.config.Configuration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import za.org.grassroot.core.enums.Province;
+import za.org.grassroot.core.repository.AddressRepository;
+import za.org.grassroot.core.repository.ConfigRepository;
+import za.org.grassroot.core.repository.GroupRepository;
+import za.org.grassroot.core.repository.UserLocationLogRepository;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class MunicipalFilteringBrokerTest {
+
+    private UserLocationLogRepository userLocationLogRepository;
+    private CacheManager cacheManager;
+    private Cache municipalityCache;
+    private MunicipalFilteringBrokerImpl municipalFilteringBroker;
+
+    @Before
+    public void setUp() {
+        userLocationLogRepository = mock(UserLocationLogRepository.class);
+        // a real cache, as the ehcache put methods are final
+        cacheManager = new CacheManager(new Configuration().name("municipal-filtering-test"));
+        municipalityCache = new Cache(new CacheConfiguration("user_municipality", 100));
+        cacheManager.addCache(municipalityCache);
+
+        BoundaryGeocoder boundaryGeocoder = new BoundaryGeocoder(new DefaultResourceLoader());
+        ReflectionTestUtils.setField(boundaryGeocoder, "boundariesResource", "classpath:geo/test-boundaries.geojson");
+        boundaryGeocoder.load();
+
+        municipalFilteringBroker = new MunicipalFilteringBrokerImpl(userLocationLogRepository, cacheManager,
+                mock(GroupRepository.class), mock(ConfigRepository.class), mock(AddressRepository.class),
+                boundaryGeocoder, mock(PlatformTransactionManager.class));
+    }
+
+    @After
+    public void tearDown() {
+        cacheManager.shutdown();
+    }
+
+    @Test
+    public void shouldPlaceLogsFromBoundariesWithoutRemoteCalls() {
+        // uid, user uid, latitude, longitude
+        when(userLocationLogRepository.streamUnplacedLocationsAfter(any(Instant.class))).thenReturn(Stream.of(
+                new Object[] { "log-1", "user-1", -26.5, 28.0 }, // johannesburg
+                new Object[] { "log-2", "user-2", -33.8, 18.5 }, // cape town
+                new Object[] { "log-3", "user-1", -26.6, 27.8 }, // johannesburg again, later
+                new Object[] { "log-4", "user-3", -26.0, 28.5 }, // gauteng, outside any municipality
+                new Object[] { "log-5", "user-4", -30.0, 24.0 })); // outside all
+
+        municipalFilteringBroker.fetchMunicipalitiesForUsersWithLocations(null);
+
+        verify(userLocationLogRepository).setMunicipalityForLogs(Arrays.asList("log-1", "log-3"), "1", "City of Johannesburg");
+        verify(userLocationLogRepository).setMunicipalityForLogs(Collections.singletonList("log-2"), "2", "City of Cape Town");
+        verify(userLocationLogRepository).setProvinceForLogs(Arrays.asList("log-1", "log-3", "log-4"), Province.ZA_GP);
+        verify(userLocationLogRepository).setProvinceForLogs(Collections.singletonList("log-2"), Province.ZA_WC);
+        verify(userLocationLogRepository, never()).findByMunicipalityIdIsNullAndTimestampAfter(any(), any());
+
+        // one cache entry per user placed in a municipality, with the latest one they were placed in
+        assertEquals(2, municipalityCache.getSize());
+        assertEquals(1, ((Municipality) municipalityCache.get("user-1").getObjectValue()).getId());
+        assertEquals(2, ((Municipality) municipalityCache.get("user-2").getObjectValue()).getId());
+        assertNull(municipalityCache.get("user-3"));
+    }
+
+}
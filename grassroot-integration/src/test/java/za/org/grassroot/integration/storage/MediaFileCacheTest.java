@@ -0,0 +1,192 @@
+package za.org.grassroot.integration.storage;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+public class MediaFileCacheTest {
+
+    private static final String BUCKET = "test-bucket";
+
+    private Path folder;
+    private final AtomicInteger downloads = new AtomicInteger();
+
+    // each object is its key, repeated to the length after the colon, e.g. "a:4" is "a:4a"
+    private final BiFunction<String, String, InputStream> fetcher = (bucket, key) -> {
+        downloads.incrementAndGet();
+        return new ByteArrayInputStream(content(key).getBytes(StandardCharsets.UTF_8));
+    };
+
+    @Before
+    public void setUp() throws IOException {
+        folder = Files.createTempDirectory("media-cache-test");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(folder)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Test
+    public void shouldDownloadOnceForConcurrentMisses() throws Exception {
+        MediaFileCache cache = newCache(1000, 0);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        BiFunction<String, String, InputStream> slowFetcher = (bucket, key) -> {
+            started.countDown();
+            await(release);
+            return fetcher.apply(bucket, key);
+        };
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            Future<File> first = pool.submit(() -> cache.fetch(BUCKET, "a:4", slowFetcher));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            Future<File> second = pool.submit(() -> cache.fetch(BUCKET, "a:4", slowFetcher));
+            Future<File> third = pool.submit(() -> cache.fetch(BUCKET, "a:4", slowFetcher));
+            Thread.sleep(100); // so the others are waiting on the first download
+            release.countDown();
+
+            File file = first.get(5, TimeUnit.SECONDS);
+            assertEquals(file, second.get(5, TimeUnit.SECONDS));
+            assertEquals(file, third.get(5, TimeUnit.SECONDS));
+            assertEquals("a:4a", read(file));
+            assertEquals(1, downloads.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsed() throws Exception {
+        MediaFileCache cache = newCache(10, 0);
+        File a = cache.fetch(BUCKET, "a:4", fetcher);
+        File b = cache.fetch(BUCKET, "b:4", fetcher);
+        cache.fetch(BUCKET, "a:4", fetcher); // a is now more recent than b
+        File c = cache.fetch(BUCKET, "c:4", fetcher);
+
+        assertEquals(3, downloads.get());
+        assertTrue(cache.contains(BUCKET, "a:4"));
+        assertFalse(cache.contains(BUCKET, "b:4"));
+        assertTrue(cache.contains(BUCKET, "c:4"));
+        assertTrue(a.exists());
+        assertFalse(b.exists());
+        assertTrue(c.exists());
+    }
+
+    @Test
+    public void shouldKeepRecentlyServedFileUntilGracePasses() throws Exception {
+        MediaFileCache cache = newCache(10, 200);
+        File a = cache.fetch(BUCKET, "a:6", fetcher);
+        cache.fetch(BUCKET, "b:6", fetcher); // evicts a, which may still be streaming
+
+        assertFalse(cache.contains(BUCKET, "a:6"));
+        assertTrue(a.exists());
+        assertEquals("a:6a:6", read(a));
+
+        cache.purgeDeferredDeletes();
+        assertTrue(a.exists());
+        Thread.sleep(250);
+        cache.purgeDeferredDeletes();
+        assertFalse(a.exists());
+    }
+
+    @Test
+    public void shouldNotDeleteFileCachedAgainDuringGrace() throws Exception {
+        MediaFileCache cache = newCache(1000, 100);
+        File a = cache.fetch(BUCKET, "a:4", fetcher);
+        cache.invalidate(BUCKET, "a:4");
+        assertTrue(a.exists());
+
+        assertEquals(a, cache.fetch(BUCKET, "a:4", fetcher));
+        Thread.sleep(150);
+        cache.purgeDeferredDeletes();
+        assertTrue(a.exists());
+        assertTrue(cache.contains(BUCKET, "a:4"));
+    }
+
+    @Test
+    public void shouldFetchAgainAfterInvalidate() throws Exception {
+        MediaFileCache cache = newCache(1000, 0);
+        File a = cache.fetch(BUCKET, "a:4", fetcher);
+        cache.invalidate(BUCKET, "a:4");
+
+        assertFalse(cache.contains(BUCKET, "a:4"));
+        assertFalse(a.exists());
+        cache.fetch(BUCKET, "a:4", fetcher);
+        assertEquals(2, downloads.get());
+        cache.invalidate(BUCKET, "not-cached:1"); // does nothing
+    }
+
+    @Test
+    public void shouldReindexFolderOnStartup() throws Exception {
+        Path older = folder.resolve(DigestUtils.sha256Hex(BUCKET + "/a:4"));
+        Path newer = folder.resolve(DigestUtils.sha256Hex(BUCKET + "/b:4"));
+        Path partial = folder.resolve(DigestUtils.sha256Hex(BUCKET + "/c:4") + "123.part");
+        Files.write(older, content("a:4").getBytes(StandardCharsets.UTF_8));
+        Files.write(newer, content("b:4").getBytes(StandardCharsets.UTF_8));
+        Files.write(partial, "c:".getBytes(StandardCharsets.UTF_8));
+        assertTrue(older.toFile().setLastModified(System.currentTimeMillis() - 60000));
+
+        MediaFileCache cache = newCache(10, 0);
+        assertTrue(cache.contains(BUCKET, "a:4"));
+        assertTrue(cache.contains(BUCKET, "b:4"));
+        assertFalse(Files.exists(partial));
+        assertEquals(newer.toFile(), cache.fetch(BUCKET, "b:4", fetcher));
+        assertEquals(0, downloads.get());
+
+        // the older file is the least recently used, so it goes first
+        cache.fetch(BUCKET, "c:4", fetcher);
+        assertFalse(cache.contains(BUCKET, "a:4"));
+        assertTrue(cache.contains(BUCKET, "b:4"));
+    }
+
+    private MediaFileCache newCache(long maxBytes, long deleteGraceMillis) throws IOException {
+        MediaFileCache cache = new MediaFileCache();
+        ReflectionTestUtils.setField(cache, "cacheFolder", folder.toString());
+        ReflectionTestUtils.setField(cache, "maxBytes", maxBytes);
+        ReflectionTestUtils.setField(cache, "deleteGraceMillis", deleteGraceMillis);
+        cache.init();
+        return cache;
+    }
+
+    private static String content(String key) {
+        final int length = Integer.parseInt(key.substring(key.indexOf(':') + 1));
+        final StringBuilder content = new StringBuilder(length);
+        while (content.length() < length)
+            content.append(key);
+        return content.substring(0, length);
+    }
+
+    private static String read(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -1,6 +1,7 @@
 package za.org.grassroot;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.context.annotation.Bean;
@@ -13,6 +14,7 @@ import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.scheduling.config.ScheduledTaskRegistrar;
 import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.spring5.SpringTemplateEngine;
@@ -20,10 +22,9 @@ import org.thymeleaf.templatemode.TemplateMode;
 import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
 import org.thymeleaf.templateresolver.ITemplateResolver;
 import org.thymeleaf.templateresolver.StringTemplateResolver;
+import za.org.grassroot.services.util.CatalogueMessageSource;
 
 import java.util.Collections;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 
 /**
  * @author Lesetse Kimwaga
@@ -35,26 +36,36 @@ import java.util.concurrent.Executors;
 @EnableAutoConfiguration @EnableJpaRepositories @EnableAsync @EnableScheduling
 public class GrassrootServicesConfig implements SchedulingConfigurer {
 
+    @Value("${grassroot.executors.scheduling.pool-size:6}")
+    private int schedulingPoolSize;
+
+    @Value("${grassroot.messages.languages:en,af,nso,st,ts,ve,xh,zu}")
+    private String[] messageLanguages;
+
 	/*
-	Configuration for scheduled tasks
+	Configuration for scheduled tasks, which have their own pool, apart from the async executors (see GrassrootExecutorsConfig)
 	 */
     @Override
     public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
-        taskRegistrar.setScheduler(taskExecutor());
+        taskRegistrar.setScheduler(schedulingExecutor());
     }
 
-    @Bean(destroyMethod="shutdown")
-    public Executor taskExecutor() {
-        return Executors.newScheduledThreadPool(10);
+    @Bean
+    public ThreadPoolTaskScheduler schedulingExecutor() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(schedulingPoolSize);
+        scheduler.setThreadNamePrefix("scheduling-");
+        scheduler.setErrorHandler(t -> log.error("Error in scheduled task: {}", t.getMessage(), t));
+        scheduler.setWaitForTasksToCompleteOnShutdown(false);
+        return scheduler;
     }
 
 	/*
 	Configuration for notification messages and HTML emails
 	 */
 	@Bean(name = "servicesMessageSource")
-	public ResourceBundleMessageSource messageSource() {
-		ResourceBundleMessageSource source = new ResourceBundleMessageSource();
-		source.setBasename("notification-messages/messages");
+	public CatalogueMessageSource messageSource() {
+		CatalogueMessageSource source = new CatalogueMessageSource("notification-messages/messages", messageLanguages);
 		source.setFallbackToSystemLocale(true);
 		return source;
 	}
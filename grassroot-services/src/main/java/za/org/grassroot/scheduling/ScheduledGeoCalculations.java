@@ -4,14 +4,13 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import za.org.grassroot.core.domain.group.Group;
 import za.org.grassroot.core.domain.task.Event;
-import za.org.grassroot.core.repository.GroupRepository;
 import za.org.grassroot.core.repository.MeetingRepository;
 import za.org.grassroot.core.specifications.EventSpecifications;
 import za.org.grassroot.core.util.DateTimeUtil;
 import za.org.grassroot.integration.location.MunicipalFilteringBroker;
 import za.org.grassroot.services.geo.GeoLocationBroker;
+import za.org.grassroot.services.geo.GroupLocationBatchCalculator;
 
 import java.time.Instant;
 import java.time.LocalDate;
@@ -30,17 +29,17 @@ public class ScheduledGeoCalculations {
     private static final long DAYS_TO_CALC_MTGS = 7;
 
     private final GeoLocationBroker geoLocationBroker;
-    private final GroupRepository groupRepository;
+    private final GroupLocationBatchCalculator groupLocationBatchCalculator;
     private final MeetingRepository meetingRepository;
 
     private MunicipalFilteringBroker municipalFilteringBroker;
 
     @Autowired
     public ScheduledGeoCalculations(GeoLocationBroker geoLocationBroker,
-                                    GroupRepository groupRepository,
+                                    GroupLocationBatchCalculator groupLocationBatchCalculator,
                                     MeetingRepository meetingRepository) {
         this.geoLocationBroker = geoLocationBroker;
-        this.groupRepository = groupRepository;
+        this.groupLocationBatchCalculator = groupLocationBatchCalculator;
         this.meetingRepository = meetingRepository;
     }
 
@@ -58,12 +57,14 @@ public class ScheduledGeoCalculations {
         geoLocationBroker.calculatePreviousPeriodUserLocations(today);
 
         log.info("Calculating group locations for date {}", today);
-        List<Group> groups = groupRepository.findAll();
-        for (Group group : groups) {
-            // we don't want one big TX for all groups, so we separate each group location
-            // calculation into its own transaction
-            geoLocationBroker.calculateGroupLocation(group.getUid(), today);
-        }
+        // done in pages of groups, each written in its own batch, and resumes from its checkpoint if a prior run crashed
+        groupLocationBatchCalculator.calculateAllGroupLocations(today);
+    }
+
+    // picks up a group location run that crashed or was cut off by a restart, from its checkpoint
+    @Scheduled(initialDelay = 120000, fixedDelay = 900000)
+    public void resumeGroupLocations() {
+        groupLocationBatchCalculator.resumeUnfinishedRun();
     }
 
     @Scheduled(cron = "0 0 3 * * *") // runs at 3am UTC every day, so can assume above is done
@@ -22,9 +22,11 @@ import za.org.grassroot.core.domain.group.Group_;
 import za.org.grassroot.core.domain.group.Membership;
 import za.org.grassroot.core.dto.membership.MembershipInfo;
 import za.org.grassroot.core.enums.GroupLogType;
+import za.org.grassroot.core.enums.InboundKeywordType;
 import za.org.grassroot.core.enums.UserInterfaceType;
 import za.org.grassroot.core.enums.UserLogType;
 import za.org.grassroot.core.events.AlterConfigVariableEvent;
+import za.org.grassroot.core.events.InboundKeywordChangedEvent;
 import za.org.grassroot.core.events.RemoveConfigVariableEvent;
 import za.org.grassroot.core.repository.ConfigRepository;
 import za.org.grassroot.core.repository.GroupLogRepository;
@@ -34,6 +36,7 @@ import za.org.grassroot.core.repository.UserRepository;
 import za.org.grassroot.core.specifications.GroupSpecifications;
 import za.org.grassroot.core.util.DateTimeUtil;
 import za.org.grassroot.services.group.GroupBroker;
+import za.org.grassroot.services.group.GroupMemberCounter;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
@@ -59,19 +62,22 @@ public class AdminManager implements AdminService, ApplicationEventPublisherAwar
     private final GroupLogRepository groupLogRepository;
     private final UserLogRepository userLogRepository;
     private final PasswordEncoder passwordEncoder;
+    private final GroupMemberCounter groupMemberCounter;
 
     private ConfigRepository configRepository;
 
     private ApplicationEventPublisher applicationEventPublisher;
 
     @Autowired
-    public AdminManager(UserRepository userRepository, GroupRepository groupRepository, GroupBroker groupBroker, GroupLogRepository groupLogRepository, UserLogRepository userLogRepository, PasswordEncoder passwordEncoder) {
+    public AdminManager(UserRepository userRepository, GroupRepository groupRepository, GroupBroker groupBroker, GroupLogRepository groupLogRepository, UserLogRepository userLogRepository, PasswordEncoder passwordEncoder,
+                        GroupMemberCounter groupMemberCounter) {
         this.userRepository = userRepository;
         this.groupRepository = groupRepository;
         this.groupBroker = groupBroker;
         this.groupLogRepository = groupLogRepository;
         this.userLogRepository = userLogRepository;
         this.passwordEncoder = passwordEncoder;
+        this.groupMemberCounter = groupMemberCounter;
     }
 
     @Override
@@ -118,7 +124,8 @@ public class AdminManager implements AdminService, ApplicationEventPublisherAwar
         logger.info("admin user now removing user from {} groups", memberships.size());
         for (Membership membership : memberships) {
             Group group = membership.getGroup();
-            group.removeMembership(membership); // concurrency?
+            group.removeMembership(membership);
+            groupMemberCounter.storeChanges(group);
         }
     }
 
@@ -134,20 +141,37 @@ public class AdminManager implements AdminService, ApplicationEventPublisherAwar
     public void removeJoinCodeFromGroup(final String adminUserUid, final String groupUid) {
         validateAdminRole(adminUserUid);
         final Group group = groupRepository.findOneByUid(groupUid);
+        final String closedCode = group.getGroupTokenCode();
         group.setGroupTokenCode(null);
         group.setTokenExpiryDateTime(Instant.now());
+        publishJoinCodeChange(closedCode, group);
         // store a group log
     }
 
     @Override
+    @Transactional
     public void grantJoinCodeToGroup(final String adminUserUid, final String groupUid, final String joinCode) {
         validateAdminRole(adminUserUid);
         final Group group = groupRepository.findOneByUid(groupUid);
+        final String priorCode = group.getGroupTokenCode();
         group.setGroupTokenCode(joinCode);
         group.setTokenExpiryDateTime(DateTimeUtil.getVeryLongAwayInstant());
+        if (priorCode != null && !priorCode.equals(joinCode)) {
+            applicationEventPublisher.publishEvent(new InboundKeywordChangedEvent(this, InboundKeywordType.GROUP_JOIN_TOKEN,
+                    priorCode, group.getUid(), Instant.now()));
+        }
+        publishJoinCodeChange(joinCode, group);
         // store a group log
     }
 
+    // so that inbound routing picks up the change once it commits
+    private void publishJoinCodeChange(String code, Group group) {
+        if (code != null) {
+            applicationEventPublisher.publishEvent(new InboundKeywordChangedEvent(this, InboundKeywordType.GROUP_JOIN_TOKEN,
+                    code, group.getUid(), group.getTokenExpiryDateTime()));
+        }
+    }
+
 
     @Override
     @Transactional
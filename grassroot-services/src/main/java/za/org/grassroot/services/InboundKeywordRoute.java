@@ -0,0 +1,31 @@
+package za.org.grassroot.services;
+
+import lombok.Getter;
+import lombok.ToString;
+import za.org.grassroot.core.enums.InboundKeywordType;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Where an inbound keyword leads: the uid of the campaign or group it opens (or, for geo API suffixes, the name of the
+ * API), and when it stops doing so, if ever.
+ */
+@Getter @ToString
+public final class InboundKeywordRoute {
+
+    private final InboundKeywordType type;
+    private final String targetUid;
+    private final Instant expiresAt;
+
+    public InboundKeywordRoute(InboundKeywordType type, String targetUid, Instant expiresAt) {
+        this.type = Objects.requireNonNull(type);
+        this.targetUid = Objects.requireNonNull(targetUid);
+        this.expiresAt = expiresAt;
+    }
+
+    public boolean isOpenAt(Instant time) {
+        return expiresAt == null || expiresAt.isAfter(time);
+    }
+
+}
@@ -0,0 +1,25 @@
+package za.org.grassroot.services;
+
+import za.org.grassroot.core.enums.InboundKeywordType;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Resolves the text of an inbound SMS, WhatsApp message or trailing USSD digits to the campaigns, groups or geo APIs
+ * it leads to, from one table held in memory, so channels do not each load every code and join word per message.
+ * Text is matched trimmed and ignoring case.
+ */
+public interface InboundKeywordRouter {
+
+    // all open routes for the text, in the order of the keyword types
+    List<InboundKeywordRoute> route(String text);
+
+    // the target of the first open route of this type for the text
+    Optional<String> findTarget(String text, InboundKeywordType type);
+
+    void rebuild();
+
+    String describeStats();
+
+}
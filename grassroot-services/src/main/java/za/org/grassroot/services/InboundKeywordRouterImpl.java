@@ -0,0 +1,228 @@
+package za.org.grassroot.services;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+import za.org.grassroot.core.domain.campaign.Campaign;
+import za.org.grassroot.core.enums.InboundKeywordType;
+import za.org.grassroot.core.events.InboundKeywordChangedEvent;
+import za.org.grassroot.core.repository.CampaignRepository;
+import za.org.grassroot.core.repository.GroupJoinCodeRepository;
+import za.org.grassroot.core.repository.GroupRepository;
+import za.org.grassroot.integration.location.LocationInfoBroker;
+
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * The table is an immutable map from keyword to routes, loaded in full on first use and every few minutes after, with
+ * keywords changed since the load held in a small overlay that is copied and swapped on each change. Changes are
+ * applied when their transaction commits; changes made on other nodes are picked up by the next full load. Any changes
+ * that come in while a load is running are replayed over it, since its queries may or may not have seen them. Geo API
+ * suffixes are fetched once, on the first load, as they were before.
+ */
+@Service @Slf4j
+public class InboundKeywordRouterImpl implements InboundKeywordRouter {
+
+    private final CampaignRepository campaignRepository;
+    private final GroupRepository groupRepository;
+    private final GroupJoinCodeRepository groupJoinCodeRepository;
+    private final LocationInfoBroker locationInfoBroker;
+    private final TransactionTemplate readTransaction;
+
+    private final Object loadLock = new Object();
+    private volatile Snapshot snapshot = Snapshot.unloaded();
+    private Map<String, String> geoApiSuffixes;
+
+    @Autowired
+    public InboundKeywordRouterImpl(CampaignRepository campaignRepository, GroupRepository groupRepository,
+                                    GroupJoinCodeRepository groupJoinCodeRepository, LocationInfoBroker locationInfoBroker,
+                                    PlatformTransactionManager transactionManager) {
+        this.campaignRepository = campaignRepository;
+        this.groupRepository = groupRepository;
+        this.groupJoinCodeRepository = groupJoinCodeRepository;
+        this.locationInfoBroker = locationInfoBroker;
+
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+    }
+
+    @Override
+    public List<InboundKeywordRoute> route(String text) {
+        final String key = key(text);
+        if (key.isEmpty())
+            return Collections.emptyList();
+
+        final List<InboundKeywordRoute> routes = loadedSnapshot().routesFor(key);
+        final Instant now = Instant.now();
+        if (routes.stream().allMatch(route -> route.isOpenAt(now)))
+            return routes;
+
+        final List<InboundKeywordRoute> open = new ArrayList<>(routes);
+        open.removeIf(route -> !route.isOpenAt(now));
+        return Collections.unmodifiableList(open);
+    }
+
+    @Override
+    public Optional<String> findTarget(String text, InboundKeywordType type) {
+        return route(text).stream().filter(route -> route.getType() == type)
+                .findFirst().map(InboundKeywordRoute::getTargetUid);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onKeywordChanged(InboundKeywordChangedEvent event) {
+        if (StringUtils.isEmpty(event.getKeyword()) || StringUtils.isEmpty(event.getTargetUid()))
+            return;
+
+        synchronized (this) {
+            snapshot = snapshot.with(event);
+        }
+        log.debug("Applied keyword change: {}", event);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        try {
+            loadedSnapshot();
+        } catch (RuntimeException e) {
+            log.warn("Could not load inbound keywords on startup, will load on first use: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    @Scheduled(cron = "${grassroot.keywords.rebuild.cron:0 */5 * * * *}")
+    public void rebuild() {
+        synchronized (loadLock) {
+            final long startTime = System.currentTimeMillis();
+            final int changesBefore = snapshot.changes.size();
+            final Map<String, List<InboundKeywordRoute>> routes = readTransaction.execute(status -> loadRoutes(Instant.now()));
+
+            synchronized (this) {
+                final List<InboundKeywordChangedEvent> changes = snapshot.changes;
+                Snapshot rebuilt = Snapshot.loaded(routes);
+                for (InboundKeywordChangedEvent change : changes.subList(changesBefore, changes.size()))
+                    rebuilt = rebuilt.with(change);
+                snapshot = rebuilt;
+            }
+
+            log.info("Rebuilt inbound keyword routes, {} keywords, took {} msecs", routes.size(),
+                    System.currentTimeMillis() - startTime);
+        }
+    }
+
+    @Override
+    public String describeStats() {
+        final Snapshot current = snapshot;
+        return String.format("loaded: %s, keywords: %d, changed since load: %d", current.isLoaded, current.base.size(),
+                current.changed.size());
+    }
+
+    private Snapshot loadedSnapshot() {
+        final Snapshot current = snapshot;
+        if (current.isLoaded)
+            return current;
+
+        synchronized (loadLock) {
+            if (!snapshot.isLoaded)
+                rebuild();
+            return snapshot;
+        }
+    }
+
+    private Map<String, List<InboundKeywordRoute>> loadRoutes(Instant now) {
+        final Map<String, List<InboundKeywordRoute>> routes = new HashMap<>();
+
+        for (Object[] row : campaignRepository.fetchActiveCampaignCodesAndTags(now)) {
+            final String campaignUid = (String) row[1];
+            final Instant endTime = (Instant) row[2];
+            addRoute(routes, (String) row[0], new InboundKeywordRoute(InboundKeywordType.CAMPAIGN_CODE, campaignUid, endTime));
+            final String[] tags = (String[]) row[3];
+            if (tags != null) {
+                Arrays.stream(tags).filter(tag -> tag != null && tag.startsWith(Campaign.PUBLIC_JOIN_WORD_PREFIX))
+                        .forEach(tag -> addRoute(routes, tag.substring(Campaign.PUBLIC_JOIN_WORD_PREFIX.length()),
+                                new InboundKeywordRoute(InboundKeywordType.CAMPAIGN_JOIN_WORD, campaignUid, endTime)));
+            }
+        }
+
+        groupJoinCodeRepository.fetchActiveCodesWithGroupUids().forEach(row -> addRoute(routes, (String) row[0],
+                new InboundKeywordRoute(InboundKeywordType.GROUP_JOIN_WORD, (String) row[1], null)));
+
+        groupRepository.fetchOpenJoinTokens(now).forEach(row -> addRoute(routes, (String) row[0],
+                new InboundKeywordRoute(InboundKeywordType.GROUP_JOIN_TOKEN, (String) row[1], (Instant) row[2])));
+
+        if (geoApiSuffixes == null)
+            geoApiSuffixes = locationInfoBroker.getAvailableSuffixes();
+        geoApiSuffixes.forEach((suffix, apiName) -> addRoute(routes, suffix,
+                new InboundKeywordRoute(InboundKeywordType.GEO_API_SUFFIX, apiName, null)));
+
+        routes.replaceAll((key, keyRoutes) -> sortedAndFixed(keyRoutes));
+        return routes;
+    }
+
+    private static void addRoute(Map<String, List<InboundKeywordRoute>> routes, String keyword, InboundKeywordRoute route) {
+        final String key = key(keyword);
+        if (!key.isEmpty())
+            routes.computeIfAbsent(key, k -> new ArrayList<>(1)).add(route);
+    }
+
+    private static List<InboundKeywordRoute> sortedAndFixed(List<InboundKeywordRoute> routes) {
+        if (routes.size() == 1)
+            return Collections.singletonList(routes.get(0));
+        routes.sort(Comparator.comparing(InboundKeywordRoute::getType));
+        return Collections.unmodifiableList(routes);
+    }
+
+    static String key(String text) {
+        return text == null ? "" : text.trim().toLowerCase();
+    }
+
+    private static final class Snapshot {
+        private final boolean isLoaded;
+        private final Map<String, List<InboundKeywordRoute>> base;
+        private final Map<String, List<InboundKeywordRoute>> changed; // keywords changed since the load, replacing its routes
+        private final List<InboundKeywordChangedEvent> changes; // in order, to replay over a load they came in during
+
+        private Snapshot(boolean isLoaded, Map<String, List<InboundKeywordRoute>> base,
+                         Map<String, List<InboundKeywordRoute>> changed, List<InboundKeywordChangedEvent> changes) {
+            this.isLoaded = isLoaded;
+            this.base = base;
+            this.changed = changed;
+            this.changes = changes;
+        }
+
+        private static Snapshot unloaded() {
+            return new Snapshot(false, Collections.emptyMap(), Collections.emptyMap(), Collections.emptyList());
+        }
+
+        private static Snapshot loaded(Map<String, List<InboundKeywordRoute>> base) {
+            return new Snapshot(true, base, Collections.emptyMap(), Collections.emptyList());
+        }
+
+        private List<InboundKeywordRoute> routesFor(String key) {
+            final List<InboundKeywordRoute> routes = changed.containsKey(key) ? changed.get(key) : base.get(key);
+            return routes == null ? Collections.emptyList() : routes;
+        }
+
+        private Snapshot with(InboundKeywordChangedEvent change) {
+            final String key = key(change.getKeyword());
+            final List<InboundKeywordRoute> routes = new ArrayList<>(routesFor(key));
+            routes.removeIf(route -> route.getType() == change.getType() && route.getTargetUid().equals(change.getTargetUid()));
+            if (!change.isClosed())
+                routes.add(new InboundKeywordRoute(change.getType(), change.getTargetUid(), change.getExpiresAt()));
+
+            final Map<String, List<InboundKeywordRoute>> newChanged = new HashMap<>(changed);
+            newChanged.put(key, sortedAndFixed(routes));
+            final List<InboundKeywordChangedEvent> newChanges = new ArrayList<>(changes);
+            newChanges.add(change);
+            return new Snapshot(isLoaded, base, Collections.unmodifiableMap(newChanged), Collections.unmodifiableList(newChanges));
+        }
+    }
+
+}
@@ -12,6 +12,7 @@ import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
+import za.org.grassroot.GrassrootExecutorsConfig;
 import za.org.grassroot.core.domain.Notification;
 import za.org.grassroot.core.domain.StandardRole;
 import za.org.grassroot.core.domain.User;
@@ -31,7 +32,6 @@ import za.org.grassroot.core.enums.UserInterfaceType;
 import za.org.grassroot.core.enums.UserLogType;
 import za.org.grassroot.core.repository.AccountRepository;
 import za.org.grassroot.core.repository.GroupRepository;
-import za.org.grassroot.core.repository.MembershipRepository;
 import za.org.grassroot.core.repository.UserRepository;
 import za.org.grassroot.core.specifications.GroupSpecifications;
 import za.org.grassroot.core.specifications.NotificationSpecifications;
@@ -73,7 +73,6 @@ public class AccountBrokerImpl implements AccountBroker {
     private final AccountRepository accountRepository;
     private final UserRepository userRepository;
     private final GroupRepository groupRepository;
-    private final MembershipRepository membershipRepository;
 
     private final LogsAndNotificationsBroker logsAndNotificationsBroker;
     private final PermissionBroker permissionBroker;
@@ -81,14 +80,14 @@ public class AccountBrokerImpl implements AccountBroker {
 
     private EntityManager entityManager;
     private LocationInfoBroker locationInfoBroker;
+    private AccountUsageBroker accountUsageBroker;
 
     @Autowired
-    public AccountBrokerImpl(AccountRepository accountRepository, UserRepository userRepository, GroupRepository groupRepository, MembershipRepository membershipRepository, PermissionBroker permissionBroker,
+    public AccountBrokerImpl(AccountRepository accountRepository, UserRepository userRepository, GroupRepository groupRepository, PermissionBroker permissionBroker,
                              LogsAndNotificationsBroker logsAndNotificationsBroker, ApplicationEventPublisher eventPublisher) {
         this.accountRepository = accountRepository;
         this.userRepository = userRepository;
         this.groupRepository = groupRepository;
-        this.membershipRepository = membershipRepository;
         this.permissionBroker = permissionBroker;
         this.logsAndNotificationsBroker = logsAndNotificationsBroker;
         this.eventPublisher = eventPublisher;
@@ -104,6 +103,11 @@ public class AccountBrokerImpl implements AccountBroker {
         this.locationInfoBroker = locationInfoBroker;
     }
 
+    @Autowired
+    public void setAccountUsageBroker(AccountUsageBroker accountUsageBroker) {
+        this.accountUsageBroker = accountUsageBroker;
+    }
+
     @Override
     public Account loadAccount(String accountUid) {
         return accountRepository.findOneByUid(accountUid);
@@ -379,7 +383,7 @@ public class AccountBrokerImpl implements AccountBroker {
                 .description(administrator.getUid()).build());
     }
 
-    @Async
+    @Async(GrassrootExecutorsConfig.BULK_EXECUTOR)
     @Override
     @Transactional
     public void addGroupsToAccount(String accountUid, Set<String> groupUids, String userUid) {
@@ -502,7 +506,7 @@ public class AccountBrokerImpl implements AccountBroker {
         if (group.getAccount() == null || !user.getAccountsAdministered().contains(group.getAccount()))
             throw new IllegalArgumentException("Error! Group is not on user's account");
 
-        return new GroupRefDTO(group, this.membershipRepository);
+        return new GroupRefDTO(group);
     }
 
     @Override
@@ -671,6 +675,7 @@ public class AccountBrokerImpl implements AccountBroker {
     public Map<String, Long> calculateAllChargesToAccounts(final Instant start, final Instant end) {
         Map<String, Long> counts = new HashMap<>();
         final List<Account> accounts = accountRepository.findAll(isEnabled());
+        final Map<String, AccountUsage> usage = accountUsageBroker.usageByAccount(start, end);
 
         long countSms = 0;
         long countUssd = 0;
@@ -679,8 +684,9 @@ public class AccountBrokerImpl implements AccountBroker {
         long costUssd = 0;
 
         for (Account account : accounts) {
-            final long ussdVol = countChargedUssdSessionsForAccount(account.getUid(), start, end);
-            final long smsVol = countAccountNotifications(account.getUid(), start, end);
+            final AccountUsage accountUsage = usage.getOrDefault(account.getUid(), AccountUsage.NONE);
+            final long ussdVol = accountUsage.getUssdSessions();
+            final long smsVol = accountUsage.getChargedNotifications();
             countUssd += ussdVol;
             countSms += smsVol;
             costUssd += ussdVol * account.getAvgUssdCost();
@@ -806,16 +812,37 @@ public class AccountBrokerImpl implements AccountBroker {
     @Transactional
     public void calculateAccountSpendingThisMonth(final String accountUid) {
         final Account account = accountRepository.findOneByUid(accountUid);
+        final AccountUsage usage = accountUsageBroker.usageForAccount(accountUid, DateTimeUtil.startOfMonth(ZoneOffset.UTC), Instant.now());
+        setSpendingThisMonth(account, usage);
+    }
 
+    @Override
+    @Transactional
+    @Scheduled(cron = "0 30 2 * * *") // runs at 2:30am UTC every day
+    public void updateAllAccountSpendingThisMonth() {
+        log.info("Initiating daily calculation of per-account spending this month");
+        List<Account> activeAccounts = loadAllAccounts(true);
+        // one pass over the month for all of them, mostly from the daily rollups, rather than a set of counts each
+        final Map<String, AccountUsage> usage = monthToDateUsage();
+        activeAccounts.forEach(account -> {
+            log.info("Scheduled job, about to calculate costs for: {}", account.getName());
+            setSpendingThisMonth(account, usage.getOrDefault(account.getUid(), AccountUsage.NONE));
+        });
+    }
+
+    private Map<String, AccountUsage> monthToDateUsage() {
         final ZoneOffset zoneToUse = ZoneOffset.UTC;
         final Instant start = DateTimeUtil.startOfMonth(zoneToUse);
         final Instant end = LocalDateTime.now().toInstant(zoneToUse);
+        return accountUsageBroker.usageByAccount(start, end);
+    }
 
+    private void setSpendingThisMonth(Account account, AccountUsage accountUsage) {
         final long baseFee = account.getMonthlyFlatFee();
 
         // get counts of: (1) sent notifications, (2) USSD sessions, (3) monthly flat fee
-        final long ussdSpend = countChargedUssdSessionsForAccount(accountUid, start, end) * account.getAvgUssdCost();
-        final long smsSpend = countAccountNotifications(accountUid, start, end) * account.getFreeFormCost();
+        final long ussdSpend = accountUsage.getUssdSessions() * account.getAvgUssdCost();
+        final long smsSpend = accountUsage.getChargedNotifications() * account.getFreeFormCost();
 
         final long totalSpent = baseFee + ussdSpend + smsSpend;
 
@@ -825,18 +852,6 @@ public class AccountBrokerImpl implements AccountBroker {
         account.setCurrentMonthSpend(totalSpent);
     }
 
-    @Override
-    @Transactional
-    @Scheduled(cron = "0 30 2 * * *") // runs at 2:30am UTC every day
-    public void updateAllAccountSpendingThisMonth() {
-        log.info("Initiating daily calculation of per-account spending this month");
-        List<Account> activeAccounts = loadAllAccounts(true);
-        activeAccounts.forEach(account -> {
-            log.info("Scheduled job, about to calculate costs for: {}", account.getName());
-            calculateAccountSpendingThisMonth(account.getUid());
-        });
-    }
-
     private long countNotificationsForDataSet(String dataSetLabel, Instant start, Instant end) {
         final String accountLogOnlyQueryText = countQueryOpening() +
                 "n.accountLog in (select al from AccountLog al where al.description like :dataSetStart)";
@@ -889,8 +904,7 @@ public class AccountBrokerImpl implements AccountBroker {
     private String countQueryOpening() {
         return "select count(n) from Notification n " +
                 "where n.createdDateTime between :start and :end and " +
-                "n.status in ('DELIVERED', 'READ') and " +
-                "n.deliveryChannel in ('SMS', 'SHORT_MESSAGE') and ";
+                AccountUsage.CHARGED_NOTIFICATION + " and ";
     }
 
     private long countSessionsForDatasets(Collection<String> dataSets, Instant start, Instant end) {
@@ -0,0 +1,18 @@
+package za.org.grassroot.services.account;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+@Getter @AllArgsConstructor @ToString
+public class AccountUsage {
+
+    public static final AccountUsage NONE = new AccountUsage(0, 0);
+
+    // the condition, on a notification n, for it to be charged to the account, in JPQL
+    static final String CHARGED_NOTIFICATION = "n.status in ('DELIVERED', 'READ') and n.deliveryChannel in ('SMS', 'SHORT_MESSAGE')";
+
+    private final long ussdSessions;
+    private final long chargedNotifications;
+
+}
@@ -0,0 +1,23 @@
+package za.org.grassroot.services.account;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Map;
+
+public interface AccountUsageBroker {
+
+    /**
+     * Charged USSD sessions and notifications for every account with any in the period (by account UID), summed from
+     * the daily rollups for the whole days that have them, and counted from the logs for the rest
+     */
+    Map<String, AccountUsage> usageByAccount(Instant start, Instant end);
+
+    // as above, for one account only
+    AccountUsage usageForAccount(String accountUid, Instant start, Instant end);
+
+    // (re)calculates the rollup of a UTC day, for all accounts
+    void rollUpDay(LocalDate day);
+
+    void rollUpRecentDays();
+
+}
@@ -0,0 +1,299 @@
+package za.org.grassroot.services.account;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import za.org.grassroot.core.domain.account.Account;
+import za.org.grassroot.core.domain.account.AccountUsageDay;
+import za.org.grassroot.core.enums.UserInterfaceType;
+import za.org.grassroot.core.enums.UserLogType;
+import za.org.grassroot.core.repository.AccountRepository;
+import za.org.grassroot.core.repository.AccountUsageDayRepository;
+import za.org.grassroot.integration.location.LocationInfoBroker;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Counts charged usage for all accounts at once, with one grouped query per kind of usage, rather than a set of
+ * queries per account (each of which dragged the account's task UIDs through as a parameter), and keeps a rollup of
+ * those counts per account per UTC day. Totals over a period sum the rollups for its whole days and count the rest
+ * (the current day, and any day not yet rolled up) from the logs. The counts match those of the per-account methods
+ * on the account broker, except that a day's usage stays with the account that paid for the group on that day.
+ * Usage for a single account runs the same queries, restricted to that account.
+ */
+@Service @Slf4j
+public class AccountUsageBrokerImpl implements AccountUsageBroker {
+
+    private static final ZoneOffset BILLING_ZONE = ZoneOffset.UTC; // as the month to date spend uses
+
+    private static final String USER_LOG_PERIOD = "ul.creationTime >= :start and ul.creationTime < :end";
+    private static final String USSD_SESSION = "ul.userLogType = :sessionType and ul.userInterface = :ussd and " + USER_LOG_PERIOD;
+    private static final String CHARGED_NOTIFICATION = "n.createdDateTime >= :start and n.createdDateTime < :end and " +
+            AccountUsage.CHARGED_NOTIFICATION;
+
+    private static final UsageQuery CAMPAIGN_SESSIONS_QUERY = new UsageQuery("c.account.id", "ul",
+            "UserLog ul, Campaign c where ul.description = c.uid and ul.userLogType = :campaignType and " + USER_LOG_PERIOD);
+    private static final List<UsageQuery> TASK_AND_GROUP_SESSION_QUERIES = Arrays.asList(
+            new UsageQuery("g.account.id", "ul", "UserLog ul, Group g where ul.description = g.uid and " + USSD_SESSION),
+            new UsageQuery("e.ancestorGroup.account.id", "ul", "UserLog ul, Event e where ul.description = e.uid and " + USSD_SESSION),
+            new UsageQuery("t.ancestorGroup.account.id", "ul", "UserLog ul, Todo t where ul.description = t.uid and " + USSD_SESSION));
+    private static final String DATA_SET_SESSIONS_QUERY = "select ul.description, count(ul) from UserLog ul " +
+            "where ul.userLogType = :geoType and " + USER_LOG_PERIOD + " group by ul.description";
+
+    private static final List<UsageQuery> NOTIFICATION_QUERIES = Arrays.asList(
+            new UsageQuery("gl.group.account.id", "n", "Notification n join n.groupLog gl where " + CHARGED_NOTIFICATION),
+            new UsageQuery("el.event.ancestorGroup.account.id", "n", "Notification n join n.eventLog el where " + CHARGED_NOTIFICATION),
+            new UsageQuery("tl.todo.ancestorGroup.account.id", "n", "Notification n join n.todoLog tl where " + CHARGED_NOTIFICATION),
+            new UsageQuery("cl.campaign.masterGroup.account.id", "n", "Notification n join n.campaignLog cl where " + CHARGED_NOTIFICATION),
+            new UsageQuery("al.account.id", "n", "Notification n join n.accountLog al " +
+                    "where n.groupLog is null and n.eventLog is null and n.todoLog is null and n.campaignLog is null and " +
+                    CHARGED_NOTIFICATION));
+
+    @Value("${grassroot.accounts.usage.backfill-days:35}")
+    private int backfillDays = 35;
+
+    @Value("${grassroot.accounts.usage.refresh-days:2}")
+    private int refreshDays = 2; // recent days are rolled up again, for notifications delivered after the day ended
+
+    private final AccountRepository accountRepository;
+    private final AccountUsageDayRepository accountUsageDayRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+
+    private LocationInfoBroker locationInfoBroker;
+
+    @Autowired
+    public AccountUsageBrokerImpl(AccountRepository accountRepository, AccountUsageDayRepository accountUsageDayRepository,
+                                  EntityManager entityManager, PlatformTransactionManager transactionManager) {
+        this.accountRepository = accountRepository;
+        this.accountUsageDayRepository = accountUsageDayRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Autowired(required = false)
+    public void setLocationInfoBroker(LocationInfoBroker locationInfoBroker) {
+        this.locationInfoBroker = locationInfoBroker;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, AccountUsage> usageByAccount(Instant start, Instant end) {
+        return sumUsage(start, end, null).entrySet().stream().collect(Collectors.toMap(Map.Entry::getKey,
+                entry -> new AccountUsage(entry.getValue()[0], entry.getValue()[1])));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public AccountUsage usageForAccount(String accountUid, Instant start, Instant end) {
+        final Account account = accountRepository.findOneByUid(Objects.requireNonNull(accountUid));
+        final long[] usage = sumUsage(start, end, account).get(accountUid);
+        return usage == null ? AccountUsage.NONE : new AccountUsage(usage[0], usage[1]);
+    }
+
+    // by account UID, for all accounts or only the one passed
+    private Map<String, long[]> sumUsage(Instant start, Instant end, Account onlyAccount) {
+        final long startTime = System.currentTimeMillis();
+        final Map<Long, Account> accounts = onlyAccount == null ? loadAccounts() :
+                Collections.singletonMap(onlyAccount.getId(), onlyAccount);
+        final Map<String, long[]> totals = new HashMap<>();
+
+        final LocalDate firstWholeDay = startOfDay(dayOf(start)).equals(start) ? dayOf(start) : dayOf(start).plusDays(1);
+        final LocalDate lastWholeDay = dayOf(end).minusDays(1);
+        final List<LocalDate> rolledUpDays = firstWholeDay.isAfter(lastWholeDay) ? Collections.emptyList() :
+                accountUsageDayRepository.findRolledUpDaysBetween(firstWholeDay, lastWholeDay);
+
+        if (!rolledUpDays.isEmpty()) {
+            (onlyAccount == null ? accountUsageDayRepository.sumUsageByAccountBetween(firstWholeDay, lastWholeDay) :
+                    accountUsageDayRepository.sumUsageForAccountBetween(onlyAccount.getUid(), firstWholeDay, lastWholeDay)).forEach(row -> {
+                final long[] total = totals.computeIfAbsent((String) row[0], uid -> new long[2]);
+                total[0] += ((Number) row[1]).longValue();
+                total[1] += ((Number) row[2]).longValue();
+            });
+        }
+
+        // and count whatever lies between the rolled up days
+        Instant countedUpTo = start;
+        int liveIntervals = 0;
+        for (LocalDate day : rolledUpDays) {
+            if (countedUpTo.isBefore(startOfDay(day))) {
+                addCounts(totals, countUsage(countedUpTo, startOfDay(day), accounts, onlyAccount), accounts);
+                liveIntervals++;
+            }
+            countedUpTo = startOfDay(day.plusDays(1));
+        }
+        if (countedUpTo.isBefore(end)) {
+            addCounts(totals, countUsage(countedUpTo, end, accounts, onlyAccount), accounts);
+            liveIntervals++;
+        }
+
+        log.info("Usage for {} accounts from {} to {}, {} days from rollups and {} intervals counted, took {} msecs",
+                totals.size(), start, end, rolledUpDays.size(), liveIntervals, System.currentTimeMillis() - startTime);
+        return totals;
+    }
+
+    /**
+     * Synchronized so the scheduled rollup and one triggered by an admin do not both insert a day's rows; if another
+     * node inserts them first, the unique key on account and day fails this one, and it runs again to update them.
+     */
+    @Override
+    public synchronized void rollUpDay(LocalDate day) {
+        final long startTime = System.currentTimeMillis();
+        int rows;
+        try {
+            rows = storeRollup(day);
+        } catch (DataIntegrityViolationException e) {
+            log.info("Rollup for {} stored concurrently elsewhere, recalculating over it: {}", day, e.getMessage());
+            rows = storeRollup(day);
+        }
+        log.info("Rolled up account usage for {}, {} accounts, took {} msecs", day, rows, System.currentTimeMillis() - startTime);
+    }
+
+    private int storeRollup(LocalDate day) {
+        return transactionTemplate.execute(status -> {
+            final Map<Long, Account> accounts = loadAccounts();
+            final Map<Long, long[]> usage = countUsage(startOfDay(day), startOfDay(day.plusDays(1)), accounts, null);
+
+            // a row for every enabled account, even if zero, so the day shows as rolled up
+            accounts.values().stream().filter(account -> account.isEnabled() && !account.isClosed())
+                    .forEach(account -> usage.computeIfAbsent(account.getId(), id -> new long[2]));
+
+            final Map<Long, AccountUsageDay> existing = accountUsageDayRepository.findByUsageDate(day).stream()
+                    .collect(Collectors.toMap(row -> row.getAccount().getId(), Function.identity()));
+            existing.forEach((accountId, row) -> usage.computeIfAbsent(accountId, id -> new long[2]));
+
+            usage.forEach((accountId, counts) -> {
+                final AccountUsageDay row = existing.get(accountId);
+                if (row != null)
+                    row.updateUsage(counts[0], counts[1]);
+                else
+                    accountUsageDayRepository.save(new AccountUsageDay(accounts.get(accountId), day, counts[0], counts[1]));
+            });
+            accountUsageDayRepository.flush(); // so a clash on the unique key shows here rather than at commit
+            return usage.size();
+        });
+    }
+
+    @Override
+    @Scheduled(cron = "${grassroot.accounts.usage.rollup.cron:0 15 0 * * *}") // before the month to date spend is updated
+    public void rollUpRecentDays() {
+        final LocalDate yesterday = LocalDate.now(BILLING_ZONE).minusDays(1);
+        final LocalDate earliest = yesterday.minusDays(backfillDays - 1);
+        final LocalDate earliestRefreshed = yesterday.minusDays(refreshDays - 1);
+        final Set<LocalDate> rolledUpDays = new HashSet<>(accountUsageDayRepository.findRolledUpDaysBetween(earliest, yesterday));
+        for (LocalDate day = earliest; !day.isAfter(yesterday); day = day.plusDays(1)) {
+            if (!day.isBefore(earliestRefreshed) || !rolledUpDays.contains(day)) {
+                rollUpDay(day);
+            }
+        }
+    }
+
+    private Map<Long, Account> loadAccounts() {
+        return accountRepository.findAll().stream().collect(Collectors.toMap(Account::getId, Function.identity()));
+    }
+
+    // by account ID, USSD sessions and charged notifications, for the accounts passed, or only one if it is not null
+    private Map<Long, long[]> countUsage(Instant start, Instant end, Map<Long, Account> accounts, Account onlyAccount) {
+        final Map<Long, long[]> usage = new HashMap<>();
+
+        addGroupedCounts(usage, 0, createQuery(CAMPAIGN_SESSIONS_QUERY, onlyAccount)
+                .setParameter("campaignType", UserLogType.CAMPAIGN_ENGAGED), start, end);
+        TASK_AND_GROUP_SESSION_QUERIES.forEach(query -> addGroupedCounts(usage, 0, createQuery(query, onlyAccount)
+                .setParameter("sessionType", UserLogType.USER_SESSION)
+                .setParameter("ussd", UserInterfaceType.USSD), start, end));
+        addDataSetSessions(usage, start, end, accounts);
+
+        NOTIFICATION_QUERIES.forEach(query -> addGroupedCounts(usage, 1, createQuery(query, onlyAccount), start, end));
+
+        return usage;
+    }
+
+    private TypedQuery<Object[]> createQuery(UsageQuery query, Account onlyAccount) {
+        if (onlyAccount == null)
+            return entityManager.createQuery(query.forAllAccounts(), Object[].class);
+        return entityManager.createQuery(query.forOneAccount(), Object[].class).setParameter("accountId", onlyAccount.getId());
+    }
+
+    private void addGroupedCounts(Map<Long, long[]> usage, int index, TypedQuery<Object[]> query, Instant start, Instant end) {
+        query.setParameter("start", start).setParameter("end", end).getResultList().forEach(row -> {
+            if (row[0] != null)
+                usage.computeIfAbsent((Long) row[0], id -> new long[2])[index] += ((Number) row[1]).longValue();
+        });
+    }
+
+    private void addDataSetSessions(Map<Long, long[]> usage, Instant start, Instant end, Map<Long, Account> accounts) {
+        final List<Account> sponsors = accounts.values().stream().filter(Account::sponsorsDataSet).collect(Collectors.toList());
+        if (locationInfoBroker == null || sponsors.isEmpty())
+            return;
+
+        final Map<String, Long> sessionsByDataSet = entityManager.createQuery(DATA_SET_SESSIONS_QUERY, Object[].class)
+                .setParameter("geoType", UserLogType.GEO_APIS_CALLED)
+                .setParameter("start", start).setParameter("end", end)
+                .getResultList().stream()
+                .collect(Collectors.toMap(row -> (String) row[0], row -> ((Number) row[1]).longValue(), Long::sum));
+        if (sessionsByDataSet.isEmpty())
+            return;
+
+        sponsors.forEach(account -> {
+            final List<String> labels = locationInfoBroker.getDatasetLabelsForAccount(account.getUid());
+            final long sessions = labels == null ? 0 : labels.stream().mapToLong(label -> sessionsByDataSet.getOrDefault(label, 0L)).sum();
+            if (sessions > 0)
+                usage.computeIfAbsent(account.getId(), id -> new long[2])[0] += sessions;
+        });
+    }
+
+    private void addCounts(Map<String, long[]> totals, Map<Long, long[]> counts, Map<Long, Account> accounts) {
+        counts.forEach((accountId, count) -> {
+            final Account account = accounts.get(accountId);
+            if (account != null) {
+                final long[] total = totals.computeIfAbsent(account.getUid(), uid -> new long[2]);
+                total[0] += count[0];
+                total[1] += count[1];
+            }
+        });
+    }
+
+    // a count grouped by the account that pays for what is counted, for all accounts or restricted to one
+    private static final class UsageQuery {
+        private final String accountPath;
+        private final String counted;
+        private final String fromAndWhere;
+
+        private UsageQuery(String accountPath, String counted, String fromAndWhere) {
+            this.accountPath = accountPath;
+            this.counted = counted;
+            this.fromAndWhere = fromAndWhere;
+        }
+
+        private String forAllAccounts() {
+            return "select " + accountPath + ", count(" + counted + ") from " + fromAndWhere + " group by " + accountPath;
+        }
+
+        private String forOneAccount() {
+            return "select " + accountPath + ", count(" + counted + ") from " + fromAndWhere + " and " + accountPath +
+                    " = :accountId group by " + accountPath;
+        }
+    }
+
+    private static LocalDate dayOf(Instant instant) {
+        return instant.atOffset(BILLING_ZONE).toLocalDate();
+    }
+
+    private static Instant startOfDay(LocalDate day) {
+        return day.atStartOfDay().toInstant(BILLING_ZONE);
+    }
+
+}
@@ -15,7 +15,6 @@ import za.org.grassroot.core.domain.geo.UserLocationLog;
 import za.org.grassroot.core.enums.LocationSource;
 import za.org.grassroot.core.enums.UserInterfaceType;
 import za.org.grassroot.core.enums.UserLogType;
-import za.org.grassroot.core.repository.UserLocationLogRepository;
 import za.org.grassroot.core.repository.UserLogRepository;
 import za.org.grassroot.core.repository.UserRepository;
 import za.org.grassroot.services.util.CacheUtilService;
@@ -38,14 +37,14 @@ public class AsyncUserLoggerImpl implements AsyncUserLogger {
 
     private final UserRepository userRepository;
     private final UserLogRepository userLogRepository;
-    private final UserLocationLogRepository userLocationLogRepository;
+    private final WriteBehindLogSink logSink;
     private final CacheUtilService cacheUtilService;
 
     @Autowired
-    public AsyncUserLoggerImpl(UserRepository userRepository, UserLogRepository userLogRepository, UserLocationLogRepository userLocationLogRepository, CacheUtilService cacheUtilService) {
+    public AsyncUserLoggerImpl(UserRepository userRepository, UserLogRepository userLogRepository, WriteBehindLogSink logSink, CacheUtilService cacheUtilService) {
         this.userRepository = userRepository;
         this.userLogRepository = userLogRepository;
-        this.userLocationLogRepository = userLocationLogRepository;
+        this.logSink = logSink;
         this.cacheUtilService = cacheUtilService;
     }
 
@@ -70,30 +69,25 @@ public class AsyncUserLoggerImpl implements AsyncUserLogger {
             user.addStandardRole(StandardRole.ROLE_FULL_USER);
         }
 
-        userLogRepository.save(new UserLog(userUid, UserLogType.USER_SESSION, "", channel));
+        logSink.record(new UserLog(userUid, UserLogType.USER_SESSION, "", channel));
     }
 
-    @Async
     @Override
-    @Transactional
     public void recordUserLog(String userUid, UserLogType userLogType, String description, UserInterfaceType channel) {
         Objects.requireNonNull(userUid);
         Objects.requireNonNull(userLogType);
         UserLog userLog = new UserLog(userUid, userLogType, description,
                 channel == null ? UNKNOWN : channel);
-        userLogRepository.saveAndFlush(userLog);
+        logSink.record(userLog);
     }
 
-    @Async
     @Override
-    @Transactional
     public void storeUserLogs(Set<UserLog> userLogSet) {
-        userLogRepository.saveAll(userLogSet);
+        userLogSet.forEach(logSink::record);
     }
 
     @Async
     @Override
-    @Transactional
     public void recordUserSession(String userUid, UserInterfaceType interfaceType, UidIdentifiable linkedEntity) {
         Objects.requireNonNull(userUid);
         Objects.requireNonNull(interfaceType);
@@ -112,27 +106,22 @@ public class AsyncUserLoggerImpl implements AsyncUserLogger {
         log.debug("New session for user, recording in logs ... should be off main thread. User ID: {}, channel: {}", userUid, interfaceType);
 
         cacheUtilService.setSessionOpen(userUid, interfaceType);
-        userLogRepository.save(new UserLog(userUid, UserLogType.USER_SESSION, description, interfaceType));
+        logSink.record(new UserLog(userUid, UserLogType.USER_SESSION, description, interfaceType));
     }
 
     @Override
-    @Transactional
     public void recordUserLocation(String userUid, GeoLocation location, LocationSource locationSource, UserInterfaceType channel) {
         log.info("Recording user's location from explicit pin send");
-        UserLocationLog locationLog = new UserLocationLog(Instant.now(), userUid, location, locationSource);
-        userLocationLogRepository.save(locationLog);
-        log.info("Completed log recording");
+        logSink.record(new UserLocationLog(Instant.now(), userUid, location, locationSource));
     }
 
-    @Async
     @Override
-    @Transactional
     public void recordUssdInterruption(String userUid, String savedUrl) {
         Objects.requireNonNull(userUid);
         Objects.requireNonNull(savedUrl);
 
         // note: given pattern of USSD calls, this may not catch all (e.g., "set my name")
-        userLogRepository.save(new UserLog(userUid, UserLogType.USSD_INTERRUPTED, stripParameters(savedUrl), USSD));
+        logSink.record(new UserLog(userUid, UserLogType.USSD_INTERRUPTED, stripParameters(savedUrl), USSD));
     }
 
     private String stripParameters(String url) {
@@ -146,9 +135,7 @@ public class AsyncUserLoggerImpl implements AsyncUserLogger {
         return stripped;
     }
 
-    @Async
     @Override
-    @Transactional
     public void recordUserInputtedDateTime(String userUid, String dateTimeString, String action, UserInterfaceType interfaceType) {
 
         Objects.requireNonNull(userUid);
@@ -156,7 +143,7 @@ public class AsyncUserLoggerImpl implements AsyncUserLogger {
 
         String description = ((action != null) ? "action: " + action + ", " : "") + "input: " + dateTimeString;
         log.info("Storing user inputted date-time as ... {}", description);
-        userLogRepository.save(new UserLog(userUid, UserLogType.USSD_DATE_ENTERED, description, interfaceType));
+        logSink.record(new UserLog(userUid, UserLogType.USSD_DATE_ENTERED, description, interfaceType));
     }
 
     @Override
@@ -174,19 +161,19 @@ public class AsyncUserLoggerImpl implements AsyncUserLogger {
     @Override
     @Transactional(readOnly = true)
     public boolean hasSkippedName(String userUid) {
-        return (int) userLogRepository.count(where(forUser(userUid))
+        return logSink.hasPending(userUid, UserLogType.USER_SKIPPED_NAME) || (int) userLogRepository.count(where(forUser(userUid))
                 .and(ofType(UserLogType.USER_SKIPPED_NAME))) > 0;
     }
 
     @Override
     public boolean hasSkippedProvince(String userUid) {
-        return (int) userLogRepository.count(where(forUser(userUid))
+        return logSink.hasPending(userUid, UserLogType.USER_SKIPPED_PROVINCE) || (int) userLogRepository.count(where(forUser(userUid))
                 .and(ofType(UserLogType.USER_SKIPPED_PROVINCE))) > 0;
     }
 
     @Override
     public boolean hasChangedLanguage(String userUid) {
-        return userLogRepository.count(where(forUser(userUid))
+        return logSink.hasPending(userUid, UserLogType.CHANGED_LANGUAGE) || userLogRepository.count(where(forUser(userUid))
                 .and(ofType(UserLogType.CHANGED_LANGUAGE))) > 0;
     }
 
@@ -0,0 +1,270 @@
+package za.org.grassroot.services.async;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import za.org.grassroot.GrassrootExecutorsConfig;
+import za.org.grassroot.core.domain.UserLog;
+import za.org.grassroot.core.domain.geo.UserLocationLog;
+import za.org.grassroot.core.enums.UserLogType;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Holds user logs and user location logs in a bounded buffer and inserts them in JDBC batches, instead of one
+ * transaction per row. The buffer is flushed on the scheduler every max delay, and on the bulk pool as soon as a full
+ * batch is waiting; only one flush runs at a time. When the buffer is full a row is dropped, or with the "block" policy
+ * the caller waits a short while for space first. Rows still buffered are written on shutdown. With write-behind
+ * disabled (as in most tests) each row is inserted straight away, in the caller's transaction.
+ */
+@Component @Slf4j
+public class WriteBehindLogSink {
+
+    private static final String INSERT_USER_LOG = "insert into user_log " +
+            "(uid, creation_time, user_log_type, user_uid, description, user_interface) values (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_USER_LOCATION_LOG = "insert into user_location_log " +
+            "(uid, timestamp, user_uid, latitude, longitude, source) values (?, ?, ?, ?, ?, ?)";
+
+    @Value("${grassroot.logs.write-behind.enabled:true}")
+    private boolean enabled = true;
+
+    @Value("${grassroot.logs.write-behind.capacity:20000}")
+    private int capacity = 20000;
+
+    @Value("${grassroot.logs.write-behind.batch-size:500}")
+    private int batchSize = 500;
+
+    @Value("${grassroot.logs.write-behind.max-delay-ms:1000}")
+    private long maxDelayMillis = 1000;
+
+    @Value("${grassroot.logs.write-behind.overflow:drop}")
+    private String overflowPolicy = "drop"; // or "block"
+
+    @Value("${grassroot.logs.write-behind.block-timeout-ms:200}")
+    private long blockTimeoutMillis = 200;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate writeTransaction;
+
+    private BlockingQueue<PendingRow> queue;
+    private volatile int inFlight;
+    // user logs queued or in flight, by user and type, counted from before a row is queued until its write is done, so
+    // checks for a pending log need not look through the buffer
+    private final ConcurrentMap<String, Integer> pendingCounts = new ConcurrentHashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private Executor flushExecutor = Runnable::run;
+
+    private final AtomicLong recorded = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong totalFlushMillis = new AtomicLong();
+    private volatile long lastFlushMillis;
+
+    @Autowired
+    public WriteBehindLogSink(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.writeTransaction = new TransactionTemplate(transactionManager);
+    }
+
+    @Autowired(required = false)
+    public void setFlushExecutor(@Qualifier(GrassrootExecutorsConfig.BULK_EXECUTOR) Executor flushExecutor) {
+        this.flushExecutor = flushExecutor;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            log.info("Write-behind of user logs disabled, inserting each as it is recorded");
+            return;
+        }
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        log.info("Write-behind of user logs started, capacity {}, batch size {}, max delay {} msecs, overflow policy {}",
+                capacity, batchSize, maxDelayMillis, overflowPolicy);
+    }
+
+    public void record(UserLog userLog) {
+        record(new PendingRow(INSERT_USER_LOG, userLog.getUserUid(), userLog.getUserLogType(), new Object[] {
+                userLog.getUid(), Timestamp.from(userLog.getCreationTime()), userLog.getUserLogType().name(),
+                userLog.getUserUid(), userLog.getDescription(),
+                userLog.getUserInterface() == null ? null : userLog.getUserInterface().name() }));
+    }
+
+    public void record(UserLocationLog locationLog) {
+        record(new PendingRow(INSERT_USER_LOCATION_LOG, locationLog.getUserUid(), null, new Object[] {
+                locationLog.getUid(), Timestamp.from(locationLog.getTimestamp()), locationLog.getUserUid(),
+                locationLog.getLocation().getLatitude(), locationLog.getLocation().getLongitude(),
+                locationLog.getLocationSource().name() }));
+    }
+
+    // lets checks for a log that has just been recorded see it before it reaches the table
+    public boolean hasPending(String userUid, UserLogType userLogType) {
+        return enabled && pendingCounts.containsKey(pendingKey(userUid, userLogType));
+    }
+
+    private void record(PendingRow row) {
+        recorded.incrementAndGet();
+        if (!enabled) {
+            jdbcTemplate.update(row.sql, row.args);
+            written.incrementAndGet();
+            return;
+        }
+
+        addPending(row);
+        boolean queued;
+        try {
+            queued = "block".equals(overflowPolicy) ? queue.offer(row, blockTimeoutMillis, TimeUnit.MILLISECONDS) : queue.offer(row);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued = false;
+        }
+
+        if (!queued) {
+            removePending(row);
+            dropped.incrementAndGet();
+            log.warn("User log buffer full, dropping log for user {}", row.userUid);
+        } else if (queue.size() >= batchSize && flushRequested.compareAndSet(false, true)) {
+            flushExecutor.execute(() -> {
+                flushRequested.set(false);
+                flush();
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${grassroot.logs.write-behind.max-delay-ms:1000}")
+    public void flush() {
+        if (!enabled || !flushLock.tryLock())
+            return; // a flush already running will pick up what is queued
+        try {
+            writeQueued();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void writeQueued() {
+        List<PendingRow> batch;
+        do {
+            batch = new ArrayList<>(batchSize);
+            queue.drainTo(batch, batchSize);
+            inFlight = batch.size();
+            if (!batch.isEmpty()) {
+                write(batch);
+                batch.forEach(this::removePending);
+            }
+            inFlight = 0;
+        } while (batch.size() == batchSize);
+    }
+
+    private void write(List<PendingRow> batch) {
+        final long startTime = System.currentTimeMillis();
+        final List<Object[]> userLogRows = new ArrayList<>();
+        final List<Object[]> locationLogRows = new ArrayList<>();
+        batch.forEach(row -> (row.sql.equals(INSERT_USER_LOG) ? userLogRows : locationLogRows).add(row.args));
+
+        try {
+            writeTransaction.execute(status -> {
+                if (!userLogRows.isEmpty())
+                    jdbcTemplate.batchUpdate(INSERT_USER_LOG, userLogRows);
+                if (!locationLogRows.isEmpty())
+                    jdbcTemplate.batchUpdate(INSERT_USER_LOCATION_LOG, locationLogRows);
+                return null;
+            });
+            written.addAndGet(batch.size());
+        } catch (RuntimeException e) {
+            log.error("Error writing batch of {} user logs, writing them one by one: {}", batch.size(), e.getMessage());
+            batch.forEach(this::writeSingle);
+        }
+
+        lastFlushMillis = System.currentTimeMillis() - startTime;
+        totalFlushMillis.addAndGet(lastFlushMillis);
+        flushes.incrementAndGet();
+    }
+
+    private void writeSingle(PendingRow row) {
+        try {
+            jdbcTemplate.update(row.sql, row.args);
+            written.incrementAndGet();
+        } catch (DataAccessException e) {
+            log.error("Dropping user log for user {} that could not be written: {}", row.userUid, e.getMessage());
+            failed.incrementAndGet();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() throws InterruptedException {
+        if (queue == null)
+            return;
+        log.info("Writing {} buffered user logs before shutdown", queue.size());
+        if (!flushLock.tryLock(30, TimeUnit.SECONDS)) {
+            log.error("User log flush still running after 30 secs, {} logs left unwritten", queue.size());
+            return;
+        }
+        try {
+            writeQueued();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public String describeStats() {
+        final long flushCount = flushes.get();
+        return String.format("enabled: %s, buffered: %d, in flight: %d, recorded: %d, dropped: %d, written: %d, " +
+                        "failed: %d, flushes: %d, mean flush: %d msecs, last flush: %d msecs",
+                enabled, queue == null ? 0 : queue.size(), inFlight, recorded.get(), dropped.get(),
+                written.get(), failed.get(), flushCount, flushCount == 0 ? 0 : totalFlushMillis.get() / flushCount,
+                lastFlushMillis);
+    }
+
+    private void addPending(PendingRow row) {
+        if (row.userLogType != null)
+            pendingCounts.merge(pendingKey(row.userUid, row.userLogType), 1, Integer::sum);
+    }
+
+    // entries are removed when their count reaches zero, so the map holds only users with logs still to write
+    private void removePending(PendingRow row) {
+        if (row.userLogType != null)
+            pendingCounts.computeIfPresent(pendingKey(row.userUid, row.userLogType), (key, count) -> count == 1 ? null : count - 1);
+    }
+
+    private static String pendingKey(String userUid, UserLogType userLogType) {
+        return userUid + ":" + userLogType;
+    }
+
+    private static final class PendingRow {
+        private final String sql;
+        private final String userUid;
+        private final UserLogType userLogType; // null for location logs
+        private final Object[] args;
+
+        private PendingRow(String sql, String userUid, UserLogType userLogType, Object[] args) {
+            this.sql = sql;
+            this.userUid = userUid;
+            this.userLogType = userLogType;
+            this.args = args;
+        }
+    }
+
+}
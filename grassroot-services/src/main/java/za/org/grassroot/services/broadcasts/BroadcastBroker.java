@@ -36,4 +36,7 @@ public interface BroadcastBroker {
     // needs to be in interface so picked up by entities, todo : find why not called anymore
     void sendScheduledBroadcasts();
 
+    // carries on generating short messages for broadcasts whose generation was interrupted
+    void resumeShortMessageGeneration();
+
 }
@@ -1,5 +1,6 @@
 package za.org.grassroot.services.broadcasts;
 
+import com.google.common.collect.Lists;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -13,6 +14,8 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.StringUtils;
 import za.org.grassroot.core.GrassrootApplicationProfiles;
 import za.org.grassroot.core.domain.ActionLog;
@@ -37,6 +40,7 @@ import za.org.grassroot.core.domain.notification.GroupBroadcastNotification;
 import za.org.grassroot.core.domain.notification.NotificationStatus;
 import za.org.grassroot.core.dto.BroadcastDTO;
 import za.org.grassroot.core.dto.GrassrootEmail;
+import za.org.grassroot.core.dto.UserBroadcastProjection;
 import za.org.grassroot.core.dto.task.TaskDTO;
 import za.org.grassroot.core.enums.*;
 import za.org.grassroot.core.repository.*;
@@ -54,6 +58,7 @@ import za.org.grassroot.services.util.LogsAndNotificationsBundle;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -64,6 +69,7 @@ import static za.org.grassroot.core.specifications.NotificationSpecifications.*;
 public class BroadcastBrokerImpl implements BroadcastBroker {
 
     private static final String RESEND_PREFIX = "[RESENT] ";
+    private static final int RECIPIENT_LOAD_BATCH_SIZE = 1000;
 
     @Value("${grassroot.broadcast.mocksm.enabled:false}")
     private boolean mockSocialMediaBroadcasts;
@@ -87,6 +93,8 @@ public class BroadcastBrokerImpl implements BroadcastBroker {
     private final AccountLogRepository accountLogRepository;
     private final CampaignLogRepository campaignLogRepository;
 
+    private final BroadcastNotificationWriter notificationWriter;
+
     private final Environment environment;
 
     private PasswordTokenService tokenService;
@@ -96,7 +104,8 @@ public class BroadcastBrokerImpl implements BroadcastBroker {
                                CampaignRepository campaignRepository, MembershipRepository membershipRepository, GroupFetchBroker groupFetchBroker,
                                TaskBroker taskBroker, MessagingServiceBroker messagingServiceBroker, SocialMediaBroker socialMediaBroker,
                                LogsAndNotificationsBroker logsAndNotificationsBroker, AccountLogRepository accountLogRepository,
-                               CampaignLogRepository campaignLogRepository, Environment environment) {
+                               CampaignLogRepository campaignLogRepository, BroadcastNotificationWriter notificationWriter,
+                               Environment environment) {
         this.broadcastRepository = broadcastRepository;
         this.userRepository = userRepository;
         this.groupRepository = groupRepository;
@@ -109,6 +118,7 @@ public class BroadcastBrokerImpl implements BroadcastBroker {
         this.logsAndNotificationsBroker = logsAndNotificationsBroker;
         this.accountLogRepository = accountLogRepository;
         this.campaignLogRepository = campaignLogRepository;
+        this.notificationWriter = notificationWriter;
         this.environment = environment;
     }
 
@@ -595,57 +605,21 @@ public class BroadcastBrokerImpl implements BroadcastBroker {
         groupLog.setBroadcast(bc);
         bundle.addLog(groupLog);
 
-        List<String> topicRestrictions = bc.getTopics();
-        List<Province> provinceResrictions = bc.getProvinces();
-        List<String> taskTeamUids = bc.getTaskTeams();
-        List<String> affiliations = bc.getAffiliations();
-        JoinDateCondition joinDateCondition = bc.getJoinDateCondition().orElse(null);
-        LocalDate joinDate = bc.getJoinDate().orElse(null);
-
-        List<Membership> membersToReceive;
-
-        log.info("Generating group broadcast, join date condition {}, join date {}", joinDateCondition, joinDate);
-
-        if (bc.hasFilter()) {
-            membersToReceive = groupFetchBroker.filterGroupMembers(
-                    bc.getCreatedByUser(), group.getUid(),
-                    provinceResrictions, bc.getNoProvinceRestriction().orElse(null),
-                    taskTeamUids, topicRestrictions, affiliations, bc.getJoinMethods(),
-                    null, null, joinDate, joinDateCondition, bc.getNamePhoneEmailFilter(), bc.getFilterLanguages(), null);
-        } else if (bc.hasTask()) {
-            membersToReceive = taskBroker.fetchMembersAssignedToTask(bc.getCreatedByUser().getUid(),
-                    bc.getTaskUid(), bc.getTaskType(), bc.taskOnlyPositive());
-        } else {
-            membersToReceive = membershipRepository.findByGroupUid(group.getUid());
-        }
-
-        log.info("finished fetching members by topic, province, join date, etc., found {} members", membersToReceive.size());
+        List<UserBroadcastProjection> recipients = fetchGroupRecipients(bc);
+        log.info("finished fetching members by topic, province, join date, etc., found {} members", recipients.size());
 
         if (bc.hasEmail()) {
-            Set<User> emailUsers = membersToReceive.stream().map(Membership::getUser)
-                    .filter(User::hasEmailAddress).collect(Collectors.toSet());
+            Set<User> emailUsers = new HashSet<>(loadRecipientUsers(recipients.stream()
+                    .filter(UserBroadcastProjection::hasEmailAddress).collect(Collectors.toList())).values());
             log.info("broadcast has an email, sending it to {} users, bc ID = {}", emailUsers.size(), bc.getUid());
             handleBroadcastEmails(bc, groupLog, emailUsers, bundle);
         }
 
         long smsCount = 0;
         if (bc.hasShortMessage()) {
-            boolean skipUsersWithEmail = bc.isSkipSmsIfEmail() && bc.hasEmail();
-            log.info("sending short message ... skipping emails? {}", skipUsersWithEmail);
-            Set<User> shortMessageUsers = skipUsersWithEmail ?
-                    membersToReceive.stream().map(Membership::getUser).filter(u -> !u.hasEmailAddress() && u.hasPhoneNumber()).collect(Collectors.toSet()) :
-                    membersToReceive.stream().map(Membership::getUser).filter(User::hasPhoneNumber).collect(Collectors.toSet());
-            log.info("now generating {} notifications", shortMessageUsers.size());
-            Set<Notification> shortMessageNotifications = new HashSet<>();
-            shortMessageUsers.forEach(u -> {
-                GroupBroadcastNotification notification = new GroupBroadcastNotification(u,
-                        bc.getShortMsgIncludingMerge(u), bc,
-                        u.getMessagingPreference(), groupLog);
-                notification.setUseOnlyFreeChannels(bc.isOnlyUseFreeChannels());
-                shortMessageNotifications.add(notification);
-            });
-            bundle.addNotifications(shortMessageNotifications);
-            smsCount = shortMessageUsers.size();
+            List<UserBroadcastProjection> shortMessageRecipients = shortMessageRecipients(bc, recipients);
+            writeShortMessagesAfterCommit(bc, shortMessageRecipients);
+            smsCount = shortMessageRecipients.size();
         }
 
         if (bc.getAccount() != null) {
@@ -655,6 +629,71 @@ public class BroadcastBrokerImpl implements BroadcastBroker {
         return bundle;
     }
 
+    private List<UserBroadcastProjection> fetchGroupRecipients(Broadcast bc) {
+        JoinDateCondition joinDateCondition = bc.getJoinDateCondition().orElse(null);
+        LocalDate joinDate = bc.getJoinDate().orElse(null);
+        log.info("Fetching group broadcast recipients, join date condition {}, join date {}", joinDateCondition, joinDate);
+
+        if (bc.hasFilter()) {
+            return groupFetchBroker.filterGroupMemberRecipients(
+                    bc.getCreatedByUser(), bc.getGroup().getUid(),
+                    bc.getProvinces(), bc.getNoProvinceRestriction().orElse(null),
+                    bc.getTaskTeams(), bc.getTopics(), bc.getAffiliations(), bc.getJoinMethods(),
+                    null, null, joinDate, joinDateCondition, bc.getNamePhoneEmailFilter(), bc.getFilterLanguages(), null);
+        }
+
+        if (!bc.hasTask())
+            return membershipRepository.findBroadcastRecipientsByGroupUid(bc.getGroup().getUid());
+
+        List<Membership> membersToReceive = taskBroker.fetchMembersAssignedToTask(bc.getCreatedByUser().getUid(),
+                bc.getTaskUid(), bc.getTaskType(), bc.taskOnlyPositive());
+        return membersToReceive.stream().map(Membership::getUser).distinct()
+                .map(UserBroadcastProjection::extractFromUser).collect(Collectors.toList());
+    }
+
+    private List<UserBroadcastProjection> shortMessageRecipients(Broadcast bc, Collection<UserBroadcastProjection> recipients) {
+        boolean skipUsersWithEmail = bc.isSkipSmsIfEmail() && bc.hasEmail();
+        log.info("sending short message ... skipping emails? {}", skipUsersWithEmail);
+        return recipients.stream()
+                .filter(r -> r.hasPhoneNumber() && !(skipUsersWithEmail && r.hasEmailAddress()))
+                .sorted(Comparator.comparing(UserBroadcastProjection::getId))
+                .collect(Collectors.toList());
+    }
+
+    // for a resumed generation, the recipients are worked out afresh from the broadcast
+    private List<UserBroadcastProjection> fetchShortMessageRecipients(Broadcast bc) {
+        final List<UserBroadcastProjection> recipients = bc.getCampaign() == null ? fetchGroupRecipients(bc) :
+                fetchCampaignUsers(bc).stream().map(UserBroadcastProjection::extractFromUser).collect(Collectors.toList());
+        return shortMessageRecipients(bc, recipients);
+    }
+
+    // the notifications reference the broadcast and its log, so can only be written once those are committed
+    private void writeShortMessagesAfterCommit(Broadcast bc, List<UserBroadcastProjection> recipients) {
+        log.info("generating {} short messages once broadcast is stored", recipients.size());
+        if (recipients.isEmpty())
+            return;
+
+        bc.setSmsGenerationComplete(false);
+        bc.setSmsProgressTime(Instant.now());
+        DebugUtil.transactionRequired("Broadcast must be stored in transaction before generating messages");
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                notificationWriter.generate(bc.getUid(), broadcast -> recipients);
+            }
+        });
+    }
+
+    // email notifications still need the user entity, so load those actually being sent to, in batches rather than one by one
+    private Map<Long, User> loadRecipientUsers(List<UserBroadcastProjection> recipients) {
+        Map<Long, User> users = new HashMap<>();
+        List<Long> userIds = recipients.stream().map(UserBroadcastProjection::getId).collect(Collectors.toList());
+        for (List<Long> batch : Lists.partition(userIds, RECIPIENT_LOAD_BATCH_SIZE)) {
+            userRepository.findAllById(batch).forEach(user -> users.put(user.getId(), user));
+        }
+        return users;
+    }
+
     private LogsAndNotificationsBundle generateCampaignBroadcastBundle(Broadcast bc) {
         LogsAndNotificationsBundle bundle = new LogsAndNotificationsBundle();
 
@@ -665,9 +704,7 @@ public class BroadcastBrokerImpl implements BroadcastBroker {
         campaignLog.setBroadcast(bc);
         bundle.addLog(campaignLog);
 
-        log.info("should be about to filter, has filter? : {}", bc.hasFilter());
-        Set<User> usersToReceive = bc.hasFilter() ? filterCampaignUsers(bc, campaign) :
-                new HashSet<>(getCampaignJoinedUsers(campaign));
+        Set<User> usersToReceive = fetchCampaignUsers(bc);
         log.info("post-filtering, for campaign, {} many users", usersToReceive.size());
 
         if (bc.hasEmail()) {
@@ -678,28 +715,22 @@ public class BroadcastBrokerImpl implements BroadcastBroker {
 
         long smsCount = 0;
         if (bc.hasShortMessage()) {
-            boolean skipUsersWithEmail = bc.isSkipSmsIfEmail() && bc.hasEmail();
-            log.info("sending short message ... skipping emails? {}", skipUsersWithEmail);
-            Set<User> shortMessageUsers = skipUsersWithEmail ?
-                    usersToReceive.stream().filter(u -> !u.hasEmailAddress() && u.hasPhoneNumber()).collect(Collectors.toSet()) :
-                    usersToReceive.stream().filter(User::hasPhoneNumber).collect(Collectors.toSet());
-            log.info("now generating {} notifications", shortMessageUsers.size());
-            Set<Notification> shortMessageNotifications = new HashSet<>();
-            shortMessageUsers.forEach(u -> {
-                CampaignBroadcastNotification notification = new CampaignBroadcastNotification(u,
-                        bc.getShortMsgIncludingMerge(u), bc,
-                        u.getMessagingPreference(), campaignLog);
-                notification.setUseOnlyFreeChannels(bc.isOnlyUseFreeChannels());
-                shortMessageNotifications.add(notification);
-            });
-            bundle.addNotifications(shortMessageNotifications);
-            smsCount = shortMessageUsers.size();
+            List<UserBroadcastProjection> shortMessageRecipients = shortMessageRecipients(bc, usersToReceive.stream()
+                    .map(UserBroadcastProjection::extractFromUser).collect(Collectors.toList()));
+            writeShortMessagesAfterCommit(bc, shortMessageRecipients);
+            smsCount = shortMessageRecipients.size();
         }
 
         bundle.addLog(costAccountLog(bc, smsCount));
         return bundle;
     }
 
+    private Set<User> fetchCampaignUsers(Broadcast bc) {
+        log.info("should be about to filter, has filter? : {}", bc.hasFilter());
+        return bc.hasFilter() ? filterCampaignUsers(bc, bc.getCampaign()) :
+                new HashSet<>(getCampaignJoinedUsers(bc.getCampaign()));
+    }
+
     private Set<User> filterCampaignUsers(Broadcast bc, Campaign campaign) {
         log.info("filtering campaign users, or should be, with provinces: {}", bc.getProvinces());
 
@@ -809,6 +840,17 @@ public class BroadcastBrokerImpl implements BroadcastBroker {
         }
     }
 
+    @Override
+    @Scheduled(fixedDelayString = "${grassroot.broadcast.sms.resume.interval:600000}")
+    public void resumeShortMessageGeneration() {
+        // generation records its progress at the start and after every chunk, so one that has not moved in this long was interrupted
+        List<String> broadcastUids = broadcastRepository.findUidsWithIncompleteSmsGeneration(Instant.now().minus(10, ChronoUnit.MINUTES));
+        if (!broadcastUids.isEmpty()) {
+            log.info("resuming short message generation for {} broadcasts", broadcastUids.size());
+            broadcastUids.forEach(uid -> notificationWriter.generate(uid, this::fetchShortMessageRecipients));
+        }
+    }
+
     private BroadcastDTO assembleDto(Broadcast broadcast, User fetchingUser) {
         long smsCount = broadcast.hasShortMessage() ? countDeliveredSms(broadcast) : 0;
         long emailCount = broadcast.hasEmail() ? countDeliveredEmails(broadcast) : 0;
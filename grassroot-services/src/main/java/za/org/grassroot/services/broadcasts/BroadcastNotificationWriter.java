@@ -0,0 +1,208 @@
+package za.org.grassroot.services.broadcasts;
+
+import com.google.common.collect.Lists;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import za.org.grassroot.GrassrootExecutorsConfig;
+import za.org.grassroot.core.domain.broadcast.Broadcast;
+import za.org.grassroot.core.domain.campaign.CampaignLog;
+import za.org.grassroot.core.domain.group.GroupLog;
+import za.org.grassroot.core.domain.notification.NotificationStatus;
+import za.org.grassroot.core.dto.UserBroadcastProjection;
+import za.org.grassroot.core.enums.CampaignLogType;
+import za.org.grassroot.core.enums.GroupLogType;
+import za.org.grassroot.core.repository.BroadcastRepository;
+import za.org.grassroot.core.repository.CampaignLogRepository;
+import za.org.grassroot.core.repository.GroupLogRepository;
+import za.org.grassroot.core.util.UIDGenerator;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Writes the short message notifications for a broadcast once it has been stored, a chunk of recipients at a time,
+ * each chunk in its own transaction as a JDBC batch insert, so that a broadcast to a very large group neither holds
+ * every notification in one persistence context nor runs as one long transaction. Recipients are taken in user id
+ * order, and each chunk's transaction also advances the progress recorded on the broadcast, but only if no one else has
+ * moved it, so an interrupted generation resumes after the last committed chunk, and two runs for the same broadcast
+ * can never both write a chunk. The time of the last progress is kept too, so only generations that have stalled are
+ * resumed.
+ */
+@Component @Slf4j
+public class BroadcastNotificationWriter {
+
+    private static final String INSERT_SQL = "insert into notification (uid, type, creation_time, last_status_change, " +
+            "attempt_count, read_receipt_fetches, sending_status, target_id, delivery_channel, message, use_only_free_channels, " +
+            "broadcast_id, group_log_id, campaign_log_id) values (?, ?, ?, ?, 0, 0, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String START_SQL = "update broadcast set sms_progress_time = ? where id = ? and sms_generation_complete = false";
+
+    private static final String ADVANCE_PROGRESS_SQL = "update broadcast set sms_progress_user_id = ?, " +
+            "sms_generated_count = sms_generated_count + ?, sms_progress_time = ? " +
+            "where id = ? and sms_generation_complete = false and coalesce(sms_progress_user_id, 0) = ?";
+
+    private static final String COMPLETE_SQL = "update broadcast set sms_generation_complete = true where id = ?";
+
+    private static final int MAX_MESSAGE_LENGTH = 255; // as in notification
+
+    @Value("${grassroot.broadcast.sms.chunk-size:1000}")
+    private int chunkSize = 1000;
+
+    private final BroadcastRepository broadcastRepository;
+    private final GroupLogRepository groupLogRepository;
+    private final CampaignLogRepository campaignLogRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readTransaction;
+    private final TransactionTemplate chunkTransaction;
+
+    private final Set<String> inProgress = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public BroadcastNotificationWriter(BroadcastRepository broadcastRepository, GroupLogRepository groupLogRepository,
+                                       CampaignLogRepository campaignLogRepository, JdbcTemplate jdbcTemplate,
+                                       PlatformTransactionManager transactionManager) {
+        this.broadcastRepository = broadcastRepository;
+        this.groupLogRepository = groupLogRepository;
+        this.campaignLogRepository = campaignLogRepository;
+        this.jdbcTemplate = jdbcTemplate;
+
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Generates (or carries on generating) the broadcast's short messages. The recipient function is called within a
+     * read-only transaction, and may return recipients in any order, including those already done.
+     */
+    @Async(GrassrootExecutorsConfig.BULK_EXECUTOR)
+    public void generate(String broadcastUid, Function<Broadcast, List<UserBroadcastProjection>> recipientFetcher) {
+        if (!inProgress.add(broadcastUid)) {
+            log.info("Already generating short messages for broadcast {}, not starting another", broadcastUid);
+            return;
+        }
+
+        try {
+            final Generation generation = readTransaction.execute(status -> prepare(broadcastUid, recipientFetcher));
+            if (generation == null)
+                return;
+
+            log.info("Generating {} short messages for broadcast {}, after user id {}", generation.recipients.size(),
+                    broadcastUid, generation.progressUserId);
+            jdbcTemplate.update(START_SQL, Timestamp.from(Instant.now()), generation.broadcastId);
+            long progressUserId = generation.progressUserId;
+            for (List<UserBroadcastProjection> chunk : Lists.partition(generation.recipients, chunkSize)) {
+                final long fromUserId = progressUserId;
+                final long toUserId = chunk.get(chunk.size() - 1).getId();
+                Boolean written = chunkTransaction.execute(status -> writeChunk(generation, chunk, fromUserId, toUserId));
+                if (!Boolean.TRUE.equals(written)) {
+                    log.info("Progress on broadcast {} moved under us, leaving generation to the other run", broadcastUid);
+                    return;
+                }
+                progressUserId = toUserId;
+            }
+
+            jdbcTemplate.update(COMPLETE_SQL, generation.broadcastId);
+            log.info("Completed short messages for broadcast {}", broadcastUid);
+        } catch (RuntimeException e) {
+            log.error("Error generating short messages for broadcast {}, will resume after last chunk", broadcastUid, e);
+        } finally {
+            inProgress.remove(broadcastUid);
+        }
+    }
+
+    private Generation prepare(String broadcastUid, Function<Broadcast, List<UserBroadcastProjection>> recipientFetcher) {
+        final Broadcast broadcast = broadcastRepository.findOneByUid(broadcastUid);
+        if (broadcast == null || broadcast.isSmsGenerationComplete())
+            return null;
+
+        final Long groupLogId;
+        final Long campaignLogId;
+        if (broadcast.getCampaign() == null) {
+            GroupLog groupLog = groupLogRepository.findFirstByBroadcastAndGroupLogTypeOrderByIdDesc(broadcast, GroupLogType.BROADCAST_SENT);
+            groupLogId = groupLog == null ? null : groupLog.getId();
+            campaignLogId = null;
+        } else {
+            CampaignLog campaignLog = campaignLogRepository.findFirstByBroadcastAndCampaignLogTypeOrderByIdDesc(broadcast,
+                    CampaignLogType.CAMPAIGN_BROADCAST_SENT);
+            groupLogId = null;
+            campaignLogId = campaignLog == null ? null : campaignLog.getId();
+        }
+
+        if (groupLogId == null && campaignLogId == null) {
+            log.error("No sent log for broadcast {}, cannot generate its short messages", broadcastUid);
+            return null;
+        }
+
+        final long progressUserId = broadcast.getSmsProgressUserId() == null ? 0 : broadcast.getSmsProgressUserId();
+        final List<UserBroadcastProjection> recipients = recipientFetcher.apply(broadcast).stream()
+                .filter(recipient -> recipient.getId() > progressUserId)
+                .sorted(Comparator.comparing(UserBroadcastProjection::getId))
+                .collect(Collectors.toList());
+
+        return new Generation(broadcast, groupLogId, campaignLogId, progressUserId, recipients);
+    }
+
+    private boolean writeChunk(Generation generation, List<UserBroadcastProjection> chunk, long fromUserId, long toUserId) {
+        final Timestamp now = Timestamp.from(Instant.now());
+        if (jdbcTemplate.update(ADVANCE_PROGRESS_SQL, toUserId, chunk.size(), now, generation.broadcastId, fromUserId) != 1)
+            return false;
+
+        final String type = generation.campaignLogId == null ? "GROUP_BROADCAST" : "CAMPAIGN_BROADCAST";
+        final List<Object[]> rows = chunk.stream().map(recipient -> new Object[] {
+                UIDGenerator.generateId(),
+                type,
+                now,
+                now,
+                NotificationStatus.READY_FOR_SENDING.name(),
+                recipient.getId(),
+                recipient.getMessagingPreference() == null ? null : recipient.getMessagingPreference().name(), // as the entity constructors left it
+                truncate(generation.broadcast.getShortMsgIncludingMerge(recipient)),
+                generation.broadcast.isOnlyUseFreeChannels(),
+                generation.broadcastId,
+                generation.groupLogId,
+                generation.campaignLogId
+        }).collect(Collectors.toList());
+
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        return true;
+    }
+
+    private static String truncate(String message) {
+        return message.length() > MAX_MESSAGE_LENGTH ? message.substring(0, MAX_MESSAGE_LENGTH) : message;
+    }
+
+    private static final class Generation {
+        private final Broadcast broadcast;
+        private final long broadcastId;
+        private final Long groupLogId;
+        private final Long campaignLogId;
+        private final long progressUserId;
+        private final List<UserBroadcastProjection> recipients;
+
+        private Generation(Broadcast broadcast, Long groupLogId, Long campaignLogId, long progressUserId,
+                           List<UserBroadcastProjection> recipients) {
+            this.broadcast = broadcast;
+            this.broadcastId = broadcast.getId();
+            this.groupLogId = groupLogId;
+            this.campaignLogId = campaignLogId;
+            this.progressUserId = progressUserId;
+            this.recipients = recipients;
+        }
+    }
+
+}
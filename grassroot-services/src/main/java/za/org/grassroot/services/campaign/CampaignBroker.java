@@ -12,7 +12,6 @@ import za.org.grassroot.core.enums.UserInterfaceType;
 import java.time.Instant;
 import java.util.List;
 import java.util.Locale;
-import java.util.Map;
 import java.util.Set;
 
 public interface CampaignBroker {
@@ -48,9 +47,6 @@ public interface CampaignBroker {
 
     List<Campaign> broadSearchForCampaign(String userId, String searchTerm);
 
-    // returns all in lower case
-    Map<String, String> getActiveCampaignJoinWords(); // todo : cache this
-
     boolean isTextJoinWordTaken(String joinWord, String campaignUid);
 
     void signPetition(String campaignUid, String userUid, UserInterfaceType channel);
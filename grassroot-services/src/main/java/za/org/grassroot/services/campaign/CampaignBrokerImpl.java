@@ -33,13 +33,16 @@ import za.org.grassroot.core.domain.media.MediaFunction;
 import za.org.grassroot.core.domain.notification.CampaignSharingNotification;
 import za.org.grassroot.core.domain.notification.NotificationStatus;
 import za.org.grassroot.core.enums.CampaignLogType;
+import za.org.grassroot.core.enums.InboundKeywordType;
 import za.org.grassroot.core.enums.MessageVariationAssignment;
 import za.org.grassroot.core.enums.UserInterfaceType;
+import za.org.grassroot.core.events.InboundKeywordChangedEvent;
 import za.org.grassroot.core.repository.CampaignMessageRepository;
 import za.org.grassroot.core.repository.CampaignRepository;
 import za.org.grassroot.core.specifications.CampaignMessageSpecifications;
 import za.org.grassroot.core.util.AfterTxCommitTask;
 import za.org.grassroot.integration.MediaFileBroker;
+import za.org.grassroot.services.InboundKeywordRouter;
 import za.org.grassroot.services.PermissionBroker;
 import za.org.grassroot.services.account.AccountFeaturesBroker;
 import za.org.grassroot.services.exception.CampaignCodeTakenException;
@@ -85,6 +88,7 @@ public class CampaignBrokerImpl implements CampaignBroker {
     private final LogsAndNotificationsBroker logsAndNotificationsBroker;
     private final PermissionBroker permissionBroker;
     private final MediaFileBroker mediaFileBroker;
+    private final InboundKeywordRouter keywordRouter;
 
     private final ApplicationEventPublisher eventPublisher;
 
@@ -92,7 +96,8 @@ public class CampaignBrokerImpl implements CampaignBroker {
 
     @Autowired
     public CampaignBrokerImpl(CampaignRepository campaignRepository, CampaignMessageRepository campaignMessageRepository, CampaignStatsBroker campaignStatsBroker, GroupBroker groupBroker, AccountFeaturesBroker accountFeaturesBroker, UserManagementService userManagementService,
-                              LogsAndNotificationsBroker logsAndNotificationsBroker, PermissionBroker permissionBroker, MediaFileBroker mediaFileBroker, ApplicationEventPublisher eventPublisher){
+                              LogsAndNotificationsBroker logsAndNotificationsBroker, PermissionBroker permissionBroker, MediaFileBroker mediaFileBroker, InboundKeywordRouter keywordRouter,
+                              ApplicationEventPublisher eventPublisher){
         this.campaignRepository = campaignRepository;
         this.campaignMessageRepository = campaignMessageRepository;
         this.campaignStatsBroker = campaignStatsBroker;
@@ -102,6 +107,7 @@ public class CampaignBrokerImpl implements CampaignBroker {
         this.logsAndNotificationsBroker = logsAndNotificationsBroker;
         this.permissionBroker = permissionBroker;
         this.mediaFileBroker = mediaFileBroker;
+        this.keywordRouter = keywordRouter;
         this.eventPublisher = eventPublisher;
     }
 
@@ -238,7 +244,9 @@ public class CampaignBrokerImpl implements CampaignBroker {
     @Transactional
     public Campaign getCampaignDetailsByCode(String campaignCode, String userUid, boolean storeLog, UserInterfaceType channel){
         Objects.requireNonNull(campaignCode);
-        Campaign campaign = getCampaignByCampaignCode(campaignCode);
+        // most codes dialled are not campaigns, so only go to the cache or DB if the code is known to be open
+        Campaign campaign = keywordRouter.findTarget(campaignCode, InboundKeywordType.CAMPAIGN_CODE).isPresent() ?
+                getCampaignByCampaignCode(campaignCode) : null;
         if (campaign != null && storeLog) {
             recordEngagement(campaign.getUid(), userUid, channel, campaignCode);
         }
@@ -276,17 +284,12 @@ public class CampaignBrokerImpl implements CampaignBroker {
     @Transactional(readOnly = true)
     public Campaign findCampaignByJoinWord(String joinWord, String userId, UserInterfaceType channel) {
         // first, just check for straight code (in case we use that in future)
-        Campaign campaign = getCampaignByCampaignCode(joinWord);
-        if (campaign != null) {
-            recordEngagement(campaign.getUid(), userId, channel, joinWord);
-            return campaign;
+        Optional<String> campaignUid = keywordRouter.findTarget(joinWord, InboundKeywordType.CAMPAIGN_CODE);
+        if (!campaignUid.isPresent()) {
+            campaignUid = keywordRouter.findTarget(joinWord, InboundKeywordType.CAMPAIGN_JOIN_WORD);
         }
 
-        // todo: will definitely want to cache these soon
-        Map<String, String> activeWords = getActiveCampaignJoinWords();
-        final String trimmed = joinWord.trim().toLowerCase();
-        campaign = activeWords.containsKey(trimmed) ? campaignRepository.findOneByUid(activeWords.get(trimmed)) : null;
-
+        Campaign campaign = campaignUid.map(campaignRepository::findOneByUid).orElse(null);
         if (campaign != null) {
             recordEngagement(campaign.getUid(), userId, channel, joinWord);
             return campaign;
@@ -303,27 +306,10 @@ public class CampaignBrokerImpl implements CampaignBroker {
         return campaignRepository.findCampaignsWithNamesIncluding(tsQuery);
     }
 
-    @Override
-    @Transactional(readOnly = true)
-    public Map<String, String> getActiveCampaignJoinWords() {
-        List<Object[]> tagsWithUids = campaignRepository.fetchAllActiveCampaignTags();
-        return tagsWithUids.stream()
-                .filter(object -> object[0] instanceof String && ((String) object[0]).startsWith(Campaign.PUBLIC_JOIN_WORD_PREFIX))
-                .collect(Collectors.toMap(
-                        object -> ((String) object[0]).substring(Campaign.PUBLIC_JOIN_WORD_PREFIX.length()).toLowerCase(),
-                        object -> (String) object[1]));
-    }
-
     @Override
     public boolean isTextJoinWordTaken(String joinWord, String campaignUid) {
-        Map<String, String> activeWords = getActiveCampaignJoinWords();
-        final String trimmed = joinWord.trim().toLowerCase();
-        if (campaignUid != null && activeWords.containsKey(trimmed) && activeWords.get(trimmed).equals(campaignUid)) {
-            return false; // since it is 'taken' but by this campaign
-        } else {
-            Set<String> campaignWords = getActiveCampaignJoinWords().keySet().stream().map(String::toLowerCase).collect(Collectors.toSet());
-            return campaignWords.contains(joinWord.toLowerCase());
-        }
+        Optional<String> takenBy = keywordRouter.findTarget(joinWord, InboundKeywordType.CAMPAIGN_JOIN_WORD);
+        return takenBy.isPresent() && !takenBy.get().equals(campaignUid); // if 'taken' by this campaign, it is not taken
     }
 
     @Override
@@ -434,6 +420,7 @@ public class CampaignBrokerImpl implements CampaignBroker {
         Campaign persistedCampaign = campaignRepository.saveAndFlush(newCampaign);
         CampaignLog campaignLog = new CampaignLog(newCampaign.getCreatedByUser(), CampaignLogType.CREATED_IN_DB, newCampaign, null, null);
         persistCampaignLog(campaignLog);
+        publishKeywordChanges(persistedCampaign, null, null);
         return persistedCampaign;
     }
 
@@ -583,6 +570,9 @@ public class CampaignBrokerImpl implements CampaignBroker {
         Campaign campaign = campaignRepository.findOneByUid(campaignUid);
         validateUserCanModifyCampaign(user, campaign);
 
+        final String priorCode = campaign.getCampaignCode();
+        final String priorJoinWord = campaign.getPublicJoinWord();
+
         LogsAndNotificationsBundle bundle = new LogsAndNotificationsBundle();
         if (!StringUtils.isEmpty(name) && !campaign.getName().trim().equalsIgnoreCase(name)) {
             campaign.setName(name);
@@ -634,6 +624,7 @@ public class CampaignBrokerImpl implements CampaignBroker {
         }
 
         log.info("campaign still has account? {}", campaign.getAccount());
+        publishKeywordChanges(campaign, priorCode, priorJoinWord);
 
         AfterTxCommitTask task = () -> logsAndNotificationsBroker.storeBundle(bundle);
         eventPublisher.publishEvent(task);
@@ -813,6 +804,7 @@ public class CampaignBrokerImpl implements CampaignBroker {
 
         Instant priorEndDate = campaign.getEndDateTime();
         campaign.setEndDateTime(Instant.now());
+        publishKeywordChanges(campaign, null, null);
 
         persistCampaignLog(new CampaignLog(user, CampaignLogType.CAMPAIGN_DEACTIVATED, campaign, null,
                 "Prior end date: " + priorEndDate));
@@ -864,6 +856,22 @@ public class CampaignBrokerImpl implements CampaignBroker {
         return campaign;
     }
 
+    // closes the prior code and join word if they have changed, and (re)opens the current ones until the campaign ends
+    private void publishKeywordChanges(Campaign campaign, String priorCode, String priorJoinWord) {
+        final Instant now = Instant.now();
+        if (priorCode != null && !priorCode.equals(campaign.getCampaignCode()))
+            eventPublisher.publishEvent(new InboundKeywordChangedEvent(this, InboundKeywordType.CAMPAIGN_CODE, priorCode, campaign.getUid(), now));
+        if (priorJoinWord != null && !priorJoinWord.equals(campaign.getPublicJoinWord()))
+            eventPublisher.publishEvent(new InboundKeywordChangedEvent(this, InboundKeywordType.CAMPAIGN_JOIN_WORD, priorJoinWord, campaign.getUid(), now));
+
+        if (campaign.getCampaignCode() != null)
+            eventPublisher.publishEvent(new InboundKeywordChangedEvent(this, InboundKeywordType.CAMPAIGN_CODE,
+                    campaign.getCampaignCode(), campaign.getUid(), campaign.getEndDateTime()));
+        if (campaign.getPublicJoinWord() != null)
+            eventPublisher.publishEvent(new InboundKeywordChangedEvent(this, InboundKeywordType.CAMPAIGN_JOIN_WORD,
+                    campaign.getPublicJoinWord(), campaign.getUid(), campaign.getEndDateTime()));
+    }
+
     private void createAndStoreCampaignLog(CampaignLog campaignLog) {
         LogsAndNotificationsBundle bundle = new LogsAndNotificationsBundle();
         bundle.addLog(campaignLog);
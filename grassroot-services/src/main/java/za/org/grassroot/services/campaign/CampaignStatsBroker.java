@@ -7,6 +7,7 @@ import javax.annotation.Nullable;
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 public interface CampaignStatsBroker {
 
@@ -26,6 +27,9 @@ public interface CampaignStatsBroker {
 
     List<CampaignLog> getCampaignJoinedAndBetter(String campaignUid);
 
+    // as above, but hands each user's most advanced log to the consumer as it goes, rather than collecting them all
+    void forEachCampaignJoinedAndBetter(String campaignUid, Consumer<CampaignLog> consumer);
+
     Map<String, String> getCampaignBillingStatsInPeriod(String campaignUid, Instant start, Instant end);
 
 }
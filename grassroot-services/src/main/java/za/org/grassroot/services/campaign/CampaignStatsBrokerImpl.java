@@ -40,6 +40,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -249,6 +250,29 @@ public class CampaignStatsBrokerImpl implements CampaignStatsBroker {
         return new ArrayList<>(lastStageMap.values());
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public void forEachCampaignJoinedAndBetter(String campaignUid, Consumer<CampaignLog> consumer) {
+        Campaign campaign = campaignRepository.findOneByUid(campaignUid);
+
+        // logs come grouped by user, so we only hold the current user's most advanced one
+        final CampaignLog[] mostAdvanced = new CampaignLog[1];
+        try (Stream<CampaignLog> logs = campaignLogRepository.streamByCampaignAndTypesOrderByUser(campaign, SIGNED_OR_BETTER_LOG_TYPES)) {
+            logs.forEach(log -> {
+                final CampaignLog current = mostAdvanced[0];
+                if (current != null && !current.getUser().getId().equals(log.getUser().getId())) {
+                    consumer.accept(current);
+                    mostAdvanced[0] = log;
+                } else if (current == null || SIGNED_OR_BETTER_LOG_TYPES.indexOf(log.getCampaignLogType()) >=
+                        SIGNED_OR_BETTER_LOG_TYPES.indexOf(current.getCampaignLogType())) {
+                    mostAdvanced[0] = log;
+                }
+            });
+        }
+        if (mostAdvanced[0] != null)
+            consumer.accept(mostAdvanced[0]);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public Map<String, String> getCampaignBillingStatsInPeriod(String campaignUid, Instant billStart, Instant billEnd) {
@@ -0,0 +1,68 @@
+package za.org.grassroot.services.geo;
+
+import za.org.grassroot.core.domain.geo.GeoLocation;
+
+/**
+ * Running version of the central location calculation, holding only the x/y/z sums and a count, so that centers can
+ * be computed over streams of locations without collecting them. Applies exactly the same transform as
+ * GeoLocationUtils.centralLocation, which delegates to this.
+ */
+public class GeoCentroidAccumulator {
+
+    private double x;
+    private double y;
+    private double z;
+    private int count;
+
+    private double firstLatitude;
+    private double firstLongitude;
+
+    public void add(double latitude, double longitude) {
+        if (count == 0) {
+            firstLatitude = latitude;
+            firstLongitude = longitude;
+        }
+
+        double latRadians = Math.toRadians(latitude) * Math.PI / 180;
+        double longRadians = Math.toRadians(longitude) * Math.PI / 180;
+
+        x += Math.cos(latRadians) * Math.cos(longRadians);
+        y += Math.cos(latRadians) * Math.sin(longRadians);
+        z += Math.sin(latRadians);
+        count++;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void reset() {
+        x = 0;
+        y = 0;
+        z = 0;
+        count = 0;
+    }
+
+    public GeoLocation center() {
+        if (count == 0) {
+            return null;
+        }
+
+        if (count == 1) {
+            return new GeoLocation(firstLatitude, firstLongitude);
+        }
+
+        double avgX = x / count;
+        double avgY = y / count;
+        double avgZ = z / count;
+
+        double centralLongitude = Math.atan2(avgY, avgX);
+        double centralSquareRoot = Math.sqrt(avgX * avgX + avgY * avgY);
+        double centralLatitude = Math.atan2(avgZ, centralSquareRoot);
+
+        double midPointLatitude = Math.toDegrees(centralLatitude * 180 / Math.PI);
+        double midPointLongitude = Math.toDegrees(centralLongitude * 180 / Math.PI);
+        return new GeoLocation(midPointLatitude, midPointLongitude);
+    }
+
+}
@@ -1,9 +1,11 @@
 package za.org.grassroot.services.geo;
 
+import com.google.common.collect.Iterables;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -23,16 +25,19 @@ import za.org.grassroot.core.util.DateTimeUtil;
 import za.org.grassroot.graph.dto.IncomingAnnotation;
 import za.org.grassroot.integration.graph.GraphBroker;
 import za.org.grassroot.integration.location.UssdLocationServicesBroker;
+import za.org.grassroot.services.async.WriteBehindLogSink;
 
 import javax.persistence.EntityManager;
 import javax.persistence.TypedQuery;
 import java.security.InvalidParameterException;
+import java.sql.Date;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static za.org.grassroot.core.enums.LocationSource.convertFromInterface;
 
@@ -43,6 +48,11 @@ public class GeoLocationBrokerImpl implements GeoLocationBroker {
 	private final static int PRIVATE_LEVEL = -1;
 	private final static int PUBLIC_LEVEL = 1;
 
+	private final static int USER_LOCATION_BATCH_SIZE = 1000;
+	private final static int NEARBY_HYDRATE_BATCH_SIZE = 1000;
+	private final static String INSERT_PREV_PERIOD_LOCATION = "insert into prev_period_user_location " +
+			"(user_uid, local_date, latitude, longitude, log_count) values (?, ?, ?, ?, ?)";
+
 	private final UserLocationLogRepository userLocationLogRepository;
 	private final PreviousPeriodUserLocationRepository previousPeriodUserLocationRepository;
 	private final UserRepository userRepository;
@@ -52,12 +62,15 @@ public class GeoLocationBrokerImpl implements GeoLocationBroker {
 	private final EventLogRepository eventLogRepository;
 	private final TaskLocationRepository taskLocationRepository;
 	private final EntityManager entityManager;
+	private final JdbcTemplate jdbcTemplate;
+	private final NearbyLocationIndex nearbyLocationIndex;
+	private final WriteBehindLogSink logSink;
 
 	private UssdLocationServicesBroker ussdLocationServicesBroker;
 	private GraphBroker graphBroker;
 
     @Autowired
-    public GeoLocationBrokerImpl(UserLocationLogRepository userLocationLogRepository, PreviousPeriodUserLocationRepository previousPeriodUserLocationRepository, UserRepository userRepository, GroupRepository groupRepository, GroupLocationRepository groupLocationRepository, EventRepository eventRepository, EventLogRepository eventLogRepository, TaskLocationRepository taskLocationRepository, EntityManager entityManager) {
+    public GeoLocationBrokerImpl(UserLocationLogRepository userLocationLogRepository, PreviousPeriodUserLocationRepository previousPeriodUserLocationRepository, UserRepository userRepository, GroupRepository groupRepository, GroupLocationRepository groupLocationRepository, EventRepository eventRepository, EventLogRepository eventLogRepository, TaskLocationRepository taskLocationRepository, EntityManager entityManager, JdbcTemplate jdbcTemplate, NearbyLocationIndex nearbyLocationIndex, WriteBehindLogSink logSink) {
         this.userLocationLogRepository = userLocationLogRepository;
         this.previousPeriodUserLocationRepository = previousPeriodUserLocationRepository;
         this.userRepository = userRepository;
@@ -67,6 +80,9 @@ public class GeoLocationBrokerImpl implements GeoLocationBroker {
         this.eventLogRepository = eventLogRepository;
         this.taskLocationRepository = taskLocationRepository;
         this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
+        this.nearbyLocationIndex = nearbyLocationIndex;
+        this.logSink = logSink;
     }
 
     @Autowired(required = false)
@@ -80,17 +96,16 @@ public class GeoLocationBrokerImpl implements GeoLocationBroker {
 	}
 
     @Override
-	@Transactional
 	public void logUserLocation(String userUid, double latitude, double longitude, Instant time, UserInterfaceType interfaceType) {
 		Objects.requireNonNull(userUid);
 		Objects.requireNonNull(time);
 
 		// WARNING: this can potentially become non-performant, so some kind of table partitioning should be employed,
-		// or even better, some kind of specialized db storage for that (not sql db)
+		// or even better, some kind of specialized db storage for that (not sql db); for now, written behind in batches
 
 		UserLocationLog userLocationLog = new UserLocationLog(time, userUid, new GeoLocation(latitude, longitude),
 				LocationSource.convertFromInterface(interfaceType));
-		userLocationLogRepository.save(userLocationLog);
+		logSink.record(userLocationLog);
 	}
 
 	@Async
@@ -141,27 +156,54 @@ public class GeoLocationBrokerImpl implements GeoLocationBroker {
 		int periodDurationInMonths = 1;
 		Instant intervalStart = convertStartOfDayToSASTInstant(localDate.plusDays(1).minusMonths(periodDurationInMonths));
 		Instant intervalEnd = convertStartOfDayToSASTInstant(localDate.plusDays(1)); // since we want period date end to be inclusive...
-		List<UserLocationLog> locationLogs = userLocationLogRepository.findByTimestampBetween(intervalStart, intervalEnd);
 
+		final Date sqlDate = Date.valueOf(localDate);
 		logger.debug("Deleting all previous period user locations for date: {}", localDate);
-		previousPeriodUserLocationRepository.deleteByKeyLocalDate(localDate);
+		jdbcTemplate.update("delete from prev_period_user_location where local_date = ?", sqlDate);
+
+		// logs arrive ordered by user, so only one user's running sums are held at a time, and rows go out in batches
+		final List<Object[]> batch = new ArrayList<>(USER_LOCATION_BATCH_SIZE);
+		final GeoCentroidAccumulator accumulator = new GeoCentroidAccumulator();
+		String currentUserUid = null;
+		int usersStored = 0;
+
+		try (Stream<Object[]> locationLogs = userLocationLogRepository.streamLocationsByUserBetween(intervalStart, intervalEnd)) {
+			Iterator<Object[]> iterator = locationLogs.iterator();
+			while (iterator.hasNext()) {
+				Object[] row = iterator.next();
+				String userUid = (String) row[0];
+				if (currentUserUid != null && !currentUserUid.equals(userUid)) {
+					addUserLocationToBatch(batch, currentUserUid, sqlDate, accumulator);
+					usersStored++;
+				}
+				currentUserUid = userUid;
+				accumulator.add((Double) row[1], (Double) row[2]);
+			}
+		}
 
-		Map<String, List<GeoLocation>> locationsPerUserUid = locationLogs.stream()
-				.collect(Collectors.groupingBy(UserLocationLog::getUserUid,
-						Collectors.mapping(UserLocationLog::getLocation, Collectors.toList())));
+		if (currentUserUid != null) {
+			addUserLocationToBatch(batch, currentUserUid, sqlDate, accumulator);
+			usersStored++;
+		}
+		flushUserLocationBatch(batch);
 
-		logger.info("Storing {} previous period user locations", locationsPerUserUid.size());
+		logger.info("Stored {} previous period user locations", usersStored);
+	}
 
-		Set<PreviousPeriodUserLocation> userLocations = new HashSet<>();
-		for (Map.Entry<String, List<GeoLocation>> entry : locationsPerUserUid.entrySet()) {
-			String userUid = entry.getKey();
-			List<GeoLocation> locations = entry.getValue();
-			GeoLocation center = GeoLocationUtils.centralLocation(locations);
-			PreviousPeriodUserLocation userLocation = new PreviousPeriodUserLocation(new UserAndLocalDateKey(userUid, localDate), center, locations.size());
-			userLocations.add(userLocation);
+	private void addUserLocationToBatch(List<Object[]> batch, String userUid, Date sqlDate, GeoCentroidAccumulator accumulator) {
+		GeoLocation center = accumulator.center();
+		batch.add(new Object[] { userUid, sqlDate, center.getLatitude(), center.getLongitude(), accumulator.getCount() });
+		accumulator.reset();
+		if (batch.size() >= USER_LOCATION_BATCH_SIZE) {
+			flushUserLocationBatch(batch);
 		}
+	}
 
-		previousPeriodUserLocationRepository.saveAll(userLocations);
+	private void flushUserLocationBatch(List<Object[]> batch) {
+		if (!batch.isEmpty()) {
+			jdbcTemplate.batchUpdate(INSERT_PREV_PERIOD_LOCATION, batch);
+			batch.clear();
+		}
 	}
 
 	private Instant convertStartOfDayToSASTInstant(LocalDate date) {
@@ -189,6 +231,7 @@ public class GeoLocationBrokerImpl implements GeoLocationBroker {
 			float score = result.getEntityCount() / (float) memberUids.size();
 			GroupLocation groupLocation = new GroupLocation(group, localDate, result.getCenter(), score, LocationSource.CALCULATED);
 			groupLocationRepository.save(groupLocation);
+			nearbyLocationIndex.putGroupLocation(group.getId(), groupLocation.getLocation());
 
 			// now update group location annotation in graph
 			Map<String, String> groupProperties = new HashMap<>();
@@ -211,6 +254,7 @@ public class GeoLocationBrokerImpl implements GeoLocationBroker {
 		GroupLocation groupLocation = new GroupLocation(group, LocalDate.now(), location, (float) 1.0,
 				convertFromInterface(coordSourceInterface));
 		groupLocationRepository.save(groupLocation);
+		nearbyLocationIndex.putGroupLocation(group.getId(), location);
 	}
 
 	@Override
@@ -245,6 +289,8 @@ public class GeoLocationBrokerImpl implements GeoLocationBroker {
 
 		if (meetingLocation != null) {
 			taskLocationRepository.save(meetingLocation);
+			nearbyLocationIndex.putMeetingLocation(meetingLocation.getId(), meetingLocation.getLocation(),
+					event.getEventStartDateTime());
 		}
     }
 
@@ -257,6 +303,7 @@ public class GeoLocationBrokerImpl implements GeoLocationBroker {
 			TaskLocation mtgLocation = new TaskLocation(meeting, location, (float) 1.0, EventType.MEETING,
 					convertFromInterface(coordSourceInterface));
 			taskLocationRepository.save(mtgLocation);
+			nearbyLocationIndex.putMeetingLocation(mtgLocation.getId(), location, meeting.getEventStartDateTime());
 		} else {
 			LocalDate inLastMonth = LocalDate.now().minusMonths(1L);
 			Group ancestor = meeting.getAncestorGroup();
@@ -403,6 +450,11 @@ public class GeoLocationBrokerImpl implements GeoLocationBroker {
 			restrictionClause = "g.discoverable = false AND ";
 		}
 
+		// Find candidates from the in-memory index, then hydrate only those
+		final int radius = radiusInMetres != null ? radiusInMetres : GeoLocationUtils.DEFAULT_RADIUS;
+		final List<Long> groupIds = nearbyLocationIndex.findGroupIdsNear(location, radius);
+		logger.debug("Found {} candidate groups in location index", groupIds.size());
+
 		// Mount query
 		String query =
 				"SELECT NEW za.org.grassroot.core.domain.geo.ObjectLocation( " +
@@ -411,16 +463,20 @@ public class GeoLocationBrokerImpl implements GeoLocationBroker {
 						"INNER JOIN l.group g " +
 						"WHERE " + restrictionClause +
 						" l.localDate <= :date " +
-						" AND l.localDate = (SELECT MAX(ll.localDate) FROM GroupLocation ll WHERE ll.group = l.group) AND " +
-						GeoLocationUtils.locationFilterSuffix("l.location");
+						" AND l.localDate = (SELECT MAX(ll.localDate) FROM GroupLocation ll WHERE ll.group = l.group) " +
+						" AND g.id IN :groupIds";
 
 		logger.debug(query);
 
-		TypedQuery<ObjectLocation> typedQuery = entityManager.createQuery(query, ObjectLocation.class)
-				.setParameter("date", LocalDate.now());
-		GeoLocationUtils.addLocationParamsToQuery(typedQuery, location, radiusInMetres);
+		List<ObjectLocation> locations = new ArrayList<>();
+		for (List<Long> batch : Iterables.partition(groupIds, NEARBY_HYDRATE_BATCH_SIZE)) {
+			locations.addAll(entityManager.createQuery(query, ObjectLocation.class)
+					.setParameter("date", LocalDate.now())
+					.setParameter("groupIds", batch)
+					.getResultList());
+		}
 
-		return typedQuery.getResultList();
+		return withinRadius(locations, location, radius);
 
 	}
 
@@ -445,24 +501,31 @@ public class GeoLocationBrokerImpl implements GeoLocationBroker {
 
 		logger.info("Group restrictions: {}", groupRestriction);
 
+		final int radius = radiusInMetres != null ? radiusInMetres : GeoLocationUtils.DEFAULT_RADIUS;
+		final List<Long> locationIds = nearbyLocationIndex.findMeetingLocationIdsNear(searchCentre, radius);
+
 		String strQuery =
 				"SELECT NEW za.org.grassroot.core.domain.geo.ObjectLocation(m, l) " +
 						"FROM TaskLocation l INNER JOIN l.meeting m " +
-						"WHERE " + groupRestriction + " m.eventStartDateTime >= :present AND "
-						+ GeoLocationUtils.locationFilterSuffix("l.location");
+						"WHERE " + groupRestriction + " m.eventStartDateTime >= :present AND l.id IN :locationIds";
 
-		logger.info("we have a search location, it looks like: {}, and query: {}", searchCentre, strQuery);
+		logger.info("we have a search location, it looks like: {}, {} candidates, and query: {}", searchCentre,
+				locationIds.size(), strQuery);
 
-		TypedQuery<ObjectLocation> query = entityManager.createQuery(strQuery,ObjectLocation.class)
-				.setParameter("present", Instant.now());
+		List<ObjectLocation> locations = new ArrayList<>();
+		for (List<Long> batch : Iterables.partition(locationIds, NEARBY_HYDRATE_BATCH_SIZE)) {
+			TypedQuery<ObjectLocation> query = entityManager.createQuery(strQuery, ObjectLocation.class)
+					.setParameter("present", Instant.now())
+					.setParameter("locationIds", batch);
 
-		if (!GeographicSearchType.BOTH.equals(searchType)) {
-			query.setParameter("user", user);
-		}
+			if (!GeographicSearchType.BOTH.equals(searchType)) {
+				query.setParameter("user", user);
+			}
 
-		GeoLocationUtils.addLocationParamsToQuery(query, geoLocation, radiusInMetres);
+			locations.addAll(query.getResultList());
+		}
 
-		return query.getResultList();
+		return withinRadius(locations, searchCentre, radius);
 	}
 
 	@Override
@@ -537,6 +600,14 @@ public class GeoLocationBrokerImpl implements GeoLocationBroker {
 		return log -> log.getTimestamp().isAfter(threshold) && log.getLocationSource().equals(source);
 	}
 
+	// the index may hold an older location than the database for a group (e.g., one recalculated on another node)
+	private List<ObjectLocation> withinRadius(List<ObjectLocation> locations, GeoLocation centre, int radiusInMetres) {
+		return locations.stream()
+				.filter(l -> GeoLocationUtils.distanceInMetres(centre.getLatitude(), centre.getLongitude(),
+						l.getLatitude(), l.getLongitude()) <= radiusInMetres)
+				.collect(Collectors.toList());
+	}
+
 	private void assertRadius (Integer radius) throws InvalidParameterException {
 		if (radius == null || radius <= 0) {
 			throw new InvalidParameterException("Invalid radius object.");
@@ -12,7 +12,7 @@ import java.util.Objects;
 
 public class GeoLocationUtils {
 
-	private final static double M_PER_DEGREE = 111045;
+	final static double M_PER_DEGREE = 111045;
 	public final static int DEFAULT_RADIUS = 5000;
 
 	private GeoLocationUtils() {
@@ -24,36 +24,15 @@ public class GeoLocationUtils {
 		if (geoLocations.isEmpty()) {
 			return null;
 		}
-		int locationCount = geoLocations.size();
-
-		if (locationCount == 1) {
+		if (geoLocations.size() == 1) {
 			return geoLocations.iterator().next();
 		}
 
-		double x = 0;
-		double y = 0;
-		double z = 0;
-
+		GeoCentroidAccumulator accumulator = new GeoCentroidAccumulator();
 		for (GeoLocation geoLocation : geoLocations) {
-			double latitude = Math.toRadians(geoLocation.getLatitude()) * Math.PI / 180;
-			double longitude = Math.toRadians(geoLocation.getLongitude()) * Math.PI / 180;
-
-			x += Math.cos(latitude) * Math.cos(longitude);
-			y += Math.cos(latitude) * Math.sin(longitude);
-			z += Math.sin(latitude);
+			accumulator.add(geoLocation.getLatitude(), geoLocation.getLongitude());
 		}
-
-		x = x / locationCount;
-		y = y / locationCount;
-		z = z / locationCount;
-
-		double centralLongitude = Math.atan2(y, x);
-		double centralSquareRoot = Math.sqrt(x * x + y * y);
-		double centralLatitude = Math.atan2(z, centralSquareRoot);
-
-		double midPointLatitude = Math.toDegrees(centralLatitude * 180 / Math.PI);
-		double midPointLongitude = Math.toDegrees(centralLongitude * 180 / Math.PI);
-		return new GeoLocation(midPointLatitude, midPointLongitude);
+		return accumulator.center();
 	}
 
 	public static Address convertGeoCodeToAddress(InvertGeoCodeAddress resultAddress, User user,
@@ -90,6 +69,18 @@ public class GeoLocationUtils {
 				"         * SIN(RADIANS(%1$s.latitude)))))", locationEntityLabel);
 	}
 
+	/*
+	 * Great circle distance in the same units as the SQL filter above (degrees of arc times metres per degree), using
+	 * the haversine form as it is better behaved than the law of cosines at short distances
+	 */
+	public static double distanceInMetres(double latitude1, double longitude1, double latitude2, double longitude2) {
+		final double sinHalfLat = Math.sin(Math.toRadians(latitude2 - latitude1) / 2);
+		final double sinHalfLong = Math.sin(Math.toRadians(longitude2 - longitude1) / 2);
+		final double a = sinHalfLat * sinHalfLat +
+				Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2)) * sinHalfLong * sinHalfLong;
+		return M_PER_DEGREE * Math.toDegrees(2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a)));
+	}
+
 	public static void addLocationParamsToQuery(Query query, GeoLocation location, Integer radiusInMetres) {
 		query.setParameter("radius", radiusInMetres != null ? (double) radiusInMetres : (double) DEFAULT_RADIUS);
 		query.setParameter("distance_unit", M_PER_DEGREE);
@@ -0,0 +1,257 @@
+package za.org.grassroot.services.geo;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import za.org.grassroot.GrassrootExecutorsConfig;
+import za.org.grassroot.core.domain.ConfigVariable;
+import za.org.grassroot.core.domain.geo.GeoLocation;
+import za.org.grassroot.core.enums.LocationSource;
+import za.org.grassroot.core.repository.ConfigRepository;
+import za.org.grassroot.core.repository.GroupRepository;
+import za.org.grassroot.core.repository.MembershipRepository;
+import za.org.grassroot.graph.dto.IncomingAnnotation;
+import za.org.grassroot.integration.graph.GraphBroker;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Nightly computation of group locations, done a page of groups at a time: one query fetches the located members of
+ * every group in the page, centroids are computed on the bulk pool, and the results are written with a JDBC batch.
+ * Pages can finish out of order, so the checkpoint (stored as a config variable) only advances past a page once every
+ * page before it is done, and a run that crashes restarts from there, either when it is next called for that date or
+ * when {@link #resumeUnfinishedRun()} finds the checkpoint short of done (e.g., after a restart). Writing a page deletes
+ * and re-inserts its rows, so redoing a page after a crash is harmless.
+ */
+@Component @Slf4j
+public class GroupLocationBatchCalculator {
+
+    private static final String CHECKPOINT_KEY = "geo.group.locations.checkpoint";
+    private static final String DONE_MARKER = "done";
+
+    private static final String DELETE_SQL = "delete from group_location where local_date = :localDate and group_id in (:groupIds)";
+    private static final String INSERT_SQL = "insert into group_location (group_id, local_date, latitude, longitude, score, source) " +
+            "values (?, ?, ?, ?, ?, ?)";
+
+    @Value("${grassroot.geo.groups.batch.page-size:500}")
+    private int pageSize;
+
+    @Value("${grassroot.geo.groups.batch.pages-in-flight:4}")
+    private int maxPagesInFlight;
+
+    private final GroupRepository groupRepository;
+    private final MembershipRepository membershipRepository;
+    private final ConfigRepository configRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final NearbyLocationIndex nearbyLocationIndex;
+
+    private GraphBroker graphBroker;
+    private Executor pageExecutor = Runnable::run;
+
+    private final AtomicLong groupsProcessed = new AtomicLong();
+    private final AtomicLong locationsWritten = new AtomicLong();
+    private volatile long runStartMillis;
+    private volatile LocalDate runDate;
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    // pages in flight, keyed by the last group id of the page, with whether they are complete
+    private final NavigableMap<Long, Boolean> pendingPages = new TreeMap<>();
+
+    @Autowired
+    public GroupLocationBatchCalculator(GroupRepository groupRepository, MembershipRepository membershipRepository,
+                                        ConfigRepository configRepository, JdbcTemplate jdbcTemplate,
+                                        NearbyLocationIndex nearbyLocationIndex) {
+        this.groupRepository = groupRepository;
+        this.membershipRepository = membershipRepository;
+        this.configRepository = configRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.nearbyLocationIndex = nearbyLocationIndex;
+    }
+
+    @Autowired(required = false)
+    public void setGraphBroker(GraphBroker graphBroker) {
+        this.graphBroker = graphBroker;
+    }
+
+    @Autowired(required = false)
+    public void setPageExecutor(@Qualifier(GrassrootExecutorsConfig.BULK_EXECUTOR) Executor pageExecutor) {
+        this.pageExecutor = pageExecutor;
+    }
+
+    public void calculateAllGroupLocations(LocalDate localDate) {
+        final String checkpoint = readCheckpoint(localDate);
+        if (DONE_MARKER.equals(checkpoint)) {
+            log.info("Group locations already calculated for {}, skipping", localDate);
+            return;
+        }
+
+        if (!running.compareAndSet(false, true)) {
+            log.warn("Group location batch already running for {}, not starting another", runDate);
+            return;
+        }
+
+        runDate = localDate;
+        runStartMillis = System.currentTimeMillis();
+        groupsProcessed.set(0);
+        locationsWritten.set(0);
+
+        long lastId = checkpoint == null ? 0 : Long.parseLong(checkpoint);
+        log.info("Starting group location batch for {}, from group id {}", localDate, lastId);
+
+        // bounds the pages held in memory, and how much of the bulk pool the batch takes
+        final Deque<CompletableFuture<Void>> inFlight = new ArrayDeque<>();
+        try {
+            List<Object[]> page;
+            while (!(page = groupRepository.fetchIdsAndUidsAfter(lastId, PageRequest.of(0, pageSize))).isEmpty()) {
+                final Map<Long, String> groupUids = new LinkedHashMap<>();
+                page.forEach(row -> groupUids.put((Long) row[0], (String) row[1]));
+                final long pageEndId = (Long) page.get(page.size() - 1)[0];
+                lastId = pageEndId;
+
+                while (inFlight.size() >= maxPagesInFlight)
+                    inFlight.poll().join();
+                synchronized (pendingPages) {
+                    pendingPages.put(pageEndId, false);
+                }
+                inFlight.add(CompletableFuture.runAsync(() -> {
+                    processPage(groupUids, localDate);
+                    markPageDone(pageEndId, localDate);
+                }, pageExecutor));
+            }
+
+            while (!inFlight.isEmpty())
+                inFlight.poll().join();
+
+            writeCheckpoint(localDate, DONE_MARKER);
+            log.info("Completed group location batch, {}", describeProgress());
+        } catch (CompletionException e) {
+            log.error("Group location batch failed, will resume from checkpoint, {}", describeProgress(), e.getCause());
+        } finally {
+            // pages still running could otherwise move the checkpoint past the failed one once it is cleared
+            inFlight.forEach(future -> future.handle((result, error) -> null).join());
+            synchronized (pendingPages) {
+                pendingPages.clear();
+            }
+            running.set(false);
+        }
+    }
+
+    /**
+     * Picks up the run the checkpoint records as unfinished, if there is one and nothing is running here, from where it
+     * got to. Does nothing if the last run completed.
+     */
+    public void resumeUnfinishedRun() {
+        if (running.get())
+            return;
+
+        final Optional<String> checkpoint = configRepository.findOneByKey(CHECKPOINT_KEY).map(ConfigVariable::getValue);
+        if (!checkpoint.isPresent() || checkpoint.get().endsWith(":" + DONE_MARKER))
+            return;
+
+        final LocalDate unfinishedDate;
+        try {
+            unfinishedDate = LocalDate.parse(checkpoint.get().substring(0, checkpoint.get().indexOf(':')));
+        } catch (DateTimeParseException | StringIndexOutOfBoundsException e) {
+            log.error("Could not read group location checkpoint, {}, not resuming", checkpoint.get());
+            return;
+        }
+
+        log.info("Resuming unfinished group location batch for {}", unfinishedDate);
+        calculateAllGroupLocations(unfinishedDate);
+    }
+
+    private void processPage(Map<Long, String> groupUids, LocalDate localDate) {
+        final Set<Long> groupIds = groupUids.keySet();
+
+        final Map<Long, List<GeoLocation>> memberLocations = new HashMap<>();
+        membershipRepository.fetchMemberLocationsForGroups(groupIds, localDate).forEach(row ->
+                memberLocations.computeIfAbsent((Long) row[0], k -> new ArrayList<>())
+                        .add(new GeoLocation((Double) row[1], (Double) row[2])));
+
+        final Map<Long, Long> memberCounts = memberLocations.isEmpty() ? Collections.emptyMap() :
+                membershipRepository.countMembersForGroups(memberLocations.keySet()).stream()
+                        .collect(Collectors.toMap(row -> (Long) row[0], row -> (Long) row[1]));
+
+        final Date sqlDate = Date.valueOf(localDate);
+        final List<Object[]> rows = new ArrayList<>();
+        final Map<Long, GeoLocation> centers = new HashMap<>();
+        memberLocations.forEach((groupId, locations) -> {
+            final GeoLocation center = GeoLocationUtils.centralLocation(locations);
+            // as in single group calculation, score is ratio of found member locations to total member count
+            final float score = Math.min(1, locations.size() / (float) memberCounts.getOrDefault(groupId, (long) locations.size()));
+            rows.add(new Object[] { groupId, sqlDate, center.getLatitude(), center.getLongitude(), score, LocationSource.CALCULATED.name() });
+            centers.put(groupId, center);
+        });
+
+        namedJdbcTemplate.update(DELETE_SQL, new MapSqlParameterSource("localDate", sqlDate).addValue("groupIds", groupIds));
+        if (!rows.isEmpty())
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        centers.forEach(nearbyLocationIndex::putGroupLocation);
+
+        groupsProcessed.addAndGet(groupIds.size());
+        locationsWritten.addAndGet(rows.size());
+
+        if (graphBroker != null)
+            centers.forEach((groupId, center) -> {
+                Map<String, String> groupProperties = new HashMap<>();
+                groupProperties.put(IncomingAnnotation.latitude, String.valueOf(center.getLatitude()));
+                groupProperties.put(IncomingAnnotation.longitude, String.valueOf(center.getLongitude()));
+                graphBroker.annotateGroup(groupUids.get(groupId), groupProperties, null, false);
+            });
+    }
+
+    private void markPageDone(long pageEndId, LocalDate localDate) {
+        Long checkpointId = null;
+        synchronized (pendingPages) {
+            pendingPages.put(pageEndId, true);
+            while (!pendingPages.isEmpty() && pendingPages.firstEntry().getValue()) {
+                checkpointId = pendingPages.pollFirstEntry().getKey();
+            }
+        }
+        if (checkpointId != null) {
+            writeCheckpoint(localDate, String.valueOf(checkpointId));
+            log.info("Group location batch progress, {}", describeProgress());
+        }
+    }
+
+    private String readCheckpoint(LocalDate localDate) {
+        return configRepository.findOneByKey(CHECKPOINT_KEY).map(ConfigVariable::getValue)
+                .filter(value -> value.startsWith(localDate.toString() + ":"))
+                .map(value -> value.substring(localDate.toString().length() + 1))
+                .orElse(null);
+    }
+
+    private synchronized void writeCheckpoint(LocalDate localDate, String position) {
+        final String value = localDate.toString() + ":" + position;
+        ConfigVariable variable = configRepository.findOneByKey(CHECKPOINT_KEY)
+                .orElse(new ConfigVariable(CHECKPOINT_KEY, value, "Last group id processed in nightly group location calculation"));
+        variable.setValue(value);
+        configRepository.save(variable);
+    }
+
+    public String describeProgress() {
+        final long elapsedMillis = runStartMillis == 0 ? 0 : System.currentTimeMillis() - runStartMillis;
+        final double groupsPerSecond = elapsedMillis == 0 ? 0 : groupsProcessed.get() * 1000.0 / elapsedMillis;
+        return String.format("date: %s, running: %s, groups processed: %d, locations written: %d, groups/sec: %.1f, checkpoint: %s",
+                runDate, running.get(), groupsProcessed.get(), locationsWritten.get(), groupsPerSecond,
+                runDate == null ? null : readCheckpoint(runDate));
+    }
+
+}
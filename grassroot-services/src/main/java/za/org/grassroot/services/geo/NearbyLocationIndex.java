@@ -0,0 +1,32 @@
+package za.org.grassroot.services.geo;
+
+import za.org.grassroot.core.domain.geo.GeoLocation;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * In-memory grid over the latest location of each group and the locations of meetings yet to start, so that "near me"
+ * searches can find candidates without evaluating the distance predicate on every location row in the database.
+ * Results are candidate ids only: callers hydrate them from the database, which also applies any access restrictions
+ * and so covers entries that are stale (e.g., a rolled back write) until the next rebuild.
+ */
+public interface NearbyLocationIndex {
+
+    /**
+     * @return ids of groups whose latest location is within the radius, closest first
+     */
+    List<Long> findGroupIdsNear(GeoLocation centre, int radiusInMetres);
+
+    /**
+     * @return ids of the meeting location rows within the radius for meetings that have not yet started, closest first
+     */
+    List<Long> findMeetingLocationIdsNear(GeoLocation centre, int radiusInMetres);
+
+    void putGroupLocation(Long groupId, GeoLocation location);
+
+    void putMeetingLocation(Long meetingLocationId, GeoLocation location, Instant meetingStart);
+
+    void rebuild();
+
+}
@@ -0,0 +1,205 @@
+package za.org.grassroot.services.geo;
+
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import za.org.grassroot.core.domain.geo.GeoLocation;
+import za.org.grassroot.core.repository.GroupLocationRepository;
+import za.org.grassroot.core.repository.TaskLocationRepository;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static za.org.grassroot.services.geo.GeoLocationUtils.M_PER_DEGREE;
+
+/**
+ * Locations are bucketed into a fixed grid of cells about five kilometres on a side. A radius search visits only the
+ * cells overlapping the search's bounding box and computes the exact distance for the entries in them, so the cost
+ * depends on how many locations are near the centre rather than how many there are in total. Writes of group and
+ * meeting locations update the grid as they happen, and it is rebuilt hourly to pick up writes on other nodes and drop
+ * meetings that have since started.
+ */
+@Service @Slf4j
+public class NearbyLocationIndexImpl implements NearbyLocationIndex, ApplicationContextAware {
+
+    private static final double CELL_DEGREES = 0.05;
+    private static final long LONGITUDE_CELLS = Math.round(360 / CELL_DEGREES);
+
+    private final GroupLocationRepository groupLocationRepository;
+    private final TaskLocationRepository taskLocationRepository;
+
+    private volatile Grid groupGrid;
+    private volatile Grid meetingGrid;
+
+    @Setter private ApplicationContext applicationContext;
+
+    @Autowired
+    public NearbyLocationIndexImpl(GroupLocationRepository groupLocationRepository, TaskLocationRepository taskLocationRepository) {
+        this.groupLocationRepository = groupLocationRepository;
+        this.taskLocationRepository = taskLocationRepository;
+    }
+
+    @Override
+    public List<Long> findGroupIdsNear(GeoLocation centre, int radiusInMetres) {
+        ensureLoaded();
+        return groupGrid.near(centre.getLatitude(), centre.getLongitude(), radiusInMetres, Long.MIN_VALUE);
+    }
+
+    @Override
+    public List<Long> findMeetingLocationIdsNear(GeoLocation centre, int radiusInMetres) {
+        ensureLoaded();
+        return meetingGrid.near(centre.getLatitude(), centre.getLongitude(), radiusInMetres, System.currentTimeMillis());
+    }
+
+    @Override
+    public void putGroupLocation(Long groupId, GeoLocation location) {
+        final Grid current = groupGrid;
+        if (current != null && groupId != null && location != null) // else will be picked up on first load
+            current.put(groupId, location.getLatitude(), location.getLongitude(), Long.MAX_VALUE);
+    }
+
+    @Override
+    public void putMeetingLocation(Long meetingLocationId, GeoLocation location, Instant meetingStart) {
+        final Grid current = meetingGrid;
+        if (current != null && meetingLocationId != null && location != null && meetingStart != null)
+            current.put(meetingLocationId, location.getLatitude(), location.getLongitude(), meetingStart.toEpochMilli());
+    }
+
+    @Override
+    @Scheduled(cron = "${grassroot.geo.nearby.index.rebuild.cron:0 45 * * * *}")
+    @Transactional(readOnly = true)
+    public synchronized void rebuild() {
+        final long startTime = System.currentTimeMillis();
+
+        final Grid groups = new Grid();
+        try (Stream<Object[]> rows = groupLocationRepository.streamLatestGroupLocations()) {
+            rows.forEach(row -> groups.put((Long) row[0], (Double) row[1], (Double) row[2], Long.MAX_VALUE));
+        }
+
+        final Grid meetings = new Grid();
+        try (Stream<Object[]> rows = taskLocationRepository.streamUpcomingMeetingLocations(Instant.now())) {
+            rows.forEach(row -> meetings.put((Long) row[0], (Double) row[1], (Double) row[2], ((Instant) row[3]).toEpochMilli()));
+        }
+
+        groupGrid = groups;
+        meetingGrid = meetings;
+        log.info("Rebuilt nearby location index, {} groups and {} meeting locations, took {} msecs",
+                groups.size(), meetings.size(), System.currentTimeMillis() - startTime);
+    }
+
+    private void ensureLoaded() {
+        if (groupGrid == null || meetingGrid == null) {
+            synchronized (this) {
+                if (groupGrid == null || meetingGrid == null) // through the proxy, as the streamed queries need a transaction
+                    applicationContext.getBean(NearbyLocationIndex.class).rebuild();
+            }
+        }
+    }
+
+    static long cellKey(double latitude, double longitude) {
+        return latitudeCell(latitude) * LONGITUDE_CELLS + longitudeCell(longitude);
+    }
+
+    private static long latitudeCell(double latitude) {
+        return (long) Math.floor((latitude + 90) / CELL_DEGREES);
+    }
+
+    // not wrapped, so that spans across the antimeridian can be computed by subtraction
+    private static long unwrappedLongitudeCell(double longitude) {
+        return (long) Math.floor((longitude + 180) / CELL_DEGREES);
+    }
+
+    private static long longitudeCell(double longitude) {
+        return Math.floorMod(unwrappedLongitudeCell(longitude), LONGITUDE_CELLS);
+    }
+
+    private static final class Entry {
+        private final double latitude;
+        private final double longitude;
+        private final long cellKey;
+        private final long expiresMillis;
+
+        private Entry(double latitude, double longitude, long expiresMillis) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.cellKey = cellKey(latitude, longitude);
+            this.expiresMillis = expiresMillis;
+        }
+    }
+
+    // writes are serialised on the grid, reads are lock free and skip entries that moved cell while being read
+    static final class Grid {
+        private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+        private final Map<Long, Set<Long>> cells = new ConcurrentHashMap<>();
+
+        synchronized void put(long id, double latitude, double longitude, long expiresMillis) {
+            final Entry entry = new Entry(latitude, longitude, expiresMillis);
+            final Entry prior = entries.put(id, entry);
+            if (prior != null && prior.cellKey != entry.cellKey) {
+                final Set<Long> priorCell = cells.get(prior.cellKey);
+                if (priorCell != null)
+                    priorCell.remove(id);
+            }
+            cells.computeIfAbsent(entry.cellKey, k -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+
+        int size() {
+            return entries.size();
+        }
+
+        List<Long> near(double latitude, double longitude, int radiusInMetres, long nowMillis) {
+            final double latitudeDelta = radiusInMetres / M_PER_DEGREE;
+            final double cosLatitude = Math.cos(Math.toRadians(latitude));
+            final double longitudeDelta = cosLatitude < 0.01 ? 360 : radiusInMetres / (M_PER_DEGREE * cosLatitude);
+
+            final long minLatCell = latitudeCell(Math.max(-90, latitude - latitudeDelta));
+            final long maxLatCell = latitudeCell(Math.min(90, latitude + latitudeDelta));
+            final long lonCellSpan = longitudeDelta >= 180 ? LONGITUDE_CELLS : Math.min(LONGITUDE_CELLS,
+                    unwrappedLongitudeCell(longitude + longitudeDelta) - unwrappedLongitudeCell(longitude - longitudeDelta) + 1);
+            final long firstLonCell = longitudeDelta >= 180 ? 0 : unwrappedLongitudeCell(longitude - longitudeDelta);
+
+            final Map<Long, Double> distances = new HashMap<>();
+            if ((maxLatCell - minLatCell + 1) * lonCellSpan > cells.size()) {
+                // very wide search, cheaper to look at every occupied cell than every cell in the box
+                cells.forEach((key, ids) -> collect(key, ids, latitude, longitude, radiusInMetres, nowMillis, distances));
+            } else {
+                for (long latCell = minLatCell; latCell <= maxLatCell; latCell++) {
+                    for (long i = 0; i < lonCellSpan; i++) {
+                        // wraps across the antimeridian
+                        final long lonCell = Math.floorMod(firstLonCell + i, LONGITUDE_CELLS);
+                        final long key = latCell * LONGITUDE_CELLS + lonCell;
+                        final Set<Long> ids = cells.get(key);
+                        if (ids != null)
+                            collect(key, ids, latitude, longitude, radiusInMetres, nowMillis, distances);
+                    }
+                }
+            }
+
+            return distances.entrySet().stream()
+                    .sorted(Map.Entry.comparingByValue())
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toList());
+        }
+
+        private void collect(long key, Set<Long> ids, double latitude, double longitude, int radiusInMetres,
+                             long nowMillis, Map<Long, Double> distances) {
+            for (Long id : ids) {
+                final Entry entry = entries.get(id);
+                if (entry == null || entry.cellKey != key || entry.expiresMillis < nowMillis)
+                    continue;
+                final double distance = GeoLocationUtils.distanceInMetres(latitude, longitude, entry.latitude, entry.longitude);
+                if (distance <= radiusInMetres)
+                    distances.put(id, distance);
+            }
+        }
+    }
+
+}
@@ -121,8 +121,6 @@ public interface GroupBroker {
 
     Set<String> getUsedJoinWords();
 
-    Map<String, String> getJoinWordsWithGroupIds();
-
     void updateDiscoverable(String userUid, String groupUid, boolean discoverable, String authUserPhoneNumber);
 
     /** METHODS FOR DEALING WITH SUBGROUPS, LINKING GROUPS, AND MERGING **/
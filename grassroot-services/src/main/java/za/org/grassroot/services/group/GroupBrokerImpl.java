@@ -1,6 +1,7 @@
 package za.org.grassroot.services.group;
 
 import com.google.common.base.Stopwatch;
+import com.google.common.collect.Iterables;
 import lombok.Setter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,6 +18,7 @@ import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
+import za.org.grassroot.GrassrootExecutorsConfig;
 import za.org.grassroot.core.domain.*;
 import za.org.grassroot.core.domain.account.Account;
 import za.org.grassroot.core.domain.account.AccountLog;
@@ -27,6 +29,7 @@ import za.org.grassroot.core.domain.notification.JoinCodeNotification;
 import za.org.grassroot.core.domain.task.Meeting;
 import za.org.grassroot.core.dto.membership.MembershipInfo;
 import za.org.grassroot.core.enums.*;
+import za.org.grassroot.core.events.InboundKeywordChangedEvent;
 import za.org.grassroot.core.repository.*;
 import za.org.grassroot.core.specifications.GroupSpecifications;
 import za.org.grassroot.core.specifications.MembershipSpecifications;
@@ -64,6 +67,8 @@ public class GroupBrokerImpl implements GroupBroker, ApplicationContextAware {
 
     private final Logger logger = LoggerFactory.getLogger(GroupBrokerImpl.class);
 
+    private static final int MEMBER_LOOKUP_BATCH_SIZE = 1000;
+
     @Value("${grassroot.groups.join.words.max:3}")
     private int maxJoinWords;
 
@@ -74,6 +79,7 @@ public class GroupBrokerImpl implements GroupBroker, ApplicationContextAware {
     private final MembershipRepository membershipRepository;
     private final GroupJoinCodeRepository groupJoinCodeRepository;
     private final BroadcastRepository broadcastRepository;
+    private final GroupMemberCounter groupMemberCounter;
 
     private final PermissionBroker permissionBroker;
     private final ApplicationEventPublisher applicationEventPublisher;
@@ -94,7 +100,8 @@ public class GroupBrokerImpl implements GroupBroker, ApplicationContextAware {
     public GroupBrokerImpl(GroupRepository groupRepository, Environment environment, UserRepository userRepository,
                            MembershipRepository membershipRepository, GroupJoinCodeRepository groupJoinCodeRepository, BroadcastRepository broadcastRepository, PermissionBroker permissionBroker,
                            ApplicationEventPublisher applicationEventPublisher, LogsAndNotificationsBroker logsAndNotificationsBroker,
-                           TokenGeneratorService tokenGeneratorService, MessageAssemblingService messageAssemblingService, UrlShortener urlShortener) {
+                           TokenGeneratorService tokenGeneratorService, MessageAssemblingService messageAssemblingService, UrlShortener urlShortener,
+                           GroupMemberCounter groupMemberCounter) {
         this.groupRepository = groupRepository;
         this.environment = environment;
         this.userRepository = userRepository;
@@ -107,6 +114,7 @@ public class GroupBrokerImpl implements GroupBroker, ApplicationContextAware {
         this.tokenGeneratorService = tokenGeneratorService;
         this.messageAssemblingService = messageAssemblingService;
         this.urlShortener = urlShortener;
+        this.groupMemberCounter = groupMemberCounter;
     }
 
     @Autowired(required = false)
@@ -348,6 +356,7 @@ public class GroupBrokerImpl implements GroupBroker, ApplicationContextAware {
 
         List<User> members = userRepository.findByUidIn(memberUids);
         subgroup.addMembers(members, GroupRole.ROLE_ORDINARY_MEMBER, GroupJoinMethod.ADDED_SUBGROUP, user.getName());
+        groupMemberCounter.storeChanges(subgroup);
 
         LogsAndNotificationsBundle bundle = new LogsAndNotificationsBundle();
         createSubGroupAddedLogs(parent, subgroup, user, members, bundle);
@@ -401,7 +410,7 @@ public class GroupBrokerImpl implements GroupBroker, ApplicationContextAware {
                 null, subgroup, null, newName)));
     }
 
-    @Async
+    @Async(GrassrootExecutorsConfig.BULK_EXECUTOR)
     @Override
     @Transactional
     public void asyncMemberToSubgroupAdd(String userUid, String groupUid, Set<MembershipInfo> membershipInfos) {
@@ -433,6 +442,7 @@ public class GroupBrokerImpl implements GroupBroker, ApplicationContextAware {
 
         final String fromGroupName = fromGroup.getName();
         toGroup.addMembers(userSet, GroupRole.ROLE_ORDINARY_MEMBER, GroupJoinMethod.COPIED_INTO_GROUP, fromGroupName);
+        groupMemberCounter.storeChanges(toGroup);
 
         LogsAndNotificationsBundle bundle = new LogsAndNotificationsBundle();
 
@@ -605,6 +615,7 @@ public class GroupBrokerImpl implements GroupBroker, ApplicationContextAware {
             membership.setViewPriority(GroupViewPriority.PINNED);
             // we have to save via repository because we cannot just add cascading persist due to inverse side (Group's membership having that), otherwise double insert fails
             membership = this.membershipRepository.save(membership);
+            groupMemberCounter.storeChanges(group);
         }
 
         if (topics != null) {
@@ -618,6 +629,7 @@ public class GroupBrokerImpl implements GroupBroker, ApplicationContextAware {
             if (!user.isMemberOf(parentGroup)) {
                 Membership parentMembership = user.addMappedByMembership(parentGroup, GroupRole.ROLE_ORDINARY_MEMBER, GroupJoinMethod.SELF_JOINED, code);
                 parentMembership = this.membershipRepository.save(parentMembership);
+                groupMemberCounter.storeChanges(parentGroup);
 
                 bundle.addLog(new GroupLog(parentGroup, user, GroupLogType.GROUP_MEMBER_ADDED_VIA_SUBGROUP_CODE, user, group, null, null));
             }
@@ -691,7 +703,7 @@ public class GroupBrokerImpl implements GroupBroker, ApplicationContextAware {
 
     @Override
     @Transactional
-    @Async
+    @Async(GrassrootExecutorsConfig.BULK_EXECUTOR)
     public void asyncAddMemberships(String initiatorUid, String groupId, Set<MembershipInfo> membershipInfos,
                                     GroupJoinMethod joinMethod, String joinMethodDescriptor, boolean duringGroupCreation, boolean createWelcomeNotifications) {
         User initiator = userRepository.findOneByUid(initiatorUid);
@@ -720,8 +732,15 @@ public class GroupBrokerImpl implements GroupBroker, ApplicationContextAware {
         // depends how we're limiting
         int numberMembersLeft = limitSizeCheck ? accountFeaturesBroker.numberMembersLeftForGroup(group, joinMethod) : 9999;
 
-        final Set<String> existingEmails = userRepository.fetchUsedEmailAddresses();
-        final Set<String> existingPhoneNumbers = userRepository.fetchUserPhoneNumbers();
+        final Map<String, User> existingByPhone = new HashMap<>();
+        final Map<String, User> existingByEmail = new HashMap<>();
+        fetchExistingMembersToAdd(membershipInfos, existingByPhone, existingByEmail);
+
+        // a group that is already saved has its memberships appended directly, checking existing ones on the (group, user)
+        // index, so adding a few members to a big group does not load all the others; a new one has none to load
+        final boolean appendDirectly = group.getId() != null;
+        final Set<Long> alreadyMemberIds = appendDirectly ? fetchAlreadyMemberIds(group, existingByPhone, existingByEmail) : Collections.emptySet();
+        final Set<User> appendedMembers = new HashSet<>();
 
         for (MembershipInfo membershipInfo : membershipInfos) {
             if (numberMembersLeft < 0) {
@@ -729,7 +748,7 @@ public class GroupBrokerImpl implements GroupBroker, ApplicationContextAware {
                 break;
             }
 
-            final User member = findOrConstructMemberToAdd(membershipInfo, existingEmails, existingPhoneNumbers);
+            final User member = findOrConstructMemberToAdd(membershipInfo, existingByPhone, existingByEmail);
             if (member == null) {
                 logger.info("Got a null member, not sure why, info: {}", membershipInfo);
                 continue;
@@ -742,7 +761,13 @@ public class GroupBrokerImpl implements GroupBroker, ApplicationContextAware {
 
             final GroupRole roleName = membershipInfo.getRoleName() == null ? GroupRole.ROLE_ORDINARY_MEMBER : membershipInfo.getRoleName();
             final GroupJoinMethod memberJoinMethod = joinMethod == null ? GroupJoinMethod.ADDED_BY_OTHER_MEMBER : joinMethod;
-            final Membership membership = group.addMember(member, roleName, memberJoinMethod, joinMethodDescriptor);
+            final Membership membership;
+            if (!appendDirectly)
+                membership = group.addMember(member, roleName, memberJoinMethod, joinMethodDescriptor);
+            else if (alreadyMemberIds.contains(member.getId()) || !appendedMembers.add(member))
+                membership = null;
+            else
+                membership = group.createMembership(member, roleName, memberJoinMethod, joinMethodDescriptor);
 
             if (membershipInfo.hasTaskTeams()) {
                 membershipInfo.setUserUid(member.getUid());
@@ -763,6 +788,11 @@ public class GroupBrokerImpl implements GroupBroker, ApplicationContextAware {
         // make sure the newly created users are stored
         storeCreatedUsers(group, newlyCreatedUsers, bundle);
 
+        if (appendDirectly && !addedMemberships.isEmpty()) {
+            membershipRepository.saveAll(addedMemberships);
+        }
+        groupMemberCounter.storeChanges(group);
+
         // adding action logs and event notifications ...
         final GroupLogType logType = duringGroupCreation ? GroupLogType.GROUP_MEMBER_ADDED_AT_CREATION : GroupLogType.GROUP_MEMBER_ADDED;
 
@@ -790,8 +820,7 @@ public class GroupBrokerImpl implements GroupBroker, ApplicationContextAware {
             graphBroker.addMembershipToGraph(addedUserUids, group.getUid());
 
         if (!duringGroupCreation && graphBroker != null)
-            for (Membership membership : addedMemberships)
-                graphBroker.annotateMembership(membership.getUser().getUid(), membership.getGroup().getUid(), null, true);
+            graphBroker.annotateMemberships(group.getUid(), addedUserUids);
 
         return bundle;
     }
@@ -806,16 +835,46 @@ public class GroupBrokerImpl implements GroupBroker, ApplicationContextAware {
         logger.info("phoneNumbers returned: .... {}, email addresses: {}", memberPhoneNumbers, emailAddresses);
     }
 
-    private User findOrConstructMemberToAdd(MembershipInfo membershipInfo, Set<String> existingEmails, Set<String> existingPhoneNumbers) {
+    // one query per batch of phones and of emails, instead of a query per member
+    private void fetchExistingMembersToAdd(Set<MembershipInfo> membershipInfos, Map<String, User> existingByPhone,
+                                           Map<String, User> existingByEmail) {
+        final Set<String> phones = membershipInfos.stream().map(MembershipInfo::getConvertedNumber)
+                .filter(Optional::isPresent).map(Optional::get).collect(Collectors.toSet());
+        final Set<String> emails = membershipInfos.stream().map(MembershipInfo::getFormattedEmail)
+                .filter(Optional::isPresent).map(Optional::get).collect(Collectors.toSet());
+
+        for (List<String> phoneBatch : Iterables.partition(phones, MEMBER_LOOKUP_BATCH_SIZE))
+            userRepository.findByPhoneNumberIn(phoneBatch).forEach(u -> existingByPhone.put(u.getPhoneNumber(), u));
+
+        for (List<String> emailBatch : Iterables.partition(emails, MEMBER_LOOKUP_BATCH_SIZE))
+            userRepository.findByEmailAddressLowerCaseIn(emailBatch).forEach(u -> existingByEmail.put(u.getEmailAddress().toLowerCase(), u));
+
+        logger.info("Looked up {} phones and {} emails, found {} and {} existing users",
+                phones.size(), emails.size(), existingByPhone.size(), existingByEmail.size());
+    }
+
+    private Set<Long> fetchAlreadyMemberIds(Group group, Map<String, User> existingByPhone, Map<String, User> existingByEmail) {
+        final Set<Long> userIds = new HashSet<>();
+        existingByPhone.values().forEach(u -> userIds.add(u.getId()));
+        existingByEmail.values().forEach(u -> userIds.add(u.getId()));
+
+        final Set<Long> memberIds = new HashSet<>();
+        for (List<Long> idBatch : Iterables.partition(userIds, MEMBER_LOOKUP_BATCH_SIZE))
+            memberIds.addAll(membershipRepository.findMemberUserIds(group, idBatch));
+        return memberIds;
+    }
+
+    private User findOrConstructMemberToAdd(MembershipInfo membershipInfo, Map<String, User> existingByPhone,
+                                            Map<String, User> existingByEmail) {
         final Optional<String> msisdn = membershipInfo.getConvertedNumber();
         final Optional<String> emailAddress = membershipInfo.getFormattedEmail();
 
         User member;
-        if (msisdn.isPresent() && existingPhoneNumbers.contains(msisdn.get())) {
-            member = userRepository.findByPhoneNumberAndPhoneNumberNotNull(msisdn.get());
+        if (msisdn.isPresent() && existingByPhone.containsKey(msisdn.get())) {
+            member = existingByPhone.get(msisdn.get());
             logger.info("Msisdn present, {}, member not null ? : {}", msisdn.get(), member != null);
-        } else if (emailAddress.isPresent() && existingEmails.contains(emailAddress.get())) {
-            member = userRepository.findByEmailAddressIgnoreCaseAndEmailAddressNotNull(emailAddress.get());
+        } else if (emailAddress.isPresent() && existingByEmail.containsKey(emailAddress.get())) {
+            member = existingByEmail.get(emailAddress.get());
             logger.info("Email present, {}, member not null ? : {}", emailAddress.get(), member != null);
         } else {
             logger.info("Adding a new user, via group creation, with phone number: {}, email: {}", msisdn, emailAddress);
@@ -830,10 +889,10 @@ public class GroupBrokerImpl implements GroupBroker, ApplicationContextAware {
         }
 
         if (!member.isHasInitiatedSession()) {
-            if (!member.hasEmailAddress() && emailAddress.isPresent() && !existingEmails.contains(emailAddress.get())) {
+            if (!member.hasEmailAddress() && emailAddress.isPresent() && !existingByEmail.containsKey(emailAddress.get())) {
                 member.setEmailAddress(emailAddress.get());
             }
-            if (!member.hasPhoneNumber() && msisdn.isPresent() && !existingPhoneNumbers.contains(msisdn.get())) {
+            if (!member.hasPhoneNumber() && msisdn.isPresent() && !existingByPhone.containsKey(msisdn.get())) {
                 member.setPhoneNumber(msisdn.get());
             }
         }
@@ -948,6 +1007,7 @@ public class GroupBrokerImpl implements GroupBroker, ApplicationContextAware {
             actionLogs.add(new GroupLog(group, initiator, GroupLogType.GROUP_MEMBER_REMOVED,
                     membership.getUser(), null, null, null));
         }
+        groupMemberCounter.storeChanges(group);
         return actionLogs;
     }
 
@@ -1322,8 +1382,13 @@ public class GroupBrokerImpl implements GroupBroker, ApplicationContextAware {
         }
 
         if (toCloseJoinCode) {
+            final String closedToken = group.getGroupTokenCode();
             group.setGroupTokenCode(null);
             group.setTokenExpiryDateTime(Instant.now());
+            if (closedToken != null) {
+                applicationEventPublisher.publishEvent(new InboundKeywordChangedEvent(this, InboundKeywordType.GROUP_JOIN_TOKEN,
+                        closedToken, group.getUid(), group.getTokenExpiryDateTime()));
+            }
             groupLogs.add(new GroupLog(group, user, GroupLogType.TOKEN_CHANGED, "token closed"));
         }
 
@@ -1494,6 +1559,8 @@ public class GroupBrokerImpl implements GroupBroker, ApplicationContextAware {
         }
 
         GroupLog groupLog = new GroupLog(group, user, GroupLogType.TOKEN_CHANGED, logMessage);
+        applicationEventPublisher.publishEvent(new InboundKeywordChangedEvent(this, InboundKeywordType.GROUP_JOIN_TOKEN,
+                token, group.getUid(), group.getTokenExpiryDateTime()));
 
         return new JoinTokenOpeningResult(token, groupLog);
     }
@@ -1536,8 +1603,13 @@ public class GroupBrokerImpl implements GroupBroker, ApplicationContextAware {
 
         permissionBroker.validateGroupPermission(user, group, Permission.GROUP_PERMISSION_UPDATE_GROUP_DETAILS);
 
+        final String closedToken = group.getGroupTokenCode();
         group.setGroupTokenCode(null);
         group.setTokenExpiryDateTime(Instant.now());
+        if (closedToken != null) {
+            applicationEventPublisher.publishEvent(new InboundKeywordChangedEvent(this, InboundKeywordType.GROUP_JOIN_TOKEN,
+                    closedToken, group.getUid(), group.getTokenExpiryDateTime()));
+        }
 
         GroupLog groupLog = new GroupLog(group, user, GroupLogType.TOKEN_CHANGED, "Group join code closed");
         logActionLogsAfterCommit(Collections.singleton(groupLog));
@@ -1567,6 +1639,8 @@ public class GroupBrokerImpl implements GroupBroker, ApplicationContextAware {
         GroupJoinCode gjc  = new GroupJoinCode(user, group, code, shortenedUrl);
 
         gjc = groupJoinCodeRepository.save(gjc);
+        applicationEventPublisher.publishEvent(new InboundKeywordChangedEvent(this, InboundKeywordType.GROUP_JOIN_WORD,
+                code, group.getUid(), null));
 
         // note: shouldn't need to add to group, Hibernate should wire up, but keep an eye out
 
@@ -1592,7 +1666,10 @@ public class GroupBrokerImpl implements GroupBroker, ApplicationContextAware {
         final Optional<GroupJoinCode> joinCodeOptional = group.getActiveJoinCode(code);
         if (joinCodeOptional.isPresent()) {
             final GroupJoinCode gjc = joinCodeOptional.get();
-            gjc.close(Instant.now(), user);
+            final Instant closedTime = Instant.now();
+            gjc.close(closedTime, user);
+            applicationEventPublisher.publishEvent(new InboundKeywordChangedEvent(this, InboundKeywordType.GROUP_JOIN_WORD,
+                    gjc.getCode(), group.getUid(), closedTime));
         } else {
             logger.error("Asked to close an already closed or non-existing join code, {}, for group {}", code, group);
         }
@@ -1618,13 +1695,6 @@ public class GroupBrokerImpl implements GroupBroker, ApplicationContextAware {
         return groupJoinCodeRepository.selectLowerCaseActiveJoinWords();
     }
 
-    @Override
-    @Transactional(readOnly = true)
-    public Map<String, String> getJoinWordsWithGroupIds() {
-        return groupJoinCodeRepository.findByActiveTrue()
-                .stream().collect(Collectors.toMap(GroupJoinCode::getCode, gjc -> gjc.getGroup().getUid()));
-    }
-
     @Override
     @Transactional
     public void updateDiscoverable(String userUid, String groupUid, boolean discoverable, String authUserPhoneNumber) {
@@ -1661,6 +1731,7 @@ public class GroupBrokerImpl implements GroupBroker, ApplicationContextAware {
         Membership membership = user.addMappedByMembership(group, GroupRole.ROLE_ORDINARY_MEMBER, GroupJoinMethod.SELF_JOINED, null);
         if (membership != null) {
             membership = this.membershipRepository.save(membership);
+            groupMemberCounter.storeChanges(group);
         }
 
         Group parentGroup = group.getParent();
@@ -1668,6 +1739,7 @@ public class GroupBrokerImpl implements GroupBroker, ApplicationContextAware {
             Membership parentMembership = user.addMappedByMembership(parentGroup, GroupRole.ROLE_ORDINARY_MEMBER, GroupJoinMethod.ADDED_BY_OTHER_MEMBER, null);
             if (parentMembership != null) {
                 this.membershipRepository.save(parentMembership);
+                groupMemberCounter.storeChanges(parentGroup);
             }
             parentGroup = parentGroup.getParent();
         }
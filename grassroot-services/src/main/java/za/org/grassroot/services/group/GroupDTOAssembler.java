@@ -0,0 +1,91 @@
+package za.org.grassroot.services.group;
+
+import com.google.common.collect.Lists;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import za.org.grassroot.core.domain.group.Group;
+import za.org.grassroot.core.domain.group.Membership;
+import za.org.grassroot.core.domain.task.Event;
+import za.org.grassroot.core.domain.task.Todo;
+import za.org.grassroot.core.dto.group.GroupMinimalDTO;
+import za.org.grassroot.core.dto.group.GroupRefDTO;
+import za.org.grassroot.core.dto.group.GroupWebDTO;
+import za.org.grassroot.core.repository.EventRepository;
+import za.org.grassroot.core.repository.GroupRepository;
+import za.org.grassroot.core.repository.TodoRepository;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Builds the group DTOs for a whole list of memberships at once. Member counts come from the group row, and the
+ * upcoming events, todos and subgroups of every group are each fetched in one query (per chunk of groups) rather than
+ * by walking each group's collections, so the number of queries does not grow with the number of groups. Memberships
+ * should come with their groups (and the groups' role permissions) already fetched, as the membership repository's
+ * "with groups fetched" queries do.
+ */
+@Component
+public class GroupDTOAssembler {
+
+    private static final int GROUPS_PER_QUERY = 1000;
+
+    private final GroupRepository groupRepository;
+    private final EventRepository eventRepository;
+    private final TodoRepository todoRepository;
+
+    @Autowired
+    public GroupDTOAssembler(GroupRepository groupRepository, EventRepository eventRepository, TodoRepository todoRepository) {
+        this.groupRepository = groupRepository;
+        this.eventRepository = eventRepository;
+        this.todoRepository = todoRepository;
+    }
+
+    public List<GroupMinimalDTO> assembleMinimal(Collection<Membership> memberships) {
+        final List<Group> groups = groupsOf(memberships);
+        final Map<Long, List<Event>> events = upcomingEventsByGroup(groups, Instant.now());
+        return memberships.stream()
+                .map(m -> new GroupMinimalDTO(m.getGroup(), m, events.getOrDefault(m.getGroup().getId(), Collections.emptyList())))
+                .collect(Collectors.toList());
+    }
+
+    public List<GroupWebDTO> assembleWeb(Collection<Membership> memberships, boolean includeSubgroups) {
+        final List<Group> groups = groupsOf(memberships);
+        final Instant now = Instant.now();
+        final Map<Long, List<Event>> events = upcomingEventsByGroup(groups, now);
+        final Map<Long, List<Todo>> todos = inChunks(groups, chunk -> todoRepository.findByParentGroupInAndActionByDateAfter(chunk, now))
+                .stream().collect(Collectors.groupingBy(todo -> todo.getAncestorGroup().getId()));
+        final Map<Long, List<GroupRefDTO>> subgroups = !includeSubgroups ? Collections.emptyMap() :
+                inChunks(groups, groupRepository::findByParentInAndActiveTrue).stream()
+                        .collect(Collectors.groupingBy(group -> group.getParent().getId(),
+                                Collectors.mapping(GroupRefDTO::new, Collectors.toList())));
+
+        return memberships.stream()
+                .map(m -> {
+                    final Long groupId = m.getGroup().getId();
+                    return new GroupWebDTO(m.getGroup(), m, subgroups.getOrDefault(groupId, Collections.emptyList()),
+                            events.getOrDefault(groupId, Collections.emptyList()),
+                            todos.getOrDefault(groupId, Collections.emptyList()));
+                })
+                .collect(Collectors.toList());
+    }
+
+    private Map<Long, List<Event>> upcomingEventsByGroup(List<Group> groups, Instant now) {
+        return inChunks(groups, chunk -> eventRepository.findByAncestorGroupInAndEventStartDateTimeAfter(chunk, now))
+                .stream().collect(Collectors.groupingBy(event -> event.getAncestorGroup().getId()));
+    }
+
+    private static List<Group> groupsOf(Collection<Membership> memberships) {
+        return memberships.stream().map(Membership::getGroup).distinct().collect(Collectors.toList());
+    }
+
+    private static <T> List<T> inChunks(List<Group> groups, Function<List<Group>, List<T>> query) {
+        final List<T> results = new ArrayList<>();
+        for (List<Group> chunk : Lists.partition(groups, GROUPS_PER_QUERY)) {
+            results.addAll(query.apply(chunk));
+        }
+        return results;
+    }
+
+}
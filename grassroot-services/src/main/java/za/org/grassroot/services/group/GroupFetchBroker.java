@@ -11,6 +11,7 @@ import za.org.grassroot.core.domain.group.Group;
 import za.org.grassroot.core.domain.group.GroupJoinMethod;
 import za.org.grassroot.core.domain.group.JoinDateCondition;
 import za.org.grassroot.core.domain.group.Membership;
+import za.org.grassroot.core.dto.UserBroadcastProjection;
 import za.org.grassroot.core.dto.group.GroupFullDTO;
 import za.org.grassroot.core.dto.group.GroupLogDTO;
 import za.org.grassroot.core.dto.group.GroupMinimalDTO;
@@ -78,4 +79,20 @@ public interface GroupFetchBroker {
                                         Collection<String> languages,
                                         GroupRole groupRole);
 
+    // as above, but returns only the fields needed to send and merge a broadcast, one per user
+    List<UserBroadcastProjection> filterGroupMemberRecipients(User user, String groupUid,
+                                                              Collection<Province> provinces,
+                                                              Boolean noProvince,
+                                                              Collection<String> taskTeams,
+                                                              Collection<String> topics,
+                                                              Collection<String> affiliations,
+                                                              Collection<GroupJoinMethod> joinMethods,
+                                                              Collection<String> joinedCampaignsUids,
+                                                              Integer joinDaysAgo,
+                                                              LocalDate joinDate,
+                                                              JoinDateCondition joinDaysAgoCondition,
+                                                              String namePhoneOrEmail,
+                                                              Collection<String> languages,
+                                                              GroupRole groupRole);
+
 }
@@ -17,12 +17,14 @@ import za.org.grassroot.core.domain.ActionLog;
 import za.org.grassroot.core.domain.GroupRole;
 import za.org.grassroot.core.domain.Permission;
 import za.org.grassroot.core.domain.User;
-import za.org.grassroot.core.domain.campaign.CampaignLog;
+import za.org.grassroot.core.domain.User_;
 import za.org.grassroot.core.domain.group.Group;
 import za.org.grassroot.core.domain.group.GroupJoinMethod;
 import za.org.grassroot.core.domain.group.GroupLog;
 import za.org.grassroot.core.domain.group.JoinDateCondition;
 import za.org.grassroot.core.domain.group.Membership;
+import za.org.grassroot.core.domain.group.Membership_;
+import za.org.grassroot.core.dto.UserBroadcastProjection;
 import za.org.grassroot.core.dto.group.GroupFullDTO;
 import za.org.grassroot.core.dto.group.GroupLogDTO;
 import za.org.grassroot.core.dto.group.GroupMembersDTO;
@@ -33,9 +35,7 @@ import za.org.grassroot.core.dto.group.GroupWebDTO;
 import za.org.grassroot.core.dto.group.MembershipRecordDTO;
 import za.org.grassroot.core.dto.membership.MembershipDTO;
 import za.org.grassroot.core.dto.membership.MembershipFullDTO;
-import za.org.grassroot.core.enums.CampaignLogType;
 import za.org.grassroot.core.enums.Province;
-import za.org.grassroot.core.repository.CampaignLogRepository;
 import za.org.grassroot.core.repository.GroupLogRepository;
 import za.org.grassroot.core.repository.GroupRepository;
 import za.org.grassroot.core.repository.MembershipRepository;
@@ -48,6 +48,11 @@ import za.org.grassroot.services.exception.MemberLacksPermissionException;
 import za.org.grassroot.services.util.FullTextSearchUtils;
 import za.org.grassroot.services.util.LogsAndNotificationsBroker;
 
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Root;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
@@ -72,22 +77,24 @@ public class GroupFetchBrokerImpl implements GroupFetchBroker {
     private final GroupRepository groupRepository;
     private final GroupLogRepository groupLogRepository;
     private final MembershipRepository membershipRepository;
-    private final CampaignLogRepository campaignLogRepository;
     private final PermissionBroker permissionBroker;
     private final LogsAndNotificationsBroker logsBroker;
+    private final EntityManager entityManager;
+    private final GroupDTOAssembler groupDTOAssembler;
 
     @Autowired
     public GroupFetchBrokerImpl(UserRepository userRepository, GroupRepository groupRepository,
                                 GroupLogRepository groupLogRepository, MembershipRepository membershipRepository,
-                                CampaignLogRepository campaignLogRepository, LogsAndNotificationsBroker logsBroker,
-                                PermissionBroker permissionBroker) {
+                                LogsAndNotificationsBroker logsBroker, PermissionBroker permissionBroker,
+                                EntityManager entityManager, GroupDTOAssembler groupDTOAssembler) {
         this.userRepository = userRepository;
         this.groupRepository = groupRepository;
         this.groupLogRepository = groupLogRepository;
         this.membershipRepository = membershipRepository;
-        this.campaignLogRepository = campaignLogRepository;
         this.permissionBroker = permissionBroker;
         this.logsBroker = logsBroker;
+        this.entityManager = entityManager;
+        this.groupDTOAssembler = groupDTOAssembler;
     }
 
     @Override
@@ -116,7 +123,7 @@ public class GroupFetchBrokerImpl implements GroupFetchBroker {
 
         final Set<Group> groups = this.groupRepository.findByUidIn(uidsToLookUp);
         final List<GroupTimeChangedDTO> groupTimeChangedDTOS = groups.stream()
-                .map(group -> new GroupTimeChangedDTO(group, membershipRepository))
+                .map(GroupTimeChangedDTO::new)
                 .collect(Collectors.toList());
 
         return groupTimeChangedDTOS.stream()
@@ -136,10 +143,7 @@ public class GroupFetchBrokerImpl implements GroupFetchBroker {
         }
         final User user = userRepository.findOneByUid(userUid);
 
-        return user.getMemberships().stream()
-                .filter(membership -> groupUids.contains(membership.getGroup().getUid()))
-                .map(membership -> new GroupMinimalDTO(membership.getGroup(), membership, this.membershipRepository))
-                .collect(Collectors.toSet());
+        return new HashSet<>(groupDTOAssembler.assembleMinimal(membershipRepository.findByGroupUidsWithGroupsFetched(user, groupUids)));
     }
 
     @Override
@@ -178,7 +182,7 @@ public class GroupFetchBrokerImpl implements GroupFetchBroker {
         if (includeAllSubgroups) {
             final List<Group> subgroups = groupRepository.findAll(Specification.where(hasParent(group)).and(isActive()));
             final List<GroupMembersDTO> groupMembersDTOS = subgroups.stream()
-                    .map(g -> new GroupMembersDTO(g, membershipRepository))
+                    .map(GroupMembersDTO::new)
                     .collect(Collectors.toList());
             groupFullDTO.setSubGroups(groupMembersDTOS);
         }
@@ -275,17 +279,9 @@ public class GroupFetchBrokerImpl implements GroupFetchBroker {
     public List<GroupWebDTO> fetchGroupWebInfo(String userUid, boolean includeSubgroups) {
         User user = userRepository.findOneByUid(userUid);
 
-        List<Group> groups = groupRepository.findByMembershipsUserAndActiveTrueAndParentIsNull(user);
-
-        List<GroupWebDTO> dtos = groups.stream()
-                .map(gr -> {
-                    final Membership membership = membershipRepository.findByGroupAndUser(gr, user);
-                    List<GroupRefDTO> subGroups = includeSubgroups ? getSubgroups(gr) : Collections.emptyList();
-                    return new GroupWebDTO(gr, membership, subGroups, this.membershipRepository);
-                })
-                .collect(Collectors.toList());
+        List<Membership> memberships = membershipRepository.findTopLevelWithGroupsFetched(user);
 
-        return dtos.stream()
+        return groupDTOAssembler.assembleWeb(memberships, includeSubgroups).stream()
                 .sorted(Comparator.comparing(GroupMinimalDTO::getLastTaskOrChangeTime, Comparator.reverseOrder()))
                 .collect(Collectors.toList());
     }
@@ -294,9 +290,8 @@ public class GroupFetchBrokerImpl implements GroupFetchBroker {
     @Transactional(readOnly = true)
     public List<GroupRefDTO> fetchGroupNamesUidsOnly(String userUid) {
         User user = userRepository.findOneByUid(Objects.requireNonNull(userUid));
-        // note: for present, since this is minimal, not even getting member count
         return groupRepository.findByMembershipsUserAndActiveTrueAndParentIsNull(user).stream()
-                .map(group -> new GroupRefDTO(group, this.membershipRepository))
+                .map(GroupRefDTO::new)
                 .collect(Collectors.toList());
     }
 
@@ -354,7 +349,60 @@ public class GroupFetchBrokerImpl implements GroupFetchBroker {
                                                LocalDate joinDate,
                                                JoinDateCondition joinDateCondition,
                                                String namePhoneOrEmail, Collection<String> languages, GroupRole groupRole) {
+        Specification<Membership> filter = memberFilter(user, groupUid, provinces, noProvince, taskTeamsUids, topics,
+                affiliations, joinMethods, joinedCampaignsUids, joinDaysAgo, joinDate, joinDateCondition, namePhoneOrEmail,
+                languages, groupRole);
+        List<Membership> members = membershipRepository.findAll(filter);
+        log.info("post-filtering, have {} members", members.size());
+        return members;
+    }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<UserBroadcastProjection> filterGroupMemberRecipients(User user, String groupUid,
+                                                                     Collection<Province> provinces,
+                                                                     Boolean noProvince,
+                                                                     Collection<String> taskTeamsUids,
+                                                                     Collection<String> topics,
+                                                                     Collection<String> affiliations,
+                                                                     Collection<GroupJoinMethod> joinMethods,
+                                                                     Collection<String> joinedCampaignsUids,
+                                                                     Integer joinDaysAgo,
+                                                                     LocalDate joinDate,
+                                                                     JoinDateCondition joinDateCondition,
+                                                                     String namePhoneOrEmail, Collection<String> languages, GroupRole groupRole) {
+        Specification<Membership> filter = memberFilter(user, groupUid, provinces, noProvince, taskTeamsUids, topics,
+                affiliations, joinMethods, joinedCampaignsUids, joinDaysAgo, joinDate, joinDateCondition, namePhoneOrEmail,
+                languages, groupRole);
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<UserBroadcastProjection> query = cb.createQuery(UserBroadcastProjection.class);
+        Root<Membership> root = query.from(Membership.class);
+        Path<User> member = root.get(Membership_.user);
+        // distinct, as filtering on task teams can return several memberships for the same user
+        query.select(cb.construct(UserBroadcastProjection.class, member.get(User_.id), member.get(User_.uid),
+                member.get(User_.displayName), member.get(User_.phoneNumber), member.get(User_.emailAddress),
+                member.get(User_.username), member.get(User_.province), member.get(User_.messagingPreference)))
+                .where(filter.toPredicate(root, query, cb))
+                .distinct(true);
+
+        List<UserBroadcastProjection> recipients = entityManager.createQuery(query).getResultList();
+        log.info("post-filtering, have {} recipients", recipients.size());
+        return recipients;
+    }
+
+    private Specification<Membership> memberFilter(User user, String groupUid,
+                                                   Collection<Province> provinces,
+                                                   Boolean noProvince,
+                                                   Collection<String> taskTeamsUids,
+                                                   Collection<String> topics,
+                                                   Collection<String> affiliations,
+                                                   Collection<GroupJoinMethod> joinMethods,
+                                                   Collection<String> joinedCampaignsUids,
+                                                   Integer joinDaysAgo,
+                                                   LocalDate joinDate,
+                                                   JoinDateCondition joinDateCondition,
+                                                   String namePhoneOrEmail, Collection<String> languages, GroupRole groupRole) {
         Objects.requireNonNull(groupUid);
         Group group = groupRepository.findOneByUid(groupUid);
 
@@ -364,38 +412,12 @@ public class GroupFetchBrokerImpl implements GroupFetchBroker {
             throw new MemberLacksPermissionException(Permission.GROUP_PERMISSION_SEE_MEMBER_DETAILS);
         }
 
-        log.info("filtering on, user name: {}, join date condition: {}, join date: {}, provinces: {}, taskTeams: {}",
-                namePhoneOrEmail, joinDateCondition, joinDate, provinces, taskTeamsUids);
-        List<Membership> members = membershipRepository.findAll(
-                MembershipSpecifications.filterGroupMembership(group, provinces, noProvince, taskTeamsUids, joinMethods, joinDaysAgo, joinDate, joinDateCondition, namePhoneOrEmail, languages, groupRole)
-        );
-
-        log.info("post-filtering, have {} members", members.size());
-
-        if(topics != null && topics.size() > 0){
-            // this is an "and" filter, at present
-            members = members.stream()
-            .filter(m -> m.getTopics().containsAll(topics))
-            .collect(Collectors.toList());
-        }
-
-        if (affiliations != null && !affiliations.isEmpty()) {
-            // i.e., this is an "or" filtering
-            Set<String> affils = new HashSet<>(affiliations);
-            log.info("filtering {} members, looking for affiliations {}", members.size(), affils.toString());
-            members = members.stream().filter(m -> m.getAffiliations().stream().anyMatch(affils::contains))
-                    .collect(Collectors.toList());
-        }
-
-        //this is an alternative to very complicated query
-        if (joinedCampaignsUids != null && joinedCampaignsUids.size() > 0) {
-            List<CampaignLog> campLogs = campaignLogRepository.findByCampaignLogTypeAndCampaignMasterGroupUid(CampaignLogType.CAMPAIGN_USER_ADDED_TO_MASTER_GROUP, groupUid);
-            campLogs = campLogs.stream().filter(cl -> joinedCampaignsUids.contains(cl.getCampaign().getUid())).collect(Collectors.toList());
-            List<User> usersAddedByCampaigns = campLogs.stream().map(cl -> cl.getUser()).collect(Collectors.toList());
-            members = members.stream().filter( m -> usersAddedByCampaigns.contains(m.getUser())).collect(Collectors.toList());
-        }
-
-        return members;
+        log.info("filtering on, user name: {}, join date condition: {}, join date: {}, provinces: {}, taskTeams: {}, " +
+                        "topics: {}, affiliations: {}, campaigns: {}", namePhoneOrEmail, joinDateCondition, joinDate,
+                provinces, taskTeamsUids, topics, affiliations, joinedCampaignsUids);
+        return MembershipSpecifications.filterGroupMembership(group, provinces, noProvince, taskTeamsUids, topics,
+                affiliations, joinMethods, joinedCampaignsUids, joinDaysAgo, joinDate, joinDateCondition,
+                namePhoneOrEmail, languages, groupRole);
     }
 
     @Override
@@ -410,7 +432,7 @@ public class GroupFetchBrokerImpl implements GroupFetchBroker {
             throw new MemberLacksPermissionException(Permission.GROUP_PERMISSION_SEE_MEMBER_DETAILS);
         }
         final Membership membership = membershipRepository.findByGroupUidAndUserUid(groupUid, memberUid);
-        return new MembershipFullDTO(membership, this.membershipRepository);
+        return new MembershipFullDTO(membership);
     }
 
     @Override
@@ -443,11 +465,4 @@ public class GroupFetchBrokerImpl implements GroupFetchBroker {
         return logsBroker.fetchMembershipLogs(membership);
     }
 
-    private List<GroupRefDTO> getSubgroups(Group group) {
-        final List<Group> groups = groupRepository.findAll(Specification.where(hasParent(group)).and(isActive()));
-        return groups.stream()
-                .map(gr -> new GroupRefDTO(gr, this.membershipRepository))
-                .collect(Collectors.toList());
-    }
-
 }
@@ -0,0 +1,75 @@
+package za.org.grassroot.services.group;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import za.org.grassroot.core.repository.GroupRepository;
+import za.org.grassroot.core.repository.MembershipRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Corrects the member count stored on each group against its actual memberships, a page of groups at a time. The count
+ * is kept in step as members are added and removed (see GroupMemberCounter), but some paths remove memberships without
+ * going through the group, so this catches whatever drifts.
+ */
+@Component @Slf4j
+public class GroupMemberCountReconciler {
+
+    private static final String UPDATE_SQL = "update group_profile set member_count = ? where id = ?";
+
+    @Value("${grassroot.groups.member-count.reconcile.page-size:1000}")
+    private int pageSize = 1000;
+
+    private final GroupRepository groupRepository;
+    private final MembershipRepository membershipRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public GroupMemberCountReconciler(GroupRepository groupRepository, MembershipRepository membershipRepository,
+                                      JdbcTemplate jdbcTemplate) {
+        this.groupRepository = groupRepository;
+        this.membershipRepository = membershipRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Scheduled(cron = "${grassroot.groups.member-count.reconcile.cron:0 15 3 * * *}")
+    public void reconcileMemberCounts() {
+        final long startTime = System.currentTimeMillis();
+        long afterId = 0;
+        int groupsChecked = 0;
+        int groupsCorrected = 0;
+
+        List<Object[]> page = groupRepository.fetchIdsAndMemberCountsAfter(afterId, PageRequest.of(0, pageSize));
+        while (!page.isEmpty()) {
+            final List<Long> groupIds = page.stream().map(row -> (Long) row[0]).collect(Collectors.toList());
+            final Map<Long, Long> actualCounts = membershipRepository.countMembersForGroups(groupIds).stream()
+                    .collect(Collectors.toMap(row -> (Long) row[0], row -> (Long) row[1]));
+
+            final List<Object[]> corrections = new ArrayList<>();
+            for (Object[] row : page) {
+                final long actual = actualCounts.getOrDefault((Long) row[0], 0L);
+                if (((Integer) row[1]) != actual)
+                    corrections.add(new Object[] { actual, row[0] });
+            }
+            if (!corrections.isEmpty())
+                jdbcTemplate.batchUpdate(UPDATE_SQL, corrections);
+
+            groupsChecked += page.size();
+            groupsCorrected += corrections.size();
+            afterId = groupIds.get(groupIds.size() - 1);
+            page = groupRepository.fetchIdsAndMemberCountsAfter(afterId, PageRequest.of(0, pageSize));
+        }
+
+        log.info("Reconciled member counts of {} groups, corrected {}, took {} msecs", groupsChecked, groupsCorrected,
+                System.currentTimeMillis() - startTime);
+    }
+
+}
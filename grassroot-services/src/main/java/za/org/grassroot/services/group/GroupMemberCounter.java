@@ -0,0 +1,35 @@
+package za.org.grassroot.services.group;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import za.org.grassroot.core.domain.group.Group;
+import za.org.grassroot.core.repository.GroupRepository;
+
+/**
+ * Stores the changes made to groups' member counts as increments in the database, rather than letting the group write
+ * back the count it loaded plus its own change, so that concurrent joins and removals each count. Called within the
+ * transaction that added or removed the members, after which the group holds the count as stored.
+ */
+@Component
+public class GroupMemberCounter {
+
+    private final GroupRepository groupRepository;
+
+    @Autowired
+    public GroupMemberCounter(GroupRepository groupRepository) {
+        this.groupRepository = groupRepository;
+    }
+
+    public void storeChanges(Group group) {
+        final int change = group.takeMemberCountChange();
+        if (change != 0) {
+            groupRepository.adjustMemberCount(group.getId(), change);
+            group.refreshMemberCount(groupRepository.fetchMemberCount(group.getId()));
+        }
+    }
+
+    public void storeChanges(Iterable<Group> groups) {
+        groups.forEach(this::storeChanges);
+    }
+
+}
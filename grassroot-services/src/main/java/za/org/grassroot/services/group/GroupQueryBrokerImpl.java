@@ -18,9 +18,10 @@ import za.org.grassroot.core.domain.group.GroupLog;
 import za.org.grassroot.core.domain.task.Event;
 import za.org.grassroot.core.domain.task.EventLog;
 import za.org.grassroot.core.enums.EventLogType;
+import za.org.grassroot.core.enums.InboundKeywordType;
 import za.org.grassroot.core.repository.*;
-import za.org.grassroot.core.specifications.GroupSpecifications;
 import za.org.grassroot.services.ChangedSinceData;
+import za.org.grassroot.services.InboundKeywordRouter;
 import za.org.grassroot.services.PermissionBroker;
 import za.org.grassroot.services.geo.GeoLocationBroker;
 import za.org.grassroot.services.util.FullTextSearchUtils;
@@ -65,6 +66,9 @@ public class GroupQueryBrokerImpl implements GroupQueryBroker {
     @Autowired
     private GeoLocationBroker geoLocationBroker;
 
+    @Autowired
+    private InboundKeywordRouter keywordRouter;
+
     @Override
     @PreAuthorize("hasRole('ROLE_SYSTEM_ADMIN')")
     @Transactional(readOnly = true)
@@ -117,11 +121,12 @@ public class GroupQueryBrokerImpl implements GroupQueryBroker {
 
     @Override
     public Optional<Group> findGroupFromJoinCode(String joinCode) {
-        Optional<Group> groupToReturn = groupRepository.findOne(GroupSpecifications.hasJoinCode(joinCode));
-        if (!groupToReturn.isPresent() || groupToReturn.get().getTokenExpiryDateTime().isBefore(Instant.now())) {
-            return Optional.empty();
-        }
-        return groupToReturn;
+        // only open tokens are routed, so most codes that are not group tokens never reach the DB
+        // the route is only a hint, as it can lag a change made elsewhere, so the group's own code and expiry decide
+        return keywordRouter.findTarget(joinCode, InboundKeywordType.GROUP_JOIN_TOKEN)
+                .map(groupRepository::findOneByUid)
+                .filter(group -> joinCode.trim().equalsIgnoreCase(group.getGroupTokenCode()))
+                .filter(group -> group.getTokenExpiryDateTime() != null && group.getTokenExpiryDateTime().isAfter(Instant.now()));
     }
 
     @Override
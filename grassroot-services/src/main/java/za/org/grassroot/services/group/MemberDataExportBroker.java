@@ -1,7 +1,6 @@
 package za.org.grassroot.services.group;
 
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
-import za.org.grassroot.core.domain.Notification;
+import org.apache.poi.ss.usermodel.Workbook;
 import za.org.grassroot.core.domain.campaign.Campaign;
 import za.org.grassroot.core.dto.group.GroupLogDTO;
 
@@ -9,32 +8,40 @@ import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * The workbooks returned are streaming ones, backed by temporary files: once written out, they should be disposed
+ * (as RestUtil does when downloading them)
+ */
 public interface MemberDataExportBroker {
 
-    XSSFWorkbook exportGroup(String groupUid, String userUid);
+    Workbook exportGroup(String groupUid, String userUid);
 
-    XSSFWorkbook exportGroupErrorReport(String groupUid, String userUid);
+    Workbook exportGroupErrorReport(String groupUid, String userUid);
 
-    XSSFWorkbook exportGroupMembersFiltered(String groupUid, String userUid, List<String> memberUids);
+    Workbook exportGroupMembersFiltered(String groupUid, String userUid, List<String> memberUids);
 
-    XSSFWorkbook exportCampaignJoinedData(String campaignUid, String userUid);
+    Workbook exportCampaignJoinedData(String campaignUid, String userUid);
 
-    XSSFWorkbook exportCampaignBillingData(String campaignUid, Map<String, String> billingCounts);
+    Workbook exportCampaignBillingData(String campaignUid, Map<String, String> billingCounts);
 
-    XSSFWorkbook exportTodoData(String userUid, String todoUid);
+    Workbook exportTodoData(String userUid, String todoUid);
 
     void emailTodoResponses(String userUid, String todoUid, String emailAddress);
 
-    XSSFWorkbook exportInboundMessages(List<GroupLogDTO> inboundMessages);
+    Workbook exportInboundMessages(List<GroupLogDTO> inboundMessages);
 
-    XSSFWorkbook exportNotificationErrorReport(List<? extends Notification> notifications);
+    Workbook exportBroadcastSendingReport(String broadcastUid);
 
-    XSSFWorkbook exportNotificationStdReport(List<? extends Notification> notifications);
+    Workbook exportBroadcastErrorReport(String broadcastUid);
 
-    XSSFWorkbook exportAccountActivityReport(String accountUid, Instant start, Instant end);
+    Workbook exportEventErrorReport(String eventUid);
 
-    XSSFWorkbook exportWhatsappOptedInUsers();
+    Workbook exportTodoErrorReport(String todoUid);
 
-    XSSFWorkbook exportAccountBillingData(List<Campaign> campaigns,Instant start, Instant end);
+    Workbook exportAccountActivityReport(String accountUid, Instant start, Instant end);
+
+    Workbook exportWhatsappOptedInUsers();
+
+    Workbook exportAccountBillingData(List<Campaign> campaigns,Instant start, Instant end);
 
 }
@@ -1,32 +1,38 @@
 package za.org.grassroot.services.group;
 
+import com.google.common.collect.Iterators;
+import com.google.common.collect.PeekingIterator;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.poi.xssf.usermodel.*;
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import za.org.grassroot.core.domain.Notification;
+import za.org.grassroot.GrassrootExecutorsConfig;
 import za.org.grassroot.core.domain.Permission;
 import za.org.grassroot.core.domain.User;
 import za.org.grassroot.core.domain.UserLog;
 import za.org.grassroot.core.domain.account.Account;
 import za.org.grassroot.core.domain.campaign.Campaign;
-import za.org.grassroot.core.domain.campaign.CampaignLog;
 import za.org.grassroot.core.domain.group.Group;
 import za.org.grassroot.core.domain.group.Membership;
-import za.org.grassroot.core.domain.notification.NotificationSendError;
+import za.org.grassroot.core.domain.notification.NotificationStatus;
 import za.org.grassroot.core.domain.task.Todo;
 import za.org.grassroot.core.domain.task.TodoAssignment;
 import za.org.grassroot.core.dto.GrassrootEmail;
 import za.org.grassroot.core.dto.group.GroupLogDTO;
 import za.org.grassroot.core.enums.Province;
 import za.org.grassroot.core.enums.UserLogType;
+import za.org.grassroot.core.repository.BroadcastNotificationRepository;
+import za.org.grassroot.core.repository.EventNotificationRepository;
 import za.org.grassroot.core.repository.MembershipRepository;
+import za.org.grassroot.core.repository.TodoNotificationRepository;
 import za.org.grassroot.core.repository.UserLogRepository;
 import za.org.grassroot.core.repository.UserRepository;
+import za.org.grassroot.core.specifications.NotificationSpecifications;
 import za.org.grassroot.core.util.DateTimeUtil;
 import za.org.grassroot.integration.messaging.MessagingServiceBroker;
 import za.org.grassroot.services.PermissionBroker;
@@ -34,17 +40,26 @@ import za.org.grassroot.services.account.AccountBroker;
 import za.org.grassroot.services.campaign.CampaignStatsBroker;
 import za.org.grassroot.services.task.TodoBroker;
 
+import javax.persistence.EntityManager;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.text.NumberFormat;
 import java.time.Instant;
+import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.time.format.FormatStyle;
 import java.util.*;
 import java.util.stream.Collectors;
-
+import java.util.stream.Stream;
+
+/**
+ * Exports are written as streaming workbooks, which keep only the last window of rows in memory and flush the rest
+ * to a compressed temporary file, and the large ones (group members and campaign engagement) read their rows through
+ * a cursor, clearing the persistence context after each window, so an export takes the same memory however many rows
+ * it has. Whoever writes out a returned workbook should then dispose of it, to delete its temporary files.
+ */
 @Service @Slf4j
 public class MemberDataExportBrokerImpl implements MemberDataExportBroker {
 
@@ -54,6 +69,9 @@ public class MemberDataExportBrokerImpl implements MemberDataExportBroker {
     @Value("${accounts.ussd.cost.standard:20}")
     private int accountUssdCost;
 
+    @Value("${grassroot.export.row-window:500}")
+    private int rowWindow = 500;
+
     private static final DateTimeFormatter STD_FORMATTER = DateTimeFormatter.ofLocalizedDateTime(FormatStyle.SHORT)
             .withLocale(Locale.ENGLISH).withZone(ZoneId.systemDefault());
 
@@ -68,12 +86,19 @@ public class MemberDataExportBrokerImpl implements MemberDataExportBroker {
 
     private CampaignStatsBroker campaignStatsBroker;
     private AccountBroker accountBroker;
+    private EntityManager entityManager;
 
     private final UserLogRepository userLogRepository;
+    private final BroadcastNotificationRepository broadcastNotificationRepository;
+    private final EventNotificationRepository eventNotificationRepository;
+    private final TodoNotificationRepository todoNotificationRepository;
 
     @Autowired
     public MemberDataExportBrokerImpl(UserRepository userRepository, MembershipRepository membershipRepository, GroupBroker groupBroker, TodoBroker todoBroker,
-                                      PermissionBroker permissionBroker, MessagingServiceBroker messageBroker,UserLogRepository userLogRepository) {
+                                      PermissionBroker permissionBroker, MessagingServiceBroker messageBroker,UserLogRepository userLogRepository,
+                                      BroadcastNotificationRepository broadcastNotificationRepository,
+                                      EventNotificationRepository eventNotificationRepository,
+                                      TodoNotificationRepository todoNotificationRepository) {
         this.userRepository = userRepository;
         this.membershipRepository = membershipRepository;
         this.groupBroker = groupBroker;
@@ -81,6 +106,9 @@ public class MemberDataExportBrokerImpl implements MemberDataExportBroker {
         this.permissionBroker = permissionBroker;
         this.messageBroker = messageBroker;
         this.userLogRepository = userLogRepository;
+        this.broadcastNotificationRepository = broadcastNotificationRepository;
+        this.eventNotificationRepository = eventNotificationRepository;
+        this.todoNotificationRepository = todoNotificationRepository;
     }
 
     @Autowired
@@ -93,40 +121,40 @@ public class MemberDataExportBrokerImpl implements MemberDataExportBroker {
         this.accountBroker = accountBroker;
     }
 
+    @Autowired
+    public void setEntityManager(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
     @Override
     @Transactional(readOnly = true)
-    public XSSFWorkbook exportGroup(String groupUid, String userUid) {
+    public Workbook exportGroup(String groupUid, String userUid) {
 
         Group group = groupBroker.load(groupUid);
         User exporter = userRepository.findOneByUid(userUid);
 
         permissionBroker.validateGroupPermission(exporter, group, Permission.GROUP_PERMISSION_SEE_MEMBER_DETAILS);
 
-        List<Membership> memberships = group.getMemberships().stream()
-                .sorted(Comparator.comparing(Membership::getDisplayName)).collect(Collectors.toList());
-        return exportGroupMembers(memberships);
+        try (Stream<Membership> memberships = membershipRepository.streamByGroupOrderByDisplayName(group, false)) {
+            return exportGroupMembers(memberships, entityManager::clear);
+        }
     }
 
     //Class for exporting the EXCEL file for subscribed whatsapp users.
     @Transactional()
-    public XSSFWorkbook exportWhatsappOptedInUsers(){
+    public Workbook exportWhatsappOptedInUsers(){
         List<User> users = userRepository.findByWhatsAppOptedInTrue();
         return exportWhatsappOptedInUsers(users);
     }
 
     @Override
-    public XSSFWorkbook exportAccountBillingData(List<Campaign> campaigns,Instant start, Instant end) {
+    public Workbook exportAccountBillingData(List<Campaign> campaigns,Instant start, Instant end) {
 
-        XSSFWorkbook workbook = new XSSFWorkbook();
-        XSSFSheet sheet = workbook.createSheet("All billing data");
+        SXSSFWorkbook workbook = newWorkbook();
+        Sheet sheet = workbook.createSheet("All billing data");
         generateHeader(workbook, sheet, new String[]{"Campaign name", "Date", "Total sessions", "Total welcomes","Total shares"},
                 new int[]{6000,8000, 4000, 4000,4000});
 
-        XSSFCellStyle contentStyle = workbook.createCellStyle();
-        XSSFFont contentFont = workbook.createFont();
-        contentStyle.setFont(contentFont);
-        XSSFCellStyle contentNumberStyle = workbook.createCellStyle();
-        contentNumberStyle.setDataFormat(workbook.createDataFormat().getFormat("#,##0.00"));
         int rowIndex = 2;
         addRowFromCampaigns(campaigns,sheet,rowIndex,start,end);
 
@@ -135,64 +163,47 @@ public class MemberDataExportBrokerImpl implements MemberDataExportBroker {
 
     @Override
     @Transactional(readOnly = true)
-    public XSSFWorkbook exportGroupErrorReport(String groupUid, String userUid) {
+    public Workbook exportGroupErrorReport(String groupUid, String userUid) {
         Group group = groupBroker.load(groupUid);
         User exporter = userRepository.findOneByUid(userUid);
 
         permissionBroker.validateGroupPermission(exporter, group, Permission.GROUP_PERMISSION_SEE_MEMBER_DETAILS);
 
-        List<Membership> membersWithErrorFlag = group.getMemberships().stream()
-                .filter(m -> m.getUser().isContactError())
-                .sorted(Comparator.comparing(Membership::getDisplayName))
-                .collect(Collectors.toList());
-
-        return exportGroupMembers(membersWithErrorFlag);
+        try (Stream<Membership> membersWithErrorFlag = membershipRepository.streamByGroupOrderByDisplayName(group, true)) {
+            return exportGroupMembers(membersWithErrorFlag, entityManager::clear);
+        }
     }
 
     @Override
-    public XSSFWorkbook exportGroupMembersFiltered(String groupUid, String userUid, List<String> memberUids) {
+    public Workbook exportGroupMembersFiltered(String groupUid, String userUid, List<String> memberUids) {
         Group group = groupBroker.load(groupUid);
         User exporter = userRepository.findOneByUid(userUid);
 
         permissionBroker.validateGroupPermission(exporter, group, Permission.GROUP_PERMISSION_SEE_MEMBER_DETAILS);
 
         List<Membership> memberships = membershipRepository.findByGroupAndUserUidIn(group, memberUids);
-        return exportGroupMembers(memberships);
+        return exportGroupMembers(memberships.stream(), () -> {});
     }
 
-    private XSSFWorkbook exportGroupMembers(List<Membership> memberships) {
-        XSSFWorkbook workbook = new XSSFWorkbook();
-        XSSFSheet sheet = workbook.createSheet("Group members");
-
-        generateHeader(workbook, sheet, new String[]{"Name", "Phone number", "Email", "Province", "Topics", "Affiliations"},
-                new int[]{7000, 5000, 7000, 7000, 7000, 7000});
-
-        //table content stuff
-        XSSFCellStyle contentStyle = workbook.createCellStyle();
-        XSSFFont contentFont = workbook.createFont();
-        contentStyle.setFont(contentFont);
-
-        XSSFCellStyle contentNumberStyle = workbook.createCellStyle();
-        contentNumberStyle.setDataFormat(workbook.createDataFormat().getFormat("#,##0.00"));
-
-        //we are starting from 1 because row number 0 is header
-        int rowIndex = 1;
-
-        addRowFromMember(memberships, sheet, rowIndex);
-
-        return workbook;
+    private Workbook exportGroupMembers(Stream<Membership> memberships, Runnable afterEachWindow) {
+        return writeSheet(rowWindow, "Group members",
+                new String[]{"Name", "Phone number", "Email", "Province", "Topics", "Affiliations"},
+                new int[]{7000, 5000, 7000, 7000, 7000, 7000},
+                memberships.map(member -> new String[]{
+                        member.getDisplayName(),
+                        member.getUser().getPhoneNumber(),
+                        member.getUser().getEmailAddress(),
+                        Province.CANONICAL_NAMES_ZA.getOrDefault(member.getUser().getProvince(), "Unknown"),
+                        String.join(", ", member.getTopics()),
+                        String.join(", ", member.getAffiliations())}).iterator(),
+                afterEachWindow);
     }
 
-    private XSSFWorkbook exportWhatsappOptedInUsers(List<User> users){
-        XSSFWorkbook workbook = new XSSFWorkbook();
-        XSSFSheet sheet = workbook.createSheet("Whatsapp users");
+    private Workbook exportWhatsappOptedInUsers(List<User> users){
+        SXSSFWorkbook workbook = newWorkbook();
+        Sheet sheet = workbook.createSheet("Whatsapp users");
         generateHeader(workbook, sheet, new String[]{"Phone number", "Date subscribed", "Channel"},
                 new int[]{7000, 10000, 7000});
-        XSSFCellStyle contentStyle = workbook.createCellStyle();
-        XSSFFont contentFont = workbook.createFont();
-        contentStyle.setFont(contentFont);
-        XSSFCellStyle contentNumberStyle = workbook.createCellStyle();
-        contentNumberStyle.setDataFormat(workbook.createDataFormat().getFormat("#,##0.00"));
         int rowIndex = 1;
         addRowFromUser(users,sheet, rowIndex);
         return workbook;
@@ -200,45 +211,36 @@ public class MemberDataExportBrokerImpl implements MemberDataExportBroker {
 
     @Override
     @Transactional(readOnly = true)
-    public XSSFWorkbook exportCampaignJoinedData(String campaignUid, String userUid) {
-        List<CampaignLog> campaignLogs = campaignStatsBroker.getCampaignJoinedAndBetter(Objects.requireNonNull(campaignUid));
-
-        XSSFWorkbook workbook = new XSSFWorkbook();
-        XSSFSheet sheet = workbook.createSheet("Campaign engagement");
+    public Workbook exportCampaignJoinedData(String campaignUid, String userUid) {
+        SXSSFWorkbook workbook = newWorkbook();
+        Sheet sheet = workbook.createSheet("Campaign engagement");
 
         generateHeader(workbook, sheet, new String[]{"Name", "Phone number", "Email", "Province", "Most advanced action"},
                 new int[]{7000, 5000, 7000, 7000, 7000});
 
-        //table content stuff
-        XSSFCellStyle contentStyle = workbook.createCellStyle();
-        XSSFFont contentFont = workbook.createFont();
-        contentStyle.setFont(contentFont);
-
-        XSSFCellStyle contentNumberStyle = workbook.createCellStyle();
-        contentNumberStyle.setDataFormat(workbook.createDataFormat().getFormat("#,##0.00"));
-
         //we are starting from 1 because row number 0 is header
-        int rowIndex = 1;
+        final int[] rowIndex = {1};
 
-        for (CampaignLog log : campaignLogs) {
+        campaignStatsBroker.forEachCampaignJoinedAndBetter(Objects.requireNonNull(campaignUid), log -> {
             User rowUser = log.getUser();
-            addRow(sheet, rowIndex, new String[]{
+            addRow(sheet, rowIndex[0], new String[]{
                     rowUser.getName(),
                     rowUser.getPhoneNumber(),
                     rowUser.getEmailAddress(),
                     Province.CANONICAL_NAMES_ZA.getOrDefault(rowUser.getProvince(), "Unknown"),
                     log.getCampaignLogType().name()});
-            rowIndex++;
-        }
+            if (rowIndex[0]++ % rowWindow == 0)
+                entityManager.clear(); // the sheet has flushed the rows before these, so let go of their logs and users
+        });
 
         return workbook;
     }
 
     @Override
-    public XSSFWorkbook exportCampaignBillingData(String campaignName, Map<String, String> billingCounts) {
+    public Workbook exportCampaignBillingData(String campaignName, Map<String, String> billingCounts) {
 
-        XSSFWorkbook workbook = new XSSFWorkbook();
-        XSSFSheet sheet = workbook.createSheet("Campaign engagement");
+        SXSSFWorkbook workbook = newWorkbook();
+        Sheet sheet = workbook.createSheet("Campaign engagement");
 
         generateHeader(workbook, sheet, new String[]{"Billing Data For Campaign: " + billingCounts.get("campaign_name"), ""},
                 new int[]{14000, 5000});
@@ -257,61 +259,33 @@ public class MemberDataExportBrokerImpl implements MemberDataExportBroker {
     }
 
     @Override
-    public XSSFWorkbook exportTodoData(String userUid, String todoUid) {
+    @Transactional(readOnly = true)
+    public Workbook exportTodoData(String userUid, String todoUid) {
         Objects.requireNonNull(userUid);
         Objects.requireNonNull(todoUid);
 
         Todo todo = todoBroker.load(todoUid);
-        List<TodoAssignment> todoAssignments = todoBroker.fetchAssignedUserResponses(userUid, todoUid, false, true, false);
-        log.info("pre-sort assignments: {}", todoAssignments);
-        todoAssignments.sort((t1, t2) -> {
-            if (t1.isHasResponded() != t2.isHasResponded()) {
-                return t1.isHasResponded() ? -1 : 1;
-            } else if (t1.emptyResponse() || t2.emptyResponse()) { // shouldn't happen, but in case
-                return !t1.emptyResponse() && t2.emptyResponse() ? 1 : !t2.emptyResponse() ? 0 : -1;
-            } else {
-                return t1.getResponseText().compareTo(t2.getResponseText());
-            }
-        });
-        log.info("post-sort assignments: {}", todoAssignments);
-
-        XSSFWorkbook workbook = new XSSFWorkbook();
-        XSSFSheet sheet = workbook.createSheet("TodoResponses");
-
         final String responseHeader = StringUtils.isEmpty(todo.getResponseTag()) ? "Response"
                 : "Response ('" + todo.getResponseTag() + "')";
-        generateHeader(workbook, sheet, new String[]{
-                "Member name", "Phone number", "Email", "Responded?", responseHeader, "Date of response"},
-                new int[]{7000, 5000, 7000, 5000, 7000, 10000});
 
-        //table content stuff
-        XSSFCellStyle contentStyle = workbook.createCellStyle();
-        XSSFFont contentFont = workbook.createFont();
-        contentStyle.setFont(contentFont);
-
-        XSSFCellStyle contentNumberStyle = workbook.createCellStyle();
-        contentNumberStyle.setDataFormat(workbook.createDataFormat().getFormat("#,##0.00"));
-
-        //we are starting from 1 because row number 0 is header
-        int rowIndex = 1;
-        DateTimeFormatter formatter = DateTimeFormatter.ofLocalizedDateTime(FormatStyle.SHORT)
-                .withLocale(Locale.ENGLISH).withZone(ZoneId.systemDefault());
-        for (TodoAssignment assignment : todoAssignments) {
-            addRow(sheet, rowIndex, new String[]{
-                    assignment.getUser().getName(),
-                    assignment.getUser().getPhoneNumber(),
-                    assignment.getUser().getEmailAddress(),
-                    String.valueOf(assignment.isHasResponded()),
-                    assignment.getResponseText(),
-                    assignment.getResponseTime() == null ? "" : formatter.format(assignment.getResponseTime()) }); // todo: format
-            rowIndex++;
+        try (Stream<TodoAssignment> assignments = todoBroker.streamAssignedUserResponses(userUid, todoUid)) {
+            return writeSheet(rowWindow, "TodoResponses",
+                    new String[]{"Member name", "Phone number", "Email", "Responded?", responseHeader, "Date of response"},
+                    new int[]{7000, 5000, 7000, 5000, 7000, 10000},
+                    assignments.map(assignment -> new String[]{
+                            assignment.getUser().getName(),
+                            assignment.getUser().getPhoneNumber(),
+                            assignment.getUser().getEmailAddress(),
+                            String.valueOf(assignment.isHasResponded()),
+                            assignment.getResponseText(),
+                            assignment.getResponseTime() == null ? "" : STD_FORMATTER.format(assignment.getResponseTime())}).iterator(),
+                    entityManager::clear);
         }
-        //assignment.getResponseTime() == null ? "" : assignment.getResponseTime().toString()
-        return workbook;
     }
 
-    @Async
+    @Async(GrassrootExecutorsConfig.BULK_EXECUTOR)
     @Override
+    @Transactional(readOnly = true) // the export streams its rows, and is called directly, so needs this transaction
     public void emailTodoResponses(String userUid, String todoUid, String emailAddress) {
         log.info("generating email of todo responses ... should be on background thread");
 
@@ -343,20 +317,12 @@ public class MemberDataExportBrokerImpl implements MemberDataExportBroker {
     }
 
     @Override
-    public XSSFWorkbook exportInboundMessages(List<GroupLogDTO> inboundMessages) {
-        XSSFWorkbook workbook = new XSSFWorkbook();
-        XSSFSheet sheet = workbook.createSheet("Group inbound messages");
+    public Workbook exportInboundMessages(List<GroupLogDTO> inboundMessages) {
+        SXSSFWorkbook workbook = newWorkbook();
+        Sheet sheet = workbook.createSheet("Group inbound messages");
 
         generateHeader(workbook, sheet, new String[]{"User name", "Phone number", "Message", "Time created"}, new int[]{5000, 5000, 15000, 5000});
 
-        //table content stuff
-        XSSFCellStyle contentStyle = workbook.createCellStyle();
-        XSSFFont contentFont = workbook.createFont();
-        contentStyle.setFont(contentFont);
-
-        XSSFCellStyle contentNumberStyle = workbook.createCellStyle();
-        contentNumberStyle.setDataFormat(workbook.createDataFormat().getFormat("#,##0.00"));
-
         //we are starting from 1 because row number 0 is header
         int rowIndex = 1;
         DateTimeFormatter formatter = DateTimeFormatter.ofLocalizedDateTime(FormatStyle.SHORT)
@@ -373,81 +339,62 @@ public class MemberDataExportBrokerImpl implements MemberDataExportBroker {
     }
 
     @Override
-    public XSSFWorkbook exportNotificationErrorReport(List<? extends Notification> notifications) {
-        XSSFWorkbook workbook = new XSSFWorkbook();
-        XSSFSheet sheet = workbook.createSheet("Error Messages");
-
-        generateHeader(workbook, sheet, new String[]{"Time sent", "Phone number", "Email", "Errors"},
-                new int[]{7000, 5000, 7000, 7000});
-
-        //table content stuff
-        XSSFCellStyle contentStyle = workbook.createCellStyle();
-        XSSFFont contentFont = workbook.createFont();
-        contentStyle.setFont(contentFont);
-
-        XSSFCellStyle contentNumberStyle = workbook.createCellStyle();
-        contentNumberStyle.setDataFormat(workbook.createDataFormat().getFormat("#,##0.00"));
-
-        //we are starting from 1 because row number 0 is header
-        int rowIndex = 1;
-
-        for (Notification notification : notifications) {
-            ArrayList<String> tableColumns = new ArrayList<>();
-            tableColumns.add(notification.getCreatedDateTime() == null ? "" : STD_FORMATTER.format(notification.getCreatedDateTime()));
-            tableColumns.add(notification.getTarget().getPhoneNumber() == null ? "" : notification.getTarget().getPhoneNumber());
-            tableColumns.add(notification.getTarget().getEmailAddress() == null ? "" : notification.getTarget().getEmailAddress());
-            for (NotificationSendError notificationSendError : notification.getSendingErrors()) {
-                tableColumns.add(notificationSendError.getErrorTime() == null ? "" : STD_FORMATTER.format(notificationSendError.getErrorTime()) + " - " + notificationSendError.getErrorMessage());
-            }
-            String[] values = tableColumns.toArray(new String[0]);
-            addRow(sheet, rowIndex, values);
-            rowIndex++;
-
+    @Transactional(readOnly = true)
+    public Workbook exportBroadcastSendingReport(String broadcastUid) {
+        try (Stream<Object[]> rows = broadcastNotificationRepository.streamSendingReportRows(Objects.requireNonNull(broadcastUid))) {
+            return writeSheet(rowWindow, "Error Messages",
+                    new String[]{"Time sent", "Phone number", "Email", "Status", "Receipt time", "Message"},
+                    new int[]{7000, 5000, 7000, 7000, 7000, 21000},
+                    rows.map(row -> new String[]{
+                            STD_FORMATTER.format((Instant) row[0]),
+                            row[1] == null ? "" : (String) row[1],
+                            row[2] == null ? "" : (String) row[2],
+                            ((NotificationStatus) row[3]).name(),
+                            STD_FORMATTER.format((Instant) row[4]),
+                            (String) row[5]}).iterator(),
+                    () -> {});
         }
-        return workbook;
     }
 
     @Override
-    public XSSFWorkbook exportNotificationStdReport(List<? extends Notification> notifications) {
-        XSSFWorkbook workbook = new XSSFWorkbook();
-        XSSFSheet sheet = workbook.createSheet("Error Messages");
-
-        generateHeader(workbook, sheet, new String[]{"Time sent", "Phone number", "Email", "Status", "Receipt time", "Message"},
-                new int[]{7000, 5000, 7000, 7000, 7000, 21000});
-
-        // usual stuff that API makes annoyingly difficult to stick in a method
-        XSSFCellStyle contentStyle = workbook.createCellStyle();
-        XSSFFont contentFont = workbook.createFont();
-        contentStyle.setFont(contentFont);
-
-        XSSFCellStyle contentNumberStyle = workbook.createCellStyle();
-        contentNumberStyle.setDataFormat(workbook.createDataFormat().getFormat("#,##0.00"));
+    @Transactional(readOnly = true)
+    public Workbook exportBroadcastErrorReport(String broadcastUid) {
+        try (Stream<Object[]> rows = broadcastNotificationRepository.streamErrorReportRows(Objects.requireNonNull(broadcastUid),
+                NotificationSpecifications.FAILED_STATUS)) {
+            return exportNotificationErrors(rows);
+        }
+    }
 
-        //we are starting from 1 because row number 0 is header
-        int rowIndex = 1;
+    @Override
+    @Transactional(readOnly = true)
+    public Workbook exportEventErrorReport(String eventUid) {
+        try (Stream<Object[]> rows = eventNotificationRepository.streamErrorReportRows(Objects.requireNonNull(eventUid),
+                NotificationSpecifications.FAILED_STATUS)) {
+            return exportNotificationErrors(rows);
+        }
+    }
 
-        for (Notification n: notifications) {
-            String[] tableColumns = new String[6];
-            tableColumns[0] = STD_FORMATTER.format(n.getCreatedDateTime());
-            tableColumns[1] = n.getTarget().getPhoneNumber() == null ? "" : n.getTarget().getPhoneNumber();
-            tableColumns[2] = n.getTarget().getEmailAddress() == null ? "" : n.getTarget().getEmailAddress();
-            tableColumns[3] = n.getStatus().name();
-            tableColumns[4] = STD_FORMATTER.format(n.getLastStatusChange());
-            tableColumns[5] = n.getMessage();
-            addRow(sheet, rowIndex, tableColumns);
-            rowIndex++;
+    @Override
+    @Transactional(readOnly = true)
+    public Workbook exportTodoErrorReport(String todoUid) {
+        try (Stream<Object[]> rows = todoNotificationRepository.streamErrorReportRows(Objects.requireNonNull(todoUid),
+                NotificationSpecifications.FAILED_STATUS)) {
+            return exportNotificationErrors(rows);
         }
+    }
 
-        return workbook;
+    private Workbook exportNotificationErrors(Stream<Object[]> errorRows) {
+        return writeSheet(rowWindow, "Error Messages", new String[]{"Time sent", "Phone number", "Email", "Errors"},
+                new int[]{7000, 5000, 7000, 7000}, new NotificationErrorRows(errorRows.iterator()), () -> {});
     }
 
     @Override
-    public XSSFWorkbook exportAccountActivityReport(String accountUid, Instant start, Instant end) {
+    public Workbook exportAccountActivityReport(String accountUid, Instant start, Instant end) {
         Account account = accountBroker.loadAccount(accountUid);
         List<Group> accountGroups = account.getPaidGroups().stream().sorted(Comparator.comparing(Group::getName)).collect(Collectors.toList());
 
-        XSSFWorkbook workbook = new XSSFWorkbook();
-        XSSFSheet sheet = workbook.createSheet("Account activity");
+        SXSSFWorkbook workbook = newWorkbook();
+        Sheet sheet = workbook.createSheet("Account activity");
 
         final DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy/MM/dd");
         final String startDate = formatter.format(start.atZone(DateTimeUtil.getSAST()));
@@ -463,14 +410,6 @@ public class MemberDataExportBrokerImpl implements MemberDataExportBroker {
                         "Message cost (ZAR)"},
                 new int[]{7000, 5000, 7000, 7000});
 
-        // usual stuff that API makes annoyingly difficult to stick in a method
-        XSSFCellStyle contentStyle = workbook.createCellStyle();
-        XSSFFont contentFont = workbook.createFont();
-        contentStyle.setFont(contentFont);
-
-        XSSFCellStyle contentNumberStyle = workbook.createCellStyle();
-        contentNumberStyle.setDataFormat(workbook.createDataFormat().getFormat("#,##0.00"));
-
         //we are starting from 1 because row number 0 is header
         int rowIndex = 1;
 
@@ -480,7 +419,7 @@ public class MemberDataExportBrokerImpl implements MemberDataExportBroker {
             long notificationCount = accountBroker.countChargedNotificationsForGroup(accountUid, g.getUid(), start, end);
             String[] tableColumns = new String[6];
             tableColumns[0] = g.getName();
-            tableColumns[1] = "" + g.getMembers().size();
+            tableColumns[1] = "" + g.getMemberCount();
             tableColumns[2] = "" + notificationCount;
             tableColumns[3] = numberFormat.format((double) notificationCount * accountMessageCost);
             addRow(sheet, rowIndex, tableColumns);
@@ -492,64 +431,84 @@ public class MemberDataExportBrokerImpl implements MemberDataExportBroker {
         return workbook;
     }
 
-    private void generateHeader(XSSFWorkbook workbook, XSSFSheet sheet, String[] columnNames, int[] columnWidths) {
+    private SXSSFWorkbook newWorkbook() {
+        return newWorkbook(rowWindow);
+    }
+
+    private static SXSSFWorkbook newWorkbook(int rowWindow) {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(rowWindow);
+        workbook.setCompressTempFiles(true);
+        return workbook;
+    }
+
+    /**
+     * Writes a sheet with the header and then the rows, pulling each row only as it is written. The action is run
+     * each time another window of rows has been written (and all but the last window flushed to disk), e.g., to clear
+     * the entities those rows came from out of the persistence context.
+     */
+    static SXSSFWorkbook writeSheet(int rowWindow, String sheetName, String[] columnNames, int[] columnWidths,
+                                    Iterator<String[]> rows, Runnable afterEachWindow) {
+        SXSSFWorkbook workbook = newWorkbook(rowWindow);
+        Sheet sheet = workbook.createSheet(sheetName);
+        generateHeader(workbook, sheet, columnNames, columnWidths);
 
-        XSSFCellStyle headerStyle = workbook.createCellStyle();
+        //we are starting from 1 because row number 0 is header
+        int rowIndex = 1;
+        while (rows.hasNext()) {
+            addRow(sheet, rowIndex, rows.next());
+            if (rowIndex++ % rowWindow == 0)
+                afterEachWindow.run();
+        }
+        return workbook;
+    }
+
+    private static void generateHeader(Workbook workbook, Sheet sheet, String[] columnNames, int[] columnWidths) {
+
+        CellStyle headerStyle = workbook.createCellStyle();
 
-        XSSFFont headerFont = workbook.createFont();
+        Font headerFont = workbook.createFont();
         headerFont.setBold(true);
         headerStyle.setFont(headerFont);
 
-        XSSFRow row = sheet.createRow(0);
+        Row row = sheet.createRow(0);
 
         for (int i = 0; i < columnNames.length; i++) {
             String columnName = columnNames[i];
-            XSSFCell cell = row.createCell(i);
+            Cell cell = row.createCell(i);
             cell.setCellValue(columnName);
             sheet.setColumnWidth(i, columnWidths[i]);
             cell.setCellStyle(headerStyle);
         }
     }
 
-    private File writeToFile(XSSFWorkbook workbook, String fileName) {
+    private File writeToFile(Workbook workbook, String fileName) {
         try {
             File outputFile = File.createTempFile(fileName, "xls");
-            FileOutputStream fos = new FileOutputStream(outputFile);
-            workbook.write(fos);
-            fos.flush();
-            fos.close();
+            try (FileOutputStream fos = new FileOutputStream(outputFile)) {
+                workbook.write(fos);
+            }
             return outputFile;
         } catch (IOException e) {
             log.error("Error generating temp file from workbook", e);
             return null;
+        } finally {
+            if (workbook instanceof SXSSFWorkbook)
+                ((SXSSFWorkbook) workbook).dispose();
         }
     }
 
-    private void addRow(XSSFSheet sheet, int rowIndex, String[] values) {
+    private static void addRow(Sheet sheet, int rowIndex, String[] values) {
 
-        XSSFRow row = sheet.createRow(rowIndex);
+        Row row = sheet.createRow(rowIndex);
         for (int i = 0; i < values.length; i++) {
             String value = values[i];
-            XSSFCell cell = row.createCell(i);
+            Cell cell = row.createCell(i);
             cell.setCellValue(value);
         }
     }
-
-    private void addRowFromMember(List<Membership> memberships, XSSFSheet sheet, int rowIndex) {
-        for (Membership member : memberships) {
-            addRow(sheet, rowIndex, new String[]{
-                    member.getDisplayName(),
-                    member.getUser().getPhoneNumber(),
-                    member.getUser().getEmailAddress(),
-                    Province.CANONICAL_NAMES_ZA.getOrDefault(member.getUser().getProvince(), "Unknown"),
-                    String.join(", ", member.getTopics()),
-                    String.join(", ", member.getAffiliations())});
-            rowIndex++;
-        }
-    }
 //Methods for getting user details
 //Adding users to rows and accessing the userLog to get date and interface type based on UserID
-    private void addRowFromUser(List<User> users, XSSFSheet sheet, int rowIndex){
+    private void addRowFromUser(List<User> users, Sheet sheet, int rowIndex){
         for (User user:users) {
             UserLog userLog = getUserLog(user.getUid());
 
@@ -562,7 +521,7 @@ public class MemberDataExportBrokerImpl implements MemberDataExportBroker {
         }
     }
 
-    private void addRowFromCampaigns(List<Campaign> campaigns,XSSFSheet sheet, int rowIndex,Instant start, Instant end){
+    private void addRowFromCampaigns(List<Campaign> campaigns,Sheet sheet, int rowIndex,Instant start, Instant end){
         final DateTimeFormatter df = DateTimeFormatter.ofPattern("d MMMM, yyyy");
         final String startDate = start.atZone(DateTimeUtil.getSAST()).format(df);
         final String endDate = end.atZone(DateTimeUtil.getSAST()).format(df);
@@ -586,4 +545,36 @@ public class MemberDataExportBrokerImpl implements MemberDataExportBroker {
         Collections.sort(userLogs,Comparator.comparing(UserLog::getCreationTime).reversed());
         return userLogs.get(0);
     }
+
+    // folds the query's one row per error into one row per notification, with each of its errors in a column of its own
+    static final class NotificationErrorRows implements Iterator<String[]> {
+        private final PeekingIterator<Object[]> rows;
+
+        NotificationErrorRows(Iterator<Object[]> rows) {
+            this.rows = Iterators.peekingIterator(rows);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return rows.hasNext();
+        }
+
+        @Override
+        public String[] next() {
+            final Object[] first = rows.next();
+            final List<String> columns = new ArrayList<>();
+            columns.add(first[1] == null ? "" : STD_FORMATTER.format((Instant) first[1]));
+            columns.add(first[2] == null ? "" : (String) first[2]);
+            columns.add(first[3] == null ? "" : (String) first[3]);
+            addError(columns, first);
+            while (rows.hasNext() && rows.peek()[0].equals(first[0]))
+                addError(columns, rows.next());
+            return columns.toArray(new String[0]);
+        }
+
+        private static void addError(List<String> columns, Object[] row) {
+            if (row[4] != null || row[5] != null) // no error, from the outer join
+                columns.add(row[4] == null ? "" : STD_FORMATTER.format((LocalDateTime) row[4]) + " - " + row[5]);
+        }
+    }
 }
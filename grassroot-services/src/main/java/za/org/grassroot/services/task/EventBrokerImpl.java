@@ -62,7 +62,6 @@ import za.org.grassroot.services.geo.GeoLocationBroker;
 import za.org.grassroot.services.task.enums.EventListTimeType;
 import za.org.grassroot.services.user.PasswordTokenService;
 import za.org.grassroot.services.user.UserManagementService;
-import za.org.grassroot.services.util.CacheUtilService;
 import za.org.grassroot.services.util.LogsAndNotificationsBroker;
 import za.org.grassroot.services.util.LogsAndNotificationsBundle;
 
@@ -77,8 +76,10 @@ import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -109,7 +110,8 @@ public class EventBrokerImpl implements EventBroker {
 	private final GroupRepository groupRepository;
 	private final PermissionBroker permissionBroker;
 	private final LogsAndNotificationsBroker logsAndNotificationsBroker;
-	private final CacheUtilService cacheUtilService;
+	private final OutstandingResponseCache outstandingResponseCache;
+	private final VoteTallyCache voteTallyCache;
 	private final MessageAssemblingService messageAssemblingService;
 	private final AccountFeaturesBroker accountFeaturesBroker;
 	private final GeoLocationBroker geoLocationBroker;
@@ -122,7 +124,7 @@ public class EventBrokerImpl implements EventBroker {
 	private GraphBroker graphBroker;
 
 	@Autowired
-	public EventBrokerImpl(MeetingRepository meetingRepository, EventLogBroker eventLogBroker, EventRepository eventRepository, VoteRepository voteRepository, UidIdentifiableRepository uidIdentifiableRepository, UserManagementService userService, AccountFeaturesBroker accountFeaturesBroker, GroupRepository groupRepository, PermissionBroker permissionBroker, LogsAndNotificationsBroker logsAndNotificationsBroker, CacheUtilService cacheUtilService, MessageAssemblingService messageAssemblingService, GeoLocationBroker geoLocationBroker, TaskImageBroker taskImageBroker, EntityManager entityManager) {
+	public EventBrokerImpl(MeetingRepository meetingRepository, EventLogBroker eventLogBroker, EventRepository eventRepository, VoteRepository voteRepository, UidIdentifiableRepository uidIdentifiableRepository, UserManagementService userService, AccountFeaturesBroker accountFeaturesBroker, GroupRepository groupRepository, PermissionBroker permissionBroker, LogsAndNotificationsBroker logsAndNotificationsBroker, OutstandingResponseCache outstandingResponseCache, VoteTallyCache voteTallyCache, MessageAssemblingService messageAssemblingService, GeoLocationBroker geoLocationBroker, TaskImageBroker taskImageBroker, EntityManager entityManager) {
 		this.meetingRepository = meetingRepository;
 		this.eventLogBroker = eventLogBroker;
 		this.eventRepository = eventRepository;
@@ -133,7 +135,8 @@ public class EventBrokerImpl implements EventBroker {
 		this.groupRepository = groupRepository;
 		this.permissionBroker = permissionBroker;
 		this.logsAndNotificationsBroker = logsAndNotificationsBroker;
-		this.cacheUtilService = cacheUtilService;
+		this.outstandingResponseCache = outstandingResponseCache;
+		this.voteTallyCache = voteTallyCache;
 		this.messageAssemblingService = messageAssemblingService;
 		this.geoLocationBroker = geoLocationBroker;
 		this.taskImageBroker = taskImageBroker;
@@ -251,7 +254,7 @@ public class EventBrokerImpl implements EventBroker {
 
 	private LogsAndNotificationsBundle createMeetingBundle(Meeting meeting, User user) {
 		LogsAndNotificationsBundle bundle = new LogsAndNotificationsBundle();
-		cacheUtilService.clearRsvpCacheForUser(user.getUid());
+		outstandingResponseCache.invalidate(user.getUid());
 		EventLog meetingCreatedLog = new EventLog(user, meeting, CREATED);
 		EventLog creatingUserRsvpLog = new EventLog(user, meeting, EventLogType.RSVP, EventRSVPResponse.YES);
 		bundle.addLog(meetingCreatedLog);
@@ -318,7 +321,7 @@ public class EventBrokerImpl implements EventBroker {
 		Set<Notification> notifications = new HashSet<>();
 		log.debug("constructing event notifications ... has image URL? : {}", event.getImageUrl());
 		for (User member : usersToNotify) {
-			cacheUtilService.clearRsvpCacheForUser(member.getUid());
+			outstandingResponseCache.invalidate(member.getUid());
 			String message = messageAssemblingService.createEventInfoMessage(member, event);
 			Notification notification = new EventInfoNotification(member, message, eventLog);
 			notifications.add(notification);
@@ -476,6 +479,9 @@ public class EventBrokerImpl implements EventBroker {
 	}
 
 	private Set<Notification> constructEventChangedNotifications(Event event, EventLog eventLog, boolean startTimeChanged) {
+		if (startTimeChanged) {
+			outstandingResponseCache.invalidate(getAllEventMembers(event).stream().map(User::getUid).collect(Collectors.toSet()));
+		}
 		Set<User> rsvpWithNoMembers = new HashSet<>(userService.findUsersThatRsvpForEvent(event, EventRSVPResponse.NO));
 		return getAllEventMembers(event).stream()
 				.filter(member -> startTimeChanged || !rsvpWithNoMembers.contains(member))
@@ -646,6 +652,9 @@ public class EventBrokerImpl implements EventBroker {
 
 		event.setCanceled(true);
 		event.setScheduledReminderActive(false);
+		outstandingResponseCache.invalidate(getAllEventMembers(event).stream().map(User::getUid).collect(Collectors.toSet()));
+		if (event.getEventType().equals(EventType.VOTE))
+			voteTallyCache.closeVote(event.getId());
 
 		LogsAndNotificationsBundle bundle = new LogsAndNotificationsBundle();
 
@@ -849,19 +858,17 @@ public class EventBrokerImpl implements EventBroker {
     @Transactional(readOnly = true)
 	public List<Event> getEventsNeedingResponseFromUser(User user) {
 	    long startTime = System.currentTimeMillis();
-		List<Event> cachedRsvps = cacheUtilService.getOutstandingResponseForUser(user.getUid());
-		if (cachedRsvps != null) {
-			return cachedRsvps;
-		}
-
-		Specification<Event> specs = EventSpecifications.upcomingEventsForUser(user);
-		Specification<Event> stripMeetingCreated = (root, query, cb) -> cb.or(cb.notEqual(root.get("type"), EventType.MEETING),
-				cb.notEqual(root.get("createdByUser"), user));
-		List<Event> events = eventRepository
-                .findAll(specs.and(stripMeetingCreated), new Sort(Sort.Direction.ASC, "createdDateTime")).stream()
-				.filter(e -> !eventLogBroker.hasUserRespondedToEvent(e, user))
-				.distinct().collect(Collectors.toList());
-		cacheUtilService.putOutstandingResponseForUser(user.getUid(), events);
+		List<String> cachedUids = outstandingResponseCache.getOutstandingEventUids(user.getUid());
+		if (cachedUids != null) {
+			// most users have nothing outstanding, in which case this needs no query at all
+			return cachedUids.isEmpty() ? new ArrayList<>() : eventRepository.findByUidIn(cachedUids).stream()
+					.filter(e -> !e.isCanceled() && e.getEventStartDateTime().isAfter(Instant.now()))
+					.sorted(Comparator.comparing(Event::getCreatedDateTime))
+					.collect(Collectors.toList());
+		}
+
+		List<Event> events = eventRepository.findUpcomingEventsAwaitingResponse(user, Instant.now());
+		outstandingResponseCache.putOutstandingEvents(user.getUid(), events);
         log.info("time to check for responses: {} msecs", System.currentTimeMillis() - startTime);
 		return events;
 	}
@@ -22,7 +22,6 @@ import za.org.grassroot.core.repository.UserRepository;
 import za.org.grassroot.core.specifications.EventLogSpecifications;
 import za.org.grassroot.services.MessageAssemblingService;
 import za.org.grassroot.services.exception.TaskFinishedException;
-import za.org.grassroot.services.util.CacheUtilService;
 import za.org.grassroot.services.util.LogsAndNotificationsBroker;
 import za.org.grassroot.services.util.LogsAndNotificationsBundle;
 
@@ -41,16 +40,16 @@ public class EventLogBrokerImpl implements EventLogBroker {
     private final UserRepository userRepository;
     private final LogsAndNotificationsBroker logsAndNotificationsBroker;
     private final MessageAssemblingService messageAssemblingService;
-    private final CacheUtilService cacheUtilService;
+    private final OutstandingResponseCache outstandingResponseCache;
 
     @Autowired
-    public EventLogBrokerImpl(EventLogRepository eventLogRepository, EventRepository eventRepository, UserRepository userRepository, LogsAndNotificationsBroker logsAndNotificationsBroker, MessageAssemblingService messageAssemblingService, CacheUtilService cacheUtilService) {
+    public EventLogBrokerImpl(EventLogRepository eventLogRepository, EventRepository eventRepository, UserRepository userRepository, LogsAndNotificationsBroker logsAndNotificationsBroker, MessageAssemblingService messageAssemblingService, OutstandingResponseCache outstandingResponseCache) {
         this.eventLogRepository = eventLogRepository;
         this.eventRepository = eventRepository;
         this.userRepository = userRepository;
         this.logsAndNotificationsBroker = logsAndNotificationsBroker;
         this.messageAssemblingService = messageAssemblingService;
-        this.cacheUtilService = cacheUtilService;
+        this.outstandingResponseCache = outstandingResponseCache;
     }
 
     @Override
@@ -79,7 +78,7 @@ public class EventLogBrokerImpl implements EventLogBroker {
         User user = userRepository.findOneByUid(userUid);
 
         log.trace("rsvpForEvent...event..." + event.getId() + "...user..." + user.getPhoneNumber() + "...rsvp..." + rsvpResponse.toString());
-        cacheUtilService.clearRsvpCacheForUser(user.getUid());
+        outstandingResponseCache.invalidate(user.getUid());
 
         if (!hasUserRespondedToEvent(event, user)) {
             EventLog eventLog = createEventLog(EventLogType.RSVP, event.getUid(), user.getUid(), rsvpResponse);
@@ -0,0 +1,103 @@
+package za.org.grassroot.services.task;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import za.org.grassroot.core.domain.task.Event;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Per user list of the uids of upcoming events still awaiting their response, checked on every USSD session start and
+ * inbound SMS. Entries are dropped when the user responds or votes, and for all members when an event is created,
+ * changed or cancelled; invalidations inside a transaction are repeated after it commits, so a concurrent read cannot
+ * put back the pre-commit state. An entry also lapses when its earliest event starts, and after a maximum age, as a
+ * backstop for changes that do not invalidate (e.g., a user joining a group that has an open vote).
+ */
+@Component @Slf4j
+public class OutstandingResponseCache {
+
+    @Value("${grassroot.events.outstanding.cache.max-size:50000}")
+    private int maxSize = 50000;
+
+    @Value("${grassroot.events.outstanding.cache.max-age-minutes:120}")
+    private long maxAgeMinutes = 120;
+
+    private final Map<String, Entry> outstanding = new ConcurrentHashMap<>();
+
+    /**
+     * @return uids of events awaiting the user's response, oldest first, or null if not known
+     */
+    public List<String> getOutstandingEventUids(String userUid) {
+        final Entry entry = outstanding.get(userUid);
+        if (entry == null)
+            return null;
+        if (Instant.now().isAfter(entry.validUntil)) {
+            outstanding.remove(userUid, entry);
+            return null;
+        }
+        return entry.eventUids;
+    }
+
+    public void putOutstandingEvents(String userUid, List<Event> events) {
+        final Instant now = Instant.now();
+        Instant validUntil = now.plus(maxAgeMinutes, ChronoUnit.MINUTES);
+        for (Event event : events) {
+            if (event.getEventStartDateTime() != null && event.getEventStartDateTime().isBefore(validUntil))
+                validUntil = event.getEventStartDateTime();
+        }
+
+        if (outstanding.size() >= maxSize)
+            makeRoom(now);
+
+        final List<String> eventUids = events.stream().map(Event::getUid).collect(Collectors.toList());
+        outstanding.put(userUid, new Entry(Collections.unmodifiableList(eventUids), validUntil));
+    }
+
+    public void invalidate(String userUid) {
+        invalidate(Collections.singleton(userUid));
+    }
+
+    public void invalidate(Collection<String> userUids) {
+        final Set<String> uids = new HashSet<>(userUids);
+        outstanding.keySet().removeAll(uids);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    outstanding.keySet().removeAll(uids);
+                }
+            });
+        }
+    }
+
+    private void makeRoom(Instant now) {
+        outstanding.values().removeIf(entry -> now.isAfter(entry.validUntil));
+        if (outstanding.size() >= maxSize) {
+            int toRemove = outstanding.size() / 4 + 1;
+            Iterator<String> keys = outstanding.keySet().iterator();
+            while (toRemove-- > 0 && keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+            log.info("Outstanding response cache full, dropped a quarter of entries");
+        }
+    }
+
+    private static final class Entry {
+        private final List<String> eventUids;
+        private final Instant validUntil;
+
+        private Entry(List<String> eventUids, Instant validUntil) {
+            this.eventUids = eventUids;
+            this.validUntil = validUntil;
+        }
+    }
+
+}
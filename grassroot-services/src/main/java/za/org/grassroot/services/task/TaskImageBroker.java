@@ -7,6 +7,7 @@ import za.org.grassroot.core.enums.EventLogType;
 import za.org.grassroot.core.enums.TaskType;
 import za.org.grassroot.core.enums.TodoLogType;
 
+import java.io.File;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -44,9 +45,10 @@ public interface TaskImageBroker {
 
     long countImagesForTask(String userUid, String taskUid, TaskType taskType);
 
-    byte[] fetchImageForTask(String userUid, TaskType taskType, String logUid, boolean checkAnalyzed);
+    // as with the storage broker, these return files from the media cache, to be streamed and left in place
+    File fetchImageForTask(String userUid, TaskType taskType, String logUid, boolean checkAnalyzed);
 
-    byte[] fetchMicroThumbnailForTask(String userUid, TaskType taskType, String logUid);
+    File fetchMicroThumbnailForTask(String userUid, TaskType taskType, String logUid);
 
     String removeTaskImageRecord(String userUid, TaskType taskType, String logUid, boolean removeFromStorage);
 
@@ -27,6 +27,7 @@ import za.org.grassroot.integration.storage.ImageType;
 import za.org.grassroot.integration.storage.StorageBroker;
 import za.org.grassroot.services.geo.GeoLocationBroker;
 
+import java.io.File;
 import java.time.Instant;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -295,7 +296,7 @@ public class TaskImageBrokerImpl implements TaskImageBroker {
     }
 
     @Override
-    public byte[] fetchImageForTask(String userUid, TaskType taskType, String logUid, boolean checkAnalyzed) {
+    public File fetchImageForTask(String userUid, TaskType taskType, String logUid, boolean checkAnalyzed) {
         // consider adding a membership check in future, hence keeping this method as intermediary (but also need this to be fast ...)
         Objects.requireNonNull(taskType);
         Objects.requireNonNull(logUid);
@@ -306,7 +307,7 @@ public class TaskImageBrokerImpl implements TaskImageBroker {
     }
 
     @Override
-    public byte[] fetchMicroThumbnailForTask(String userUid, TaskType taskType, String logUid) {
+    public File fetchMicroThumbnailForTask(String userUid, TaskType taskType, String logUid) {
         Objects.requireNonNull(taskType);
         Objects.requireNonNull(logUid);
 
@@ -10,6 +10,7 @@ import za.org.grassroot.core.dto.task.TaskTimeChangedDTO;
 import java.time.Instant;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
 
 public interface TodoBroker {
 
@@ -53,6 +54,9 @@ public interface TodoBroker {
     List<TodoAssignment> fetchAssignedUserResponses(String userUid, String todoUid, boolean respondedOnly,
                                                     boolean assignedOnly, boolean witnessOnly);
 
+    // the assigned members' responses in export order; must be called, and the stream closed, within a transaction
+    Stream<TodoAssignment> streamAssignedUserResponses(String userUid, String todoUid);
+
     // Handling reminders
     void sendScheduledReminder(String todoUid);
 }
@@ -43,6 +43,7 @@ import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
@@ -507,12 +508,8 @@ public class TodoBrokerImpl implements TodoBroker {
         Objects.requireNonNull(userUid);
         Objects.requireNonNull(todoUid);
 
-        User user = userService.load(userUid);
         Todo todo = todoRepository.findOneByUid(todoUid);
-
-        if (!todo.getCreatedByUser().equals(user) || todoAssignmentRepository.count(TodoSpecifications.userAssignment(user, todo)) == 0) {
-            throw new AccessDeniedException("Error, only creating or assigned user can see todo details");
-        }
+        validateCanSeeResponses(userService.load(userUid), todo);
 
         Specification<TodoAssignment> specs = Specification.where((root, query, cb) -> cb.equal(root.get(TodoAssignment_.todo), todo));
 
@@ -532,6 +529,23 @@ public class TodoBrokerImpl implements TodoBroker {
         return todoAssignmentRepository.findAll(specs, Sort.by(orders));
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Stream<TodoAssignment> streamAssignedUserResponses(String userUid, String todoUid) {
+        Objects.requireNonNull(userUid);
+        Objects.requireNonNull(todoUid);
+
+        Todo todo = todoRepository.findOneByUid(todoUid);
+        validateCanSeeResponses(userService.load(userUid), todo);
+        return todoAssignmentRepository.streamAssignedOrderByResponse(todo);
+    }
+
+    private void validateCanSeeResponses(User user, Todo todo) {
+        if (!todo.getCreatedByUser().equals(user) || todoAssignmentRepository.count(TodoSpecifications.userAssignment(user, todo)) == 0) {
+            throw new AccessDeniedException("Error, only creating or assigned user can see todo details");
+        }
+    }
+
     @Override
     @Transactional
     public void sendScheduledReminder(String todoUid) {
@@ -9,6 +9,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Created by luke on 2017/05/31.
@@ -26,6 +27,10 @@ public interface VoteBroker {
 
     Map<String, Long> fetchVoteResults(String userUid, String voteUid, boolean swallowMemberException);
 
+    // listener is passed the same results as fetch, shortly after responses change them and a last time when the vote
+    // closes, after which onClose is run; run the returned handle to stop
+    Runnable subscribeToVoteResults(String userUid, String voteUid, Consumer<Map<String, Long>> listener, Runnable onClose);
+
     Optional<Vote> getMassVoteOpenForGroup(Group group);
 
     Optional<Vote> getNextMassVoteForGroup(Group group, int votePlaceInQueue);
@@ -39,6 +39,7 @@ import za.org.grassroot.services.util.LogsAndNotificationsBundle;
 
 import java.time.Instant;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -50,6 +51,7 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import static za.org.grassroot.core.enums.EventLogType.CHANGE;
 import static za.org.grassroot.core.specifications.EventLogSpecifications.*;
@@ -73,6 +75,7 @@ public class VoteBrokerImpl implements VoteBroker {
     private static final String NO = "NO";
     private static final String ABSTAIN = "ABSTAIN";
     private static final List<String> optionsForYesNoVote = Arrays.asList(YES, NO, ABSTAIN);
+    private static final String TOTAL_VOTE_MEMBERS = "TOTAL_VOTE_MEMBERS";
 
     private final UserManagementService userService;
     private final VoteRepository voteRepository;
@@ -80,15 +83,19 @@ public class VoteBrokerImpl implements VoteBroker {
     private final MembershipRepository membershipRepository;
     private final MessageAssemblingService messageService;
     private final LogsAndNotificationsBroker logsAndNotificationsBroker;
+    private final OutstandingResponseCache outstandingResponseCache;
+    private final VoteTallyCache voteTallyCache;
 
     @Autowired
-    public VoteBrokerImpl(UserManagementService userService, VoteRepository voteRepository, EventLogRepository eventLogRepository, MembershipRepository membershipRepository, MessageAssemblingService messageService, LogsAndNotificationsBroker logsAndNotificationsBroker) {
+    public VoteBrokerImpl(UserManagementService userService, VoteRepository voteRepository, EventLogRepository eventLogRepository, MembershipRepository membershipRepository, MessageAssemblingService messageService, LogsAndNotificationsBroker logsAndNotificationsBroker, OutstandingResponseCache outstandingResponseCache, VoteTallyCache voteTallyCache) {
         this.userService = userService;
         this.voteRepository = voteRepository;
         this.eventLogRepository = eventLogRepository;
         this.membershipRepository = membershipRepository;
         this.messageService = messageService;
         this.logsAndNotificationsBroker = logsAndNotificationsBroker;
+        this.outstandingResponseCache = outstandingResponseCache;
+        this.voteTallyCache = voteTallyCache;
     }
 
     @Override
@@ -170,8 +177,12 @@ public class VoteBrokerImpl implements VoteBroker {
         if (priorResponse == null) {
             // user has not voted before, so adding a new one
             eventLogRepository.save(new EventLog(user, vote, EventLogType.VOTE_OPTION_RESPONSE, storedOption.get()));
-        } else {
-            priorResponse.setTag(voteOption);
+            outstandingResponseCache.invalidate(user.getUid());
+            voteTallyCache.recordResponse(vote.getId(), null, storedOption.get());
+        } else if (!storedOption.get().trim().equalsIgnoreCase(StringUtils.trimWhitespace(priorResponse.getTag()))) {
+            final String priorOption = priorResponse.getTag();
+            priorResponse.setTag(storedOption.get());
+            voteTallyCache.recordResponse(vote.getId(), priorOption, storedOption.get());
         }
     }
 
@@ -180,6 +191,7 @@ public class VoteBrokerImpl implements VoteBroker {
     public void calculateAndSendVoteResults(String voteUid) {
         Objects.requireNonNull(voteUid);
         Vote vote = voteRepository.findOneByUid(voteUid);
+        voteTallyCache.closeVote(vote.getId());
         if (vote.shouldStopNotifications()) {
             logger.info("Vote is set to halt notifications, aborting");
             eventLogRepository.save(new EventLog(null, vote, EventLogType.RESULT));
@@ -241,7 +253,7 @@ public class VoteBrokerImpl implements VoteBroker {
             Map<String, Long> resultMap = StringArrayUtil.isAllEmptyOrNull(vote.getVoteOptions()) ?
                     calculateYesNoResults(vote) : calculateMultiOptionResults(vote, vote.getVoteOptions());
             logger.info("Calculation done, elapsed: {} msecs", stopwatch.elapsed(TimeUnit.MILLISECONDS));
-            resultMap.put("TOTAL_VOTE_MEMBERS", sizeOfVote);
+            resultMap.put(TOTAL_VOTE_MEMBERS, sizeOfVote);
             return resultMap;
         } catch (AccessDeniedException e) {
             if (swallowMemberException) {
@@ -252,6 +264,26 @@ public class VoteBrokerImpl implements VoteBroker {
         }
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Runnable subscribeToVoteResults(String userUid, String voteUid, Consumer<Map<String, Long>> listener, Runnable onClose) {
+        User user = userService.load(Objects.requireNonNull(userUid));
+        Vote vote = voteRepository.findOneByUid(Objects.requireNonNull(voteUid));
+        validateUserPartOfVote(user, vote, false);
+
+        // fixed for the subscription, so that each push is only a read of the tally
+        final long sizeOfVote = vote.isAllGroupMembersAssigned() ? membershipRepository.countByGroup(vote.getAncestorGroup()) :
+                vote.getAssignedMembers().size();
+        final List<String> options = StringArrayUtil.isAllEmptyOrNull(vote.getVoteOptions()) ?
+                optionsForYesNoVote : new ArrayList<>(vote.getVoteOptions());
+
+        return voteTallyCache.addListener(vote.getId(), () -> {
+            Map<String, Long> results = resultsInOptionOrder(voteTallyCache.getCounts(vote), options);
+            results.put(TOTAL_VOTE_MEMBERS, sizeOfVote);
+            listener.accept(results);
+        }, onClose);
+    }
+
     @Override
     public Optional<Vote> getMassVoteOpenForGroup(final Group group) {
         return voteRepository.findAll(EventSpecifications.isOpenMassVoteForGroup(group), SORT_DIRECTION).stream().findFirst();
@@ -351,22 +383,21 @@ public class VoteBrokerImpl implements VoteBroker {
     }
 
     private Map<String, Long> calculateMultiOptionResults(Vote vote, List<String> options) {
-        Map<String, Long> results = new LinkedHashMap<>();
-        long startTime = System.currentTimeMillis();
-//        List<EventLog> eventLogs = eventLogRepository.findAll(Specification.where(isResponseToVote(vote)));
-        options.forEach(o -> results.put(o, eventLogRepository.count(isVoteOptionSelection(vote, o))));
-        logger.info("Result count took {} msecs", System.currentTimeMillis() - startTime);
-        return results;
+        return resultsInOptionOrder(voteTallyCache.getCounts(vote), options);
     }
 
     private Map<String, Long> calculateYesNoResults(Vote vote) {
         // vote may have been done via old method, so need to do a check, for now, if there are no
         // option responses (note: if no responses at all, it will still return valid result, since we
         // know at this point that it is a yes/no vote)
+        final Map<String, Long> counts = voteTallyCache.getCounts(vote);
+        return counts.isEmpty() ? calculateOldVoteResult(vote) : resultsInOptionOrder(counts, optionsForYesNoVote);
+    }
 
-        return eventLogRepository.count(Specification.where(ofType(EventLogType.VOTE_OPTION_RESPONSE))) == 0 ?
-                calculateOldVoteResult(vote) :
-                calculateMultiOptionResults(vote, optionsForYesNoVote); // will just return
+    private Map<String, Long> resultsInOptionOrder(Map<String, Long> counts, List<String> options) {
+        Map<String, Long> results = new LinkedHashMap<>();
+        options.forEach(o -> results.put(o, counts.getOrDefault(VoteTallyCache.key(o), 0L)));
+        return results;
     }
 
     private Map<String, Long> calculateOldVoteResult(Vote vote) {
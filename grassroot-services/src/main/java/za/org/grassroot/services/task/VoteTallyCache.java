@@ -0,0 +1,285 @@
+package za.org.grassroot.services.task;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import za.org.grassroot.core.domain.task.Vote;
+import za.org.grassroot.core.repository.EventLogRepository;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Keeps a count of responses per option for each vote being looked at, so fetching results reads a few counters rather
+ * than running a count per option over the event log. Counts are loaded from the event log the first time a vote is
+ * read (or for all open votes on startup and {@link #rebuild()}), and then moved by {@link #recordResponse} when the
+ * response's transaction commits. A load is only kept if no response to that vote was in flight or committed while it
+ * ran, since it could not tell whether its query saw them; otherwise it is used once and the next read loads again.
+ * When a vote closes its counts are dropped and its listeners ended, see {@link #closeVote}. Options are keyed in upper
+ * case, as they are matched in the log.
+ * <p>
+ * Each node keeps its own counts and only hears of the responses recorded on it, so counts older than the max age are
+ * loaded again on the next read, which is how responses made on other nodes come through: results read on one node may
+ * lag those on another by up to that age. Listeners are told of a change found by such a reload, but only once the vote
+ * is read again on their node.
+ */
+@Component @Slf4j
+public class VoteTallyCache {
+
+    private static final long IDLE_EVICT_MILLIS = TimeUnit.HOURS.toMillis(6);
+
+    @Value("${grassroot.votes.tally.max-age-millis:30000}")
+    private long maxAgeMillis = 30000;
+
+    private final EventLogRepository eventLogRepository;
+
+    private final Map<Long, Tally> tallies = new ConcurrentHashMap<>();
+    private final Map<Long, List<Listener>> listeners = new ConcurrentHashMap<>();
+    private final Set<Long> changedSincePublish = ConcurrentHashMap.newKeySet();
+
+    // moved on every response registered or completed anywhere, to tell whether a bulk load overlapped any
+    private final AtomicLong globalVersion = new AtomicLong();
+
+    @Autowired
+    public VoteTallyCache(EventLogRepository eventLogRepository) {
+        this.eventLogRepository = eventLogRepository;
+    }
+
+    /**
+     * @return counts of responses by upper-cased option, for options with at least one response
+     */
+    public Map<String, Long> getCounts(Vote vote) {
+        return getCounts(vote.getId(), () -> toCounts(eventLogRepository.countVoteOptionResponses(vote)));
+    }
+
+    Map<String, Long> getCounts(Long voteId, Supplier<Map<String, Long>> loader) {
+        final Tally tally = tallies.computeIfAbsent(voteId, id -> new Tally());
+        final long now = System.currentTimeMillis();
+        final long versionBefore;
+        final Map<String, Long> previous;
+        synchronized (tally) {
+            tally.lastRead = now;
+            if (tally.counts != null && now - tally.loadedAt < maxAgeMillis)
+                return new HashMap<>(tally.counts);
+            versionBefore = tally.inFlight > 0 ? -1 : tally.version;
+            previous = tally.counts;
+        }
+
+        final Map<String, Long> loaded = loader.get();
+        boolean changedElsewhere = false;
+        synchronized (tally) {
+            if (versionBefore != -1 && tally.version == versionBefore && tally.inFlight == 0) {
+                changedElsewhere = previous != null && !previous.equals(loaded);
+                tally.counts = new HashMap<>(loaded);
+                tally.loadedAt = now;
+            }
+        }
+        if (changedElsewhere)
+            changedSincePublish.add(voteId);
+        return loaded;
+    }
+
+    /**
+     * Moves the counts from the prior option (null if a first response) to the new one when the current transaction
+     * commits, or immediately if there is none.
+     */
+    public void recordResponse(Long voteId, String priorOption, String newOption) {
+        final Tally tally = tallies.computeIfAbsent(voteId, id -> new Tally());
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            synchronized (tally) {
+                tally.version++;
+                tally.apply(priorOption, newOption);
+            }
+            globalVersion.incrementAndGet();
+            changedSincePublish.add(voteId);
+            return;
+        }
+
+        synchronized (tally) {
+            tally.inFlight++;
+            tally.version++;
+        }
+        globalVersion.incrementAndGet();
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                synchronized (tally) {
+                    tally.inFlight--;
+                    tally.version++;
+                    if (status == TransactionSynchronization.STATUS_COMMITTED)
+                        tally.apply(priorOption, newOption);
+                }
+                globalVersion.incrementAndGet();
+                if (status == TransactionSynchronization.STATUS_COMMITTED)
+                    changedSincePublish.add(voteId);
+            }
+        });
+    }
+
+    /**
+     * Registers a callback run (on a scheduler thread, at most about once a second) after responses to the vote change
+     * its counts, and once more when the vote closes, after which onClose is run; run the returned handle to remove it.
+     */
+    public Runnable addListener(Long voteId, Runnable onChange, Runnable onClose) {
+        final Listener listener = new Listener(onChange, onClose);
+        listeners.computeIfAbsent(voteId, id -> new CopyOnWriteArrayList<>()).add(listener);
+        return () -> listeners.computeIfPresent(voteId, (id, list) -> {
+            list.remove(listener);
+            return list.isEmpty() ? null : list;
+        });
+    }
+
+    @Scheduled(fixedDelay = 1000)
+    public void publishChanges() {
+        if (changedSincePublish.isEmpty())
+            return;
+
+        final Iterator<Long> changed = changedSincePublish.iterator();
+        while (changed.hasNext()) {
+            final Long voteId = changed.next();
+            changed.remove();
+            listeners.getOrDefault(voteId, Collections.emptyList()).forEach(listener -> run(voteId, listener.onChange));
+        }
+    }
+
+    /**
+     * Drops the counts for a vote that has closed or been cancelled, and pushes its results a last time to any listeners
+     * before ending them, once the current transaction commits (or immediately if there is none).
+     */
+    public void closeVote(Long voteId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            doClose(voteId);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                doClose(voteId);
+            }
+        });
+    }
+
+    private void doClose(Long voteId) {
+        final List<Listener> closing = listeners.remove(voteId);
+        if (closing != null) {
+            closing.forEach(listener -> run(voteId, listener.onChange));
+            closing.forEach(listener -> run(voteId, listener.onClose));
+        }
+        tallies.remove(voteId);
+        changedSincePublish.remove(voteId);
+    }
+
+    private void run(Long voteId, Runnable callback) {
+        try {
+            callback.run();
+        } catch (RuntimeException e) {
+            log.warn("Vote tally listener failed for vote {}: {}", voteId, e.getMessage());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOpenVotes() {
+        final long versionBefore = globalVersion.get();
+        final Map<Long, Map<String, Long>> counts = new HashMap<>();
+        eventLogRepository.countVoteOptionResponsesForOpenVotes(Instant.now())
+                .forEach(row -> counts.computeIfAbsent((Long) row[0], id -> new HashMap<>()).put(key((String) row[1]), (Long) row[2]));
+
+        if (globalVersion.get() != versionBefore) {
+            log.info("Votes came in while loading tallies, leaving them to load on first read");
+            return;
+        }
+
+        final long now = System.currentTimeMillis();
+        counts.forEach((voteId, optionCounts) -> {
+            final Tally tally = tallies.computeIfAbsent(voteId, id -> new Tally());
+            synchronized (tally) {
+                if (tally.counts == null && tally.inFlight == 0) {
+                    tally.counts = optionCounts;
+                    tally.loadedAt = now;
+                    tally.lastRead = now;
+                }
+            }
+        });
+        log.info("Loaded vote tallies for {} open votes with responses", counts.size());
+    }
+
+    /**
+     * Drops all counts and loads them again from the event log, for use if they are ever suspected of drifting.
+     */
+    public void rebuild() {
+        tallies.values().forEach(tally -> {
+            synchronized (tally) {
+                tally.counts = null;
+            }
+        });
+        loadOpenVotes();
+    }
+
+    @Scheduled(fixedDelay = 600000)
+    public void evictIdle() {
+        final long cutoff = System.currentTimeMillis() - IDLE_EVICT_MILLIS;
+        tallies.entrySet().removeIf(entry -> {
+            synchronized (entry.getValue()) {
+                return entry.getValue().inFlight == 0 && entry.getValue().lastRead < cutoff
+                        && !listeners.containsKey(entry.getKey());
+            }
+        });
+    }
+
+    public String describeStats() {
+        final long loaded = tallies.values().stream().filter(tally -> tally.counts != null).count();
+        return String.format("votes tracked: %d, with counts loaded: %d, with listeners: %d", tallies.size(), loaded,
+                listeners.size());
+    }
+
+    static String key(String option) {
+        return option == null ? "" : option.trim().toUpperCase();
+    }
+
+    private static Map<String, Long> toCounts(List<Object[]> rows) {
+        final Map<String, Long> counts = new HashMap<>();
+        rows.forEach(row -> counts.merge(key((String) row[0]), (Long) row[1], Long::sum));
+        return counts;
+    }
+
+    private static final class Listener {
+        private final Runnable onChange;
+        private final Runnable onClose;
+
+        private Listener(Runnable onChange, Runnable onClose) {
+            this.onChange = onChange;
+            this.onClose = onClose;
+        }
+    }
+
+    private static final class Tally {
+        private Map<String, Long> counts; // null until loaded
+        private int inFlight;
+        private long version;
+        private long loadedAt;
+        private long lastRead = System.currentTimeMillis();
+
+        private void apply(String priorOption, String newOption) {
+            if (counts == null)
+                return;
+            if (priorOption != null)
+                counts.computeIfPresent(key(priorOption), (option, count) -> count > 1 ? count - 1 : null);
+            counts.merge(key(newOption), 1L, Long::sum);
+        }
+    }
+
+}
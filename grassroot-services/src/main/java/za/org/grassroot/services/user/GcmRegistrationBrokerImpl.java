@@ -12,6 +12,7 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
+import za.org.grassroot.GrassrootExecutorsConfig;
 import za.org.grassroot.core.domain.GcmRegistration;
 import za.org.grassroot.core.domain.User;
 import za.org.grassroot.core.domain.group.Group;
@@ -76,7 +77,7 @@ public class GcmRegistrationBrokerImpl implements GcmRegistrationBroker {
         return gcmRegistrationRepository.save(gcmRegistration);
     }
 
-    @Async
+    @Async(GrassrootExecutorsConfig.OUTBOUND_EXECUTOR)
     @Override
     public void changeTopicSubscription(String userUid, String topicId, boolean subscribe) throws IOException {
         User user = userRepository.findOneByUid(userUid);
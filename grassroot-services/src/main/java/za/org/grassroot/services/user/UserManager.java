@@ -45,6 +45,7 @@ import za.org.grassroot.services.exception.InvalidOtpException;
 import za.org.grassroot.services.exception.InvalidTokenException;
 import za.org.grassroot.services.exception.NoSuchUserException;
 import za.org.grassroot.services.exception.UserExistsException;
+import za.org.grassroot.services.group.GroupMemberCounter;
 import za.org.grassroot.services.util.CacheUtilService;
 import za.org.grassroot.services.util.LogsAndNotificationsBroker;
 import za.org.grassroot.services.util.LogsAndNotificationsBundle;
@@ -77,6 +78,7 @@ public class UserManager implements UserManagementService, UserDetailsService {
     @Autowired private MessageAssemblingService messageAssemblingService;
     @Autowired private MessagingServiceBroker messagingServiceBroker;
     @Autowired private UserLocationLogRepository userLocationLogRepository;
+    @Autowired private GroupMemberCounter groupMemberCounter;
 
     @Autowired(required = false) private GraphBroker graphBroker;
 
@@ -655,7 +657,8 @@ public class UserManager implements UserManagementService, UserDetailsService {
         log.info("user now being removed from {} groups", memberships.size());
         for (Membership membership : memberships) {
             Group group = membership.getGroup();
-            group.removeMembership(membership); // concurrency?
+            group.removeMembership(membership);
+            groupMemberCounter.storeChanges(group);
         }
         user.setSafetyGroup(null);
 
@@ -12,7 +12,6 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import za.org.grassroot.core.domain.SafetyEvent;
 import za.org.grassroot.core.domain.User;
-import za.org.grassroot.core.domain.task.Event;
 import za.org.grassroot.core.dto.UserMinimalProjection;
 import za.org.grassroot.core.enums.UserInterfaceType;
 
@@ -34,17 +33,6 @@ public class CacheUtilManager implements CacheUtilService {
         this.cacheManager = cacheManager;
     }
 
-    @Override
-    public void clearRsvpCacheForUser(String userUid) {
-        try {
-            Cache cache = cacheManager.getCache("userRSVP");
-            cache.remove(userUid);
-        } catch (Exception e) {
-            log.error("FAILED to clear userRSVP..." + userUid + " error: " + e.toString());
-        }
-
-    }
-
     @Override
     public UserMinimalProjection checkCacheForUserMinimalInfo(String msisdn) {
         Cache cache = cacheManager.getCache("user_msisdn_minimal");
@@ -66,17 +54,6 @@ public class CacheUtilManager implements CacheUtilService {
         cache.put(new Element(msisdn, user));
     }
 
-    @Override
-    public List<Event> getOutstandingResponseForUser(String userUid) {
-        Cache cache = cacheManager.getCache("userRSVP");
-        log.info("getOutstandingResponseForUser... anything in cache : {}", cache.isKeyInCache(userUid));
-        try {
-            return cache.isKeyInCache(userUid) ? (List<Event>) cache.get(userUid).getObjectValue() : null;
-        } catch (NullPointerException|ClassCastException e) {
-            return null;
-        }
-    }
-
     @Override
     public List<SafetyEvent> getOutstandingSafetyEventResponseForUser(User user) {
         Cache cache = cacheManager.getCache("userSafetyEvents");
@@ -133,16 +110,6 @@ public class CacheUtilManager implements CacheUtilService {
         }
     }
 
-    @Override
-    public void putOutstandingResponseForUser(String userUid, List<Event> outstandingRSVPs) {
-        try {
-            Cache cache = cacheManager.getCache("userRSVP");
-            cache.put(new Element(userUid,outstandingRSVPs));
-        } catch (CacheException|NullPointerException e) {
-            log.error(e.toString());
-        }
-    }
-
     @Override
     public void putUssdMenuForUser(String phoneNumber, String urlToCache) {
         log.info("Putting USSD menu into cache ..." + urlToCache);
@@ -252,7 +219,7 @@ public class CacheUtilManager implements CacheUtilService {
     @Scheduled(fixedRate = 600000) // every ten minutes
     public void printCacheStats() {
         final List<String> cacheNames = Arrays.asList("public_activity_logs", "user_session", "user_join_group",
-                "user_language", "userUSSDMenu", "userRSVP", "user_msisdn_minimal", "userSafetyEvents");
+                "user_language", "userUSSDMenu", "user_msisdn_minimal", "userSafetyEvents");
         cacheNames.forEach(cacheName -> {
             StatisticsGateway statistics = cacheManager.getCache(cacheName).getStatistics();
             log.info("For cache {}, current size is {}, and memory use: {} mb", cacheName,
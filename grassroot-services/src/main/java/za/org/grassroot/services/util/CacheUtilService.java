@@ -2,7 +2,6 @@ package za.org.grassroot.services.util;
 
 import za.org.grassroot.core.domain.SafetyEvent;
 import za.org.grassroot.core.domain.User;
-import za.org.grassroot.core.domain.task.Event;
 import za.org.grassroot.core.dto.UserMinimalProjection;
 import za.org.grassroot.core.enums.UserInterfaceType;
 
@@ -13,22 +12,16 @@ import java.util.List;
  */
 public interface CacheUtilService {
 
-    void clearRsvpCacheForUser(String userUid);
-
     UserMinimalProjection checkCacheForUserMinimalInfo(String msisdn);
 
     void stashUserForMsisdn(String msisdn, UserMinimalProjection user);
 
-    List<Event> getOutstandingResponseForUser(String userUid);
-
     List<SafetyEvent> getOutstandingSafetyEventResponseForUser(User user);
 
     void putSafetyEventResponseForUser(User user, SafetyEvent safetyEvent);
 
     void clearSafetyEventResponseForUser(User user, SafetyEvent safetyEvent);
 
-    void putOutstandingResponseForUser(String userUid, List<Event> outstandingRSVPs);
-
     void putUssdMenuForUser(String phoneNumber, String urlToCache);
 
     void clearUssdMenuForUser(String phoneNumber);
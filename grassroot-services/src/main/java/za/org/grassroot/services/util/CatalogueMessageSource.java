@@ -0,0 +1,153 @@
+package za.org.grassroot.services.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.support.AbstractMessageSource;
+import org.springframework.util.ClassUtils;
+
+import java.text.MessageFormat;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Serves messages from a table per locale, built from the resource bundle once (for the listed locales at startup,
+ * for any other the first time it is asked for), instead of going to the bundle and parsing a message format on each
+ * call. Each table holds the locale's messages, with its parents' as the bundle chain gives them, and then those of
+ * the fallback locale for any key still missing, so a missing translation resolves to English without a thrown and
+ * caught exception. Message formats are parsed when the table is built. Lookups without arguments return the message
+ * as it is, and with arguments go through the format, as the resource bundle message source does.
+ */
+@Slf4j
+public class CatalogueMessageSource extends AbstractMessageSource implements InitializingBean {
+
+    private final String basename;
+    private final List<Locale> preloadedLocales;
+    private final ClassLoader bundleClassLoader = ClassUtils.getDefaultClassLoader();
+
+    private Locale fallbackLocale = Locale.ENGLISH;
+    private boolean fallbackToSystemLocale = true;
+
+    private volatile Map<Locale, Map<String, CataloguedMessage>> catalogue = Collections.emptyMap();
+
+    public CatalogueMessageSource(String basename, String... preloadedLanguages) {
+        this.basename = basename;
+        this.preloadedLocales = Arrays.stream(preloadedLanguages).map(String::trim).filter(language -> !language.isEmpty())
+                .map(Locale::new).collect(Collectors.toList());
+    }
+
+    // null to leave missing keys missing
+    public void setFallbackLocale(Locale fallbackLocale) {
+        this.fallbackLocale = fallbackLocale;
+    }
+
+    public void setFallbackToSystemLocale(boolean fallbackToSystemLocale) {
+        this.fallbackToSystemLocale = fallbackToSystemLocale;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        reload();
+    }
+
+    public void reload() {
+        final long startTime = System.currentTimeMillis();
+        ResourceBundle.clearCache(bundleClassLoader);
+        final Map<Locale, Map<String, CataloguedMessage>> rebuilt = new HashMap<>();
+        preloadedLocales.forEach(locale -> rebuilt.put(locale, buildTable(locale)));
+        synchronized (this) {
+            catalogue = Collections.unmodifiableMap(rebuilt);
+        }
+        log.info("Built message catalogue for {}, {} locales, took {} msecs", basename, rebuilt.size(),
+                System.currentTimeMillis() - startTime);
+    }
+
+    public String describeStats() {
+        final Map<Locale, Map<String, CataloguedMessage>> current = catalogue;
+        final StringBuilder stats = new StringBuilder(basename).append(": ");
+        current.forEach((locale, table) -> stats.append(locale).append(" (").append(table.size()).append(") "));
+        return stats.toString().trim();
+    }
+
+    @Override
+    protected String resolveCodeWithoutArguments(String code, Locale locale) {
+        final CataloguedMessage message = tableFor(locale).get(code);
+        return message == null ? null : message.text;
+    }
+
+    @Override
+    protected MessageFormat resolveCode(String code, Locale locale) {
+        final CataloguedMessage message = tableFor(locale).get(code);
+        if (message == null)
+            return null;
+        // a pattern that would not parse is left to fail here, on use, as it would have before
+        return message.format != null ? message.format : createMessageFormat(message.text, message.locale);
+    }
+
+    private Map<String, CataloguedMessage> tableFor(Locale locale) {
+        Map<String, CataloguedMessage> table = catalogue.get(locale);
+        if (table != null)
+            return table;
+
+        synchronized (this) {
+            table = catalogue.get(locale);
+            if (table == null) {
+                table = buildTable(locale);
+                final Map<Locale, Map<String, CataloguedMessage>> extended = new HashMap<>(catalogue);
+                extended.put(locale, table);
+                catalogue = Collections.unmodifiableMap(extended);
+                log.info("Added locale {} to message catalogue for {}, {} messages", locale, basename, table.size());
+            }
+            return table;
+        }
+    }
+
+    private Map<String, CataloguedMessage> buildTable(Locale locale) {
+        final Map<String, CataloguedMessage> table = new HashMap<>();
+        addMessages(table, locale);
+        if (fallbackLocale != null && !fallbackLocale.equals(locale))
+            addMessages(table, fallbackLocale);
+        return Collections.unmodifiableMap(table);
+    }
+
+    private void addMessages(Map<String, CataloguedMessage> table, Locale locale) {
+        final ResourceBundle bundle = loadBundle(locale);
+        if (bundle == null)
+            return;
+        for (String key : bundle.keySet()) {
+            if (!table.containsKey(key))
+                table.put(key, new CataloguedMessage(bundle.getString(key), locale));
+        }
+    }
+
+    private ResourceBundle loadBundle(Locale locale) {
+        try {
+            return fallbackToSystemLocale ? ResourceBundle.getBundle(basename, locale, bundleClassLoader) :
+                    ResourceBundle.getBundle(basename, locale, bundleClassLoader,
+                            ResourceBundle.Control.getNoFallbackControl(ResourceBundle.Control.FORMAT_DEFAULT));
+        } catch (MissingResourceException e) {
+            log.warn("No resource bundle found for {}, locale {}", basename, locale);
+            return null;
+        }
+    }
+
+    private final class CataloguedMessage {
+        private final String text;
+        private final Locale locale;
+        private final MessageFormat format;
+
+        private CataloguedMessage(String text, Locale locale) {
+            this.text = text;
+            this.locale = locale;
+            this.format = parse(text, locale);
+        }
+
+        private MessageFormat parse(String text, Locale locale) {
+            try {
+                return createMessageFormat(text, locale);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,116 @@
+package za.org.grassroot.services;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import za.org.grassroot.core.domain.campaign.Campaign;
+import za.org.grassroot.core.enums.InboundKeywordType;
+import za.org.grassroot.core.events.InboundKeywordChangedEvent;
+import za.org.grassroot.core.repository.CampaignRepository;
+import za.org.grassroot.core.repository.GroupJoinCodeRepository;
+import za.org.grassroot.core.repository.GroupRepository;
+import za.org.grassroot.integration.location.LocationInfoBroker;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+import static za.org.grassroot.core.enums.InboundKeywordType.*;
+
+public class InboundKeywordRouterImplTest {
+
+    private static final Instant NEXT_WEEK = Instant.now().plus(7, ChronoUnit.DAYS);
+
+    // stand in for the tables the router loads from, as the rows its queries return
+    private final List<Object[]> campaignRows = new ArrayList<>();
+    private final List<Object[]> joinCodeRows = new ArrayList<>();
+    private final List<Object[]> joinTokenRows = new ArrayList<>();
+
+    private CampaignRepository campaignRepository;
+    private GroupJoinCodeRepository groupJoinCodeRepository;
+    private InboundKeywordRouterImpl router;
+
+    @Before
+    public void setUp() {
+        campaignRepository = mock(CampaignRepository.class);
+        groupJoinCodeRepository = mock(GroupJoinCodeRepository.class);
+        GroupRepository groupRepository = mock(GroupRepository.class);
+        LocationInfoBroker locationInfoBroker = mock(LocationInfoBroker.class);
+        when(campaignRepository.fetchActiveCampaignCodesAndTags(any(Instant.class))).thenAnswer(invocation -> new ArrayList<>(campaignRows));
+        when(groupJoinCodeRepository.fetchActiveCodesWithGroupUids()).thenAnswer(invocation -> new ArrayList<>(joinCodeRows));
+        when(groupRepository.fetchOpenJoinTokens(any(Instant.class))).thenAnswer(invocation -> new ArrayList<>(joinTokenRows));
+        when(locationInfoBroker.getAvailableSuffixes()).thenReturn(Collections.singletonMap("55", "geo-api"));
+
+        router = new InboundKeywordRouterImpl(campaignRepository, groupRepository, groupJoinCodeRepository,
+                locationInfoBroker, mock(PlatformTransactionManager.class));
+
+        campaignRows.add(new Object[] { "55", "campaign-1", NEXT_WEEK, new String[] { Campaign.PUBLIC_JOIN_WORD_PREFIX + "Water", "other tag" } });
+        joinTokenRows.add(new Object[] { "55", "group-1", NEXT_WEEK });
+        joinCodeRows.add(new Object[] { "water", "group-2" });
+    }
+
+    @Test
+    public void shouldMatchSharedKeywordInTypeOrder() {
+        assertEquals(Arrays.asList(GEO_API_SUFFIX, GROUP_JOIN_TOKEN, CAMPAIGN_CODE), typesFor(" 55 "));
+        assertEquals(Arrays.asList(CAMPAIGN_JOIN_WORD, GROUP_JOIN_WORD), typesFor("WATER"));
+
+        assertEquals(Optional.of("campaign-1"), router.findTarget("55", CAMPAIGN_CODE));
+        assertEquals(Optional.of("group-2"), router.findTarget("Water", GROUP_JOIN_WORD));
+        assertEquals(Optional.empty(), router.findTarget("55", GROUP_JOIN_WORD));
+        assertTrue(router.route("other tag").isEmpty()); // only public join words are routed
+        assertTrue(router.route("  ").isEmpty());
+    }
+
+    @Test
+    public void shouldOverlayKeywordsChangedSinceLoad() {
+        router.route("55");
+
+        router.onKeywordChanged(change(GROUP_JOIN_WORD, "Sanitation", "group-3", null));
+        router.onKeywordChanged(change(CAMPAIGN_CODE, "55", "campaign-1", Instant.now().minusSeconds(1))); // closed
+        router.onKeywordChanged(change(GROUP_JOIN_TOKEN, "55", "group-1", NEXT_WEEK.plusSeconds(60))); // moved on
+
+        assertEquals(Optional.of("group-3"), router.findTarget("sanitation", GROUP_JOIN_WORD));
+        assertEquals(Arrays.asList(GEO_API_SUFFIX, GROUP_JOIN_TOKEN), typesFor("55"));
+        assertEquals(NEXT_WEEK.plusSeconds(60), router.route("55").get(1).getExpiresAt());
+        assertEquals(Arrays.asList(CAMPAIGN_JOIN_WORD, GROUP_JOIN_WORD), typesFor("water")); // untouched keywords stay as loaded
+
+        verify(campaignRepository, times(1)).fetchActiveCampaignCodesAndTags(any(Instant.class));
+        assertTrue(router.describeStats().endsWith("changed since load: 2"));
+    }
+
+    @Test
+    public void shouldReplaceSnapshotOnRebuild() {
+        router.route("55");
+        router.onKeywordChanged(change(GROUP_JOIN_WORD, "sanitation", "group-3", null));
+
+        // by the next load the campaign has ended, and the join word added above was removed again before it
+        campaignRows.clear();
+        joinCodeRows.add(new Object[] { "housing", "group-4" });
+        // and a token opens while the load is running, so its queries may or may not see it
+        when(groupJoinCodeRepository.fetchActiveCodesWithGroupUids()).thenAnswer(invocation -> {
+            router.onKeywordChanged(change(GROUP_JOIN_TOKEN, "77", "group-5", NEXT_WEEK));
+            return new ArrayList<>(joinCodeRows);
+        });
+        router.rebuild();
+
+        assertEquals(Arrays.asList(GEO_API_SUFFIX, GROUP_JOIN_TOKEN), typesFor("55"));
+        assertEquals(Collections.singletonList(GROUP_JOIN_WORD), typesFor("water"));
+        assertEquals(Optional.of("group-4"), router.findTarget("housing", GROUP_JOIN_WORD));
+        assertTrue(router.route("sanitation").isEmpty());
+        assertEquals(Optional.of("group-5"), router.findTarget("77", GROUP_JOIN_TOKEN)); // replayed over the load
+        assertTrue(router.describeStats().endsWith("changed since load: 1"));
+    }
+
+    private List<InboundKeywordType> typesFor(String text) {
+        return router.route(text).stream().map(InboundKeywordRoute::getType).collect(Collectors.toList());
+    }
+
+    private InboundKeywordChangedEvent change(InboundKeywordType type, String keyword, String targetUid, Instant expiresAt) {
+        return new InboundKeywordChangedEvent(this, type, keyword, targetUid, expiresAt);
+    }
+
+}
@@ -0,0 +1,87 @@
+package za.org.grassroot.services.async;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import za.org.grassroot.core.domain.UserLog;
+import za.org.grassroot.core.enums.UserInterfaceType;
+import za.org.grassroot.core.enums.UserLogType;
+import za.org.grassroot.services.ServicesTestConfig;
+
+import static org.junit.Assert.*;
+
+// the sink writes in its own transactions, on the bulk pool, so the test runs outside one to see the committed rows
+@RunWith(SpringRunner.class) @DataJpaTest
+@ContextConfiguration(classes = ServicesTestConfig.class)
+@TestPropertySource(properties = {
+        "grassroot.logs.write-behind.enabled=true",
+        "grassroot.logs.write-behind.batch-size=3",
+        "grassroot.logs.write-behind.max-delay-ms=600000" })
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class WriteBehindLogSinkTest {
+
+    private static final String USER_UID = "write-behind-test-user";
+
+    @Autowired
+    private WriteBehindLogSink logSink;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // full batches are flushed on the calling thread, so none is still draining the buffer when the test records more
+    @Before
+    public void setUp() {
+        logSink.setFlushExecutor(Runnable::run);
+    }
+
+    @After
+    public void tearDown() {
+        jdbcTemplate.update("delete from user_log where user_uid = ?", USER_UID);
+    }
+
+    @Test
+    public void shouldWriteFullBatchesAndFlushRemainderOnShutdown() throws Exception {
+        for (int i = 0; i < 6; i++)
+            logSink.record(newLog(UserLogType.INITIATED_USSD));
+        awaitWritten(6);
+
+        // less than a batch, and the scheduled flush is too far off, so it stays buffered
+        logSink.record(newLog(UserLogType.CREATED_WEB));
+        Thread.sleep(200);
+        assertEquals(6, countWritten());
+        assertTrue(logSink.hasPending(USER_UID, UserLogType.CREATED_WEB));
+        assertFalse(logSink.hasPending(USER_UID, UserLogType.INITIATED_USSD));
+        assertFalse(logSink.hasPending("another-user", UserLogType.CREATED_WEB));
+
+        logSink.flushOnShutdown();
+        assertEquals(7, countWritten());
+        assertFalse(logSink.hasPending(USER_UID, UserLogType.CREATED_WEB));
+        assertEquals(1, (int) jdbcTemplate.queryForObject("select count(*) from user_log where user_uid = ? and user_log_type = ?",
+                Integer.class, USER_UID, UserLogType.CREATED_WEB.name()));
+    }
+
+    private UserLog newLog(UserLogType type) {
+        return new UserLog(USER_UID, type, "write-behind test", UserInterfaceType.USSD);
+    }
+
+    private int countWritten() {
+        return jdbcTemplate.queryForObject("select count(*) from user_log where user_uid = ?", Integer.class, USER_UID);
+    }
+
+    private void awaitWritten(int expected) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000;
+        while (countWritten() < expected && System.currentTimeMillis() < deadline)
+            Thread.sleep(20);
+        assertEquals(expected, countWritten());
+    }
+
+}
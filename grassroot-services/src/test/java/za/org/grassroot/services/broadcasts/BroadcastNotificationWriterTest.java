@@ -0,0 +1,187 @@
+package za.org.grassroot.services.broadcasts;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import za.org.grassroot.core.domain.User;
+import za.org.grassroot.core.domain.account.Account;
+import za.org.grassroot.core.domain.broadcast.Broadcast;
+import za.org.grassroot.core.domain.broadcast.BroadcastSchedule;
+import za.org.grassroot.core.domain.group.Group;
+import za.org.grassroot.core.domain.group.GroupLog;
+import za.org.grassroot.core.domain.group.GroupPermissionTemplate;
+import za.org.grassroot.core.dto.UserBroadcastProjection;
+import za.org.grassroot.core.enums.AccountType;
+import za.org.grassroot.core.enums.DeliveryRoute;
+import za.org.grassroot.core.enums.GroupLogType;
+import za.org.grassroot.core.repository.*;
+import za.org.grassroot.services.ServicesTestConfig;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+// chunks are written in their own transactions, so the test runs outside one to see them committed, and as that leaves
+// rows behind, the context (and its database) is not handed on to other tests
+@RunWith(SpringRunner.class) @DataJpaTest
+@ContextConfiguration(classes = ServicesTestConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_CLASS)
+public class BroadcastNotificationWriterTest {
+
+    private static final AtomicInteger numbers = new AtomicInteger();
+
+    @Autowired private BroadcastRepository broadcastRepository;
+    @Autowired private GroupLogRepository groupLogRepository;
+    @Autowired private CampaignLogRepository campaignLogRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private GroupRepository groupRepository;
+    @Autowired private AccountRepository accountRepository;
+    @Autowired private JdbcTemplate jdbcTemplate;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    private BroadcastNotificationWriter writer;
+    private Broadcast broadcast;
+
+    @Before
+    public void setUp() {
+        writer = new BroadcastNotificationWriter(broadcastRepository, groupLogRepository, campaignLogRepository,
+                jdbcTemplate, transactionManager);
+        ReflectionTestUtils.setField(writer, "chunkSize", 2);
+
+        broadcast = new TransactionTemplate(transactionManager).execute(status -> {
+            User creator = newUser();
+            Group group = groupRepository.save(new Group("broadcast test", GroupPermissionTemplate.DEFAULT_GROUP, creator));
+            Account account = accountRepository.save(new Account(creator, "broadcast test", AccountType.ENTERPRISE, creator));
+            Broadcast stored = broadcastRepository.save(Broadcast.builder()
+                    .createdByUser(creator).account(account).group(group).title("broadcast test")
+                    .broadcastSchedule(BroadcastSchedule.IMMEDIATE).smsTemplate1("Meeting tonight")
+                    .smsGenerationComplete(false).smsProgressTime(Instant.now()).build());
+            GroupLog groupLog = new GroupLog(group, creator, GroupLogType.BROADCAST_SENT, "broadcast test");
+            groupLog.setBroadcast(stored);
+            groupLogRepository.save(groupLog);
+            return stored;
+        });
+    }
+
+    @Test
+    public void shouldWriteChunksInUserOrderAndComplete() {
+        final List<UserBroadcastProjection> recipients = recipients(5);
+        final List<UserBroadcastProjection> shuffled = new ArrayList<>(recipients);
+        Collections.reverse(shuffled);
+        shuffled.set(0, withoutPreference(shuffled.get(0)));
+
+        writer.generate(broadcast.getUid(), bc -> shuffled);
+
+        assertEquals(5, countNotifications());
+        assertEquals(recipients.get(4).getId(), progressUserId());
+        assertEquals(5L, (long) jdbcTemplate.queryForObject("select sms_generated_count from broadcast where id = ?",
+                Long.class, broadcast.getId()));
+        assertTrue(generationComplete());
+        // a recipient without a messaging preference gets none on the notification, as the entity constructors left it
+        assertEquals(Arrays.asList(null, "SMS", "SMS", "SMS", "SMS"), jdbcTemplate.queryForList("select delivery_channel " +
+                "from notification where broadcast_id = ? order by target_id desc", String.class, broadcast.getId()));
+    }
+
+    @Test
+    public void shouldResumeAfterLastCommittedChunk() {
+        final List<UserBroadcastProjection> recipients = recipients(4);
+        // no such user, so the third chunk fails to insert, as if the node went down part way through
+        final UserBroadcastProjection missing = new UserBroadcastProjection(recipients.get(3).getId() + 1000, "missing",
+                "Missing", "27810000000", null, null, null, DeliveryRoute.SMS);
+        final List<UserBroadcastProjection> withMissing = new ArrayList<>(recipients);
+        withMissing.add(missing);
+
+        writer.generate(broadcast.getUid(), bc -> withMissing);
+        assertEquals(4, countNotifications());
+        assertEquals(recipients.get(3).getId(), progressUserId());
+        assertFalse(generationComplete());
+
+        // only picked up for resuming once it has stalled
+        assertFalse(broadcastRepository.findUidsWithIncompleteSmsGeneration(Instant.now().minus(10, ChronoUnit.MINUTES))
+                .contains(broadcast.getUid()));
+        assertTrue(broadcastRepository.findUidsWithIncompleteSmsGeneration(Instant.now().plus(1, ChronoUnit.MINUTES))
+                .contains(broadcast.getUid()));
+
+        // the resumed run is given everyone again, and writes only those after the last committed chunk
+        final List<UserBroadcastProjection> everyone = new ArrayList<>(recipients);
+        everyone.addAll(recipients(1));
+        writer.generate(broadcast.getUid(), bc -> everyone);
+
+        assertEquals(5, countNotifications());
+        assertEquals(5, (int) jdbcTemplate.queryForObject("select count(distinct target_id) from notification " +
+                "where broadcast_id = ?", Integer.class, broadcast.getId()));
+        assertTrue(generationComplete());
+    }
+
+    @Test
+    public void shouldLeaveGenerationToRunThatMovedProgress() throws InterruptedException {
+        final List<UserBroadcastProjection> recipients = recipients(4);
+        final long otherRunProgress = recipients.get(1).getId();
+
+        // another run commits its first chunk after this one has read the progress, but before it writes
+        writer.generate(broadcast.getUid(), bc -> {
+            Thread otherRun = new Thread(() -> jdbcTemplate.update("update broadcast set sms_progress_user_id = ? where id = ?",
+                    otherRunProgress, broadcast.getId()));
+            otherRun.start();
+            try {
+                otherRun.join();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return recipients;
+        });
+
+        assertEquals(0, countNotifications());
+        assertEquals(Long.valueOf(otherRunProgress), progressUserId());
+        assertFalse(generationComplete());
+    }
+
+    private User newUser() {
+        return userRepository.save(new User(String.valueOf(27829000000L + numbers.incrementAndGet()), "Recipient", null));
+    }
+
+    private List<UserBroadcastProjection> recipients(int count) {
+        final List<UserBroadcastProjection> recipients = new ArrayList<>();
+        for (int i = 0; i < count; i++)
+            recipients.add(UserBroadcastProjection.extractFromUser(newUser()));
+        return recipients;
+    }
+
+    private static UserBroadcastProjection withoutPreference(UserBroadcastProjection recipient) {
+        return new UserBroadcastProjection(recipient.getId(), recipient.getUid(), recipient.getDisplayName(),
+                recipient.getPhoneNumber(), recipient.getEmailAddress(), recipient.getUsername(), recipient.getProvince(), null);
+    }
+
+    private int countNotifications() {
+        return jdbcTemplate.queryForObject("select count(*) from notification where broadcast_id = ?", Integer.class,
+                broadcast.getId());
+    }
+
+    private Long progressUserId() {
+        return jdbcTemplate.queryForObject("select sms_progress_user_id from broadcast where id = ?", Long.class, broadcast.getId());
+    }
+
+    private boolean generationComplete() {
+        return jdbcTemplate.queryForObject("select sms_generation_complete from broadcast where id = ?", Boolean.class,
+                broadcast.getId());
+    }
+
+}
@@ -0,0 +1,140 @@
+package za.org.grassroot.services.geo;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import za.org.grassroot.core.domain.ConfigVariable;
+import za.org.grassroot.core.repository.ConfigRepository;
+import za.org.grassroot.core.repository.GroupRepository;
+import za.org.grassroot.core.repository.MembershipRepository;
+import za.org.grassroot.core.util.MonitoredTaskExecutor;
+import za.org.grassroot.core.util.MonitoredTaskExecutor.RejectionPolicy;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class GroupLocationBatchCalculatorTest {
+
+    private static final String CHECKPOINT_KEY = "geo.group.locations.checkpoint";
+    private static final LocalDate RUN_DATE = LocalDate.of(2019, 5, 1);
+
+    private GroupRepository groupRepository;
+    private MembershipRepository membershipRepository;
+    private ConfigRepository configRepository;
+
+    private final Map<String, ConfigVariable> configStore = new HashMap<>();
+    private final List<Long> pagesFetchedAfter = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        groupRepository = mock(GroupRepository.class);
+        membershipRepository = mock(MembershipRepository.class);
+        configRepository = mock(ConfigRepository.class);
+
+        // groups 1 to 6, in pages of two
+        when(groupRepository.fetchIdsAndUidsAfter(anyLong(), any(Pageable.class))).thenAnswer(invocation -> {
+            final long afterId = invocation.getArgument(0);
+            pagesFetchedAfter.add(afterId);
+            final List<Object[]> page = new ArrayList<>();
+            for (long id = afterId + 1; id <= Math.min(afterId + 2, 6); id++)
+                page.add(new Object[] { id, "group-" + id });
+            return page;
+        });
+
+        when(configRepository.findOneByKey(anyString())).thenAnswer(invocation ->
+                Optional.ofNullable(configStore.get(invocation.<String>getArgument(0))));
+        when(configRepository.save(any(ConfigVariable.class))).thenAnswer(invocation -> {
+            final ConfigVariable variable = invocation.getArgument(0);
+            configStore.put(variable.getKey(), variable);
+            return variable;
+        });
+    }
+
+    @Test
+    public void shouldResumeCrashedRunFromCheckpoint() {
+        // the first run dies on the second page, as if the node went down part way
+        final AtomicBoolean crash = new AtomicBoolean(true);
+        final List<Collection<Long>> pagesProcessed = new ArrayList<>();
+        when(membershipRepository.fetchMemberLocationsForGroups(anyCollection(), eq(RUN_DATE))).thenAnswer(invocation -> {
+            final Collection<Long> groupIds = invocation.getArgument(0);
+            if (crash.get() && groupIds.contains(3L))
+                throw new IllegalStateException("node went down");
+            pagesProcessed.add(new ArrayList<>(groupIds));
+            return Collections.emptyList();
+        });
+
+        newCalculator().calculateAllGroupLocations(RUN_DATE);
+        assertEquals(RUN_DATE + ":2", configStore.get(CHECKPOINT_KEY).getValue());
+
+        // a new instance, as after a restart, finds the run unfinished and carries on after the last completed page
+        crash.set(false);
+        pagesFetchedAfter.clear();
+        pagesProcessed.clear();
+        newCalculator().resumeUnfinishedRun();
+
+        assertEquals(Arrays.asList(2L, 4L, 6L), pagesFetchedAfter);
+        assertEquals(Arrays.asList(Arrays.asList(3L, 4L), Arrays.asList(5L, 6L)), pagesProcessed);
+        assertEquals(RUN_DATE + ":done", configStore.get(CHECKPOINT_KEY).getValue());
+    }
+
+    @Test
+    public void shouldNotResumeCompletedRun() {
+        when(membershipRepository.fetchMemberLocationsForGroups(anyCollection(), eq(RUN_DATE))).thenReturn(Collections.emptyList());
+        newCalculator().calculateAllGroupLocations(RUN_DATE);
+        assertEquals(RUN_DATE + ":done", configStore.get(CHECKPOINT_KEY).getValue());
+
+        pagesFetchedAfter.clear();
+        newCalculator().resumeUnfinishedRun();
+        assertEquals(Collections.emptyList(), pagesFetchedAfter);
+    }
+
+    @Test
+    public void shouldRunPagesOnGivenExecutorWithinBound() {
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final List<String> pageThreads = new CopyOnWriteArrayList<>();
+        when(membershipRepository.fetchMemberLocationsForGroups(anyCollection(), eq(RUN_DATE))).thenAnswer(invocation -> {
+            pageThreads.add(Thread.currentThread().getName());
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(50);
+            running.decrementAndGet();
+            return Collections.emptyList();
+        });
+
+        final MonitoredTaskExecutor executor = new MonitoredTaskExecutor("test-bulk", 4, 4, 10, RejectionPolicy.CALLER_RUNS);
+        executor.initialize();
+        try {
+            GroupLocationBatchCalculator calculator = newCalculator();
+            ReflectionTestUtils.setField(calculator, "maxPagesInFlight", 2);
+            calculator.setPageExecutor(executor);
+            calculator.calculateAllGroupLocations(RUN_DATE);
+
+            // the executor only counts a task once its future has completed, so the pages are counted where they ran
+            assertEquals(3, pageThreads.size());
+            assertTrue(pageThreads.stream().allMatch(name -> name.startsWith("test-bulk-")));
+            assertTrue(maxRunning.get() <= 2);
+            assertEquals(RUN_DATE + ":done", configStore.get(CHECKPOINT_KEY).getValue());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private GroupLocationBatchCalculator newCalculator() {
+        GroupLocationBatchCalculator calculator = new GroupLocationBatchCalculator(groupRepository, membershipRepository,
+                configRepository, mock(JdbcTemplate.class), mock(NearbyLocationIndex.class));
+        ReflectionTestUtils.setField(calculator, "pageSize", 2);
+        ReflectionTestUtils.setField(calculator, "maxPagesInFlight", 1);
+        return calculator;
+    }
+
+}
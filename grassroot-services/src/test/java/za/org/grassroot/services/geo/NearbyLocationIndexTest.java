@@ -0,0 +1,52 @@
+package za.org.grassroot.services.geo;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class NearbyLocationIndexTest {
+
+	@Test
+	public void shouldReturnOnlyLocationsWithinRadiusClosestFirst() {
+		NearbyLocationIndexImpl.Grid grid = new NearbyLocationIndexImpl.Grid();
+		grid.put(1L, -26.2041, 28.0473, Long.MAX_VALUE); // johannesburg
+		grid.put(2L, -26.1076, 28.0567, Long.MAX_VALUE); // sandton, ~11km north
+		grid.put(3L, -33.9249, 18.4241, Long.MAX_VALUE); // cape town
+
+		assertEquals(Collections.singletonList(1L), grid.near(-26.2041, 28.0473, 5000, 0));
+		assertEquals(Arrays.asList(2L, 1L), grid.near(-26.1100, 28.0560, 15000, 0));
+		assertEquals(Arrays.asList(1L, 2L, 3L), grid.near(-26.2041, 28.0473, 2000000, 0));
+	}
+
+	@Test
+	public void shouldMoveEntryWhenLocationUpdated() {
+		NearbyLocationIndexImpl.Grid grid = new NearbyLocationIndexImpl.Grid();
+		grid.put(1L, -26.2041, 28.0473, Long.MAX_VALUE);
+		grid.put(1L, -33.9249, 18.4241, Long.MAX_VALUE);
+
+		assertTrue(grid.near(-26.2041, 28.0473, 5000, 0).isEmpty());
+		assertEquals(Collections.singletonList(1L), grid.near(-33.9249, 18.4241, 5000, 0));
+	}
+
+	@Test
+	public void shouldSkipExpiredEntries() {
+		NearbyLocationIndexImpl.Grid grid = new NearbyLocationIndexImpl.Grid();
+		grid.put(1L, -26.2041, 28.0473, 1000L);
+		grid.put(2L, -26.2042, 28.0474, 3000L);
+
+		assertEquals(Collections.singletonList(2L), grid.near(-26.2041, 28.0473, 5000, 2000L));
+	}
+
+	@Test
+	public void shouldFindAcrossAntimeridian() {
+		NearbyLocationIndexImpl.Grid grid = new NearbyLocationIndexImpl.Grid();
+		grid.put(1L, -17.0, 179.99, Long.MAX_VALUE);
+
+		assertEquals(Collections.singletonList(1L), grid.near(-17.0, -179.99, 5000, 0));
+	}
+
+}
@@ -0,0 +1,163 @@
+package za.org.grassroot.services.group;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import za.org.grassroot.core.domain.GroupRole;
+import za.org.grassroot.core.domain.User;
+import za.org.grassroot.core.domain.group.Group;
+import za.org.grassroot.core.domain.group.GroupJoinMethod;
+import za.org.grassroot.core.domain.group.GroupPermissionTemplate;
+import za.org.grassroot.core.domain.task.MeetingBuilder;
+import za.org.grassroot.core.domain.task.Todo;
+import za.org.grassroot.core.domain.task.TodoType;
+import za.org.grassroot.core.dto.group.GroupWebDTO;
+import za.org.grassroot.core.repository.*;
+import za.org.grassroot.services.ServicesTestConfig;
+
+import javax.persistence.EntityManager;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+@RunWith(SpringRunner.class) @DataJpaTest
+@ContextConfiguration(classes = ServicesTestConfig.class)
+public class GroupDTOAssemblerTest {
+
+    private static final AtomicInteger numbers = new AtomicInteger();
+
+    @Autowired private GroupDTOAssembler groupDTOAssembler;
+    @Autowired private GroupMemberCounter groupMemberCounter;
+    @Autowired private GroupRepository groupRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private MembershipRepository membershipRepository;
+    @Autowired private EventRepository eventRepository;
+    @Autowired private TodoRepository todoRepository;
+    @Autowired private EntityManager entityManager;
+    @Autowired private PlatformTransactionManager transactionManager;
+
+    @Test
+    public void shouldAssembleStoredCountsAndTasksWithQueriesNotGrowingWithGroups() {
+        final User fewGroups = userWithGroups(2);
+        final User manyGroups = userWithGroups(6);
+        entityManager.flush();
+        entityManager.clear();
+
+        final Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        final boolean statisticsWereEnabled = statistics.isStatisticsEnabled();
+        statistics.setStatisticsEnabled(true);
+        try {
+            statistics.clear();
+            assemble(fewGroups);
+            final long statementsForFewGroups = statistics.getPrepareStatementCount();
+
+            statistics.clear();
+            final List<GroupWebDTO> dtos = assemble(manyGroups);
+            assertEquals(statementsForFewGroups, statistics.getPrepareStatementCount());
+
+            assertEquals(6, dtos.size());
+            for (GroupWebDTO dto : dtos) {
+                final Group group = groupRepository.findOneByUid(dto.getGroupUid());
+                assertEquals(membershipRepository.countByGroup(group), dto.getMemberCount());
+                assertEquals(1, dto.getSubGroups().size());
+                assertEquals(2, dto.getSubGroups().get(0).getMemberCount());
+                assertEquals(2, dto.getComingUpEvents().size()); // the group's meeting and todo, not its subgroup's
+            }
+        } finally {
+            statistics.setStatisticsEnabled(statisticsWereEnabled);
+        }
+    }
+
+    // each join commits on its own, as they would from two requests, so the test runs outside a transaction, and as that
+    // leaves rows behind, the context (and its database) is not handed on to other tests
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    public void shouldCountJoinsMadeWhileGroupIsLoadedElsewhere() {
+        final TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        final TransactionTemplate otherTransaction = new TransactionTemplate(transactionManager);
+        otherTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+        final String groupUid = transaction.execute(status -> groupWithMembers("concurrent joins", newUser(), 2).getUid());
+
+        transaction.execute(status -> {
+            final Group group = groupRepository.findOneByUid(groupUid);
+            assertEquals(2, group.getMemberCount());
+
+            // another member joins and commits while this transaction holds the group as it was
+            otherTransaction.execute(otherStatus -> {
+                final Group same = groupRepository.findOneByUid(groupUid);
+                same.addMember(newUser(), GroupRole.ROLE_ORDINARY_MEMBER, GroupJoinMethod.SELF_JOINED, null);
+                groupMemberCounter.storeChanges(same);
+                return null;
+            });
+
+            group.addMember(newUser(), GroupRole.ROLE_ORDINARY_MEMBER, GroupJoinMethod.SELF_JOINED, null);
+            groupMemberCounter.storeChanges(group);
+            assertEquals(4, group.getMemberCount());
+            return null;
+        });
+
+        transaction.execute(status -> {
+            final Group group = groupRepository.findOneByUid(groupUid);
+            assertEquals(4, group.getMemberCount());
+            assertEquals(4, membershipRepository.countByGroup(group));
+            return null;
+        });
+    }
+
+    private List<GroupWebDTO> assemble(User user) {
+        return groupDTOAssembler.assembleWeb(membershipRepository.findTopLevelWithGroupsFetched(user), true);
+    }
+
+    // each group has the user and a few others, a subgroup, and an upcoming meeting and todo of its own and of its subgroup;
+    // the groups share an organizer, as the user a group is created by is loaded with it
+    private User userWithGroups(int groups) {
+        final User user = newUser();
+        final User organizer = newUser();
+        final Instant nextWeek = Instant.now().plus(7, ChronoUnit.DAYS);
+        for (int i = 0; i < groups; i++) {
+            final Group group = groupWithMembers("assembled " + i, organizer, i + 1);
+            group.addMember(user, GroupRole.ROLE_ORDINARY_MEMBER, GroupJoinMethod.ADDED_BY_OTHER_MEMBER, null);
+            final Group subgroup = groupRepository.save(new Group("subgroup " + i, GroupPermissionTemplate.DEFAULT_GROUP, user, group));
+            subgroup.addMember(user, GroupRole.ROLE_ORDINARY_MEMBER, GroupJoinMethod.ADDED_SUBGROUP, null);
+            subgroup.addMember(newUser(), GroupRole.ROLE_ORDINARY_MEMBER, GroupJoinMethod.ADDED_SUBGROUP, null);
+            groupMemberCounter.storeChanges(group);
+            groupMemberCounter.storeChanges(subgroup);
+
+            for (Group parent : new Group[] { group, subgroup }) {
+                eventRepository.save(new MeetingBuilder().setName("meeting").setStartDateTime(nextWeek).setUser(user)
+                        .setParent(parent).setEventLocation("hall").createMeeting());
+                todoRepository.save(new Todo(user, parent, TodoType.ACTION_REQUIRED, "todo", nextWeek));
+            }
+        }
+        return user;
+    }
+
+    private Group groupWithMembers(String name, User organizer, int members) {
+        final Group group = new Group(name, GroupPermissionTemplate.DEFAULT_GROUP, organizer);
+        group.addMember(organizer, GroupRole.ROLE_GROUP_ORGANIZER, GroupJoinMethod.ADDED_AT_CREATION, null);
+        for (int i = 1; i < members; i++)
+            group.addMember(newUser(), GroupRole.ROLE_ORDINARY_MEMBER, GroupJoinMethod.ADDED_AT_CREATION, null);
+        return groupRepository.save(group);
+    }
+
+    private User newUser() {
+        return userRepository.save(new User(String.format("2782%07d", numbers.incrementAndGet()), null, null));
+    }
+
+}
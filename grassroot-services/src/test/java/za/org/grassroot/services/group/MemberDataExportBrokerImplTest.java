@@ -0,0 +1,111 @@
+package za.org.grassroot.services.group;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MemberDataExportBrokerImplTest {
+
+    private static final int WINDOW = 500;
+    private static final int ROWS = 4 * WINDOW + 250; // so the last window is a partial one
+
+    @Test
+    public void shouldKeepOnlyLastWindowOfRowsInMemory() throws IOException {
+        final AtomicInteger rowsRead = new AtomicInteger();
+        final List<Integer> rowsReadAtEachWindow = new ArrayList<>();
+        final Iterator<String[]> rows = IntStream.rangeClosed(1, ROWS)
+                .peek(i -> rowsRead.incrementAndGet())
+                .mapToObj(MemberDataExportBrokerImplTest::memberRow).iterator();
+
+        SXSSFWorkbook workbook = MemberDataExportBrokerImpl.writeSheet(WINDOW, "Group members",
+                new String[]{"Name", "Phone number", "Email", "Province", "Topics", "Affiliations"},
+                new int[]{7000, 5000, 7000, 7000, 7000, 7000}, rows, () -> rowsReadAtEachWindow.add(rowsRead.get()));
+
+        File output = File.createTempFile("large_export", ".xlsx");
+        try {
+            // called after each full window, so the caller can clear what those rows came from
+            assertEquals(Arrays.asList(WINDOW, 2 * WINDOW, 3 * WINDOW, 4 * WINDOW), rowsReadAtEachWindow);
+
+            // the header and all but the last window are on disk, not in the sheet
+            Sheet sheet = workbook.getSheetAt(0);
+            assertEquals(ROWS, sheet.getLastRowNum());
+            assertNull(sheet.getRow(0));
+            assertNull(sheet.getRow(ROWS - WINDOW));
+            assertNotNull(sheet.getRow(ROWS - WINDOW + 1));
+            int rowsInMemory = 0;
+            for (Row ignored : sheet)
+                rowsInMemory++;
+            assertEquals(WINDOW, rowsInMemory);
+
+            try (OutputStream out = new FileOutputStream(output)) {
+                workbook.write(out);
+            }
+        } finally {
+            workbook.dispose();
+        }
+
+        // and every row makes it into the file, in order
+        try (InputStream in = new FileInputStream(output); XSSFWorkbook written = new XSSFWorkbook(in)) {
+            Sheet sheet = written.getSheetAt(0);
+            assertEquals(ROWS, sheet.getLastRowNum());
+            assertEquals("Name", sheet.getRow(0).getCell(0).getStringCellValue());
+            assertEquals("Member 1", sheet.getRow(1).getCell(0).getStringCellValue());
+            assertEquals("Member " + ROWS, sheet.getRow(ROWS).getCell(0).getStringCellValue());
+            assertEquals("member" + ROWS + "@example.org", sheet.getRow(ROWS).getCell(2).getStringCellValue());
+        } finally {
+            output.delete();
+        }
+    }
+
+    @Test
+    public void shouldFoldErrorsIntoOneRowPerNotification() {
+        final Instant sent = Instant.parse("2019-06-01T10:00:00Z");
+        final LocalDateTime errorTime = LocalDateTime.of(2019, 6, 1, 12, 0);
+        final Iterator<Object[]> rows = Arrays.asList(
+                new Object[]{1L, sent, "27810000001", null, errorTime, "no credit"},
+                new Object[]{1L, sent, "27810000001", null, errorTime.plusHours(1), "undeliverable"},
+                new Object[]{2L, sent, null, "member@example.org", null, null}, // failed without recording an error
+                new Object[]{3L, sent, "27810000003", null, errorTime, "undeliverable"}).iterator();
+
+        final List<String[]> folded = new ArrayList<>();
+        new MemberDataExportBrokerImpl.NotificationErrorRows(rows).forEachRemaining(folded::add);
+
+        assertEquals(3, folded.size());
+        assertEquals(5, folded.get(0).length);
+        assertEquals("27810000001", folded.get(0)[1]);
+        assertEquals("", folded.get(0)[2]);
+        assertTrue(folded.get(0)[3].endsWith(" - no credit"));
+        assertTrue(folded.get(0)[4].endsWith(" - undeliverable"));
+        assertArrayEquals(new String[]{folded.get(0)[0], "", "member@example.org"}, folded.get(1));
+        assertEquals(4, folded.get(2).length);
+    }
+
+    private static String[] memberRow(int i) {
+        return new String[]{"Member " + i, String.valueOf(27810000000L + i), "member" + i + "@example.org", "Gauteng",
+                "Housing, Water", ""};
+    }
+
+}
@@ -12,10 +12,24 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringRunner;
 import za.org.grassroot.core.domain.StandardRole;
 import za.org.grassroot.core.domain.User;
+import za.org.grassroot.core.domain.UserLog;
 import za.org.grassroot.core.domain.account.Account;
+import za.org.grassroot.core.domain.group.Group;
+import za.org.grassroot.core.domain.group.GroupPermissionTemplate;
+import za.org.grassroot.core.enums.UserInterfaceType;
+import za.org.grassroot.core.enums.UserLogType;
+import za.org.grassroot.core.repository.GroupRepository;
+import za.org.grassroot.core.repository.UserLogRepository;
 import za.org.grassroot.core.repository.UserRepository;
 import za.org.grassroot.services.ServicesTestConfig;
 import za.org.grassroot.services.account.AccountBroker;
+import za.org.grassroot.services.account.AccountUsage;
+import za.org.grassroot.services.account.AccountUsageBroker;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Map;
 
 import static org.junit.Assert.*;
 
@@ -29,9 +43,18 @@ public class AccountBrokerTest {
     @Autowired
     private AccountBroker accountBroker;
 
+    @Autowired
+    private AccountUsageBroker accountUsageBroker;
+
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private GroupRepository groupRepository;
+
+    @Autowired
+    private UserLogRepository userLogRepository;
+
     private final String accountName = "testAccount";
     private final String billingEmail = "billingemail@cso.org";
 
@@ -116,5 +139,37 @@ public class AccountBrokerTest {
         // accountBroker.removeAdministrator(account, testUser); // note: need to fix this
     }
 
+    @Test
+    public void rolledUpUsageShouldMatchCount() {
+        Account account = createTestAccount();
+        accountBroker.enableAccount(testUser.getUid(), account.getUid(), null);
+        Group group = groupRepository.save(new Group("paid group", GroupPermissionTemplate.DEFAULT_GROUP, testAdmin));
+        group.setAccount(account);
+        account.addPaidGroup(group);
+        Group unpaidGroup = groupRepository.save(new Group("unpaid group", GroupPermissionTemplate.DEFAULT_GROUP, testAdmin));
+
+        for (int i = 0; i < 3; i++)
+            userLogRepository.save(new UserLog(testUser.getUid(), UserLogType.USER_SESSION, group.getUid(), UserInterfaceType.USSD));
+        userLogRepository.save(new UserLog(testUser.getUid(), UserLogType.USER_SESSION, group.getUid(), UserInterfaceType.WEB));
+        userLogRepository.save(new UserLog(testUser.getUid(), UserLogType.USER_SESSION, unpaidGroup.getUid(), UserInterfaceType.USSD));
+
+        final LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        final Instant start = today.atStartOfDay().toInstant(ZoneOffset.UTC);
+        final Instant end = today.plusDays(1).atStartOfDay().toInstant(ZoneOffset.UTC);
+
+        final Map<String, AccountUsage> counted = accountUsageBroker.usageByAccount(start, end);
+        final AccountUsage countedForAccount = accountUsageBroker.usageForAccount(account.getUid(), start, end);
+        accountUsageBroker.rollUpDay(today);
+        accountUsageBroker.rollUpDay(today); // updates the rows in place
+        final Map<String, AccountUsage> rolledUp = accountUsageBroker.usageByAccount(start, end);
+
+        assertEquals(3, counted.get(account.getUid()).getUssdSessions());
+        assertEquals(3, countedForAccount.getUssdSessions());
+        assertEquals(3, rolledUp.get(account.getUid()).getUssdSessions());
+        assertEquals(3, accountUsageBroker.usageForAccount(account.getUid(), start, end).getUssdSessions());
+        assertEquals(accountBroker.countChargedUssdSessionsForAccount(account.getUid(), start, end),
+                rolledUp.get(account.getUid()).getUssdSessions());
+    }
+
 
 }
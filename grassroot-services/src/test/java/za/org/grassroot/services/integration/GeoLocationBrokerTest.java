@@ -22,6 +22,7 @@ import za.org.grassroot.core.util.DateTimeUtil;
 import za.org.grassroot.services.ServicesTestConfig;
 import za.org.grassroot.services.geo.CenterCalculationResult;
 import za.org.grassroot.services.geo.GeoLocationBroker;
+import za.org.grassroot.services.geo.GeoLocationUtils;
 import za.org.grassroot.services.geo.GeographicSearchType;
 
 import javax.persistence.EntityManager;
@@ -30,9 +31,12 @@ import java.security.InvalidParameterException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.BDDMockito.given;
@@ -112,6 +116,39 @@ public class GeoLocationBrokerTest {
 		Assert.assertEquals(40, center1.getLongitude(), 0.001);
 	}
 
+	@Test
+	public void previousPeriodShouldMatchCentralLocationAcrossInsertBatches() {
+		// more users than go in one insert batch, with their logs interleaved, so the stream must regroup them by user
+		final int users = 1005;
+		final ZoneId zoneId = DateTimeUtil.getSAST();
+		final Map<String, List<GeoLocation>> locationsByUser = new HashMap<>();
+		for (int day = 5; day <= 6; day++) {
+			for (int i = 0; i < users; i++) {
+				final String userUid = String.format("prev-%04d", i);
+				final GeoLocation location = new GeoLocation(-26.0 - i * 0.001 - day * 0.01, 28.0 + i * 0.001 + day * 0.02);
+				geoLocationBroker.logUserLocation(userUid, location.getLatitude(), location.getLongitude(),
+						LocalDateTime.of(2017, 3, day, 10, 0).atZone(zoneId).toInstant(), UserInterfaceType.ANDROID);
+				locationsByUser.computeIfAbsent(userUid, uid -> new ArrayList<>()).add(location);
+			}
+		}
+		// outside the period, so not counted
+		geoLocationBroker.logUserLocation("prev-0000", 10.0, 10.0, LocalDateTime.of(2017, 1, 5, 10, 0).atZone(zoneId).toInstant(), UserInterfaceType.ANDROID);
+
+		final LocalDate localDate = LocalDate.of(2017, 3, 31);
+		geoLocationBroker.calculatePreviousPeriodUserLocations(localDate);
+		geoLocationBroker.calculatePreviousPeriodUserLocations(localDate); // and running again replaces, not adds
+
+		final List<PreviousPeriodUserLocation> stored = previousPeriodUserLocationRepository
+				.findByKeyLocalDateAndKeyUserUidIn(localDate, new HashSet<>(locationsByUser.keySet()));
+		Assert.assertEquals(users, stored.size());
+		for (PreviousPeriodUserLocation userLocation : stored) {
+			final GeoLocation expected = GeoLocationUtils.centralLocation(locationsByUser.get(userLocation.getKey().getUserUid()));
+			Assert.assertEquals(2, userLocation.getLogCount());
+			Assert.assertEquals(expected.getLatitude(), userLocation.getLocation().getLatitude(), 0.000001);
+			Assert.assertEquals(expected.getLongitude(), userLocation.getLocation().getLongitude(), 0.000001);
+		}
+	}
+
 	private PreviousPeriodUserLocation findPreviousPeriodUserLocationByUserUid(List<PreviousPeriodUserLocation> result1, String userUid) {
 		return result1.stream()
 				.filter(location -> location.getKey().getUserUid().equals(userUid))
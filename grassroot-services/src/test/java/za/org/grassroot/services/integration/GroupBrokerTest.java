@@ -1,5 +1,7 @@
 package za.org.grassroot.services.integration;
 
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.slf4j.Logger;
@@ -10,18 +12,26 @@ import org.springframework.test.annotation.Rollback;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.AbstractTransactionalJUnit4SpringContextTests;
 import org.springframework.test.context.junit4.SpringRunner;
+import za.org.grassroot.core.domain.GroupRole;
 import za.org.grassroot.core.domain.User;
 import za.org.grassroot.core.domain.group.Group;
+import za.org.grassroot.core.domain.group.GroupJoinMethod;
 import za.org.grassroot.core.domain.group.GroupPermissionTemplate;
+import za.org.grassroot.core.dto.membership.MembershipInfo;
 import za.org.grassroot.core.enums.UserInterfaceType;
 import za.org.grassroot.core.repository.GroupRepository;
+import za.org.grassroot.core.repository.MembershipRepository;
 import za.org.grassroot.core.repository.UserRepository;
 import za.org.grassroot.services.PermissionBroker;
 import za.org.grassroot.services.ServicesTestConfig;
 import za.org.grassroot.services.group.GroupBroker;
 import za.org.grassroot.services.user.UserManagementService;
 
+import javax.persistence.EntityManager;
+import java.util.Collections;
+
 import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 
@@ -40,6 +50,12 @@ public class GroupBrokerTest extends AbstractTransactionalJUnit4SpringContextTes
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private MembershipRepository membershipRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
     @Autowired
     private GroupBroker groupBroker;
 
@@ -108,6 +124,76 @@ public class GroupBrokerTest extends AbstractTransactionalJUnit4SpringContextTes
 //        // further tests, e.g., that members contains the users created, stretch persistence lucky-streak to its breaking point
 //    }
 
+    @Test
+    @Rollback
+    public void addingMemberShouldNotLoadExistingMembers() {
+        final long loadedForSmallGroup = entitiesLoadedAddingOneMember(5, "0824440001", 1);
+        final long loadedForLargeGroup = entitiesLoadedAddingOneMember(300, "0824440002", 2);
+        assertEquals(loadedForSmallGroup, loadedForLargeGroup);
+    }
+
+    private long entitiesLoadedAddingOneMember(int existingMembers, String newMemberPhone, int groupNumber) {
+        User organizer = userRepository.save(new User(String.format("08%d0000000", groupNumber), null, null));
+        Group group = new Group(testGroupBase + groupNumber, GroupPermissionTemplate.DEFAULT_GROUP, organizer);
+        group.addMember(organizer, GroupRole.ROLE_GROUP_ORGANIZER, GroupJoinMethod.ADDED_AT_CREATION, null);
+        for (int i = 1; i <= existingMembers; i++) {
+            User member = userRepository.save(new User(String.format("08%d%07d", groupNumber, i), null, null));
+            group.addMember(member, GroupRole.ROLE_ORDINARY_MEMBER, GroupJoinMethod.ADDED_AT_CREATION, null);
+        }
+        group = groupRepository.save(group);
+        entityManager.flush();
+        entityManager.clear();
+
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        final boolean statisticsWereEnabled = statistics.isStatisticsEnabled();
+        final long entitiesLoaded;
+        statistics.setStatisticsEnabled(true);
+        try {
+            statistics.clear();
+
+            MembershipInfo newMember = new MembershipInfo(newMemberPhone, GroupRole.ROLE_ORDINARY_MEMBER, "new member");
+            groupBroker.addMembers(organizer.getUid(), group.getUid(), Collections.singleton(newMember),
+                    GroupJoinMethod.ADDED_BY_OTHER_MEMBER, false);
+            entityManager.flush();
+
+            entitiesLoaded = statistics.getEntityLoadCount();
+            log.info("Adding a member to a group of {} loaded {} entities", existingMembers + 1, entitiesLoaded);
+            assertEquals(0, statistics.getCollectionStatistics(Group.class.getName() + ".memberships").getLoadCount());
+        } finally {
+            statistics.setStatisticsEnabled(statisticsWereEnabled);
+        }
+
+        // the group still managed in this transaction holds the stored count, not the one it was loaded with
+        assertEquals(existingMembers + 2, groupRepository.findOneByUid(group.getUid()).getMemberCount());
+
+        entityManager.clear();
+        Group groupFromDb = groupRepository.findOneByUid(group.getUid());
+        assertEquals(existingMembers + 2, groupFromDb.getMemberCount());
+        assertEquals(existingMembers + 2, membershipRepository.countByGroup(groupFromDb));
+        return entitiesLoaded;
+    }
+
+    @Test
+    @Rollback
+    public void shouldAddExistingUserWithoutCreatingAnother() {
+        User organizer = userRepository.save(new User("0824440010", null, null));
+        Group group = new Group(testGroupBase + "existing", GroupPermissionTemplate.DEFAULT_GROUP, organizer);
+        group.addMember(organizer, GroupRole.ROLE_GROUP_ORGANIZER, GroupJoinMethod.ADDED_AT_CREATION, null);
+        group = groupRepository.save(group);
+        User existing = userRepository.save(new User("27824440011", "existing", null)); // stored as an msisdn, as all users are
+        entityManager.flush();
+        final long usersBefore = userRepository.count();
+
+        MembershipInfo member = new MembershipInfo("0824440011", GroupRole.ROLE_ORDINARY_MEMBER, "existing");
+        groupBroker.addMembers(organizer.getUid(), group.getUid(), Collections.singleton(member),
+                GroupJoinMethod.ADDED_BY_OTHER_MEMBER, false);
+        entityManager.flush();
+
+        assertEquals(usersBefore, userRepository.count());
+        assertEquals(2, membershipRepository.countByGroup(group));
+        assertNotNull(membershipRepository.findByGroupUidAndUserUid(group.getUid(), existing.getUid()));
+    }
+
     @Test
     @Rollback
     public void shouldDeactivateGroup() {
@@ -0,0 +1,177 @@
+package za.org.grassroot.services.task;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import za.org.grassroot.core.domain.task.Vote;
+import za.org.grassroot.core.repository.EventLogRepository;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.*;
+
+public class VoteTallyCacheTest {
+
+    private static final Long VOTE_ID = 1L;
+
+    // stands in for the event log: the option each user has committed, by user
+    private final Map<String, String> committedResponses = new HashMap<>();
+
+    private EventLogRepository eventLogRepository;
+    private Vote vote;
+    private VoteTallyCache voteTallyCache;
+
+    @Before
+    public void setUp() {
+        eventLogRepository = mock(EventLogRepository.class);
+        vote = mock(Vote.class);
+        when(vote.getId()).thenReturn(VOTE_ID);
+        when(eventLogRepository.countVoteOptionResponses(vote)).thenAnswer(invocation -> recount().entrySet().stream()
+                .map(entry -> new Object[] { entry.getKey(), entry.getValue() })
+                .collect(Collectors.toList()));
+        voteTallyCache = new VoteTallyCache(eventLogRepository);
+    }
+
+    @After
+    public void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+            TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    public void shouldMatchRecountAfterEachResponse() {
+        assertEquals(recount(), voteTallyCache.getCounts(vote));
+
+        respond("user-1", "Yes", true);
+        respond("user-2", "yes", true);
+        respond("user-3", "No", true);
+        respond("user-4", "Abstain", false); // rolled back, so not counted
+        respond("user-1", "No", true); // changed, so moves from yes to no
+        respond("user-3", "Abstain", true);
+        respond("user-2", "Abstain", false);
+
+        Map<String, Long> counts = voteTallyCache.getCounts(vote);
+        assertEquals(recount(), counts);
+        assertEquals(Long.valueOf(1), counts.get("YES"));
+        assertEquals(Long.valueOf(1), counts.get("NO"));
+        assertEquals(Long.valueOf(1), counts.get("ABSTAIN"));
+        verify(eventLogRepository, times(1)).countVoteOptionResponses(vote); // moved in place, never counted again
+    }
+
+    @Test
+    public void shouldNotKeepLoadOverlappingResponse() {
+        beginTransaction();
+        voteTallyCache.recordResponse(VOTE_ID, null, "Yes");
+        // loaded while the response is in flight, so it cannot tell if the count includes it
+        assertEquals(recount(), voteTallyCache.getCounts(vote));
+        committedResponses.put("user-1", "Yes");
+        endTransaction(true);
+
+        assertEquals(recount(), voteTallyCache.getCounts(vote));
+        assertEquals(recount(), voteTallyCache.getCounts(vote));
+        verify(eventLogRepository, times(2)).countVoteOptionResponses(vote);
+    }
+
+    @Test
+    public void shouldPushFinalResultsAndDropCountsWhenVoteCloses() {
+        final AtomicInteger changes = new AtomicInteger();
+        final AtomicInteger closes = new AtomicInteger();
+        voteTallyCache.addListener(VOTE_ID, changes::incrementAndGet, closes::incrementAndGet);
+        voteTallyCache.getCounts(vote);
+
+        respond("user-1", "Yes", true);
+        voteTallyCache.publishChanges();
+        assertEquals(1, changes.get());
+
+        // not closed until the transaction closing the vote commits
+        beginTransaction();
+        voteTallyCache.closeVote(VOTE_ID);
+        assertEquals(0, closes.get());
+        endTransaction(true);
+        assertEquals(2, changes.get());
+        assertEquals(1, closes.get());
+        assertTrue(voteTallyCache.describeStats().startsWith("votes tracked: 0"));
+
+        // counts are loaded afresh, and the listener hears nothing more
+        assertEquals(recount(), voteTallyCache.getCounts(vote));
+        verify(eventLogRepository, times(2)).countVoteOptionResponses(vote);
+        respond("user-2", "No", true);
+        voteTallyCache.publishChanges();
+        assertEquals(2, changes.get());
+        assertEquals(1, closes.get());
+    }
+
+    @Test
+    public void shouldNotCloseVoteIfTransactionRollsBack() {
+        final AtomicInteger closes = new AtomicInteger();
+        voteTallyCache.addListener(VOTE_ID, () -> {}, closes::incrementAndGet);
+        voteTallyCache.getCounts(vote);
+
+        beginTransaction();
+        voteTallyCache.closeVote(VOTE_ID);
+        endTransaction(false);
+
+        assertEquals(0, closes.get());
+        voteTallyCache.getCounts(vote);
+        verify(eventLogRepository, times(1)).countVoteOptionResponses(vote);
+    }
+
+    @Test
+    public void shouldPickUpResponsesFromOtherNodesOnceCountsAreOld() {
+        final AtomicInteger changes = new AtomicInteger();
+        voteTallyCache.addListener(VOTE_ID, changes::incrementAndGet, () -> {});
+        voteTallyCache.getCounts(vote);
+
+        committedResponses.put("user-1", "Yes"); // recorded on another node, so this one hears nothing of it
+        assertNotEquals(recount(), voteTallyCache.getCounts(vote));
+
+        ReflectionTestUtils.setField(voteTallyCache, "maxAgeMillis", -1L);
+        assertEquals(recount(), voteTallyCache.getCounts(vote));
+        verify(eventLogRepository, times(2)).countVoteOptionResponses(vote);
+        voteTallyCache.publishChanges();
+        assertEquals(1, changes.get());
+
+        // and a reload finding nothing new tells no one
+        voteTallyCache.getCounts(vote);
+        voteTallyCache.publishChanges();
+        assertEquals(1, changes.get());
+    }
+
+    private void respond(String userUid, String option, boolean commit) {
+        beginTransaction();
+        voteTallyCache.recordResponse(VOTE_ID, committedResponses.get(userUid), option);
+        if (commit)
+            committedResponses.put(userUid, option);
+        endTransaction(commit);
+    }
+
+    // what the grouped count over the log would return
+    private Map<String, Long> recount() {
+        return committedResponses.values().stream()
+                .collect(Collectors.groupingBy(String::toUpperCase, Collectors.counting()));
+    }
+
+    private static void beginTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    private static void endTransaction(boolean commit) {
+        final List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        if (commit)
+            synchronizations.forEach(TransactionSynchronization::afterCommit);
+        synchronizations.forEach(synchronization -> synchronization.afterCompletion(commit ?
+                TransactionSynchronization.STATUS_COMMITTED : TransactionSynchronization.STATUS_ROLLED_BACK));
+    }
+
+}
@@ -0,0 +1,3 @@
+-- array functions used by the membership filters, which Postgres has natively (see PostgreSQLDialectArray)
+CREATE ALIAS IF NOT EXISTS ARRAY_CONTAINS_ALL FOR "za.org.grassroot.core.EmbeddedArrayFunctions.containsAll";
+CREATE ALIAS IF NOT EXISTS ARRAY_OVERLAPS FOR "za.org.grassroot.core.EmbeddedArrayFunctions.overlaps";
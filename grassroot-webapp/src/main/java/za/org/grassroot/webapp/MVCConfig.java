@@ -2,11 +2,12 @@ package za.org.grassroot.webapp;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
 import org.springframework.context.support.MessageSourceAccessor;
-import org.springframework.context.support.ResourceBundleMessageSource;
+import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.servlet.LocaleResolver;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
@@ -14,9 +15,13 @@ import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 import org.springframework.web.servlet.i18n.LocaleChangeInterceptor;
 import org.springframework.web.servlet.i18n.SessionLocaleResolver;
+import za.org.grassroot.services.util.CatalogueMessageSource;
 import za.org.grassroot.webapp.interceptor.SimpleLoggingInterceptor;
 import za.org.grassroot.webapp.interceptor.TokenValidationInterceptor;
+import za.org.grassroot.webapp.util.FileChannelResourceMessageConverter;
+import za.org.grassroot.webapp.util.USSDXmlMessageConverter;
 
+import java.util.List;
 import java.util.Locale;
 
 /**
@@ -31,6 +36,9 @@ public class MVCConfig implements WebMvcConfigurer {
     @Autowired
     private TokenValidationInterceptor tokenValidationInterceptor;
 
+    @Value("${grassroot.messages.languages:en,af,nso,st,ts,ve,xh,zu}")
+    private String[] messageLanguages;
+
     @Bean
     public SimpleLoggingInterceptor loggingInterceptor(){return  new SimpleLoggingInterceptor();}
 
@@ -69,11 +77,16 @@ public class MVCConfig implements WebMvcConfigurer {
                 .excludePathPatterns("/api/activity/list");
     }
 
+    // ahead of the JAXB converter, so USSD responses are written directly
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(0, new USSDXmlMessageConverter());
+        converters.add(1, new FileChannelResourceMessageConverter());
+    }
+
     @Bean (name = "messageSource")
-    public ResourceBundleMessageSource messageSource() {
-        ResourceBundleMessageSource source = new ResourceBundleMessageSource();
-        source.setBasename("messages");
-        return source;
+    public CatalogueMessageSource messageSource() {
+        return new CatalogueMessageSource("messages", messageLanguages);
     }
 
     @Bean ( name = "messageSourceAccessor")
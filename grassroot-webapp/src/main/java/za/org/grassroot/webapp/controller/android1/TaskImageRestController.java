@@ -3,6 +3,7 @@ package za.org.grassroot.webapp.controller.android1;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -23,6 +24,7 @@ import za.org.grassroot.webapp.model.rest.wrappers.ResponseWrapper;
 import za.org.grassroot.webapp.util.RestUtil;
 
 import javax.servlet.http.HttpServletRequest;
+import java.io.File;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -100,11 +102,11 @@ public class TaskImageRestController {
         try {
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.IMAGE_JPEG);
-            byte[] image = taskImageBroker.fetchImageForTask(null, taskType, logUid, true);
+            File image = taskImageBroker.fetchImageForTask(null, taskType, logUid, true);
             return ResponseEntity.ok()
                     .lastModified(24000)
                     .headers(headers)
-                    .body(image);
+                    .body(new FileSystemResource(image));
         } catch (StoredMediaRetrievalFailure e) {
             return RestUtil.errorResponse(HttpStatus.BAD_REQUEST, RestMessage.TASK_IMAGE_ERROR);
         }
@@ -115,10 +117,10 @@ public class TaskImageRestController {
         try {
             HttpHeaders headers = new HttpHeaders();
             headers.setContentType(MediaType.IMAGE_JPEG);
-            byte[] image = taskImageBroker.fetchMicroThumbnailForTask(null, taskType, logUid);
+            File image = taskImageBroker.fetchMicroThumbnailForTask(null, taskType, logUid);
             return ResponseEntity.ok()
                     .headers(headers)
-                    .body(image);
+                    .body(new FileSystemResource(image));
         } catch (NoMicroVersionException e) {
             logger.info("failed, going for the full image ...");
             return fetchTaskImage(taskType, logUid);
@@ -12,6 +12,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import reactor.core.publisher.Mono;
 import za.org.grassroot.core.domain.User;
 import za.org.grassroot.core.domain.account.Account;
@@ -320,8 +321,8 @@ public class AccountUserController extends BaseRestController {
 
     @PreAuthorize("hasRole('ROLE_ACCOUNT_ADMIN')")
     @RequestMapping(value = "/fetch/group/download", method = RequestMethod.GET)
-    public ResponseEntity<byte[]> downloadAccountRecord(@RequestParam(required = false) String accountUid,
-                                                        HttpServletRequest request) {
+    public ResponseEntity<StreamingResponseBody> downloadAccountRecord(@RequestParam(required = false) String accountUid,
+                                                                       HttpServletRequest request) {
         Account account = !StringUtils.isEmpty(accountUid) ? accountBroker.loadAccount(accountUid)
                 : accountBroker.loadDefaultAccountForUser(getUserIdFromRequest(request));
         log.info("Downloading details for groups on account {}", account.getName());
@@ -331,10 +332,10 @@ public class AccountUserController extends BaseRestController {
 
     @PreAuthorize("hasRole('ROLE_ACCOUNT_ADMIN')")
     @RequestMapping(value = "/fetch/campaign/billing/download",method = RequestMethod.GET)
-    public ResponseEntity<byte[]> downloadCampaignBillingData(@RequestParam(required = false) String accountUid,
-                                                              @RequestParam long startDateMillis,
-                                                              @RequestParam long endDateMillis,
-                                                              HttpServletRequest request){
+    public ResponseEntity<StreamingResponseBody> downloadCampaignBillingData(@RequestParam(required = false) String accountUid,
+                                                                             @RequestParam long startDateMillis,
+                                                                             @RequestParam long endDateMillis,
+                                                                             HttpServletRequest request){
 
         Account account = !StringUtils.isEmpty(accountUid) ? accountBroker.loadAccount(accountUid)
                 : accountBroker.loadDefaultAccountForUser(getUserIdFromRequest(request));
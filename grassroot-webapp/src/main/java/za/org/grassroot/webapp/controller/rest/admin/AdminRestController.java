@@ -3,8 +3,9 @@ package za.org.grassroot.webapp.controller.rest.admin;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.ss.usermodel.Workbook;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -13,6 +14,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import za.org.grassroot.core.domain.ConfigVariable;
 import za.org.grassroot.core.domain.GroupRole;
 import za.org.grassroot.core.domain.StandardRole;
@@ -24,25 +26,37 @@ import za.org.grassroot.core.dto.group.GroupRefDTO;
 import za.org.grassroot.core.dto.membership.MembershipInfo;
 import za.org.grassroot.core.enums.Province;
 import za.org.grassroot.core.repository.GroupRepository;
-import za.org.grassroot.core.repository.MembershipRepository;
 import za.org.grassroot.core.util.PhoneNumberUtil;
 import za.org.grassroot.integration.authentication.CreateJwtTokenRequest;
 import za.org.grassroot.integration.authentication.JwtService;
 import za.org.grassroot.integration.authentication.JwtType;
+import za.org.grassroot.integration.graph.GraphActionDispatcher;
+import za.org.grassroot.integration.location.BoundaryGeocoder;
 import za.org.grassroot.integration.location.MunicipalFilteringBroker;
 import za.org.grassroot.integration.messaging.MessagingServiceBroker;
+import za.org.grassroot.integration.storage.MediaFileCache;
 import za.org.grassroot.services.AdminService;
+import za.org.grassroot.services.InboundKeywordRouter;
 import za.org.grassroot.services.account.AccountFeaturesBroker;
+import za.org.grassroot.services.account.AccountUsageBroker;
+import za.org.grassroot.services.async.WriteBehindLogSink;
 import za.org.grassroot.services.exception.NoSuchUserException;
+import za.org.grassroot.services.geo.GroupLocationBatchCalculator;
 import za.org.grassroot.services.group.GroupBroker;
 import za.org.grassroot.services.group.MemberDataExportBroker;
+import za.org.grassroot.services.task.VoteTallyCache;
 import za.org.grassroot.services.user.PasswordTokenService;
 import za.org.grassroot.services.user.UserManagementService;
+import za.org.grassroot.services.util.CatalogueMessageSource;
 import za.org.grassroot.webapp.controller.rest.BaseRestController;
 import za.org.grassroot.webapp.controller.rest.Grassroot2RestController;
 import za.org.grassroot.webapp.enums.RestMessage;
+import za.org.grassroot.webapp.interceptor.VerifiedTokenCache;
+import za.org.grassroot.webapp.util.USSDMenuUtil;
 
 import javax.servlet.http.HttpServletRequest;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
@@ -70,7 +84,18 @@ public class AdminRestController extends BaseRestController{
 
     private MemberDataExportBroker memberDataExportBroker;
     private MunicipalFilteringBroker municipalFilteringBroker;
-    private final MembershipRepository membershipRepository;
+    private GroupLocationBatchCalculator groupLocationBatchCalculator;
+    private VerifiedTokenCache verifiedTokenCache;
+    private VoteTallyCache voteTallyCache;
+    private InboundKeywordRouter inboundKeywordRouter;
+    private GraphActionDispatcher graphActionDispatcher;
+    private WriteBehindLogSink writeBehindLogSink;
+    private CatalogueMessageSource ussdMessageSource;
+    private CatalogueMessageSource notificationMessageSource;
+    private USSDMenuUtil ussdMenuUtil;
+    private MediaFileCache mediaFileCache;
+    private BoundaryGeocoder boundaryGeocoder;
+    private AccountUsageBroker accountUsageBroker;
 
     public AdminRestController(UserManagementService userManagementService,
                                JwtService jwtService,
@@ -79,8 +104,7 @@ public class AdminRestController extends BaseRestController{
                                GroupBroker groupBroker,
                                MessagingServiceBroker messagingServiceBroker,
                                PasswordTokenService passwordTokenService,
-                               AccountFeaturesBroker accountFeaturesBroker,
-                               MembershipRepository membershipRepository) {
+                               AccountFeaturesBroker accountFeaturesBroker) {
         super(jwtService,userManagementService);
         this.adminService = adminService;
         this.userManagementService = userManagementService;
@@ -90,7 +114,6 @@ public class AdminRestController extends BaseRestController{
         this.groupBroker = groupBroker;
         this.jwtService = jwtService;
         this.accountFeaturesBroker = accountFeaturesBroker;
-        this.membershipRepository = membershipRepository;
     }
 
     @Autowired(required = false) // as it depends on WhatsApp being active
@@ -103,6 +126,63 @@ public class AdminRestController extends BaseRestController{
         this.municipalFilteringBroker = municipalFilteringBroker;
     }
 
+    @Autowired
+    public void setGroupLocationBatchCalculator(GroupLocationBatchCalculator groupLocationBatchCalculator) {
+        this.groupLocationBatchCalculator = groupLocationBatchCalculator;
+    }
+
+    @Autowired
+    public void setVerifiedTokenCache(VerifiedTokenCache verifiedTokenCache) {
+        this.verifiedTokenCache = verifiedTokenCache;
+    }
+
+    @Autowired
+    public void setVoteTallyCache(VoteTallyCache voteTallyCache) {
+        this.voteTallyCache = voteTallyCache;
+    }
+
+    @Autowired
+    public void setInboundKeywordRouter(InboundKeywordRouter inboundKeywordRouter) {
+        this.inboundKeywordRouter = inboundKeywordRouter;
+    }
+
+    @Autowired
+    public void setWriteBehindLogSink(WriteBehindLogSink writeBehindLogSink) {
+        this.writeBehindLogSink = writeBehindLogSink;
+    }
+
+    @Autowired
+    public void setMessageSources(@Qualifier("messageSource") CatalogueMessageSource ussdMessageSource,
+                                  @Qualifier("servicesMessageSource") CatalogueMessageSource notificationMessageSource) {
+        this.ussdMessageSource = ussdMessageSource;
+        this.notificationMessageSource = notificationMessageSource;
+    }
+
+    @Autowired
+    public void setUssdMenuUtil(USSDMenuUtil ussdMenuUtil) {
+        this.ussdMenuUtil = ussdMenuUtil;
+    }
+
+    @Autowired
+    public void setMediaFileCache(MediaFileCache mediaFileCache) {
+        this.mediaFileCache = mediaFileCache;
+    }
+
+    @Autowired
+    public void setBoundaryGeocoder(BoundaryGeocoder boundaryGeocoder) {
+        this.boundaryGeocoder = boundaryGeocoder;
+    }
+
+    @Autowired
+    public void setAccountUsageBroker(AccountUsageBroker accountUsageBroker) {
+        this.accountUsageBroker = accountUsageBroker;
+    }
+
+    @Autowired(required = false) // as it depends on the graph being enabled
+    public void setGraphActionDispatcher(GraphActionDispatcher graphActionDispatcher) {
+        this.graphActionDispatcher = graphActionDispatcher;
+    }
+
     @RequestMapping(value = "/user/load",method = RequestMethod.GET)
     public ResponseEntity<String> loadUser(@RequestParam() String lookupTerm,
                                                 HttpServletRequest request){
@@ -156,7 +236,7 @@ public class AdminRestController extends BaseRestController{
         List<GroupAdminDTO> groupAdminDTOS = new ArrayList<>();
         if(!StringUtils.isEmpty(searchTerm)){
             List<Group> groups = groupRepository.findByGroupNameContainingIgnoreCase(searchTerm);
-            groups.forEach(group -> groupAdminDTOS.add(new GroupAdminDTO(group, membershipRepository)));
+            groups.forEach(group -> groupAdminDTOS.add(new GroupAdminDTO(group)));
             groupAdminDTOS.sort(Comparator.comparing(
                     (Function<GroupAdminDTO, Integer>) GroupRefDTO::getMemberCount).reversed());
         }
@@ -239,8 +319,8 @@ public class AdminRestController extends BaseRestController{
     //Generating Excel file for whatsapp subscribed users
     @RequestMapping(value = "/whatsapp/export", method = RequestMethod.GET)
     @ApiOperation(value = "Download an Excel sheet of whatsapp opted in users")
-    public ResponseEntity<byte[]> exportWhatsappOptedInUsers() {
-        XSSFWorkbook xls = memberDataExportBroker.exportWhatsappOptedInUsers();
+    public ResponseEntity<StreamingResponseBody> exportWhatsappOptedInUsers() {
+        Workbook xls = memberDataExportBroker.exportWhatsappOptedInUsers();
         String fileName = "whatsappUsers.xlsx";
         return convertWorkbookToDownload(fileName, xls);
     }
@@ -308,4 +388,75 @@ public class AdminRestController extends BaseRestController{
         return ResponseEntity.ok(RestMessage.UPDATED);
     }
 
+    @RequestMapping(value = "/locations/groups/progress", method = RequestMethod.GET)
+    @ApiOperation(value = "Reports progress, throughput and checkpoint of the nightly group location calculation")
+    public ResponseEntity<String> fetchGroupLocationProgress() {
+        return ResponseEntity.ok(groupLocationBatchCalculator.describeProgress());
+    }
+
+    @RequestMapping(value = "/tokens/cache/stats", method = RequestMethod.GET)
+    @ApiOperation(value = "Reports size and hit rate of the verified token cache used in request authentication")
+    public ResponseEntity<String> fetchTokenCacheStats() {
+        return ResponseEntity.ok(verifiedTokenCache.describeStats());
+    }
+
+    @RequestMapping(value = "/votes/tallies/rebuild", method = RequestMethod.POST)
+    @ApiOperation(value = "Reloads the in-memory vote tallies from the event log, for all open votes")
+    public ResponseEntity<String> rebuildVoteTallies() {
+        voteTallyCache.rebuild();
+        return ResponseEntity.ok(voteTallyCache.describeStats());
+    }
+
+    @RequestMapping(value = "/keywords/rebuild", method = RequestMethod.POST)
+    @ApiOperation(value = "Reloads the inbound keyword routes (campaign codes and join words, group join tokens and words)")
+    public ResponseEntity<String> rebuildInboundKeywords() {
+        inboundKeywordRouter.rebuild();
+        return ResponseEntity.ok(inboundKeywordRouter.describeStats());
+    }
+
+    @RequestMapping(value = "/graph/dispatch/stats", method = RequestMethod.GET)
+    @ApiOperation(value = "Reports queue depth, batching, failures and lag of graph actions sent to the graph queue")
+    public ResponseEntity<String> fetchGraphDispatchStats() {
+        return ResponseEntity.ok(graphActionDispatcher == null ? "Graph not enabled" : graphActionDispatcher.describeStats());
+    }
+
+    @RequestMapping(value = "/logs/write-behind/stats", method = RequestMethod.GET)
+    @ApiOperation(value = "Reports buffer depth, drops and flush latency of the batched user and location log writer")
+    public ResponseEntity<String> fetchLogWriterStats() {
+        return ResponseEntity.ok(writeBehindLogSink.describeStats());
+    }
+
+    @RequestMapping(value = "/messages/reload", method = RequestMethod.POST)
+    @ApiOperation(value = "Rebuilds the message catalogues (USSD and web, and notifications) from the message bundles")
+    public ResponseEntity<String> reloadMessageCatalogues() {
+        ussdMessageSource.reload();
+        notificationMessageSource.reload();
+        ussdMenuUtil.clearStaticMenus();
+        return ResponseEntity.ok(ussdMessageSource.describeStats() + "; " + notificationMessageSource.describeStats());
+    }
+
+    @RequestMapping(value = "/media/cache/stats", method = RequestMethod.GET)
+    @ApiOperation(value = "Reports size, hit rate and evictions of the local cache of stored media files")
+    public ResponseEntity<String> fetchMediaCacheStats() {
+        return ResponseEntity.ok(mediaFileCache.describeStats());
+    }
+
+    @RequestMapping(value = "/geo/boundaries/stats", method = RequestMethod.GET)
+    @ApiOperation(value = "Reports the boundaries loaded for local province and municipality lookups, and lookup counts")
+    public ResponseEntity<String> fetchBoundaryStats() {
+        return ResponseEntity.ok(boundaryGeocoder.describeStats());
+    }
+
+    @RequestMapping(value = "/accounts/usage/rollup", method = RequestMethod.POST)
+    @ApiOperation(value = "Recalculates the daily account usage rollups for the (UTC) days from first to last, inclusive")
+    public ResponseEntity<String> rollUpAccountUsage(@RequestParam String firstDay, @RequestParam String lastDay) {
+        final LocalDate first = LocalDate.parse(firstDay);
+        final LocalDate last = LocalDate.parse(lastDay);
+        if (last.isBefore(first) || !last.isBefore(LocalDate.now(ZoneOffset.UTC)))
+            return ResponseEntity.badRequest().body("Days must be in order and before today");
+        for (LocalDate day = first; !day.isAfter(last); day = day.plusDays(1))
+            accountUsageBroker.rollUpDay(day);
+        return ResponseEntity.ok("Rolled up account usage from " + first + " to " + last);
+    }
+
 }
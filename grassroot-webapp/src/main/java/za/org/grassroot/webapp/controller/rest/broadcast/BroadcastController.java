@@ -3,24 +3,21 @@ package za.org.grassroot.webapp.controller.rest.broadcast;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.ss.usermodel.Workbook;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import za.org.grassroot.core.domain.Permission;
 import za.org.grassroot.core.domain.User;
 import za.org.grassroot.core.domain.account.Account;
 import za.org.grassroot.core.domain.broadcast.Broadcast;
 import za.org.grassroot.core.domain.broadcast.BroadcastSchedule;
 import za.org.grassroot.core.domain.media.MediaFunction;
-import za.org.grassroot.core.domain.notification.BroadcastNotification;
 import za.org.grassroot.core.dto.BroadcastDTO;
 import za.org.grassroot.core.enums.DeliveryRoute;
 import za.org.grassroot.core.enums.TaskType;
@@ -39,11 +36,9 @@ import za.org.grassroot.services.group.MemberDataExportBroker;
 import za.org.grassroot.services.user.UserManagementService;
 import za.org.grassroot.webapp.controller.rest.BaseRestController;
 import za.org.grassroot.webapp.controller.rest.Grassroot2RestController;
-import za.org.grassroot.webapp.controller.rest.exception.FileCreationException;
+import za.org.grassroot.webapp.util.RestUtil;
 
 import javax.servlet.http.HttpServletRequest;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
@@ -230,26 +225,21 @@ public class BroadcastController extends BaseRestController {
     }
 
     @RequestMapping(value = "/sending-report/{broadcastUid}/download", method = RequestMethod.GET)
-    public ResponseEntity<byte[]> fetchBroadcastNotifications(@PathVariable String broadcastUid, HttpServletRequest request) {
+    public ResponseEntity<StreamingResponseBody> fetchBroadcastNotifications(@PathVariable String broadcastUid, HttpServletRequest request) {
         try {
             validateBroadcastPermission(request, broadcastUid, Permission.GROUP_PERMISSION_SEE_MEMBER_DETAILS);
-            Broadcast broadcast = broadcastBroker.getBroadcast(broadcastUid);
-            List <BroadcastNotification> notifications = notificationService.loadAllNotificationsForBroadcast(broadcast);
-            XSSFWorkbook xls = memberDataExportBroker.exportNotificationStdReport(notifications);
-            return wrapExcelForDownload(xls, "broadcast_sending_report.xlsx");
+            Workbook xls = memberDataExportBroker.exportBroadcastSendingReport(broadcastUid);
+            return RestUtil.convertWorkbookToDownload("broadcast_sending_report.xlsx", xls);
         } catch (AccessDeniedException e) {
             throw new MemberLacksPermissionException(Permission.GROUP_PERMISSION_SEE_MEMBER_DETAILS);
         }
     }
 
     @RequestMapping(value = "/error-report/{broadcastUid}/download", method = RequestMethod.GET)
-    public ResponseEntity<byte[]> fetchTaskFailedNotifications(@PathVariable String broadcastUid, HttpServletRequest request) {
+    public ResponseEntity<StreamingResponseBody> fetchTaskFailedNotifications(@PathVariable String broadcastUid, HttpServletRequest request) {
         try {
-            User user = getUserFromRequest(request);
-            Broadcast broadcast = broadcastBroker.getBroadcast(broadcastUid);
-            List <BroadcastNotification> notifications = notificationService.loadFailedNotificationsForBroadcast(user.getUid(), broadcast);
-			XSSFWorkbook xls = memberDataExportBroker.exportNotificationErrorReport(notifications);
-			return wrapExcelForDownload(xls, "broadcast_error_report.xlsx");
+			Workbook xls = memberDataExportBroker.exportBroadcastErrorReport(broadcastUid);
+			return RestUtil.convertWorkbookToDownload("broadcast_error_report.xlsx", xls);
         } catch (AccessDeniedException e) {
 			throw new MemberLacksPermissionException(Permission.GROUP_PERMISSION_UPDATE_GROUP_DETAILS);
 		}
@@ -263,24 +253,6 @@ public class BroadcastController extends BaseRestController {
             permissionBroker.validateGroupPermission(user, broadcast.getGroup(), ancestorGroupPerm);
     }
 
-    private ResponseEntity<byte[]> wrapExcelForDownload(XSSFWorkbook workbook, String fileName) {
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-        headers.add("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
-        headers.add("Cache-Control", "no-cache");
-        headers.add("Pragma", "no-cache");
-        headers.add("Expires", "0");
-
-        try {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            workbook.write(baos);
-            return new ResponseEntity<>(baos.toByteArray(), headers, HttpStatus.OK);
-        } catch (IOException e) {
-            log.error("IO Exception generating spreadsheet!", e);
-            throw new FileCreationException();
-        }
-    }
-
     private void fillInContent(BroadcastCreateRequest createRequest, BroadcastComponents bc) {
         if (createRequest.isSendShortMessages()) {
             bc.setShortMessage(createRequest.getShortMessageString());
@@ -3,7 +3,7 @@ package za.org.grassroot.webapp.controller.rest.campaign;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.ss.usermodel.Workbook;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -11,6 +11,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import za.org.grassroot.integration.authentication.JwtService;
 import za.org.grassroot.services.campaign.CampaignActivityStatsRequest;
 import za.org.grassroot.services.campaign.CampaignStatsBroker;
@@ -77,18 +78,18 @@ public class CampaignStatsController extends BaseRestController {
     }
 
     @RequestMapping(value = "/download", method = RequestMethod.GET)
-    public ResponseEntity<byte[]> exportCampaign(@RequestParam String campaignUid, HttpServletRequest request) {
+    public ResponseEntity<StreamingResponseBody> exportCampaign(@RequestParam String campaignUid, HttpServletRequest request) {
         String userUid = getUserIdFromRequest(request);
         String fileName = "campaign_results.xlsx";
-        XSSFWorkbook xls = memberDataExportBroker.exportCampaignJoinedData(campaignUid, userUid);
+        Workbook xls = memberDataExportBroker.exportCampaignJoinedData(campaignUid, userUid);
         return RestUtil.convertWorkbookToDownload(fileName, xls);
     }
 
     @RequestMapping(value = "/billing", method = RequestMethod.GET)
-    public ResponseEntity<byte[]> downloadBillingData(@RequestParam String campaignUid, HttpServletRequest request) {
+    public ResponseEntity<StreamingResponseBody> downloadBillingData(@RequestParam String campaignUid, HttpServletRequest request) {
         String fileName = "campaign_billing.xlsx";
         Map<String, String> counts = campaignStatsBroker.getCampaignBillingStatsInPeriod(campaignUid, null, null);
-        XSSFWorkbook xls = memberDataExportBroker.exportCampaignBillingData(campaignUid, counts);
+        Workbook xls = memberDataExportBroker.exportCampaignBillingData(campaignUid, counts);
         return RestUtil.convertWorkbookToDownload(fileName, xls);
     }
 
@@ -4,7 +4,7 @@ import com.google.common.collect.ImmutableMap;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.ss.usermodel.Workbook;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,9 +13,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.format.annotation.DateTimeFormat;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -26,6 +24,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import za.org.grassroot.core.domain.ActionLog;
 import za.org.grassroot.core.domain.GroupRole;
 import za.org.grassroot.core.domain.Permission;
@@ -44,7 +43,6 @@ import za.org.grassroot.core.dto.group.MembershipRecordDTO;
 import za.org.grassroot.core.dto.membership.MembershipFullDTO;
 import za.org.grassroot.core.dto.membership.MembershipStdDTO;
 import za.org.grassroot.core.enums.Province;
-import za.org.grassroot.core.repository.MembershipRepository;
 import za.org.grassroot.integration.authentication.JwtService;
 import za.org.grassroot.integration.location.MunicipalFilteringBroker;
 import za.org.grassroot.integration.location.Municipality;
@@ -65,8 +63,6 @@ import za.org.grassroot.webapp.util.DebugProfileUtil;
 import za.org.grassroot.webapp.util.RestUtil;
 
 import javax.servlet.http.HttpServletRequest;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.temporal.ChronoUnit;
@@ -93,7 +89,6 @@ public class GroupFetchController extends BaseRestController {
 
     private final GroupFetchBroker groupFetchBroker;
 
-    private final MembershipRepository membershipRepository;
     private final MemberDataExportBroker memberDataExportBroker;
     private final MessageSourceAccessor messageSourceAccessor;
     private final GroupBroker groupBroker;
@@ -119,14 +114,12 @@ public class GroupFetchController extends BaseRestController {
     @Autowired
     public GroupFetchController(JwtService jwtService, UserManagementService userManagementService,
                                 GroupBroker groupBroker, GroupFetchBroker groupFetchBroker,
-                                MemberDataExportBroker memberDataExportBroker, MessageSourceAccessor messageSourceAccessor,
-                                MembershipRepository membershipRepository) {
+                                MemberDataExportBroker memberDataExportBroker, MessageSourceAccessor messageSourceAccessor) {
         super(jwtService, userManagementService);
         this.groupFetchBroker = groupFetchBroker;
         this.memberDataExportBroker = memberDataExportBroker;
         this.messageSourceAccessor = messageSourceAccessor;
         this.groupBroker = groupBroker;
-        this.membershipRepository = membershipRepository;
     }
 
     @Autowired(required = false)
@@ -206,7 +199,7 @@ public class GroupFetchController extends BaseRestController {
         log.info("Fetching minimal filtered groups for user Id : {}, with page number: {}", userId, pageNumber);
         Pageable pageable = pageNumber == null ? null : PageRequest.of(pageNumber, 10); // might make this a parameter in future
         Page<Group> groups = groupFetchBroker.fetchGroupFiltered(userId, requiredPermission, filterTerm, pageable);
-        Page<GroupRefDTO> groupDtos = groups.map(group -> new GroupRefDTO(group, this.membershipRepository));
+        Page<GroupRefDTO> groupDtos = groups.map(GroupRefDTO::new);
         return ResponseEntity.ok(groupDtos);
     }
 
@@ -214,7 +207,7 @@ public class GroupFetchController extends BaseRestController {
     public ResponseEntity<GroupRefDTO> fetchMinimalDetailsOnGroup(HttpServletRequest request, @PathVariable String groupUid) {
         // todo : may want to permissions check
         Group group = groupFetchBroker.fetchGroupByGroupUid(groupUid);
-        return ResponseEntity.ok(new GroupRefDTO(group, this.membershipRepository));
+        return ResponseEntity.ok(new GroupRefDTO(group));
     }
 
     @RequestMapping(value = "/full", method = RequestMethod.GET)
@@ -286,12 +279,12 @@ public class GroupFetchController extends BaseRestController {
     }
 
     @RequestMapping(value = "/members/filter/download/{groupUid}", method = RequestMethod.POST)
-    public ResponseEntity<byte[]> downloadFilteredGroupMembers(@PathVariable String groupUid,
-                                                               @RequestBody List<String> filteredMemberUids,
-                                                               HttpServletRequest request) {
+    public ResponseEntity<StreamingResponseBody> downloadFilteredGroupMembers(@PathVariable String groupUid,
+                                                                              @RequestBody List<String> filteredMemberUids,
+                                                                              HttpServletRequest request) {
         log.info("filtering & downloading, member UIDs = {}", filteredMemberUids);
         String fileName = "filtered_members.xls";
-        XSSFWorkbook xls = memberDataExportBroker.exportGroupMembersFiltered(groupUid, getUserIdFromRequest(request),
+        Workbook xls = memberDataExportBroker.exportGroupMembersFiltered(groupUid, getUserIdFromRequest(request),
                 filteredMemberUids);
         return convertWorkbookToDownload(fileName, xls);
     }
@@ -325,10 +318,10 @@ public class GroupFetchController extends BaseRestController {
 
     @RequestMapping(value = "/export/{groupUid}", method = RequestMethod.GET)
     @ApiOperation(value = "Download an Excel sheet of group members")
-    public ResponseEntity<byte[]> exportGroup(@PathVariable String groupUid, HttpServletRequest request) {
+    public ResponseEntity<StreamingResponseBody> exportGroup(@PathVariable String groupUid, HttpServletRequest request) {
         String userUid = getUserIdFromRequest(request);
         String fileName = "group_members.xlsx";
-        XSSFWorkbook xls = memberDataExportBroker.exportGroup(groupUid, userUid);
+        Workbook xls = memberDataExportBroker.exportGroup(groupUid, userUid);
         return convertWorkbookToDownload(fileName, xls);
     }
 
@@ -399,7 +392,7 @@ public class GroupFetchController extends BaseRestController {
     }
 
     @RequestMapping(value = "/inbound-messages/{groupUid}/download", method = RequestMethod.GET)
-    public ResponseEntity<byte[]> fetchInboundMessagesForDownloadByGroupUid(@PathVariable String groupUid,
+    public ResponseEntity<StreamingResponseBody> fetchInboundMessagesForDownloadByGroupUid(@PathVariable String groupUid,
                                                             @RequestParam (required = false) Long from,
                                                             @RequestParam (required = false) Long to,
                                                             @RequestParam (required = false) String keyword,
@@ -410,22 +403,10 @@ public class GroupFetchController extends BaseRestController {
             Group group = groupFetchBroker.fetchGroupByGroupUid(groupUid);
 
             String fileName = "inbound_messages.xlsx";
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-            headers.add("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
-            headers.add("Cache-Control", "no-cache");
-            headers.add("Pragma", "no-cache");
-            headers.add("Expires", "0");
-
             List<GroupLogDTO> inboundMessages = groupFetchBroker.getInboundMessagesForExport(user, group, from != null ? Instant.ofEpochMilli(from) : null, to != null ? Instant.ofEpochMilli(to) : null, keyword);
 
-            XSSFWorkbook xls = memberDataExportBroker.exportInboundMessages(inboundMessages);
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            xls.write(baos);
-            return new ResponseEntity<>(baos.toByteArray(), headers, HttpStatus.OK);
-        } catch (IOException e) {
-            logger.error("IO Exception generating spreadsheet!", e);
-            throw new FileCreationException();
+            Workbook xls = memberDataExportBroker.exportInboundMessages(inboundMessages);
+            return convertWorkbookToDownload(fileName, xls);
         } catch (AccessDeniedException e) {
             throw new MemberLacksPermissionException(Permission.GROUP_PERMISSION_UPDATE_GROUP_DETAILS);
         }
@@ -434,27 +415,15 @@ public class GroupFetchController extends BaseRestController {
     }
 
     @RequestMapping(value = "/members/error-report/{groupUid}/download", method = RequestMethod.GET)
-    public ResponseEntity<byte[]> fetchGroupMembersWithErrorForDownloadByGroupUid(@PathVariable String groupUid,
+    public ResponseEntity<StreamingResponseBody> fetchGroupMembersWithErrorForDownloadByGroupUid(@PathVariable String groupUid,
             HttpServletRequest request) {
 
         try {
             User user = getUserFromRequest(request);
 
             String fileName = "error_report.xlsx";
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-            headers.add("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
-            headers.add("Cache-Control", "no-cache");
-            headers.add("Pragma", "no-cache");
-            headers.add("Expires", "0");
-
-            XSSFWorkbook xls = memberDataExportBroker.exportGroupErrorReport(groupUid, user.getUid());
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            xls.write(baos);
-            return new ResponseEntity<>(baos.toByteArray(), headers, HttpStatus.OK);
-        } catch (IOException e) {
-            logger.error("IO Exception generating spreadsheet!", e);
-            throw new FileCreationException();
+            Workbook xls = memberDataExportBroker.exportGroupErrorReport(groupUid, user.getUid());
+            return convertWorkbookToDownload(fileName, xls);
         } catch (AccessDeniedException e) {
             throw new MemberLacksPermissionException(Permission.GROUP_PERMISSION_UPDATE_GROUP_DETAILS);
         }
@@ -4,6 +4,8 @@ import com.amazonaws.util.IOUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
 import za.org.grassroot.core.domain.group.Group;
@@ -19,6 +21,7 @@ import za.org.grassroot.webapp.util.ImageUtil;
 import javax.servlet.http.HttpServletRequest;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.Locale;
 import java.util.Optional;
@@ -50,11 +53,10 @@ public class IncomingImageFetchController {
     }
 
     @RequestMapping(value = "/broadcast/{mediaFileKey}", method = RequestMethod.GET)
-    public ResponseEntity<byte[]> getBroadcastImage(@PathVariable String mediaFileKey)
+    public ResponseEntity<Resource> getBroadcastImage(@PathVariable String mediaFileKey)
             throws IOException {
         MediaFileRecord record = mediaFileBroker.load(MediaFunction.BROADCAST_IMAGE, mediaFileKey);
-        File imageFile = storageBroker.fetchFileFromRecord(record);
-        byte[] data = IOUtils.toByteArray(new FileInputStream(imageFile));
+        Resource data = cachedFileResource(record);
         HttpHeaders headers = new HttpHeaders();
         try {
             headers.setContentType(MediaType.parseMediaType(record.getMimeType()));
@@ -70,7 +72,7 @@ public class IncomingImageFetchController {
     }
 
     @RequestMapping(value = "/user/{userUid}", method = RequestMethod.GET)
-    public ResponseEntity<byte[]> viewProfileImage(@PathVariable String userUid) throws IOException {
+    public ResponseEntity<Resource> viewProfileImage(@PathVariable String userUid) throws IOException {
         MediaFileRecord userImgRecord = mediaFileBroker.load(MediaFunction.USER_PROFILE_IMAGE,
                 userProfileImagesFolder + "/" + userUid);
         log.info("Fetched record: {}", userImgRecord);
@@ -123,16 +125,15 @@ public class IncomingImageFetchController {
     }
 
     @RequestMapping(value = "/{mediaFunction}/{imageKey}", method = RequestMethod.GET)
-    public ResponseEntity<byte[]> fetchImage(@PathVariable MediaFunction mediaFunction,
-                                             @PathVariable String imageKey) throws IOException {
+    public ResponseEntity<Resource> fetchImage(@PathVariable MediaFunction mediaFunction,
+                                               @PathVariable String imageKey) throws IOException {
         MediaFileRecord record = mediaFileBroker.load(mediaFunction, imageKey);
         log.info("record retrieved: {}", record);
         return convertRecordToResponse(record);
     }
 
-    private ResponseEntity<byte[]> convertRecordToResponse(MediaFileRecord record) throws IOException {
-        File imageFile = storageBroker.fetchFileFromRecord(record);
-        byte[] data = IOUtils.toByteArray(new FileInputStream(imageFile));
+    private ResponseEntity<Resource> convertRecordToResponse(MediaFileRecord record) throws IOException {
+        Resource data = cachedFileResource(record);
         HttpHeaders headers = new HttpHeaders();
         try {
             headers.setContentType(MediaType.parseMediaType(record.getMimeType()));
@@ -147,6 +148,15 @@ public class IncomingImageFetchController {
         return new ResponseEntity<>(data, headers, HttpStatus.OK);
     }
 
+    // streamed from the media cache (and in parts, if a range is asked for), rather than read into memory first
+    private Resource cachedFileResource(MediaFileRecord record) throws IOException {
+        File imageFile = storageBroker.fetchFileFromRecord(record);
+        if (imageFile == null) {
+            throw new FileNotFoundException("Could not retrieve media file for record: " + record);
+        }
+        return new FileSystemResource(imageFile);
+    }
+
     private ResponseEntity<byte[]> convertFileToResponse(File imageFile, MediaType mediaType) throws IOException {
         byte[] data = IOUtils.toByteArray(new FileInputStream(imageFile));
         HttpHeaders headers = new HttpHeaders();
@@ -19,9 +19,11 @@ import za.org.grassroot.core.domain.group.Group;
 import za.org.grassroot.core.domain.group.GroupLog;
 import za.org.grassroot.core.domain.group.Membership;
 import za.org.grassroot.core.enums.GroupLogType;
+import za.org.grassroot.core.enums.InboundKeywordType;
 import za.org.grassroot.core.enums.UserInterfaceType;
 import za.org.grassroot.core.enums.UserLogType;
 import za.org.grassroot.core.util.PhoneNumberUtil;
+import za.org.grassroot.services.InboundKeywordRouter;
 import za.org.grassroot.services.UserResponseBroker;
 import za.org.grassroot.services.account.AccountFeaturesBroker;
 import za.org.grassroot.services.campaign.CampaignBroker;
@@ -36,7 +38,6 @@ import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Created by paballo on 2016/02/17.
@@ -63,6 +64,7 @@ public class IncomingSMSController {
     private final CampaignBroker campaignBroker;
     private final CampaignTextBroker campaignTextBroker;
 
+    private final InboundKeywordRouter keywordRouter;
     private final LogsAndNotificationsBroker logsAndNotificationsBroker;
 
     private static final String FROM_PARAMETER_REPLY ="fn";
@@ -77,12 +79,14 @@ public class IncomingSMSController {
     @Autowired
     public IncomingSMSController(UserResponseBroker userResponseBroker, UserManagementService userManager, GroupBroker groupBroker,
                                  AccountFeaturesBroker accountFeaturesBroker, CampaignBroker campaignBroker,
-                                 CampaignTextBroker campaignTextBroker, LogsAndNotificationsBroker logsAndNotificationsBroker) {
+                                 CampaignTextBroker campaignTextBroker, InboundKeywordRouter keywordRouter,
+                                 LogsAndNotificationsBroker logsAndNotificationsBroker) {
         this.userResponseBroker = userResponseBroker;
         this.userManager = userManager;
         this.groupBroker = groupBroker;
         this.accountFeaturesBroker = accountFeaturesBroker;
         this.campaignTextBroker = campaignTextBroker;
+        this.keywordRouter = keywordRouter;
         this.logsAndNotificationsBroker = logsAndNotificationsBroker;
         this.campaignBroker = campaignBroker;
     }
@@ -92,8 +96,7 @@ public class IncomingSMSController {
     public @ResponseBody String receiveGroupSms(@RequestParam(value = FROM_PARAMETER_NEW) String phoneNumber,
                     @RequestParam(value = MSG_TEXT_PARAM_NEW) String message) {
         // temporary fix while we get second inbound number running
-        Map<String, String> campaignTags = campaignBroker.getActiveCampaignJoinWords();
-        if (campaignTags != null && campaignTags.keySet().contains(message.trim().toLowerCase())) {
+        if (keywordRouter.findTarget(message, InboundKeywordType.CAMPAIGN_JOIN_WORD).isPresent()) {
             log.info("matched a campaign word, triggering campaign sequence, in precedence to group");
             return receiveNewlyInitiatedSms(phoneNumber, message);
         }
@@ -105,16 +108,12 @@ public class IncomingSMSController {
         LogsAndNotificationsBundle bundle = new LogsAndNotificationsBundle();
         bundle.addLog(new UserLog(user.getUid(), UserLogType.INBOUND_JOIN_WORD, RECEIVED + message, UserInterfaceType.INCOMING_SMS));
 
-        Map<String, String> groupJoinWords = groupBroker.getJoinWordsWithGroupIds();
-
-        Set<String> groupMatches = groupJoinWords.entrySet().stream()
-                .filter(entry -> entry.getKey().toLowerCase().equalsIgnoreCase(message.trim()))
-                .map(Map.Entry::getValue).collect(Collectors.toSet());
+        Optional<String> groupMatch = keywordRouter.findTarget(message, InboundKeywordType.GROUP_JOIN_WORD);
 
         final String reply;
-        if (!groupMatches.isEmpty()) {
-            // disambiguate somehow ... for the moment, just adding the first
-            final String groupUid = groupMatches.iterator().next();
+        if (groupMatch.isPresent()) {
+            // join words are unique among active ones, so there is only the one
+            final String groupUid = groupMatch.get();
             Membership membership = groupBroker.addMemberViaJoinCode(user.getUid(), groupUid, message, UserInterfaceType.INCOMING_SMS);
             // if group has custom welcome messages those will be triggered for everyone, in group broker, so don't do it here
             reply = membership.getGroup().isPaidFor() && !accountFeaturesBroker.hasGroupWelcomeMessages(groupUid) ?
@@ -140,17 +139,12 @@ public class IncomingSMSController {
         User user = userManager.loadOrCreateUser(phoneNumber, UserInterfaceType.INCOMING_SMS); // this may be a user we don't know
         LogsAndNotificationsBundle bundle = new LogsAndNotificationsBundle();
 
-        Map<String, String> campaignTags = campaignBroker.getActiveCampaignJoinWords();
-        log.info("active campaign tags = {}", campaignTags);
-
-        Set<String> campaignMatches = campaignTags.entrySet().stream()
-                .filter(entry -> entry.getKey().toLowerCase().equalsIgnoreCase(message.trim()))
-                .map(Map.Entry::getValue).collect(Collectors.toSet());
+        Optional<String> campaignMatch = keywordRouter.findTarget(message, InboundKeywordType.CAMPAIGN_JOIN_WORD);
+        log.info("campaign matched by message: {}", campaignMatch);
 
         final String reply;
-        if (!campaignMatches.isEmpty()) {
-            // disambiguate somehow ... for the moment, just adding the first
-            final String campaignUid = campaignMatches.iterator().next();
+        if (campaignMatch.isPresent()) {
+            final String campaignUid = campaignMatch.get();
             bundle.addLog(new UserLog(user.getUid(), UserLogType.INBOUND_JOIN_WORD, MATCHED + message, UserInterfaceType.INCOMING_SMS));
             campaignBroker.recordEngagement(campaignUid, user.getUid(), UserInterfaceType.INCOMING_SMS, message);
 
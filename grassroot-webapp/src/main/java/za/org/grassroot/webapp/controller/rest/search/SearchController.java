@@ -15,7 +15,6 @@ import za.org.grassroot.core.dto.group.PublicGroupDTO;
 import za.org.grassroot.core.dto.task.PublicMeetingDTO;
 import za.org.grassroot.core.dto.task.TaskFullDTO;
 import za.org.grassroot.core.enums.UserInterfaceType;
-import za.org.grassroot.core.repository.MembershipRepository;
 import za.org.grassroot.integration.authentication.JwtService;
 import za.org.grassroot.services.geo.GeoLocationBroker;
 import za.org.grassroot.services.group.*;
@@ -50,7 +49,6 @@ public class SearchController extends BaseRestController {
     private final GroupJoinRequestService groupJoinRequestService;
     private final GroupBroker groupBroker;
     private final CacheUtilService cacheUtilService;
-    private final MembershipRepository membershipRepository;
 
     @Autowired
     public SearchController(TaskBroker taskBroker,
@@ -62,8 +60,7 @@ public class SearchController extends BaseRestController {
                             GroupJoinRequestService groupJoinRequestService,
                             JwtService jwtService,
                             CacheUtilService cacheUtilService,
-                            UserManagementService userManagementService,
-                            MembershipRepository membershipRepository){
+                            UserManagementService userManagementService){
         super(jwtService, userManagementService);
         this.taskBroker = taskBroker;
         this.groupQueryBroker = groupQueryBroker;
@@ -73,7 +70,6 @@ public class SearchController extends BaseRestController {
         this.groupJoinRequestService = groupJoinRequestService;
         this.groupBroker = groupBroker;
         this.cacheUtilService = cacheUtilService;
-        this.membershipRepository = membershipRepository;
     }
 
     @RequestMapping(value = "/tasks/user", method = RequestMethod.GET)
@@ -114,7 +110,7 @@ public class SearchController extends BaseRestController {
 
         final List<Group> groups = groupQueryBroker.findPublicGroups(userUid, searchTerm, filter, true);
         List<PublicGroupDTO> groupDTOs = groups.stream()
-                .map(g -> new PublicGroupDTO(g, this.membershipRepository))
+                .map(PublicGroupDTO::new)
                 .collect(Collectors.toList());
         log.info("Groups found..........",groupDTOs);
         return ResponseEntity.ok(groupDTOs);
@@ -152,7 +148,7 @@ public class SearchController extends BaseRestController {
         cacheUtilService.putJoinAttempt(getUserIdFromRequest(request), recentUserAttemptCount + 1);
 
         final Optional<Group> groupOptional = groupQueryBroker.findGroupFromJoinCode(joinCode);
-        final Optional<GroupRefDTO> result = groupOptional.map(group -> new GroupRefDTO(group, this.membershipRepository));
+        final Optional<GroupRefDTO> result = groupOptional.map(GroupRefDTO::new);
 
         return result.isPresent() ? ResponseEntity.ok(result.get()) : ResponseEntity.ok().build();
     }
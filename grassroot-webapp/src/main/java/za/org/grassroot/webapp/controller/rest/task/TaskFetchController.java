@@ -3,19 +3,16 @@ package za.org.grassroot.webapp.controller.rest.task;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.ss.usermodel.Workbook;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
-import za.org.grassroot.core.domain.Notification;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import za.org.grassroot.core.domain.Permission;
 import za.org.grassroot.core.domain.User;
-import za.org.grassroot.core.domain.task.Event;
 import za.org.grassroot.core.domain.task.Todo;
 import za.org.grassroot.core.dto.task.TaskDTO;
 import za.org.grassroot.core.dto.task.TaskFullDTO;
@@ -34,12 +31,10 @@ import za.org.grassroot.services.task.enums.TaskSortType;
 import za.org.grassroot.services.user.UserManagementService;
 import za.org.grassroot.webapp.controller.rest.BaseRestController;
 import za.org.grassroot.webapp.controller.rest.Grassroot2RestController;
-import za.org.grassroot.webapp.controller.rest.exception.FileCreationException;
 import za.org.grassroot.webapp.model.rest.ImageRecordDTO;
+import za.org.grassroot.webapp.util.RestUtil;
 
 import javax.servlet.http.HttpServletRequest;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.time.Instant;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -128,26 +123,12 @@ public class TaskFetchController extends BaseRestController {
     }
 
     @RequestMapping(value = "/todo/download/{taskUid}", method = RequestMethod.GET)
-    public ResponseEntity<byte[]> downloadTodoResponses(HttpServletRequest request, @PathVariable String taskUid) {
-        try {
-            Todo todo = taskBroker.loadEntity(getUserIdFromRequest(request), taskUid, TaskType.TODO, Todo.class);
-            String fileName = todo.getName().replaceAll(" ", "_").toLowerCase() + ".xlsx";
+    public ResponseEntity<StreamingResponseBody> downloadTodoResponses(HttpServletRequest request, @PathVariable String taskUid) {
+        Todo todo = taskBroker.loadEntity(getUserIdFromRequest(request), taskUid, TaskType.TODO, Todo.class);
+        String fileName = todo.getName().replaceAll(" ", "_").toLowerCase() + ".xlsx";
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-            headers.add("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
-            headers.add("Cache-Control", "no-cache");
-            headers.add("Pragma", "no-cache");
-            headers.add("Expires", "0");
-
-            XSSFWorkbook xls = dataExportBroker.exportTodoData(getUserIdFromRequest(request), taskUid);
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            xls.write(baos);
-            return new ResponseEntity<>(baos.toByteArray(), headers, HttpStatus.OK);
-        } catch (IOException e) {
-            log.error("Could not generate todo spreadsheet", e);
-            throw new FileCreationException();
-        }
+        Workbook xls = dataExportBroker.exportTodoData(getUserIdFromRequest(request), taskUid);
+        return RestUtil.convertWorkbookToDownload(fileName, xls);
     }
 
     @RequestMapping(value = "/all/{userUid}", method = RequestMethod.GET)
@@ -242,37 +223,14 @@ public class TaskFetchController extends BaseRestController {
     }
 
 	@RequestMapping(value = "/error-report/{taskType}/{taskUid}/download", method = RequestMethod.GET)
-	public ResponseEntity<byte[]> fetchTaskFailedNotifications(@PathVariable TaskType taskType, @PathVariable String taskUid,
+	public ResponseEntity<StreamingResponseBody> fetchTaskFailedNotifications(@PathVariable TaskType taskType, @PathVariable String taskUid,
 			HttpServletRequest request) {
 
 		try {
-			User user = getUserFromRequest(request);
-
 			String fileName = "task_error_report.xlsx";
-			HttpHeaders headers = new HttpHeaders();
-			headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-			headers.add("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
-			headers.add("Cache-Control", "no-cache");
-			headers.add("Pragma", "no-cache");
-			headers.add("Expires", "0");
-
-			List<? extends Notification> notifications = new ArrayList<>();
-			if(taskType.equals(TaskType.MEETING) || taskType.equals(TaskType.VOTE)) {
-				Event event = eventBroker.load(taskUid);
-				notifications = notificationService.loadFailedNotificationForEvent(user.getUid(), event);
-			} else {
-				Todo todo = todoBroker.load(taskUid);
-				notifications = notificationService.loadFailedNotificationForTodo(user.getUid(), todo);
-			}
-
-			log.info("found {} failed notifications", notifications.size());
-			XSSFWorkbook xls = dataExportBroker.exportNotificationErrorReport(notifications);
-			ByteArrayOutputStream baos = new ByteArrayOutputStream();
-			xls.write(baos);
-			return new ResponseEntity<>(baos.toByteArray(), headers, HttpStatus.OK);
-		}catch (IOException e) {
-			log.error("IO Exception generating spreadsheet!", e);
-			throw new FileCreationException();
+			Workbook xls = taskType.equals(TaskType.MEETING) || taskType.equals(TaskType.VOTE) ?
+					dataExportBroker.exportEventErrorReport(taskUid) : dataExportBroker.exportTodoErrorReport(taskUid);
+			return RestUtil.convertWorkbookToDownload(fileName, xls);
 		}catch (AccessDeniedException e) {
 			throw new MemberLacksPermissionException(Permission.GROUP_PERMISSION_UPDATE_GROUP_DETAILS);
 		}
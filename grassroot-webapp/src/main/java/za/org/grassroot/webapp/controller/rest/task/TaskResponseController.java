@@ -10,6 +10,7 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import za.org.grassroot.core.dto.task.TaskFullDTO;
 import za.org.grassroot.core.enums.EventRSVPResponse;
 import za.org.grassroot.core.enums.TaskType;
@@ -27,13 +28,18 @@ import za.org.grassroot.webapp.model.rest.wrappers.ResponseWrapper;
 import za.org.grassroot.webapp.util.RestUtil;
 
 import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
 import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Slf4j @RestController @Grassroot2RestController
 @RequestMapping(value = "/v2/api/task/respond") @Api("/v2/api/task/respond")
 @PreAuthorize("hasRole('ROLE_FULL_USER')")
 public class TaskResponseController extends BaseRestController {
 
+    private static final long VOTE_STREAM_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(30);
+
     private final TaskBroker taskBroker;
     private final EventLogBroker eventLogBroker;
     private final VoteBroker voteBroker;
@@ -77,6 +83,30 @@ public class TaskResponseController extends BaseRestController {
         }
     }
 
+    @RequestMapping(value = "/vote/{taskUid}/results/stream", method = RequestMethod.GET)
+    @ApiOperation(value = "Stream the results of a vote, as server sent events named 'results', first the current " +
+            "results and then again whenever responses change them (at most about once a second)")
+    public SseEmitter streamVoteResults(HttpServletRequest request, @PathVariable String taskUid) {
+        final String userUid = getUserIdFromRequest(request);
+        final SseEmitter emitter = new SseEmitter(VOTE_STREAM_TIMEOUT_MILLIS);
+        final Runnable unsubscribe = voteBroker.subscribeToVoteResults(userUid, taskUid,
+                results -> sendVoteResults(emitter, results), emitter::complete);
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(e -> unsubscribe.run());
+        sendVoteResults(emitter, voteBroker.fetchVoteResults(userUid, taskUid, false));
+        return emitter;
+    }
+
+    private void sendVoteResults(SseEmitter emitter, Map<String, Long> results) {
+        try {
+            emitter.send(SseEmitter.event().name("results").data(results));
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Could not push vote results, closing stream: {}", e.getMessage());
+            emitter.completeWithError(e);
+        }
+    }
+
     @RequestMapping(value = "/post/{userUid}/{taskType}/{taskUid}", method = RequestMethod.POST)
     public ResponseEntity<ResponseWrapper> uploadTaskImage(@PathVariable String userUid,
                                                            @PathVariable TaskType taskType,
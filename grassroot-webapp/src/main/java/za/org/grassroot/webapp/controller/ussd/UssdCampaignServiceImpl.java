@@ -20,6 +20,7 @@ import za.org.grassroot.core.enums.UserInterfaceType;
 import za.org.grassroot.core.util.PhoneNumberUtil;
 import za.org.grassroot.services.campaign.CampaignBroker;
 import za.org.grassroot.services.geo.AddressBroker;
+import za.org.grassroot.services.group.GroupMemberCounter;
 import za.org.grassroot.services.user.UserManagementService;
 import za.org.grassroot.webapp.controller.ussd.menus.USSDMenu;
 import za.org.grassroot.webapp.model.ussd.AAT.Request;
@@ -38,6 +39,7 @@ public class UssdCampaignServiceImpl implements UssdCampaignService {
 	private final UserManagementService userManager;
 	private final AddressBroker addressBroker;
 	private final UssdSupport ussdSupport;
+	private final GroupMemberCounter groupMemberCounter;
 
 	// needed because of Java locale hell
 	private final Map<String, Locale> localeMap = constructLocaleMap();
@@ -57,11 +59,13 @@ public class UssdCampaignServiceImpl implements UssdCampaignService {
 	// controls whether to direct people who sign campaign into general GR capabalities
 	private boolean redirectCampaignCompletionToMain = false;
 
-	public UssdCampaignServiceImpl(CampaignBroker campaignBroker, UserManagementService userManager, AddressBroker addressBroker, UssdSupport ussdSupport) {
+	public UssdCampaignServiceImpl(CampaignBroker campaignBroker, UserManagementService userManager, AddressBroker addressBroker, UssdSupport ussdSupport,
+								   GroupMemberCounter groupMemberCounter) {
 		this.campaignBroker = campaignBroker;
 		this.userManager = userManager;
 		this.addressBroker = addressBroker;
 		this.ussdSupport = ussdSupport;
+		this.groupMemberCounter = groupMemberCounter;
 	}
 
 	private String iso3CountryCodeToIso2CountryCode(String iso3CountryCode) {
@@ -240,6 +244,7 @@ public class UssdCampaignServiceImpl implements UssdCampaignService {
 								//                userManager.createUserProfile(user);
 							}
 					);
+			groupMemberCounter.storeChanges(masterGroup);
 			for (String tag : parentMessage.getTagList()) {
 				membership.addTag(tag);
 			}
@@ -20,9 +20,10 @@ import za.org.grassroot.core.domain.group.Membership;
 import za.org.grassroot.core.domain.task.Event;
 import za.org.grassroot.core.domain.task.Todo;
 import za.org.grassroot.core.domain.task.Vote;
+import za.org.grassroot.core.enums.InboundKeywordType;
 import za.org.grassroot.core.enums.UserInterfaceType;
 import za.org.grassroot.core.enums.UserLogType;
-import za.org.grassroot.integration.location.LocationInfoBroker;
+import za.org.grassroot.services.InboundKeywordRouter;
 import za.org.grassroot.services.UserResponseBroker;
 import za.org.grassroot.services.account.AccountFeaturesBroker;
 import za.org.grassroot.services.async.AsyncUserLogger;
@@ -40,7 +41,6 @@ import za.org.grassroot.webapp.model.ussd.AAT.Request;
 import za.org.grassroot.webapp.util.USSDCampaignConstants;
 import za.org.grassroot.webapp.util.USSDUrlUtil;
 
-import javax.annotation.PostConstruct;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.Collections;
@@ -70,11 +70,6 @@ public class UssdHomeServiceImpl implements UssdHomeService {
 	@Value("${grassroot.ussd.sendlink.suffix:123}")
 	private String sendMeLink = "123";
 
-	@Value("${grassroot.geo.apis.enabled:false}")
-	private boolean geoApisEnabled = false;
-
-	private Map<String, String> geoApiSuffixes;
-
 	private final UssdLiveWireService ussdLiveWireService;
 	private final UssdGeoApiService ussdGeoApiService;
 	private final UssdTodoService ussdTodoService;
@@ -84,7 +79,7 @@ public class UssdHomeServiceImpl implements UssdHomeService {
 	private final UserManagementService userManager;
 	private final CacheUtilService cacheManager;
 
-	private final LocationInfoBroker locationInfoBroker;
+	private final InboundKeywordRouter keywordRouter;
 	private final CampaignBroker campaignBroker;
 	private final CampaignTextBroker campaignTextBroker;
 	private final AsyncUserLogger userLogger;
@@ -98,11 +93,11 @@ public class UssdHomeServiceImpl implements UssdHomeService {
 	private static final USSDSection thisSection = HOME;
 
 	public UssdHomeServiceImpl(UssdSupport ussdSupport, UssdLiveWireService ussdLiveWireService, @Autowired(required = false) UssdGeoApiService ussdGeoApiService, UssdTodoService ussdTodoService, UssdVoteService ussdVoteService, UssdMeetingService ussdMeetingService,
-							   UssdSafetyGroupService ussdSafetyGroupService, LocationInfoBroker locationInfoBroker, UserManagementService userManager, CampaignBroker campaignBroker, CampaignTextBroker campaignTextBroker, AsyncUserLogger userLogger,
+							   UssdSafetyGroupService ussdSafetyGroupService, InboundKeywordRouter keywordRouter, UserManagementService userManager, CampaignBroker campaignBroker, CampaignTextBroker campaignTextBroker, AsyncUserLogger userLogger,
 							   CacheUtilService cacheManager, UserResponseBroker userResponseBroker, GroupQueryBroker groupQueryBroker, AccountFeaturesBroker accountFeaturesBroker, GroupBroker groupBroker) {
 		this.ussdLiveWireService = ussdLiveWireService;
 		this.ussdSafetyGroupService = ussdSafetyGroupService;
-		this.locationInfoBroker = locationInfoBroker;
+		this.keywordRouter = keywordRouter;
 		this.ussdGeoApiService = ussdGeoApiService;
 		this.userManager = userManager;
 		this.campaignBroker = campaignBroker;
@@ -119,17 +114,6 @@ public class UssdHomeServiceImpl implements UssdHomeService {
 		this.groupBroker = groupBroker;
 	}
 
-	@PostConstruct
-	public void init() {
-		if (locationInfoBroker != null) {
-			log.info("Initiating USSD, setting geo apis");
-			geoApiSuffixes = locationInfoBroker.getAvailableSuffixes();
-			log.info("Set geo api suffixes: {}", geoApiSuffixes);
-		} else {
-			log.info("Geo APIs disabled, not setting");
-		}
-	}
-
 	@Override
 	@Transactional
 	public Request processStartMenu(String inputNumber, String enteredUSSD) throws URISyntaxException {
@@ -169,6 +153,8 @@ public class UssdHomeServiceImpl implements UssdHomeService {
 		USSDMenu returnMenu;
 		log.debug("Processing trailing digits ..." + trailingDigits);
 		boolean sendWelcomeIfNew = false;
+		final Optional<String> geoApi = ussdGeoApiService == null ? Optional.empty() :
+				keywordRouter.findTarget(trailingDigits, InboundKeywordType.GEO_API_SUFFIX);
 		if (safetyCode.equals(trailingDigits)) {
 			returnMenu = ussdSafetyGroupService.assemblePanicButtonActivationMenu(user);
 		} else if (livewireSuffix.equals(trailingDigits)) {
@@ -177,8 +163,8 @@ public class UssdHomeServiceImpl implements UssdHomeService {
 		} else if (sendMeLink.equals(trailingDigits)) {
 			returnMenu = assembleSendMeAndroidLinkMenu(user);
 			sendWelcomeIfNew = true;
-		} else if (geoApisEnabled && geoApiSuffixes.keySet().contains(trailingDigits)) {
-			returnMenu = ussdGeoApiService.openingMenu(ussdSupport.convert(user), geoApiSuffixes.get(trailingDigits));
+		} else if (geoApi.isPresent()) {
+			returnMenu = ussdGeoApiService.openingMenu(ussdSupport.convert(user), geoApi.get());
 		} else {
 			returnMenu = joinGroupViaToken(user, trailingDigits);
 			if (returnMenu != null) { // if group joined
@@ -220,14 +206,14 @@ public class UssdHomeServiceImpl implements UssdHomeService {
 	@Transactional(readOnly = true)
 	public Request processExitScreen(String inputNumber) throws URISyntaxException {
 		User user = userManager.findByInputNumber(inputNumber, null);
-		String exitMessage = ussdSupport.getMessage("exit." + ussdSupport.promptKey, user);
-		return ussdSupport.menuBuilder(new USSDMenu(exitMessage));
+		return ussdSupport.staticMenu("exit", user, () -> new USSDMenu(ussdSupport.getMessage("exit." + ussdSupport.promptKey, user)));
 	}
 
 	@Override
 	public Request processNotBuilt(String inputNumber) throws URISyntaxException {
-		String errorMessage = ussdSupport.getMessage("ussd.error", "en");
-		return ussdSupport.menuBuilder(new USSDMenu(errorMessage, ussdSupport.optionsHomeExit(userManager.findByInputNumber(inputNumber), false)));
+		final User user = userManager.findByInputNumber(inputNumber);
+		return ussdSupport.staticMenu("not_built", user, () -> new USSDMenu(ussdSupport.getMessage("ussd.error", "en"),
+				ussdSupport.optionsHomeExit(user, false)));
 	}
 
 	@Override
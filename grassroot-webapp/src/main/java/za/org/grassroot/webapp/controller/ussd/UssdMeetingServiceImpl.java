@@ -175,7 +175,7 @@ public class UssdMeetingServiceImpl implements UssdMeetingService {
 
 		ussdSupport.recordExperimentResult(user.getUid(), attending);
 		// now, check if user has had a few sessions and no language. if so, prompt for language.
-		return userManager.needToPromptForLanguage(user, ussdSupport.preLanguageSessions) ? ussdSupport.menuBuilder(ussdSupport.promptLanguageMenu(user)) :
+		return userManager.needToPromptForLanguage(user, ussdSupport.preLanguageSessions) ? ussdSupport.promptLanguageRequest(user) :
 				ussdSupport.menuBuilder(new USSDMenu(ussdSupport.getMessage(welcomeKey, user), ussdSupport.optionsHomeExit(user, false)));
 	}
 
@@ -18,6 +18,7 @@ import za.org.grassroot.webapp.util.USSDUrlUtil;
 import java.net.URISyntaxException;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -134,6 +135,14 @@ public class UssdSupport {
 		return homeMenu;
 	}
 
+	public Request staticMenu(String menuKey, User user, Supplier<USSDMenu> menu) throws URISyntaxException {
+		return ussdMenuUtil.staticMenu(menuKey, user.getLanguageCode(), menu);
+	}
+
+	public Request promptLanguageRequest(User user) throws URISyntaxException {
+		return staticMenu("language_prompt", user, () -> promptLanguageMenu(user));
+	}
+
 	public USSDMenu promptLanguageMenu(User user) {
 		return new USSDMenu(messageAssembler.getMessage("language.prompt", user),
 				languageOptions(userMenus + "language-do?language="));
@@ -117,7 +117,7 @@ public class UssdTodoServiceImpl implements UssdTodoService {
 				messageAssembler.getMessage("todo.volunteer.no.prompt", user);
 		log.info("User={},Prompt={},todo uid={},response={}", user, promptMessage, todoUid, userResponse);
 		return userManager.needToPromptForLanguage(user, ussdSupport.preLanguageSessions) ?
-				ussdSupport.menuBuilder(ussdSupport.promptLanguageMenu(user)) :
+				ussdSupport.promptLanguageRequest(user) :
 				ussdSupport.menuBuilder(ussdSupport.welcomeMenu(promptMessage, user));
 	}
 
@@ -157,7 +157,7 @@ public class UssdTodoServiceImpl implements UssdTodoService {
 	public Request processRecordInfoResponse(String msisdn, String todoUid, String response) throws URISyntaxException {
 		User user = userManager.findByInputNumber(msisdn, null);
 		todoBroker.recordResponse(user.getUid(), todoUid, response, false);
-		return userManager.needToPromptForLanguage(user, ussdSupport.preLanguageSessions) ? ussdSupport.menuBuilder(ussdSupport.promptLanguageMenu(user)) :
+		return userManager.needToPromptForLanguage(user, ussdSupport.preLanguageSessions) ? ussdSupport.promptLanguageRequest(user) :
 				ussdSupport.menuBuilder(ussdSupport.welcomeMenu(messageAssembler.getMessage("todo.info.prompt.done", user), user));
 	}
 
@@ -153,8 +153,7 @@ public class UssdVoteServiceImpl implements UssdVoteService {
 		User user = userManager.findByInputNumber(inputNumber);
 		voteBroker.recordUserVote(user.getUid(), voteUid, response);
 		final String prompt = ussdSupport.getMessage(thisSection, UssdSupport.startMenu, promptKey + ".vote-recorded", user);
-		cacheManager.clearRsvpCacheForUser(user.getUid());
-		return userManager.needToPromptForLanguage(user, preLanguageSessions) ? ussdSupport.menuBuilder(ussdSupport.promptLanguageMenu(user)) :
+		return userManager.needToPromptForLanguage(user, preLanguageSessions) ? ussdSupport.promptLanguageRequest(user) :
 				ussdSupport.menuBuilder(new USSDMenu(prompt, ussdSupport.optionsHomeExit(user, false)));
 	}
 
@@ -6,7 +6,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.filter.OncePerRequestFilter;
 import za.org.grassroot.core.domain.StandardRole;
-import za.org.grassroot.integration.authentication.JwtService;
+import za.org.grassroot.integration.authentication.VerifiedJwt;
 import za.org.grassroot.webapp.model.http.AuthorizationHeader;
 
 import javax.servlet.FilterChain;
@@ -21,11 +21,11 @@ import java.util.stream.Collectors;
 @Slf4j
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
-    private JwtService jwtService;
+    private VerifiedTokenCache verifiedTokenCache;
 
     @Autowired
-    public void setJwtService(JwtService jwtService) {
-        this.jwtService = jwtService;
+    public void setVerifiedTokenCache(VerifiedTokenCache verifiedTokenCache) {
+        this.verifiedTokenCache = verifiedTokenCache;
     }
 
     @Override
@@ -41,10 +41,11 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         log.debug("auth headers: {}, token: {}", request.getHeaderNames(), token);
 
-        if (authorizationHeader.hasBearerToken() && jwtService.isJwtTokenValid(token)) {
-            String userId = jwtService.getUserIdFromJwtToken(token);
+        final VerifiedJwt verifiedJwt = token == null ? null : verifiedTokenCache.verify(token);
+        if (verifiedJwt != null) {
+            String userId = verifiedJwt.getUserUid();
             log.debug("User ID: {}", userId);
-            final List<String> standardRolesNames = jwtService.getStandardRolesFromJwtToken(token);
+            final List<String> standardRolesNames = verifiedJwt.getStandardRoles();
             final Set<StandardRole> standardRoles = standardRolesNames.stream().map(StandardRole::valueOf).collect(Collectors.toSet());
             log.debug("and user roles = {}", standardRoles);
             JwtBasedAuthentication auth = new JwtBasedAuthentication(standardRoles, token, userId);
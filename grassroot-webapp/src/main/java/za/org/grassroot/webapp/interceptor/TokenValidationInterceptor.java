@@ -32,6 +32,7 @@ public class TokenValidationInterceptor extends HandlerInterceptorAdapter {
 
     private PasswordTokenService passwordTokenService;
     private JwtService jwtService;
+    private VerifiedTokenCache verifiedTokenCache;
 
     private static final String contentType = "application/json";
 
@@ -45,6 +46,11 @@ public class TokenValidationInterceptor extends HandlerInterceptorAdapter {
         this.jwtService = jwtService;
     }
 
+    @Autowired
+    public void setVerifiedTokenCache(VerifiedTokenCache verifiedTokenCache) {
+        this.verifiedTokenCache = verifiedTokenCache;
+    }
+
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
         log.info("Prehandling legacy request");
@@ -57,7 +63,7 @@ public class TokenValidationInterceptor extends HandlerInterceptorAdapter {
         boolean isTokenExpired = false;
 
         if (authorizationHeader.hasBearerToken()
-                && jwtService.isJwtTokenValid(authorizationHeader.getBearerToken())) {
+                && verifiedTokenCache.verify(token) != null) {
             log.info("Found a header in legacy interceptor, so returning true and allowing other filters to handle");
             return true;
         } else if (authorizationHeader.hasBearerToken() && jwtService.isJwtTokenExpired(token)) {
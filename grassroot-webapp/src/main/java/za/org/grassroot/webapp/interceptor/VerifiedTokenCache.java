@@ -0,0 +1,128 @@
+package za.org.grassroot.webapp.interceptor;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import za.org.grassroot.integration.authentication.JwtService;
+import za.org.grassroot.integration.authentication.VerifiedJwt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Holds the claims of tokens that have already passed signature verification, keyed by a hash of the token (so raw
+ * tokens are not kept in memory), so that each request does one map lookup rather than several RSA verifications.
+ * Entries are never served at or after the token's expiry, tokens that fail verification are never stored, and
+ * {@link #invalidate(String)} drops a token so that its next use is verified afresh.
+ */
+@Component @Slf4j
+public class VerifiedTokenCache {
+
+    @Value("${grassroot.jwt.verified-cache.max-size:20000}")
+    private int maxSize = 20000;
+
+    private final JwtService jwtService;
+
+    private final Map<String, VerifiedJwt> verified = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    @Autowired
+    public VerifiedTokenCache(JwtService jwtService) {
+        this.jwtService = jwtService;
+    }
+
+    /**
+     * @return the token's verified claims, or null if it is invalid or has expired
+     */
+    public VerifiedJwt verify(String token) {
+        if (StringUtils.isEmpty(token))
+            return null;
+
+        final String key = hash(token);
+        final Instant now = Instant.now();
+        final VerifiedJwt cached = verified.get(key);
+        if (cached != null) {
+            if (!cached.isExpiredAt(now)) {
+                hits.incrementAndGet();
+                return cached;
+            }
+            verified.remove(key, cached);
+        }
+
+        misses.incrementAndGet();
+        final VerifiedJwt parsed = jwtService.parseVerifiedToken(token);
+        // tokens without an expiry are left uncached, as there would be no point at which to drop them
+        if (parsed != null && parsed.getExpiresAt() != null && !parsed.isExpiredAt(now)) {
+            if (verified.size() >= maxSize)
+                makeRoom(now);
+            verified.put(key, parsed);
+        }
+        return parsed;
+    }
+
+    public void invalidate(String token) {
+        if (!StringUtils.isEmpty(token))
+            verified.remove(hash(token));
+    }
+
+    public void invalidateAll() {
+        verified.clear();
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void evictExpired() {
+        final Instant now = Instant.now();
+        verified.values().removeIf(jwt -> jwt.isExpiredAt(now));
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public String describeStats() {
+        final long hitCount = hits.get();
+        final long total = hitCount + misses.get();
+        return String.format("size: %d, hits: %d, misses: %d, hit rate: %.1f%%", verified.size(), hitCount,
+                total - hitCount, total == 0 ? 0 : hitCount * 100.0 / total);
+    }
+
+    // drops expired entries, and if that is not enough, an arbitrary quarter of the rest (they will just be re-verified)
+    private void makeRoom(Instant now) {
+        verified.values().removeIf(jwt -> jwt.isExpiredAt(now));
+        if (verified.size() >= maxSize) {
+            int toRemove = verified.size() / 4 + 1;
+            Iterator<String> keys = verified.keySet().iterator();
+            while (toRemove-- > 0 && keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+            log.info("Verified token cache full, dropped a quarter of entries, consider raising max size");
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            final byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e); // every JVM is required to provide it
+        }
+    }
+
+}
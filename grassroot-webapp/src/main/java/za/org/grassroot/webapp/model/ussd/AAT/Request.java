@@ -21,6 +21,9 @@ public class Request {
     @XmlElement(name = "option")
     final public List<Option> options;
 
+    @XmlTransient
+    private volatile byte[] renderedXml; // once written, so a request that is returned again is not rendered again
+
     public Request() {
         headertext = null;
         options = null;
@@ -31,4 +34,12 @@ public class Request {
         this.options = options;
     }
 
+    public byte[] renderedXml() {
+        return renderedXml;
+    }
+
+    public void cacheRenderedXml(byte[] renderedXml) {
+        this.renderedXml = renderedXml;
+    }
+
 }
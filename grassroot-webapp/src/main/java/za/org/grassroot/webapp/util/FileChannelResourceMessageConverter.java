@@ -0,0 +1,37 @@
+package za.org.grassroot.webapp.util;
+
+import org.springframework.core.io.Resource;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.ResourceHttpMessageConverter;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes whole files (such as media served from the local cache) with FileChannel.transferTo, so the content goes
+ * from the file to the response without being copied through a buffer on the heap. Anything else, and requests for
+ * ranges (which go through the resource region converter), are written as before.
+ */
+public class FileChannelResourceMessageConverter extends ResourceHttpMessageConverter {
+
+    @Override
+    protected void writeContent(Resource resource, HttpOutputMessage outputMessage) throws IOException {
+        if (!resource.isFile()) {
+            super.writeContent(resource, outputMessage);
+            return;
+        }
+
+        try (FileChannel file = FileChannel.open(resource.getFile().toPath(), StandardOpenOption.READ)) {
+            final WritableByteChannel body = Channels.newChannel(outputMessage.getBody());
+            final long size = file.size();
+            long position = 0;
+            while (position < size) {
+                position += file.transferTo(position, size - position, body);
+            }
+        }
+    }
+
+}
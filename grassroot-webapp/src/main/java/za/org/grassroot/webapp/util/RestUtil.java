@@ -1,15 +1,14 @@
 package za.org.grassroot.webapp.util;
 
 import lombok.extern.slf4j.Slf4j;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.access.AccessDeniedException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import za.org.grassroot.core.domain.Permission;
-import za.org.grassroot.services.exception.MemberLacksPermissionException;
-import za.org.grassroot.webapp.controller.rest.exception.FileCreationException;
 import za.org.grassroot.webapp.enums.RestMessage;
 import za.org.grassroot.webapp.enums.RestStatus;
 import za.org.grassroot.webapp.model.rest.wrappers.GenericResponseWrapper;
@@ -17,8 +16,6 @@ import za.org.grassroot.webapp.model.rest.wrappers.PermissionLackingWrapper;
 import za.org.grassroot.webapp.model.rest.wrappers.ResponseWrapper;
 import za.org.grassroot.webapp.model.rest.wrappers.ResponseWrapperImpl;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -36,23 +33,23 @@ public class RestUtil {
                                                                    Permission.GROUP_PERMISSION_UPDATE_GROUP_DETAILS,
                                                                    Permission.GROUP_PERMISSION_DELETE_GROUP_MEMBER).collect(Collectors.toSet());
 
-    public static ResponseEntity<byte[]> convertWorkbookToDownload(String fileName, XSSFWorkbook xls) {
-        try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-            headers.add("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
-            headers.add("Cache-Control", "no-cache");
-            headers.add("Pragma", "no-cache");
-            headers.add("Expires", "0");
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            xls.write(baos);
-            return new ResponseEntity<>(baos.toByteArray(), headers, HttpStatus.OK);
-        } catch (IOException e) {
-            log.error("IO Exception generating spreadsheet!", e);
-            throw new FileCreationException();
-        } catch (AccessDeniedException e) {
-            throw new MemberLacksPermissionException(Permission.GROUP_PERMISSION_SEE_MEMBER_DETAILS);
-        }
+    // writes the workbook straight to the response, rather than into an array first, and then disposes of it
+    public static ResponseEntity<StreamingResponseBody> convertWorkbookToDownload(String fileName, Workbook xls) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
+        headers.add("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
+        headers.add("Cache-Control", "no-cache");
+        headers.add("Pragma", "no-cache");
+        headers.add("Expires", "0");
+        StreamingResponseBody body = outputStream -> {
+            try {
+                xls.write(outputStream);
+            } finally {
+                if (xls instanceof SXSSFWorkbook)
+                    ((SXSSFWorkbook) xls).dispose();
+            }
+        };
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
     }
 
     public static Set<Permission> filterPermissions(Set<Permission> permissions){
@@ -13,6 +13,9 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
 
 /**
  * Created by luke on 2015/12/04.
@@ -26,6 +29,9 @@ public class USSDMenuUtil {
 
     private static final int enumLength = ("1. ").length();
 
+    // menus that are the same for everyone using a language, built once per language (so rendered once as well)
+    private final ConcurrentMap<String, Request> staticMenus = new ConcurrentHashMap<>();
+
     public USSDMenuUtil(
             @Value("${grassroot.ussd.return.url:http://127.0.0.1:8080/ussd/}") String baseURI,
             @Value("${grassroot.ussd.menu.length.opening:140}") int maxOpeningMenuLength,
@@ -70,6 +76,23 @@ public class USSDMenuUtil {
         return menuRequest;
     }
 
+    public Request staticMenu(String menuKey, String languageCode, Supplier<USSDMenu> menu) throws URISyntaxException {
+        final String cacheKey = menuKey + ":" + languageCode;
+        Request request = staticMenus.get(cacheKey);
+        if (request == null) {
+            request = menuBuilder(menu.get(), false);
+            final Request existing = staticMenus.putIfAbsent(cacheKey, request);
+            request = existing != null ? existing : request;
+        }
+        return request;
+    }
+
+    // for when the messages behind the menus change
+    public void clearStaticMenus() {
+        log.info("Clearing {} cached static USSD menus", staticMenus.size());
+        staticMenus.clear();
+    }
+
     private List<Option> freeText(String urlEnding) throws URISyntaxException {
         return Collections.singletonList(new Option("", 1, 1, new URI(baseURI + urlEnding), false));
     }
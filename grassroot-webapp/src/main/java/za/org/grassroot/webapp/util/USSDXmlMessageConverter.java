@@ -0,0 +1,56 @@
+package za.org.grassroot.webapp.util;
+
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import za.org.grassroot.webapp.model.ussd.AAT.Request;
+
+import java.io.IOException;
+
+/**
+ * Writes USSD responses with the renderer instead of JAXB, reusing the rendered bytes when the same request instance
+ * is returned again (as the error responses and cached static menus are).
+ */
+public class USSDXmlMessageConverter extends AbstractHttpMessageConverter<Request> {
+
+    public USSDXmlMessageConverter() {
+        super(MediaType.APPLICATION_XML, MediaType.TEXT_XML, new MediaType("application", "*+xml"));
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return Request.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected boolean canRead(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected Request readInternal(Class<? extends Request> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("USSD requests are only written", inputMessage);
+    }
+
+    @Override
+    protected Long getContentLength(Request request, MediaType contentType) {
+        return (long) renderedXml(request).length;
+    }
+
+    @Override
+    protected void writeInternal(Request request, HttpOutputMessage outputMessage) throws IOException {
+        outputMessage.getBody().write(renderedXml(request));
+    }
+
+    private static byte[] renderedXml(Request request) {
+        byte[] xml = request.renderedXml();
+        if (xml == null) {
+            xml = USSDXmlRenderer.render(request);
+            request.cacheRenderedXml(xml);
+        }
+        return xml;
+    }
+
+}
@@ -0,0 +1,77 @@
+package za.org.grassroot.webapp.util;
+
+import za.org.grassroot.webapp.model.ussd.AAT.Option;
+import za.org.grassroot.webapp.model.ussd.AAT.Request;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes a USSD request straight to UTF-8 XML, byte for byte as the JAXB marshaller does for it (declaration, element
+ * and attribute order, empty and missing elements, and escaping), without building a marshaller per response.
+ */
+public final class USSDXmlRenderer {
+
+    private static final String DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>";
+
+    private USSDXmlRenderer() {
+        // static methods only
+    }
+
+    public static byte[] render(Request request) {
+        final StringBuilder xml = new StringBuilder(512).append(DECLARATION).append("<request>");
+
+        if (request.headertext != null) {
+            xml.append("<headertext>");
+            appendEscaped(xml, request.headertext, false);
+            xml.append("</headertext>");
+        }
+
+        if (request.options != null) {
+            if (request.options.isEmpty()) {
+                xml.append("<options/>");
+            } else {
+                xml.append("<options>");
+                request.options.forEach(option -> appendOption(xml, option));
+                xml.append("</options>");
+            }
+        }
+
+        return xml.append("</request>").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void appendOption(StringBuilder xml, Option option) {
+        xml.append("<option command=\"").append(option.command).append("\" order=\"").append(option.order).append('"');
+        if (option.callback != null) {
+            xml.append(" callback=\"");
+            appendEscaped(xml, option.callback.toString(), true);
+            xml.append('"');
+        }
+        if (option.display != null)
+            xml.append(" display=\"").append(option.display).append('"');
+
+        if (option.value == null) {
+            xml.append("/>");
+        } else {
+            xml.append('>');
+            appendEscaped(xml, option.value, false);
+            xml.append("</option>");
+        }
+    }
+
+    private static void appendEscaped(StringBuilder xml, String text, boolean isAttribute) {
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            switch (c) {
+                case '&':   xml.append("&amp;"); break;
+                case '<':   xml.append("&lt;"); break;
+                case '>':   xml.append("&gt;"); break;
+                case '\r':  xml.append("&#xD;"); break;
+                case '"':   xml.append(isAttribute ? "&quot;" : "\""); break;
+                case '\t':  xml.append(isAttribute ? "&#x9;" : "\t"); break;
+                case '\n':  xml.append(isAttribute ? "&#xA;" : "\n"); break;
+                default:    xml.append(c);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,13 @@
+-- tracking chunked generation of broadcast short messages, so an interrupted send can resume
+alter table broadcast add column sms_generation_complete boolean default true;
+alter table broadcast add column sms_progress_user_id bigint;
+alter table broadcast add column sms_generated_count bigint default 0;
+alter table broadcast add column sms_progress_time timestamp;
+
+update broadcast set sms_generation_complete = true;
+update broadcast set sms_generated_count = 0;
+
+alter table broadcast alter column sms_generation_complete set not null;
+alter table broadcast alter column sms_generated_count set not null;
+
+create index broadcast_sms_incomplete_index on broadcast (sms_progress_time) where sms_generation_complete = false;
@@ -0,0 +1,5 @@
+drop index if exists broadcast_sms_incomplete_index;
+alter table broadcast drop column sms_progress_time;
+alter table broadcast drop column sms_generated_count;
+alter table broadcast drop column sms_progress_user_id;
+alter table broadcast drop column sms_generation_complete;
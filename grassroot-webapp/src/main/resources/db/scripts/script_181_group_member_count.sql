@@ -0,0 +1,9 @@
+-- denormalised count of memberships, maintained with the memberships and reconciled periodically
+alter table group_profile add column member_count integer default 0;
+
+update group_profile g set member_count = c.member_count
+  from (select group_id, count(*) as member_count from group_user_membership group by group_id) c
+  where g.id = c.group_id;
+update group_profile set member_count = 0 where member_count is null;
+
+alter table group_profile alter column member_count set not null;
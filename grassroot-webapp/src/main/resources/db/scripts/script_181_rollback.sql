@@ -0,0 +1 @@
+alter table group_profile drop column member_count;
@@ -0,0 +1,15 @@
+-- charged usage per account per day, rolled up nightly, so month to date spend is a sum over these rather than a scan
+create table account_usage_day (
+  id bigserial not null,
+  account_id int8 not null,
+  usage_date date not null,
+  ussd_sessions int8 not null default 0,
+  charged_notifications int8 not null default 0,
+  calculated_time timestamp not null,
+  primary key (id)
+);
+
+alter table account_usage_day add constraint uk_account_usage_day_account_date unique (account_id, usage_date);
+alter table account_usage_day add constraint fk_account_usage_day_account foreign key (account_id) references paid_account;
+
+create index account_usage_day_date_index on account_usage_day (usage_date);
@@ -0,0 +1,14 @@
+drop trigger group_profile_search_vector_update on group_profile;
+drop trigger event_search_vector_update on event;
+drop trigger action_todo_search_vector_update on action_todo;
+drop trigger campaign_search_vector_update on campaign;
+
+drop function group_profile_search_vector();
+drop function event_search_vector();
+drop function action_todo_search_vector();
+drop function campaign_search_vector();
+
+alter table group_profile drop column search_vector;
+alter table event drop column search_vector;
+alter table action_todo drop column search_vector;
+alter table campaign drop column search_vector;
@@ -16,6 +16,7 @@ import za.org.grassroot.core.dto.UserMinimalProjection;
 import za.org.grassroot.core.enums.MessageVariationAssignment;
 import za.org.grassroot.core.enums.Province;
 import za.org.grassroot.core.enums.UserInterfaceType;
+import za.org.grassroot.services.group.GroupMemberCounter;
 import za.org.grassroot.webapp.model.ussd.AAT.Request;
 
 import java.time.Instant;
@@ -24,6 +25,7 @@ import java.util.Locale;
 import java.util.Set;
 
 import static org.mockito.ArgumentMatchers.nullable;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 public class UssdCampaignServiceTest extends UssdUnitTest {
@@ -46,7 +48,8 @@ public class UssdCampaignServiceTest extends UssdUnitTest {
 		testGroup = new Group("test group", GroupPermissionTemplate.DEFAULT_GROUP, testUser);
 		testCampaign = createTestCampaign();
 
-		this.ussdCampaignService = new UssdCampaignServiceImpl(campaignBrokerMock, userManagementServiceMock, addressBrokerMock, ussdSupport);
+		this.ussdCampaignService = new UssdCampaignServiceImpl(campaignBrokerMock, userManagementServiceMock, addressBrokerMock, ussdSupport,
+				mock(GroupMemberCounter.class));
 	}
 
 	@Test
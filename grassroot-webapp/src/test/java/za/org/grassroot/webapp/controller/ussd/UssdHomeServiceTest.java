@@ -34,7 +34,7 @@ public class UssdHomeServiceTest extends UssdUnitTest {
 
 		this.ussdLiveWireServiceMock = mock(UssdLiveWireService.class);
 		this.ussdHomeService = new UssdHomeServiceImpl(ussdSupport, this.ussdLiveWireServiceMock, null, null, null, null, null,
-                locationInfoBrokerMock, userManagementServiceMock, campaignBrokerMock, null, userLoggerMock, cacheUtilManagerMock, userResponseBrokerMock, groupQueryBrokerMock, accountFeaturesBrokerMock, groupBrokerMock);
+                inboundKeywordRouterMock, userManagementServiceMock, campaignBrokerMock, null, userLoggerMock, cacheUtilManagerMock, userResponseBrokerMock, groupQueryBrokerMock, accountFeaturesBrokerMock, groupBrokerMock);
     }
 
     @Test
@@ -12,6 +12,7 @@ import za.org.grassroot.integration.LearningService;
 import za.org.grassroot.integration.experiments.ExperimentBroker;
 import za.org.grassroot.integration.location.LocationInfoBroker;
 import za.org.grassroot.integration.location.UssdLocationServicesBroker;
+import za.org.grassroot.services.InboundKeywordRouter;
 import za.org.grassroot.services.PermissionBroker;
 import za.org.grassroot.services.SafetyEventBroker;
 import za.org.grassroot.services.UserResponseBroker;
@@ -81,6 +82,9 @@ public abstract class UssdUnitTest {
 	@Mock
 	protected LocationInfoBroker locationInfoBrokerMock;
 
+	@Mock
+	protected InboundKeywordRouter inboundKeywordRouterMock;
+
 	@Mock
 	protected TodoBroker todoBrokerMock;
 
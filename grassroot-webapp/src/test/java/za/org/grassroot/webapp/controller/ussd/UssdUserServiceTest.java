@@ -23,7 +23,7 @@ public class UssdUserServiceTest extends UssdUnitTest {
 		testUser = new User(testUserPhone, null, null);
 
 		this.ussdUserService = new UssdUserServiceImpl(ussdSupport, userManagementServiceMock, userLoggerMock, locationInfoBrokerMock, mock(AddressBroker.class));
-		this.ussdHomeService = new UssdHomeServiceImpl(ussdSupport, null, null, null, null, null, null, locationInfoBrokerMock, userManagementServiceMock, campaignBrokerMock, null, userLoggerMock, cacheUtilManagerMock, userResponseBrokerMock, groupQueryBrokerMock, accountFeaturesBrokerMock, groupBrokerMock);
+		this.ussdHomeService = new UssdHomeServiceImpl(ussdSupport, null, null, null, null, null, null, inboundKeywordRouterMock, userManagementServiceMock, campaignBrokerMock, null, userLoggerMock, cacheUtilManagerMock, userResponseBrokerMock, groupQueryBrokerMock, accountFeaturesBrokerMock, groupBrokerMock);
 	}
 
 	/*
@@ -0,0 +1,215 @@
+package za.org.grassroot.webapp.db;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.util.StreamUtils;
+import za.org.grassroot.core.repository.CampaignRepository;
+import za.org.grassroot.core.repository.EventRepository;
+import za.org.grassroot.core.repository.GroupRepository;
+import za.org.grassroot.core.repository.TodoRepository;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the text searches against Postgres before and after the stored search vectors (change_183), on the same seeded
+ * rows, to check they match the same rows as the expressions they replaced, and that they use the gin indexes
+ */
+public class SearchVectorMigrationTest {
+
+    private static final String PERMISSION = "GROUP_PERMISSION_CREATE_GROUP_MEETING";
+    private static final List<String> SEARCHES = Arrays.asList("housing", "water", "meet:*", "housing & water",
+            "youth | march", "committe:*", "sampl:*", "nothing");
+    private static final Pattern PARAMETER = Pattern.compile("\\?(\\d+)");
+
+    private static EmbeddedPostgres postgres;
+    private static JdbcTemplate jdbcTemplate;
+
+    // each search as it was before the stored vectors, and the repository method that now runs it
+    private static final List<Search> SEARCH_QUERIES = Arrays.asList(
+            new Search(GroupRepository.class, "findDiscoverableGroupsWithNameOrTaskTextWithoutMember",
+                    "select g.* from group_profile g where " +
+                    "g.discoverable = true and " +
+                    "g.id not in (select m.group_id from group_user_membership m where m.user_id = ?1) and " +
+                    "(" +
+                    "to_tsvector('english', g.name) @@ to_tsquery('english', ?2) or " +
+                    "g.id in (select e.ancestor_group_id from event e where to_tsvector('english', e.name) @@ to_tsquery('english', ?2)) or " +
+                    "g.id in (select l.ancestor_group_id from action_todo l where to_tsvector('english', l.message) @@ to_tsquery('english', ?2))" +
+                    ")"),
+            new Search(GroupRepository.class, "findDiscoverableGroupsWithNameWithoutMember",
+                    "select g.* from group_profile g where " +
+                    "g.discoverable = true and " +
+                    "g.id not in (select m.group_id from group_user_membership m where m.user_id = ?1) and " +
+                    "(to_tsvector('english', g.name) @@ to_tsquery('english', ?2))"),
+            new Search(GroupRepository.class, "findByActiveAndMembershipsUserWithNameContainsText",
+                    "select g.* from group_profile g " +
+                    "inner join group_user_membership m on g.id = m.group_id " +
+                    "where g.active = true and m.user_id = ?1 and to_tsvector('english', g.name) @@ to_tsquery('english', ?2)"),
+            new Search(GroupRepository.class, "findUsersGroupsWithSearchTermOrderedByActivity",
+                    "select g.* from group_profile g " +
+                    "inner join group_user_membership m on g.id = m.group_id " +
+                    "inner join group_role_permission rp on m.role = rp.role and g.id = rp.group_id " +
+                    "where g.active = true and g.parent is null and m.user_id = ?1 and rp.permission = ?2 " +
+                    "and to_tsvector('english', g.name) @@ to_tsquery('english', ?3) " +
+                    "order by greatest(g.last_task_creation_time, g.last_log_creation_time) desc"),
+            new Search(EventRepository.class, "findByParentGroupMembershipsUserAndNameSearchTerm",
+                    "select e.* from event e " +
+                    "inner join group_profile g on e.parent_group_id = g.id " +
+                    "inner join group_user_membership m on g.id = m.group_id " +
+                    "where m.user_id = ?1 and to_tsvector('english', e.name) @@ to_tsquery('english', ?2)"),
+            new Search(TodoRepository.class, "findByParentGroupMembershipsUserAndMessageSearchTerm",
+                    "select l.* from action_todo l " +
+                    "inner join group_profile g on l.parent_group_id = g.id " +
+                    "inner join group_user_membership m on g.id = m.group_id " +
+                    "where m.user_id = ?1 and to_tsvector('english', l.message) @@ to_tsquery('english', ?2)"),
+            new Search(CampaignRepository.class, "findCampaignsWithNamesIncluding",
+                    "select c.* from campaign c where " +
+                    "(to_tsvector('english', c.name) @@ to_tsquery('english', ?1))"));
+
+    @BeforeClass
+    public static void setUp() throws IOException, SQLException {
+        postgres = EmbeddedPostgres.start();
+        // one connection throughout, so the planner settings below apply to the queries explained
+        jdbcTemplate = new JdbcTemplate(new SingleConnectionDataSource(postgres.getPostgresDatabase().getConnection(), true));
+
+        // only the columns the searches use
+        jdbcTemplate.execute("create table group_profile (id bigint primary key, name varchar(50), discoverable boolean, " +
+                "active boolean, parent bigint, last_task_creation_time timestamp, last_log_creation_time timestamp)");
+        jdbcTemplate.execute("create table event (id bigint primary key, name varchar(255), parent_group_id bigint, ancestor_group_id bigint)");
+        jdbcTemplate.execute("create table action_todo (id bigint primary key, message varchar(255), parent_group_id bigint, ancestor_group_id bigint)");
+        jdbcTemplate.execute("create table campaign (id bigint primary key, name varchar(255))");
+        jdbcTemplate.execute("create table group_user_membership (group_id bigint, user_id bigint, role varchar(50))");
+        jdbcTemplate.execute("create table group_role_permission (group_id bigint, role varchar(50), permission varchar(100))");
+
+        jdbcTemplate.update("insert into group_profile values " +
+                "(1, 'Soweto housing committee', true, true, null, now() - interval '2 days', now() - interval '1 day'), " +
+                "(2, 'Water meetings in Alex', true, true, null, now() - interval '3 days', now()), " +
+                "(3, 'Youth group', true, true, null, now() - interval '5 days', now() - interval '5 days'), " +
+                "(4, 'Housing and water forum', false, true, null, now(), now()), " +
+                "(5, 'Meeting planners', true, false, null, now(), now()), " +
+                "(6, 'Housing subcommittee', true, true, 1, now(), now()), " +
+                "(7, null, true, true, null, now(), now())");
+        jdbcTemplate.update("insert into event values (1, 'Housing meeting', 3, 3), (2, 'Water march', 1, 1), " +
+                "(3, null, 2, 2), (4, 'Meetings about meetings', 4, 4)");
+        jdbcTemplate.update("insert into action_todo values (1, 'Collect water samples', 3, 3), " +
+                "(2, 'Fix housing forms', 5, 5), (3, null, 1, 1), (4, 'Youth march banners', 6, 1)");
+        jdbcTemplate.update("insert into campaign values (1, 'Housing for all'), (2, 'Clean water'), " +
+                "(3, 'Meetings campaign'), (4, null)");
+        jdbcTemplate.update("insert into group_user_membership values (1, 1, 'ROLE_GROUP_ORGANIZER'), " +
+                "(2, 1, 'ROLE_ORDINARY_MEMBER'), (4, 1, 'ROLE_GROUP_ORGANIZER'), (6, 1, 'ROLE_GROUP_ORGANIZER'), " +
+                "(3, 2, 'ROLE_GROUP_ORGANIZER'), (5, 2, 'ROLE_ORDINARY_MEMBER'), (1, 2, 'ROLE_ORDINARY_MEMBER')");
+        jdbcTemplate.update("insert into group_role_permission values (1, 'ROLE_GROUP_ORGANIZER', ?), " +
+                "(4, 'ROLE_GROUP_ORGANIZER', ?), (3, 'ROLE_GROUP_ORGANIZER', ?), (1, 'ROLE_ORDINARY_MEMBER', 'OTHER')",
+                PERMISSION, PERMISSION, PERMISSION);
+    }
+
+    @AfterClass
+    public static void tearDown() throws IOException {
+        if (postgres != null)
+            postgres.close();
+    }
+
+    @Test
+    public void storedVectorsShouldMatchSameRowsAndUseGinIndexes() throws IOException {
+        final Map<String, Set<Long>> before = runAll(true);
+        assertTrue("seeded rows should give some matches", before.values().stream().mapToInt(Set::size).sum() > 20);
+
+        jdbcTemplate.execute(StreamUtils.copyToString(
+                new ClassPathResource("db/scripts/script_183_search_vectors.sql").getInputStream(), StandardCharsets.UTF_8));
+        assertEquals(before, runAll(false));
+
+        // the triggers keep the vectors current, so inserts and updates match as the expressions would
+        jdbcTemplate.update("insert into group_profile values (8, 'Housing cooperative', true, true, null, now(), now())");
+        jdbcTemplate.update("insert into group_user_membership values (8, 2, 'ROLE_ORDINARY_MEMBER')");
+        jdbcTemplate.update("update group_profile set name = 'Water youth' where id = 3");
+        jdbcTemplate.update("update event set name = 'Committee elections' where id = 3");
+        jdbcTemplate.update("update action_todo set message = 'Water sampling' where id = 2");
+        jdbcTemplate.update("update campaign set name = 'Youth housing' where id = 4");
+        assertEquals(runAll(true), runAll(false));
+
+        // enough rows that few match, and only bitmap scans (how a gin index is read) left cheap, to see the indexes serve the searches
+        jdbcTemplate.update("insert into group_profile select i, 'Filler group ' || i, true, true, null, now(), now() " +
+                "from generate_series(100, 5000) i");
+        jdbcTemplate.update("insert into group_user_membership select i, 1, 'ROLE_ORDINARY_MEMBER' from generate_series(100, 5000) i");
+        jdbcTemplate.update("insert into event select i, 'Filler event ' || i, 100, 100 from generate_series(100, 5000) i");
+        jdbcTemplate.update("insert into action_todo select i, 'Filler todo ' || i, 100, 100 from generate_series(100, 5000) i");
+        jdbcTemplate.update("insert into campaign select i, 'Filler campaign ' || i from generate_series(100, 5000) i");
+        jdbcTemplate.execute("analyze");
+        final Set<String> indexesUsed = new HashSet<>();
+        jdbcTemplate.execute("set enable_seqscan = off");
+        jdbcTemplate.execute("set enable_indexscan = off");
+        for (Search search : SEARCH_QUERIES) {
+            final String plan = String.join("\n", jdbcTemplate.queryForList("explain " + search.jdbcSql(false),
+                    String.class, search.arguments(false, 1L, "housing")));
+            final Matcher matcher = Pattern.compile("([a-z_]+_search_vector_index)").matcher(plan);
+            while (matcher.find())
+                indexesUsed.add(matcher.group(1));
+            assertTrue("expected an index scan for " + search.method + ", plan:\n" + plan, plan.contains("_search_vector_index"));
+        }
+        jdbcTemplate.execute("reset enable_seqscan");
+        jdbcTemplate.execute("reset enable_indexscan");
+        assertEquals(new HashSet<>(Arrays.asList("group_profile_search_vector_index", "event_search_vector_index",
+                "action_todo_search_vector_index", "campaign_search_vector_index")), indexesUsed);
+    }
+
+    // the ids each search finds, per search, user and term
+    private Map<String, Set<Long>> runAll(boolean previous) {
+        final Map<String, Set<Long>> results = new TreeMap<>();
+        for (Search search : SEARCH_QUERIES) {
+            for (long userId = 1; userId <= 2; userId++) {
+                for (String term : SEARCHES) {
+                    results.put(search.method + ":" + userId + ":" + term, new TreeSet<>(jdbcTemplate.queryForList(
+                            search.jdbcSql(previous), search.arguments(previous, userId, term)).stream()
+                            .map(row -> ((Number) row.get("id")).longValue()).collect(Collectors.toList())));
+                }
+            }
+        }
+        return results;
+    }
+
+    private static final class Search {
+        private final String method;
+        private final String previousSql;
+        private final String currentSql;
+
+        private Search(Class<?> repository, String method, String previousSql) {
+            this.method = method;
+            this.previousSql = previousSql;
+            this.currentSql = Arrays.stream(repository.getMethods()).filter(m -> m.getName().equals(method))
+                    .map(m -> m.getAnnotation(Query.class).value()).findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("No query method " + method));
+        }
+
+        private String jdbcSql(boolean previous) {
+            return PARAMETER.matcher(previous ? previousSql : currentSql).replaceAll("?");
+        }
+
+        // the campaign search takes only the term, and the paged group search a permission as well
+        private Object[] arguments(boolean previous, long userId, String term) {
+            final boolean termOnly = currentSql.startsWith("select c.*");
+            final boolean withPermission = currentSql.contains("?3");
+            final List<Object> arguments = new ArrayList<>();
+            final Matcher matcher = PARAMETER.matcher(previous ? previousSql : currentSql);
+            while (matcher.find()) {
+                final int parameter = Integer.parseInt(matcher.group(1));
+                arguments.add(termOnly ? term : parameter == 1 ? userId : parameter == 2 && withPermission ? PERMISSION : term);
+            }
+            return arguments.toArray();
+        }
+    }
+
+}
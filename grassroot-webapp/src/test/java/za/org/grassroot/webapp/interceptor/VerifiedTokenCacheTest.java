@@ -0,0 +1,95 @@
+package za.org.grassroot.webapp.interceptor;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import za.org.grassroot.integration.authentication.JwtService;
+import za.org.grassroot.integration.authentication.VerifiedJwt;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+@RunWith(MockitoJUnitRunner.class)
+public class VerifiedTokenCacheTest {
+
+    private static final String TOKEN = "header.payload.signature";
+
+    @Mock private JwtService jwtServiceMock;
+
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @Before
+    public void setUp() {
+        verifiedTokenCache = new VerifiedTokenCache(jwtServiceMock);
+    }
+
+    @Test
+    public void shouldVerifyTokenOnlyOnceWhileValid() {
+        VerifiedJwt jwt = verifiedJwt(Instant.now().plus(1, ChronoUnit.HOURS));
+        when(jwtServiceMock.parseVerifiedToken(TOKEN)).thenReturn(jwt);
+
+        assertSame(jwt, verifiedTokenCache.verify(TOKEN));
+        assertSame(jwt, verifiedTokenCache.verify(TOKEN));
+        assertSame(jwt, verifiedTokenCache.verify(TOKEN));
+
+        verify(jwtServiceMock, times(1)).parseVerifiedToken(TOKEN);
+        assertEquals(2, verifiedTokenCache.getHitCount());
+        assertEquals(1, verifiedTokenCache.getMissCount());
+    }
+
+    @Test
+    public void shouldNeverServeTokenPastExpiry() throws InterruptedException {
+        when(jwtServiceMock.parseVerifiedToken(TOKEN)).thenReturn(verifiedJwt(Instant.now().plusMillis(100)));
+        assertNotNull(verifiedTokenCache.verify(TOKEN));
+
+        Thread.sleep(150);
+        when(jwtServiceMock.parseVerifiedToken(TOKEN)).thenReturn(null); // as the service would for an expired token
+
+        assertNull(verifiedTokenCache.verify(TOKEN));
+        verify(jwtServiceMock, times(2)).parseVerifiedToken(TOKEN);
+    }
+
+    @Test
+    public void shouldNotCacheAlreadyExpiredToken() {
+        when(jwtServiceMock.parseVerifiedToken(TOKEN)).thenReturn(verifiedJwt(Instant.now().minusSeconds(1)));
+
+        verifiedTokenCache.verify(TOKEN);
+        verifiedTokenCache.verify(TOKEN);
+
+        verify(jwtServiceMock, times(2)).parseVerifiedToken(TOKEN);
+        assertEquals(0, verifiedTokenCache.getHitCount());
+    }
+
+    @Test
+    public void shouldNotServeInvalidatedToken() {
+        when(jwtServiceMock.parseVerifiedToken(TOKEN)).thenReturn(verifiedJwt(Instant.now().plus(1, ChronoUnit.HOURS)));
+        assertNotNull(verifiedTokenCache.verify(TOKEN));
+
+        verifiedTokenCache.invalidate(TOKEN);
+        when(jwtServiceMock.parseVerifiedToken(TOKEN)).thenReturn(null);
+
+        assertNull(verifiedTokenCache.verify(TOKEN));
+        verify(jwtServiceMock, times(2)).parseVerifiedToken(TOKEN);
+    }
+
+    @Test
+    public void shouldNotCacheFailedVerification() {
+        when(jwtServiceMock.parseVerifiedToken(TOKEN)).thenReturn(null);
+
+        assertNull(verifiedTokenCache.verify(TOKEN));
+        assertNull(verifiedTokenCache.verify(TOKEN));
+
+        verify(jwtServiceMock, times(2)).parseVerifiedToken(TOKEN);
+    }
+
+    private VerifiedJwt verifiedJwt(Instant expiresAt) {
+        return new VerifiedJwt("user-uid", Collections.singletonList("ROLE_FULL_USER"), Collections.emptyList(), expiresAt);
+    }
+
+}
@@ -0,0 +1,99 @@
+package za.org.grassroot.webapp.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.context.MessageSource;
+import org.springframework.context.NoSuchMessageException;
+import org.springframework.context.support.ResourceBundleMessageSource;
+import za.org.grassroot.services.util.CatalogueMessageSource;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+
+@Slf4j
+public class MessageCatalogueTest {
+
+    private static final String[] LANGUAGES = { "en", "af", "nso", "st", "ts", "ve", "xh", "zu" };
+    private static final Object[] ARGS = { "Thabo", "Soweto youth group", "Monday" };
+
+    private ResourceBundleMessageSource bundleSource;
+    private CatalogueMessageSource catalogueSource;
+    private Set<String> allKeys;
+
+    @Before
+    public void setUp() {
+        bundleSource = new ResourceBundleMessageSource();
+        bundleSource.setBasename("messages");
+
+        catalogueSource = new CatalogueMessageSource("messages", LANGUAGES);
+        catalogueSource.afterPropertiesSet();
+
+        allKeys = new TreeSet<>();
+        for (String language : LANGUAGES)
+            allKeys.addAll(ResourceBundle.getBundle("messages", new Locale(language)).keySet());
+    }
+
+    @Test
+    public void catalogueMatchesBundleWithEnglishFallback() {
+        for (String language : LANGUAGES) {
+            final Locale locale = new Locale(language);
+            for (String key : allKeys) {
+                assertEquals(key + " in " + language, withEnglishFallback(bundleSource, key, null, locale),
+                        catalogueSource.getMessage(key, null, locale));
+                assertEquals(key + " in " + language + " with arguments", withEnglishFallback(bundleSource, key, ARGS, locale),
+                        catalogueSource.getMessage(key, ARGS, locale));
+            }
+        }
+    }
+
+    @Test(expected = NoSuchMessageException.class)
+    public void missingEverywhereStillThrows() {
+        catalogueSource.getMessage("ussd.no.such.key", null, new Locale("zu"));
+    }
+
+    @Test
+    public void comparePerMenuRenderCost() {
+        // roughly a menu's worth of lookups, for a language that is missing some of them
+        final List<String> menuKeys = new ArrayList<>(allKeys).subList(0, Math.min(8, allKeys.size()));
+        final Locale locale = new Locale("ve");
+        final int menus = 20000;
+
+        final long bundleNanos = timeMenus(bundleSource, menuKeys, locale, menus);
+        final long catalogueNanos = timeMenus(catalogueSource, menuKeys, locale, menus);
+        log.info("Per-menu render cost over {} menus: resource bundle {} nsecs, catalogue {} nsecs", menus,
+                bundleNanos / menus, catalogueNanos / menus);
+    }
+
+    private static long timeMenus(MessageSource source, List<String> keys, Locale locale, int menus) {
+        for (int i = 0; i < menus / 10; i++) // warm up
+            keys.forEach(key -> withEnglishFallback(source, key, ARGS, locale));
+        final long start = System.nanoTime();
+        for (int i = 0; i < menus; i++)
+            keys.forEach(key -> withEnglishFallback(source, key, ARGS, locale));
+        return System.nanoTime() - start;
+    }
+
+    // as the USSD message assembler does
+    private static String withEnglishFallback(MessageSource source, String key, Object[] args, Locale locale) {
+        try {
+            return format(source, key, args, locale);
+        } catch (NoSuchMessageException e) {
+            try {
+                return format(source, key, args, Locale.ENGLISH);
+            } catch (NoSuchMessageException e2) {
+                return "missing";
+            }
+        }
+    }
+
+    private static String format(MessageSource source, String key, Object[] args, Locale locale) {
+        try {
+            return source.getMessage(key, args, locale);
+        } catch (IllegalArgumentException e) {
+            return "invalid pattern";
+        }
+    }
+
+}
@@ -0,0 +1,104 @@
+package za.org.grassroot.webapp.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Before;
+import org.junit.Test;
+import za.org.grassroot.webapp.controller.ussd.menus.USSDMenu;
+import za.org.grassroot.webapp.model.ussd.AAT.Option;
+import za.org.grassroot.webapp.model.ussd.AAT.Request;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+@Slf4j
+public class USSDXmlRendererTest {
+
+    private Marshaller marshaller;
+    private USSDMenuUtil ussdMenuUtil;
+
+    @Before
+    public void setUp() throws JAXBException {
+        marshaller = JAXBContext.newInstance(Request.class).createMarshaller();
+        marshaller.setProperty(Marshaller.JAXB_ENCODING, "UTF-8");
+        ussdMenuUtil = new USSDMenuUtil("http://127.0.0.1:8080/ussd/", 140, 160);
+    }
+
+    @Test
+    public void rendersAsJaxbDoes() throws Exception {
+        final List<Request> requests = Arrays.asList(
+                new Request("Error! Menu is too long.", new ArrayList<>()),
+                new Request("Enter the subject:", Collections.singletonList(
+                        new Option("", 1, 1, new URI("http://127.0.0.1:8080/ussd/mtg/time?entityUid=abc&priorInput=1"), false))),
+                new Request("Sawubona, Thabo! \"Imihlangano\" & <amavoti>\nKhetha:", Arrays.asList(
+                        new Option("Imihlangano", 1, 1, new URI("http://127.0.0.1:8080/ussd/mtg/start"), true),
+                        new Option("Amavoti & izinqumo > 2", 2, 2, new URI("http://127.0.0.1:8080/ussd/vote/start?a=1&b=%22x%22"), true),
+                        new Option("Dié tuis", 3, 3, null, null),
+                        new Option(null, 4, 4, new URI("http://127.0.0.1:8080/ussd/exit"), true))),
+                new Request(null, null),
+                ussdMenuUtil.menuBuilder(new USSDMenu("Choose a language", Collections.singletonMap("user/language-do?language=zu", "isiZulu")), false));
+
+        for (Request request : requests)
+            assertEquals(jaxb(request), new String(USSDXmlRenderer.render(request), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void staticMenusAreBuiltOncePerLanguage() throws Exception {
+        final Request english = ussdMenuUtil.staticMenu("exit", "en", () -> new USSDMenu("Goodbye"));
+        assertSame(english, ussdMenuUtil.staticMenu("exit", "en", () -> new USSDMenu("Should not be built")));
+        assertEquals("Sala kahle", ussdMenuUtil.staticMenu("exit", "zu", () -> new USSDMenu("Sala kahle")).headertext);
+
+        ussdMenuUtil.clearStaticMenus();
+        assertEquals("Goodbye again", ussdMenuUtil.staticMenu("exit", "en", () -> new USSDMenu("Goodbye again")).headertext);
+    }
+
+    @Test
+    public void comparePerResponseRenderCost() throws Exception {
+        final USSDMenu menu = new USSDMenu("Hi Thabo, what do you want to do?");
+        Arrays.asList("mtg", "vote", "todo", "group", "user", "more").forEach(section -> menu.addMenuOption(section + "/start", "Option " + section));
+        final int responses = 20000;
+
+        for (int i = 0; i < responses / 10; i++) { // warm up
+            jaxb(ussdMenuUtil.menuBuilder(menu, true));
+            USSDXmlRenderer.render(ussdMenuUtil.menuBuilder(menu, true));
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < responses; i++)
+            jaxb(ussdMenuUtil.menuBuilder(menu, true));
+        final long jaxbNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < responses; i++)
+            USSDXmlRenderer.render(ussdMenuUtil.menuBuilder(menu, true));
+        final long rendererNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < responses; i++) {
+            final Request cached = ussdMenuUtil.staticMenu("welcome", "en", () -> menu);
+            if (cached.renderedXml() == null)
+                cached.cacheRenderedXml(USSDXmlRenderer.render(cached));
+        }
+        final long cachedNanos = System.nanoTime() - start;
+
+        log.info("Per-response cost over {} responses: JAXB {} nsecs, renderer {} nsecs, cached {} nsecs", responses,
+                jaxbNanos / responses, rendererNanos / responses, cachedNanos / responses);
+    }
+
+    private String jaxb(Request request) throws JAXBException {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        marshaller.marshal(request, output);
+        return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+}